@@ -19,6 +19,11 @@ public class AdvancedStatsPanel extends JPanel {
     private JComboBox<String> periodCombo;
     private Map<String, double[]> monthlySales;
     private List<Object[]> productStats;
+    private final BusyIndicator busyIndicator = new BusyIndicator();
+    private final BackgroundLoader salesLoader = new BackgroundLoader(busyIndicator)
+        .onError(e -> showError("Error loading sales data: ", e));
+    private final BackgroundLoader productsLoader = new BackgroundLoader(busyIndicator)
+        .onError(e -> showError("Error loading product data: ", e));
 
     public AdvancedStatsPanel() {
         dateFormat = new SimpleDateFormat("MM/yyyy");
@@ -44,6 +49,7 @@ public class AdvancedStatsPanel extends JPanel {
         periodCombo.addActionListener(e -> loadData());
         periodPanel.add(new JLabel("Period: "));
         periodPanel.add(periodCombo);
+        periodPanel.add(busyIndicator);
 
         // Tab Vendite
         JPanel salesPanel = new JPanel(new BorderLayout());
@@ -81,38 +87,35 @@ public class AdvancedStatsPanel extends JPanel {
     }
 
     private void loadData() {
-        loadSalesData();
-        loadProductsData();
-        repaint();
+        int months = switch(periodCombo.getSelectedIndex()) {
+            case 0 -> 6;
+            case 1 -> 12;
+            case 2 -> 24;
+            default -> 12;
+        };
+        salesLoader.replace(() -> loadSalesData(months), sales -> {
+            monthlySales = sales;
+            salesChartPanel.repaint();
+        });
+        productsLoader.replace(() -> loadProductsData(months), this::showProductsData);
     }
 
-    private void loadSalesData() {
-        try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            
-            int months = switch(periodCombo.getSelectedIndex()) {
-                case 0 -> 6;
-                case 1 -> 12;
-                case 2 -> 24;
-                default -> 12;
-            };
-
-            // FIXED: Query with proper period filtering
-            String query = "SELECT strftime('%Y-%m', o.data_ordine) as mese, " +
-                          "SUM(o.totale) as totale, " +
-                          "COUNT(*) as num_ordini " +
-                          "FROM ordini o " +
-                          "WHERE o.data_ordine IS NOT NULL " +
-                          "AND o.data_ordine >= datetime('now', '-" + months + " months') " +
-                          "GROUP BY mese " +
+    // Runs in the background
+    private Map<String, double[]> loadSalesData(int months) throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection()) {
+
+            // Monthly totals are kept up to date by triggers on ordini
+            String query = "SELECT mese, totale, ordini as num_ordini " +
+                          "FROM vendite_mensili " +
+                          "WHERE mese >= strftime('%Y-%m', 'now', 'localtime', '-" + months + " months') " +
                           "ORDER BY mese";
 
             System.out.println("Loading sales data for last " + months + " months");
 
-            // FIXED: Thread-safe access to monthlySales
             Map<String, double[]> newMonthlySales = new HashMap<>();
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(query)) {
+            try (PreparedStatement stmt = conn.prepareStatement(query);
+                 BackgroundLoader.Tracking tracking = BackgroundLoader.track(stmt);
+                 ResultSet rs = stmt.executeQuery()) {
 
                 while (rs.next()) {
                     String month = rs.getString("mese");
@@ -126,15 +129,7 @@ public class AdvancedStatsPanel extends JPanel {
                 
                 System.out.println("Loaded " + newMonthlySales.size() + " months of sales data");
             }
-            
-            // Update reference atomically
-            monthlySales = newMonthlySales;
-
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this,
-                "Error loading sales data: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
+            return newMonthlySales;
         }
     }
 
@@ -220,74 +215,74 @@ public class AdvancedStatsPanel extends JPanel {
         }
     }
 
-    private void loadProductsData() {
-        try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            
-            int months = switch(periodCombo.getSelectedIndex()) {
-                case 0 -> 6;
-                case 1 -> 12;
-                case 2 -> 24;
-                default -> 12;
-            };
+    // Runs in the background
+    private List<Object[]> loadProductsData(int months) throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection()) {
 
+            // Per-product monthly totals are kept up to date by triggers on
+            // ordini and dettagli_ordine
             String query = "SELECT COALESCE(p.nome, 'Product N/A') as nome, " +
-                          "SUM(d.quantita) as quantita_totale, " +
-                          "SUM(d.quantita * d.prezzo_unitario) as fatturato, " +
-                          "COUNT(DISTINCT o.id) as num_ordini " +
-                          "FROM dettagli_ordine d " +
-                          "LEFT JOIN prodotti p ON d.prodotto_id = p.id " +
-                          "LEFT JOIN ordini o ON d.ordine_id = o.id " +
-                          "WHERE o.data_ordine IS NOT NULL " +
-                          "AND o.data_ordine >= datetime('now', '-" + months + " months') " +
-                          "GROUP BY d.prodotto_id, p.nome " +
+                          "SUM(v.quantita) as quantita_totale, " +
+                          "SUM(v.fatturato) as fatturato " +
+                          "FROM vendite_prodotti_mensili v " +
+                          "LEFT JOIN prodotti p ON v.prodotto_id = p.id " +
+                          "WHERE v.mese >= strftime('%Y-%m', 'now', 'localtime', '-" + months + " months') " +
+                          "GROUP BY v.prodotto_id " +
                           "ORDER BY fatturato DESC " +
                           "LIMIT 10";
 
             System.out.println("Loading products data for last " + months + " months");
 
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(query)) {
-
-                double totalRevenue = 0;
-                productStats.clear();
+            List<Object[]> stats = new ArrayList<>();
+            try (PreparedStatement stmt = conn.prepareStatement(query);
+                 BackgroundLoader.Tracking tracking = BackgroundLoader.track(stmt);
+                 ResultSet rs = stmt.executeQuery()) {
 
                 while (rs.next()) {
                     String nome = rs.getString("nome");
                     int quantita = rs.getInt("quantita_totale");
                     double fatturato = rs.getDouble("fatturato");
-                    totalRevenue += fatturato;
-                    productStats.add(new Object[]{nome, quantita, fatturato});
+                    stats.add(new Object[]{nome, quantita, fatturato});
                 }
+            }
+            return stats;
+        }
+    }
 
-                System.out.println("Loaded " + productStats.size() + " products, total revenue: €" + totalRevenue);
-
-                // Aggiorna tabella
-                Object[][] data = new Object[productStats.size()][4];
-                for (int i = 0; i < productStats.size(); i++) {
-                    Object[] row = productStats.get(i);
-                    data[i][0] = row[0];
-                    data[i][1] = row[1];
-                    data[i][2] = String.format("€ %.2f", (double)row[2]);
-                    if (totalRevenue > 0) {
-                        data[i][3] = String.format("%.1f%%", ((double)row[2] / totalRevenue) * 100);
-                    } else {
-                        data[i][3] = "0.0%";
-                    }
-                }
+    private void showProductsData(List<Object[]> stats) {
+        productStats = stats;
+        double totalRevenue = productStats.stream()
+            .mapToDouble(row -> (double)row[2])
+            .sum();
 
-                topProductsTable.setModel(new javax.swing.table.DefaultTableModel(
-                    data,
-                    new String[]{"Product", "Quantity Sold", "Revenue", "% of Total"}
-                ));
-            }
+        System.out.println("Loaded " + productStats.size() + " products, total revenue: €" + totalRevenue);
 
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this,
-                "Error loading product data: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
+        // Aggiorna tabella
+        Object[][] data = new Object[productStats.size()][4];
+        for (int i = 0; i < productStats.size(); i++) {
+            Object[] row = productStats.get(i);
+            data[i][0] = row[0];
+            data[i][1] = row[1];
+            data[i][2] = String.format("€ %.2f", (double)row[2]);
+            if (totalRevenue > 0) {
+                data[i][3] = String.format("%.1f%%", ((double)row[2] / totalRevenue) * 100);
+            } else {
+                data[i][3] = "0.0%";
+            }
         }
+
+        topProductsTable.setModel(new javax.swing.table.DefaultTableModel(
+            data,
+            new String[]{"Product", "Quantity Sold", "Revenue", "% of Total"}
+        ));
+        productsChartPanel.repaint();
+    }
+
+    private void showError(String message, Exception e) {
+        e.printStackTrace();
+        JOptionPane.showMessageDialog(this,
+            message + e.getMessage(),
+            "Error", JOptionPane.ERROR_MESSAGE);
     }
 
     private void drawProductsChart(Graphics g) {
@@ -0,0 +1,240 @@
+import javax.swing.*;
+import java.lang.reflect.Method;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Runs panel queries off the Event Dispatch Thread.
+ *
+ * Tasks run on virtual threads where the JVM has them (a cached daemon pool
+ * otherwise) and hand results back on the EDT. Starting a load with
+ * replace() cancels the one it supersedes, e.g. when the user changes a
+ * filter while the previous query is still running: the task's thread is
+ * interrupted and any statement it is executing is cancelled with
+ * Statement.cancel, which aborts the query inside SQLite. Repository
+ * queries take part automatically; tasks doing their own JDBC call
+ * track() on their statements. Results of cancelled loads are dropped.
+ *
+ * One loader per table or view; all methods are called on the EDT.
+ */
+public class BackgroundLoader {
+    private static final int CHUNK_SIZE = 200;
+    private static final long CHUNK_MILLIS = 100;
+
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    // The load running on the current worker thread, if any
+    private static final ThreadLocal<Load> CURRENT = new ThreadLocal<>();
+
+    /**
+     * A background computation producing one result
+     */
+    public interface Task<R> {
+        R run() throws Exception;
+    }
+
+    /**
+     * A background query producing rows, handed to the EDT in chunks
+     */
+    public interface RowsTask<T> {
+        void run(Consumer<T> publish) throws Exception;
+    }
+
+    /**
+     * Stops Statement tracking when closed; for try-with-resources
+     */
+    public interface Tracking extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static class Load {
+        private final Set<Statement> statements = new HashSet<>();
+        private volatile boolean cancelled = false;
+        private Future<?> future;
+
+        synchronized void add(Statement statement) {
+            statements.add(statement);
+        }
+
+        synchronized void remove(Statement statement) {
+            statements.remove(statement);
+        }
+
+        // Holding the lock, so a statement is never cancelled after it was
+        // released and possibly handed to another query
+        synchronized void cancel() {
+            cancelled = true;
+            for (Statement statement : statements) {
+                try {
+                    statement.cancel();
+                } catch (SQLException e) {
+                    // Already finished
+                }
+            }
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private final BusyIndicator indicator;
+    private final Set<Load> running = new HashSet<>();
+    private Load latest;
+    private Consumer<Exception> errorHandler = Exception::printStackTrace;
+
+    /**
+     * @param indicator shown while a load runs; may be null
+     */
+    public BackgroundLoader(BusyIndicator indicator) {
+        this.indicator = indicator;
+    }
+
+    /**
+     * Where failures of loads that were not cancelled are reported, on the EDT
+     */
+    public BackgroundLoader onError(Consumer<Exception> errorHandler) {
+        this.errorHandler = errorHandler;
+        return this;
+    }
+
+    /**
+     * Run task in the background and pass its result to onResult on the EDT
+     */
+    public <R> void run(Task<R> task, Consumer<R> onResult) {
+        start(task, onResult);
+    }
+
+    /**
+     * Like run, after cancelling the previous replace() load of this loader
+     */
+    public <R> void replace(Task<R> task, Consumer<R> onResult) {
+        if (latest != null) {
+            cancel(latest);
+        }
+        latest = start(task, onResult);
+    }
+
+    /**
+     * Cancel the previous replace() load, then stream rows: onChunk gets
+     * them on the EDT every CHUNK_SIZE rows or CHUNK_MILLIS, so the table
+     * fills while the query is still reading, and onDone runs after the
+     * last chunk
+     */
+    public <T> void replaceRows(RowsTask<T> task, Consumer<List<T>> onChunk, Runnable onDone) {
+        replace(() -> {
+            Load load = CURRENT.get();
+            List<T> chunk = new ArrayList<>();
+            long[] lastFlush = {System.currentTimeMillis()};
+            task.run(row -> {
+                chunk.add(row);
+                long now = System.currentTimeMillis();
+                if (chunk.size() >= CHUNK_SIZE || now - lastFlush[0] >= CHUNK_MILLIS) {
+                    List<T> rows = new ArrayList<>(chunk);
+                    chunk.clear();
+                    lastFlush[0] = now;
+                    SwingUtilities.invokeLater(() -> {
+                        if (!load.cancelled) {
+                            onChunk.accept(rows);
+                        }
+                    });
+                }
+            });
+            return chunk;
+        }, rest -> {
+            onChunk.accept(rest);
+            onDone.run();
+        });
+    }
+
+    /**
+     * Cancel everything this loader is running
+     */
+    public void cancelAll() {
+        for (Load load : new ArrayList<>(running)) {
+            cancel(load);
+        }
+        latest = null;
+    }
+
+    /**
+     * Make statement cancellable by the load running on this thread, if
+     * any; a no-op outside background loads
+     */
+    public static Tracking track(Statement statement) {
+        Load load = CURRENT.get();
+        if (load == null) {
+            return () -> { };
+        }
+        load.add(statement);
+        return () -> load.remove(statement);
+    }
+
+    private <R> Load start(Task<R> task, Consumer<R> onResult) {
+        Load load = new Load();
+        running.add(load);
+        if (indicator != null) {
+            indicator.begin();
+        }
+        load.future = EXECUTOR.submit(() -> {
+            CURRENT.set(load);
+            try {
+                R result = task.run();
+                SwingUtilities.invokeLater(() -> {
+                    if (finish(load)) {
+                        onResult.accept(result);
+                    }
+                });
+            } catch (Exception e) {
+                SwingUtilities.invokeLater(() -> {
+                    if (finish(load)) {
+                        errorHandler.accept(e);
+                    }
+                });
+            } finally {
+                CURRENT.remove();
+            }
+        });
+        return load;
+    }
+
+    // Returns false if the load was cancelled meanwhile
+    private boolean finish(Load load) {
+        if (!running.remove(load)) {
+            return false;
+        }
+        if (indicator != null) {
+            indicator.end();
+        }
+        return !load.cancelled;
+    }
+
+    private void cancel(Load load) {
+        load.cancel();
+        if (running.remove(load) && indicator != null) {
+            indicator.end();
+        }
+    }
+
+    // Virtual threads are final from Java 21; looked up reflectively so the
+    // code still builds and runs on older JDKs
+    private static ExecutorService createExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "data-loader");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
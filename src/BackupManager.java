@@ -1,15 +1,26 @@
 import java.io.*;
 import java.nio.file.*;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import javax.swing.*;
 import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 public class BackupManager {
     private static BackupManager instance;
     private Properties config;
     private static final String CONFIG_FILE = "backup.properties";
     private static final String DEFAULT_BACKUP_DIR = "backups";
+    private static final long PROGRESS_INTERVAL_MS = 200;
     
     private BackupManager() {
         loadConfig();
@@ -50,27 +61,111 @@ public class BackupManager {
         }
     }
     
+    /**
+     * Receives the bytes written so far and the expected size of the backup
+     */
+    public interface BackupProgress {
+        void update(long written, long expected);
+    }
+    
     public void performBackup() {
         try {
-            String backupDir = config.getProperty("backup.directory", DEFAULT_BACKUP_DIR);
-            Files.createDirectories(Paths.get(backupDir));
-            
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss");
-            String backupFileName = "gestionale_" + sdf.format(new Date()) + ".db";
-            String backupPath = Paths.get(backupDir, backupFileName).toString();
+            performBackup((written, expected) -> { }, () -> false);
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new RuntimeException("Error during backup: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Take a consistent snapshot of the live database with VACUUM INTO on a
+     * connection of its own. In WAL mode this is a read transaction, so the
+     * application keeps saving while the backup runs and the snapshot
+     * includes what is still in the -wal file. The snapshot is written under
+     * a temporary name and moved into place once complete.
+     *
+     * @return the backup file
+     * @throws CancellationException if cancelled returned true meanwhile
+     */
+    public File performBackup(BackupProgress progress, BooleanSupplier cancelled)
+            throws SQLException, IOException {
+        String backupDir = config.getProperty("backup.directory", DEFAULT_BACKUP_DIR);
+        Files.createDirectories(Paths.get(backupDir));
+        
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss");
+        String backupFileName = "gestionale_" + sdf.format(new Date()) + ".db";
+        Path backupPath = Paths.get(backupDir, backupFileName);
+        // A name of its own even if another backup started in the same
+        // second; VACUUM INTO refuses to overwrite it, so only the name is kept
+        Path part = Files.createTempFile(Paths.get(backupDir), "gestionale_", ".db.part");
+        Files.delete(part);
+        
+        ScheduledExecutorService monitor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "backup-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (Connection conn = DatabaseManager.getInstance().openDedicatedConnection();
+             PreparedStatement stmt = conn.prepareStatement("VACUUM INTO ?")) {
+            long expected = usedBytes(conn);
+            // The copy runs inside SQLite: watch the file grow, and interrupt
+            // the statement if the user stops the backup
+            monitor.scheduleWithFixedDelay(() -> {
+                if (cancelled.getAsBoolean()) {
+                    try {
+                        stmt.cancel();
+                    } catch (SQLException e) {
+                        e.printStackTrace();
+                    }
+                }
+                progress.update(fileSize(part), expected);
+            }, PROGRESS_INTERVAL_MS, PROGRESS_INTERVAL_MS, TimeUnit.MILLISECONDS);
             
-            // FIXED: Check if source database exists
-            Path sourceDb = Paths.get("gestionale.db");
-            if (!Files.exists(sourceDb)) {
-                throw new IOException("Database file 'gestionale.db' not found");
+            stmt.setString(1, part.toAbsolutePath().toString());
+            stmt.execute();
+            progress.update(fileSize(part), fileSize(part));
+        } catch (SQLException e) {
+            Files.deleteIfExists(part);
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException();
             }
-            
-            Files.copy(sourceDb, Paths.get(backupPath), StandardCopyOption.REPLACE_EXISTING);
-            cleanOldBackups();
-            
+            throw e;
+        } finally {
+            monitor.shutdownNow();
+        }
+        
+        if (cancelled.getAsBoolean()) {
+            Files.deleteIfExists(part);
+            throw new CancellationException();
+        }
+        try {
+            Files.move(part, backupPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(part, backupPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        cleanOldBackups();
+        return backupPath.toFile();
+    }
+    
+    // Size of the pages in use; VACUUM INTO leaves free pages out
+    private static long usedBytes(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            long pages = pragma(stmt, "page_count") - pragma(stmt, "freelist_count");
+            return pages * pragma(stmt, "page_size");
+        }
+    }
+    
+    private static long pragma(Statement stmt, String name) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA " + name)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+    
+    private static long fileSize(Path file) {
+        try {
+            return Files.exists(file) ? Files.size(file) : 0;
         } catch (IOException e) {
-            e.printStackTrace();
-            throw new RuntimeException("Error during backup: " + e.getMessage());
+            return 0;
         }
     }
     
@@ -119,8 +214,13 @@ public class BackupManager {
             Path currentDb = Paths.get("gestionale.db");
             if (Files.exists(currentDb)) {
                 Files.copy(currentDb, Paths.get(currentBackup), StandardCopyOption.REPLACE_EXISTING);
+                // Commits not yet checkpointed are still in the -wal file
+                copyIfExists(Paths.get("gestionale.db-wal"), Paths.get(currentBackup + "-wal"));
             }
             
+            // A leftover -wal/-shm would be replayed on top of the restored file
+            Files.deleteIfExists(Paths.get("gestionale.db-wal"));
+            Files.deleteIfExists(Paths.get("gestionale.db-shm"));
             Files.copy(Paths.get(backupFile), Paths.get("gestionale.db"), StandardCopyOption.REPLACE_EXISTING);
             
             // FIXED: Handle reconnection failure
@@ -129,6 +229,10 @@ public class BackupManager {
             } catch (Exception e) {
                 // Restore previous backup if reconnection fails
                 if (Files.exists(Paths.get(currentBackup))) {
+                    DatabaseManager.getInstance().closeConnection();
+                    Files.deleteIfExists(Paths.get("gestionale.db-shm"));
+                    Files.deleteIfExists(Paths.get("gestionale.db-wal"));
+                    copyIfExists(Paths.get(currentBackup + "-wal"), Paths.get("gestionale.db-wal"));
                     Files.copy(Paths.get(currentBackup), Paths.get("gestionale.db"), StandardCopyOption.REPLACE_EXISTING);
                     DatabaseManager.getInstance().initDatabase();
                 }
@@ -141,6 +245,12 @@ public class BackupManager {
         }
     }
     
+    private static void copyIfExists(Path source, Path target) throws IOException {
+        if (Files.exists(source)) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
     public String getBackupDirectory() {
         return config.getProperty("backup.directory", DEFAULT_BACKUP_DIR);
     }
@@ -4,6 +4,7 @@ import java.awt.*;
 import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 
 public class BackupPanel extends JPanel {
     private JTextField backupDirField;
@@ -12,6 +13,10 @@ public class BackupPanel extends JPanel {
     private JTable backupsTable;
     private DefaultTableModel tableModel;
     private BackupManager backupManager;
+    private JButton backupButton;
+    private JProgressBar progressBar;
+    private JLabel progressLabel;
+    private SwingWorker<File, long[]> backupWorker;
     
     public BackupPanel() {
         backupManager = BackupManager.getInstance();
@@ -77,7 +82,7 @@ public class BackupPanel extends JPanel {
         
         // Buttons panel
         JPanel buttonPanel = new JPanel(new FlowLayout());
-        JButton backupButton = new JButton("Perform Backup");
+        backupButton = new JButton("Perform Backup");
         JButton restoreButton = new JButton("Restore Backup");
         JButton deleteButton = new JButton("Delete Backup");
         JButton saveButton = new JButton("Save Configuration");
@@ -92,10 +97,23 @@ public class BackupPanel extends JPanel {
         buttonPanel.add(deleteButton);
         buttonPanel.add(saveButton);
         
+        // Progress of a running backup
+        JPanel progressPanel = new JPanel(new BorderLayout(5, 5));
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressLabel = new JLabel(" ");
+        progressPanel.add(progressLabel, BorderLayout.NORTH);
+        progressPanel.add(progressBar, BorderLayout.CENTER);
+        progressPanel.setVisible(false);
+        
+        JPanel southPanel = new JPanel(new BorderLayout(5, 5));
+        southPanel.add(progressPanel, BorderLayout.NORTH);
+        southPanel.add(buttonPanel, BorderLayout.SOUTH);
+        
         // Main layout
         add(configPanel, BorderLayout.NORTH);
         add(new JScrollPane(backupsTable), BorderLayout.CENTER);
-        add(buttonPanel, BorderLayout.SOUTH);
+        add(southPanel, BorderLayout.SOUTH);
     }
     
     private void selectBackupDirectory() {
@@ -168,18 +186,83 @@ public class BackupPanel extends JPanel {
     }
 
     private void performBackup() {
-        try {
-            backupManager.performBackup();
-            loadBackupsList();
-            JOptionPane.showMessageDialog(this,
-                "Backup performed successfully",
-                "Backup", JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this,
-                "Error during backup: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
+        if (backupWorker != null) {
+            // The button reads "Stop Backup" while one is running
+            backupWorker.cancel(false);
+            backupButton.setEnabled(false);
+            progressLabel.setText("Stopping backup...");
+            return;
         }
+        
+        backupWorker = new SwingWorker<File, long[]>() {
+            private volatile boolean started;
+            
+            @Override
+            protected File doInBackground() throws Exception {
+                started = true;
+                try {
+                    return backupManager.performBackup(
+                        (written, expected) -> publish(new long[] {written, expected}),
+                        this::isCancelled);
+                } finally {
+                    // After Stop, done() runs at once; the backup ends only here
+                    SwingUtilities.invokeLater(() -> backupFinished(this));
+                }
+            }
+            
+            @Override
+            protected void process(List<long[]> updates) {
+                long[] latest = updates.get(updates.size() - 1);
+                long written = latest[0];
+                long expected = Math.max(latest[1], 1);
+                progressBar.setValue((int) Math.min(100, written * 100 / expected));
+                progressLabel.setText(String.format("Backing up... %.2f of %.2f MB",
+                    written / (1024.0 * 1024.0), expected / (1024.0 * 1024.0)));
+            }
+            
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    if (!started) {
+                        // Stopped before doInBackground ran, so it never will
+                        backupFinished(this);
+                    }
+                    return;
+                }
+                try {
+                    get();
+                    loadBackupsList();
+                    JOptionPane.showMessageDialog(BackupPanel.this,
+                        "Backup performed successfully",
+                        "Backup", JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(BackupPanel.this,
+                        "Error during backup: " + cause.getMessage(),
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        setBackupRunning(true);
+        backupWorker.execute();
+    }
+    
+    // Back to idle once the given backup has really ended
+    private void backupFinished(SwingWorker<File, long[]> worker) {
+        if (backupWorker == worker) {
+            backupWorker = null;
+            setBackupRunning(false);
+        }
+    }
+    
+    private void setBackupRunning(boolean running) {
+        backupButton.setText(running ? "Stop Backup" : "Perform Backup");
+        backupButton.setEnabled(true);
+        progressBar.setValue(0);
+        progressLabel.setText(running ? "Starting backup..." : " ");
+        progressBar.getParent().setVisible(running);
+        revalidate();
     }
     
     private void restoreBackup() {
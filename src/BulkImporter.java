@@ -0,0 +1,634 @@
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Loads products, customers or suppliers from a CSV file, e.g. when
+ * migrating from another program.
+ *
+ * The file is streamed through CsvReader, so its size does not matter.
+ * Rows are validated, then written CHUNK_SIZE at a time in one transaction
+ * with batched statements: a row whose key (product code, customer email,
+ * VAT number) already exists updates that record, any other row is
+ * inserted. A chunk that fails as a batch is written again row by row so
+ * only the offending rows are rejected. Rejected rows are reported with
+ * their line number and the reason.
+ *
+ * On a first load into an empty table the secondary indexes and the
+ * full-text triggers can be dropped and built once at the end, which is
+ * much faster than maintaining them row by row. What was dropped is
+ * recorded in indici_differiti in the same transaction; if the program
+ * stops halfway, it is rebuilt on the next start.
+ */
+public class BulkImporter {
+    private static final int CHUNK_SIZE = 5000;
+    private static final int MAX_REPORTED_REJECTS = 10000;
+
+    public enum FieldType { TEXT, DECIMAL, INTEGER }
+
+    /**
+     * A column of the target table the CSV can be mapped to
+     */
+    public static class Field {
+        private final String column;
+        private final String label;
+        private final FieldType type;
+        private final boolean required;
+        // Normalized header names recognized for this field
+        private final String[] aliases;
+        // Inserted when the file leaves the column empty
+        private Object insertDefault;
+
+        Field(String column, String label, FieldType type, boolean required, String... aliases) {
+            this.column = column;
+            this.label = label;
+            this.type = type;
+            this.required = required;
+            this.aliases = aliases;
+        }
+
+        Field orDefault(Object value) {
+            this.insertDefault = value;
+            return this;
+        }
+
+        public String getColumn() { return column; }
+        public String getLabel() { return label; }
+        public FieldType getType() { return type; }
+        public boolean isRequired() { return required; }
+    }
+
+    public enum Kind {
+        PRODUCTS("Products", "prodotti", "codice", false, null,
+            DomainEvent.ProductsImported::new,
+            new Field("codice", "Code", FieldType.TEXT, true, "code", "sku", "articolo", "codicearticolo"),
+            new Field("nome", "Name", FieldType.TEXT, true, "name", "product", "prodotto"),
+            new Field("descrizione", "Description", FieldType.TEXT, false, "description", "desc"),
+            new Field("prezzo", "Price", FieldType.DECIMAL, true, "price", "unitprice", "prezzounitario"),
+            new Field("quantita", "Quantity", FieldType.INTEGER, false, "quantity", "qty", "qta", "stock", "giacenza").orDefault(0)),
+        CUSTOMERS("Customers", "clienti", "email", true, "idx_clienti_email",
+            DomainEvent.CustomersImported::new,
+            new Field("nome", "First Name", FieldType.TEXT, true, "firstname", "name"),
+            new Field("cognome", "Last Name", FieldType.TEXT, true, "lastname", "surname"),
+            new Field("email", "Email", FieldType.TEXT, false, "mail", "emailaddress"),
+            new Field("telefono", "Phone", FieldType.TEXT, false, "phone", "tel", "telephone"),
+            new Field("indirizzo", "Address", FieldType.TEXT, false, "address")),
+        SUPPLIERS("Suppliers", "fornitori", "partita_iva", false, null,
+            DomainEvent.SuppliersImported::new,
+            new Field("ragione_sociale", "Company Name", FieldType.TEXT, true, "company", "companyname", "name"),
+            new Field("partita_iva", "VAT Number", FieldType.TEXT, true, "vat", "vatnumber", "piva"),
+            new Field("codice_fiscale", "Tax Code", FieldType.TEXT, false, "taxcode", "cf"),
+            new Field("indirizzo", "Address", FieldType.TEXT, false, "address"),
+            new Field("telefono", "Phone", FieldType.TEXT, false, "phone", "tel", "telephone"),
+            new Field("email", "Email", FieldType.TEXT, false, "mail"),
+            new Field("pec", "Certified Email", FieldType.TEXT, false, "certifiedemail"),
+            new Field("sito_web", "Website", FieldType.TEXT, false, "website", "web", "url", "sito"),
+            new Field("note", "Notes", FieldType.TEXT, false, "notes"));
+
+        private final String label;
+        private final String table;
+        private final String keyColumn;
+        private final boolean keyIgnoresCase;
+        // Index the key lookup needs, kept during a first load
+        private final String keyIndex;
+        private final Supplier<Object> event;
+        private final Field[] fields;
+
+        Kind(String label, String table, String keyColumn, boolean keyIgnoresCase, String keyIndex,
+             Supplier<Object> event, Field... fields) {
+            this.label = label;
+            this.table = table;
+            this.keyColumn = keyColumn;
+            this.keyIgnoresCase = keyIgnoresCase;
+            this.keyIndex = keyIndex;
+            this.event = event;
+            this.fields = fields;
+        }
+
+        public String getTable() { return table; }
+        public Field[] getFields() { return fields.clone(); }
+
+        int keyField() {
+            for (int i = 0; i < fields.length; i++) {
+                if (fields[i].column.equals(keyColumn)) {
+                    return i;
+                }
+            }
+            throw new IllegalStateException("No key field for " + table);
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     * Called on the importing thread after every chunk
+     */
+    public interface Progress {
+        void update(long rowsRead, long bytesRead, long totalBytes);
+    }
+
+    public static class Rejected {
+        private final long line;
+        private final String reason;
+
+        Rejected(long line, String reason) {
+            this.line = line;
+            this.reason = reason;
+        }
+
+        public long getLine() { return line; }
+        public String getReason() { return reason; }
+    }
+
+    public static class Result {
+        private long inserted = 0;
+        private long updated = 0;
+        private long rejectedCount = 0;
+        private boolean cancelled = false;
+        private final List<Rejected> rejected = new ArrayList<>();
+
+        public long getInserted() { return inserted; }
+        public long getUpdated() { return updated; }
+        public long getRejectedCount() { return rejectedCount; }
+        public boolean isCancelled() { return cancelled; }
+
+        /**
+         * The first MAX_REPORTED_REJECTS rejected rows
+         */
+        public List<Rejected> getRejected() { return rejected; }
+
+        void reject(long line, String reason) {
+            rejectedCount++;
+            if (rejected.size() < MAX_REPORTED_REJECTS) {
+                rejected.add(new Rejected(line, reason));
+            }
+        }
+    }
+
+    // One validated CSV row; values follow the mapped fields
+    private static class Row {
+        final long line;
+        final Object[] values;
+
+        Row(long line, Object[] values) {
+            this.line = line;
+            this.values = values;
+        }
+    }
+
+    private final Kind kind;
+    private final File file;
+    private final Charset charset;
+    private final int[] mapping;
+    private final boolean deferIndexes;
+    private final int[] mappedFields;
+    private final int keyValue;
+    private volatile boolean cancelled = false;
+
+    /**
+     * @param mapping CSV column of each field of kind, -1 for fields not imported
+     * @param deferIndexes build indexes after loading if the table is empty
+     */
+    public BulkImporter(Kind kind, File file, Charset charset, int[] mapping, boolean deferIndexes) {
+        this.kind = kind;
+        this.file = file;
+        this.charset = charset;
+        this.mapping = mapping.clone();
+        this.deferIndexes = deferIndexes;
+
+        List<Integer> mapped = new ArrayList<>();
+        for (int i = 0; i < kind.fields.length; i++) {
+            if (mapping[i] >= 0) {
+                mapped.add(i);
+            } else if (kind.fields[i].required) {
+                throw new IllegalArgumentException("Required column not mapped: " + kind.fields[i].label);
+            }
+        }
+        this.mappedFields = mapped.stream().mapToInt(Integer::intValue).toArray();
+        this.keyValue = mapped.indexOf(kind.keyField());
+    }
+
+    /**
+     * The header line of file
+     */
+    public static String[] readHeader(File file, Charset charset) throws IOException {
+        try (CsvReader csv = new CsvReader(new InputStreamReader(new FileInputStream(file), charset))) {
+            return csv.next() ? csv.getAll() : new String[0];
+        }
+    }
+
+    /**
+     * A mapping matching header names to field columns, labels or aliases,
+     * ignoring case, spaces and punctuation
+     */
+    public static int[] guessMapping(Kind kind, String[] header) {
+        int[] mapping = new int[kind.fields.length];
+        Set<Integer> used = new LinkedHashSet<>();
+        for (int i = 0; i < kind.fields.length; i++) {
+            Field field = kind.fields[i];
+            mapping[i] = -1;
+            Set<String> names = new LinkedHashSet<>();
+            names.add(normalize(field.column));
+            names.add(normalize(field.label));
+            for (String alias : field.aliases) {
+                names.add(alias);
+            }
+            for (int column = 0; column < header.length; column++) {
+                if (!used.contains(column) && names.contains(normalize(header[column]))) {
+                    mapping[i] = column;
+                    used.add(column);
+                    break;
+                }
+            }
+        }
+        return mapping;
+    }
+
+    private static String normalize(String name) {
+        return name == null ? "" : name.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]", "");
+    }
+
+    /**
+     * Stop after the chunk being written; chunks already written stay
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Run the import on the calling thread
+     */
+    public Result run(Progress progress) throws IOException, SQLException {
+        DatabaseManager db = DatabaseManager.getInstance();
+        Result result = new Result();
+        long totalBytes = Files.size(file.toPath());
+        long[] bytesRead = {0};
+
+        boolean deferred = deferIndexes && db.inWriteTransaction(this::dropIndexes);
+        try (InputStream counting = new FilterInputStream(new BufferedInputStream(new FileInputStream(file))) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0) {
+                        bytesRead[0]++;
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    if (n > 0) {
+                        bytesRead[0] += n;
+                    }
+                    return n;
+                }
+            };
+             CsvReader csv = new CsvReader(new InputStreamReader(counting, charset))) {
+
+            long rowsRead = 0;
+            csv.next(); // header
+            List<Row> chunk = new ArrayList<>(CHUNK_SIZE);
+            Map<String, Integer> chunkKeys = new HashMap<>();
+            while (!cancelled && csv.next()) {
+                rowsRead++;
+                Row row = parse(csv, result);
+                if (row != null) {
+                    // A key repeated within the chunk: the later row wins, as
+                    // it would if the chunks were written one row at a time
+                    String key = keyOf(row);
+                    Integer earlier = key != null ? chunkKeys.get(key) : null;
+                    if (earlier != null) {
+                        chunk.set(earlier, row);
+                    } else {
+                        if (key != null) {
+                            chunkKeys.put(key, chunk.size());
+                        }
+                        chunk.add(row);
+                    }
+                }
+                if (chunk.size() >= CHUNK_SIZE) {
+                    write(chunk, result);
+                    chunk.clear();
+                    chunkKeys.clear();
+                    progress.update(rowsRead, bytesRead[0], totalBytes);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                write(chunk, result);
+            }
+            result.cancelled = cancelled;
+            progress.update(rowsRead, bytesRead[0], totalBytes);
+        } finally {
+            try {
+                if (deferred) {
+                    db.inWriteTransaction(conn -> {
+                        restoreDeferred(conn);
+                        return null;
+                    });
+                }
+            } finally {
+                // Chunks written before a failure stay committed; the
+                // catalogs must hear about them either way
+                if (result.inserted + result.updated > 0) {
+                    EventBus.getInstance().publish(kind.event.get());
+                }
+            }
+        }
+        return result;
+    }
+
+    // Validates and converts the mapped fields of the current record, or
+    // rejects it and returns null
+    private Row parse(CsvReader csv, Result result) {
+        Object[] values = new Object[mappedFields.length];
+        for (int i = 0; i < mappedFields.length; i++) {
+            Field field = kind.fields[mappedFields[i]];
+            String text = csv.get(mapping[mappedFields[i]]);
+            text = text == null ? "" : text.trim();
+            if (text.isEmpty()) {
+                if (field.required) {
+                    result.reject(csv.getLineNumber(), field.label + " is missing");
+                    return null;
+                }
+                continue;
+            }
+            try {
+                values[i] = switch (field.type) {
+                    case TEXT -> text;
+                    case DECIMAL -> parseNumber(text).doubleValue();
+                    case INTEGER -> parseNumber(text).intValueExact();
+                };
+            } catch (NumberFormatException | ArithmeticException e) {
+                result.reject(csv.getLineNumber(), field.label + " is not a valid number: " + text);
+                return null;
+            }
+        }
+        return new Row(csv.getLineNumber(), values);
+    }
+
+    /**
+     * Accepts both 1234.56 and the Italian 1.234,56; the last separator is
+     * the decimal one
+     */
+    private static BigDecimal parseNumber(String text) {
+        String s = text.replace("€", "").replace(" ", "").replace("'", "");
+        int comma = s.lastIndexOf(',');
+        int dot = s.lastIndexOf('.');
+        if (comma > dot) {
+            s = s.replace(".", "").replace(',', '.');
+        } else if (comma >= 0) {
+            s = s.replace(",", "");
+        }
+        return new BigDecimal(s);
+    }
+
+    private String keyOf(Row row) {
+        if (keyValue < 0 || row.values[keyValue] == null) {
+            return null;
+        }
+        String key = (String) row.values[keyValue];
+        return kind.keyIgnoresCase ? key.toLowerCase(Locale.ROOT) : key;
+    }
+
+    private void write(List<Row> chunk, Result result) throws SQLException {
+        DatabaseManager db = DatabaseManager.getInstance();
+        long[] counts;
+        try {
+            counts = db.inWriteTransaction(conn -> writeBatch(conn, chunk));
+        } catch (SQLException e) {
+            // inWriteTransaction rolled the whole chunk back, so nothing of
+            // it was written; only that makes it safe to retry row by row
+            // here, skipping the rows at fault and committing the others
+            counts = db.inWriteTransaction(conn -> writeOneByOne(conn, chunk, result));
+        }
+        result.inserted += counts[0];
+        result.updated += counts[1];
+    }
+
+    // Returns {inserted, updated}
+    private long[] writeBatch(Connection conn, List<Row> chunk) throws SQLException {
+        long updated = 0;
+        List<Row> inserts = new ArrayList<>();
+        if (keyValue >= 0) {
+            List<Row> keyed = new ArrayList<>();
+            try (PreparedStatement update = conn.prepareStatement(updateSql())) {
+                for (Row row : chunk) {
+                    if (row.values[keyValue] == null) {
+                        inserts.add(row);
+                    } else {
+                        bindUpdate(update, row);
+                        update.addBatch();
+                        keyed.add(row);
+                    }
+                }
+                int[] changed = keyed.isEmpty() ? new int[0] : update.executeBatch();
+                for (int i = 0; i < changed.length; i++) {
+                    if (changed[i] > 0) {
+                        updated++;
+                    } else {
+                        inserts.add(keyed.get(i));
+                    }
+                }
+            }
+        } else {
+            inserts.addAll(chunk);
+        }
+
+        if (!inserts.isEmpty()) {
+            try (PreparedStatement insert = conn.prepareStatement(insertSql())) {
+                for (Row row : inserts) {
+                    bindInsert(insert, row);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+        return new long[] {inserts.size(), updated};
+    }
+
+    private long[] writeOneByOne(Connection conn, List<Row> chunk, Result result) throws SQLException {
+        long inserted = 0;
+        long updated = 0;
+        try (PreparedStatement update = keyValue >= 0 ? conn.prepareStatement(updateSql()) : null;
+             PreparedStatement insert = conn.prepareStatement(insertSql())) {
+            for (Row row : chunk) {
+                try {
+                    if (update != null && row.values[keyValue] != null) {
+                        bindUpdate(update, row);
+                        if (update.executeUpdate() > 0) {
+                            updated++;
+                            continue;
+                        }
+                    }
+                    bindInsert(insert, row);
+                    insert.executeUpdate();
+                    inserted++;
+                } catch (SQLException e) {
+                    result.reject(row.line, e.getMessage());
+                }
+            }
+        }
+        return new long[] {inserted, updated};
+    }
+
+    private String insertSql() {
+        StringBuilder columns = new StringBuilder();
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < mappedFields.length; i++) {
+            columns.append(i == 0 ? "" : ", ").append(kind.fields[mappedFields[i]].column);
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        return "INSERT INTO " + kind.table + " (" + columns + ") VALUES (" + placeholders + ")";
+    }
+
+    // Sets every mapped column but the key; columns left empty in the file
+    // keep their current value
+    private String updateSql() {
+        StringBuilder set = new StringBuilder();
+        for (int i = 0; i < mappedFields.length; i++) {
+            if (i == keyValue) {
+                continue;
+            }
+            String column = kind.fields[mappedFields[i]].column;
+            set.append(set.length() == 0 ? "" : ", ")
+                .append(column).append(" = IFNULL(?, ").append(column).append(")");
+        }
+        return "UPDATE " + kind.table + " SET " + set + " WHERE " + kind.keyColumn + " = ?"
+            + (kind.keyIgnoresCase ? " COLLATE NOCASE" : "");
+    }
+
+    private void bindInsert(PreparedStatement pstmt, Row row) throws SQLException {
+        for (int i = 0; i < row.values.length; i++) {
+            Object value = row.values[i];
+            pstmt.setObject(i + 1, value != null ? value : kind.fields[mappedFields[i]].insertDefault);
+        }
+    }
+
+    private void bindUpdate(PreparedStatement pstmt, Row row) throws SQLException {
+        int index = 1;
+        for (int i = 0; i < row.values.length; i++) {
+            if (i != keyValue) {
+                pstmt.setObject(index++, row.values[i]);
+            }
+        }
+        pstmt.setObject(index, row.values[keyValue]);
+    }
+
+    // Drops the indexes and triggers of an empty table, recording them in
+    // indici_differiti; returns false if the table already has rows
+    private boolean dropIndexes(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT EXISTS (SELECT 1 FROM " + kind.table + ")")) {
+            if (rs.next() && rs.getBoolean(1)) {
+                return false;
+            }
+        }
+
+        // Unique constraints have no sql and are never dropped
+        String select = """
+            SELECT type, name, sql FROM sqlite_master
+            WHERE tbl_name = ? AND type IN ('index', 'trigger') AND sql IS NOT NULL AND name <> ?
+            """;
+        List<String> drops = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(select);
+             PreparedStatement record = conn.prepareStatement(
+                 "INSERT OR REPLACE INTO indici_differiti (nome, tabella, sql) VALUES (?, ?, ?)")) {
+            pstmt.setString(1, kind.table);
+            pstmt.setString(2, kind.keyIndex != null ? kind.keyIndex : "");
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String name = rs.getString("name");
+                    record.setString(1, name);
+                    record.setString(2, kind.table);
+                    record.setString(3, rs.getString("sql"));
+                    record.addBatch();
+                    drops.add("DROP " + rs.getString("type").toUpperCase(Locale.ROOT) + " IF EXISTS \"" + name + "\"");
+                }
+            }
+            record.executeBatch();
+        }
+        try (Statement stmt = conn.createStatement()) {
+            for (String drop : drops) {
+                stmt.execute(drop);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Recreate whatever an interrupted first load left in indici_differiti;
+     * called at startup, in its own transaction
+     */
+    public static void restoreDeferredIndexes(Connection conn) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            restoreDeferred(conn);
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    // Recreates the recorded indexes and triggers, then rebuilds the
+    // full-text index of each table from its rows
+    private static void restoreDeferred(Connection conn) throws SQLException {
+        Set<String> tables = new LinkedHashSet<>();
+        List<String> names = new ArrayList<>();
+        List<String> creates = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT nome, tabella, sql FROM indici_differiti")) {
+            while (rs.next()) {
+                names.add(rs.getString("nome"));
+                tables.add(rs.getString("tabella"));
+                creates.add(rs.getString("sql"));
+            }
+        }
+        if (creates.isEmpty()) {
+            return;
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            for (int i = 0; i < creates.size(); i++) {
+                // A later migration may have created it again meanwhile
+                if (!exists(conn, names.get(i))) {
+                    stmt.execute(creates.get(i));
+                }
+            }
+            for (String table : tables) {
+                String fts = table + "_fts";
+                if (exists(conn, fts)) {
+                    stmt.execute("INSERT INTO " + fts + " (" + fts + ") VALUES ('rebuild')");
+                }
+                stmt.execute("ANALYZE " + table);
+            }
+            stmt.execute("DELETE FROM indici_differiti");
+        }
+    }
+
+    private static boolean exists(Connection conn, String name) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT 1 FROM sqlite_master WHERE name = ?")) {
+            pstmt.setString(1, name);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+}
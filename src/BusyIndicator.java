@@ -0,0 +1,29 @@
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Small indeterminate progress bar that shows while any background load
+ * reporting to it is running. Panels add it next to their buttons and hand
+ * it to their loaders; begin/end calls nest.
+ */
+public class BusyIndicator extends JProgressBar {
+    // EDT only
+    private int running = 0;
+
+    public BusyIndicator() {
+        setIndeterminate(true);
+        setPreferredSize(new Dimension(80, 12));
+        setToolTipText("Loading...");
+        setVisible(false);
+    }
+
+    public void begin() {
+        running++;
+        setVisible(true);
+    }
+
+    public void end() {
+        running = Math.max(0, running - 1);
+        setVisible(running > 0);
+    }
+}
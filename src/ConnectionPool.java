@@ -0,0 +1,299 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * SQLite connection pool: one writer connection plus a small set of
+ * read-only reader connections. In WAL mode readers never block the writer,
+ * so reports and searches can run while a save is in progress.
+ *
+ * Readers are thread-confined: a thread that borrows a reader keeps the same
+ * connection until every lease it took has been closed, so nested helpers
+ * on the same thread share one connection instead of draining the pool.
+ */
+public class ConnectionPool {
+    private static final int BUSY_TIMEOUT_MS = 5000;
+    private static final long BORROW_TIMEOUT_SECONDS = 30;
+
+    private final String url;
+    private final int maxReaders;
+    private final Runnable errorListener;
+    private final Connection writer;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final BlockingQueue<Connection> idleReaders = new LinkedBlockingQueue<>();
+    private final List<Connection> allReaders = new ArrayList<>();
+    private final Map<Connection, StatementCache> statementCaches = new IdentityHashMap<>();
+    private final ThreadLocal<ReaderLease> currentLease = new ThreadLocal<>();
+    private volatile boolean closed = false;
+
+    /**
+     * @param errorListener called when any pooled connection reports an
+     *                      SQLException, so the owner can re-check liveness
+     */
+    public ConnectionPool(String url, int maxReaders, Runnable errorListener) throws SQLException {
+        this.url = url;
+        this.maxReaders = Math.max(1, maxReaders);
+        this.errorListener = errorListener;
+        this.writer = openWriter();
+    }
+
+    private Connection openWriter() throws SQLException {
+        Connection conn = DriverManager.getConnection(url);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA foreign_keys = ON");
+            stmt.execute("PRAGMA journal_mode = WAL");
+            stmt.execute("PRAGMA synchronous = NORMAL");
+            stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MS);
+        }
+        return withStatementCache(conn);
+    }
+
+    private Connection openReader() throws SQLException {
+        Connection conn = DriverManager.getConnection(url);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA query_only = ON");
+            stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MS);
+        }
+        return withStatementCache(conn);
+    }
+
+    /**
+     * Every pooled connection gets its own prepared-statement cache; closing
+     * the wrapped connection closes the cached statements first.
+     */
+    private Connection withStatementCache(Connection conn) {
+        StatementCache cache = new StatementCache(conn, StatementCache.DEFAULT_CAPACITY, errorListener);
+        Connection wrapped = StatementCache.cachingConnection(conn, cache);
+        synchronized (statementCaches) {
+            statementCaches.put(wrapped, cache);
+        }
+        return wrapped;
+    }
+
+    /**
+     * Drop idle cached statements on every connection (after DDL changes)
+     */
+    public void clearStatementCaches() {
+        synchronized (statementCaches) {
+            for (StatementCache cache : statementCaches.values()) {
+                cache.clear();
+            }
+        }
+    }
+
+    /**
+     * The single writer connection. Callers that change the auto-commit
+     * mode must hold the write lock for the whole transaction.
+     */
+    public Connection getWriter() {
+        return writer;
+    }
+
+    public ReentrantLock getWriteLock() {
+        return writeLock;
+    }
+
+    /**
+     * Cheap liveness probe for the writer. If another thread holds the write
+     * lock the writer is busy in a transaction and therefore alive.
+     */
+    public boolean isWriterAlive() {
+        if (closed) {
+            return false;
+        }
+        if (!writeLock.tryLock()) {
+            return true;
+        }
+        try (Statement stmt = writer.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT 1")) {
+            return rs.next();
+        } catch (SQLException e) {
+            return false;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Borrow a read-only connection. Closing the returned connection hands
+     * it back to the pool instead of closing the underlying SQLite handle.
+     */
+    public Connection borrowReader() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        ReaderLease lease = currentLease.get();
+        if (lease != null) {
+            synchronized (lease) {
+                if (!lease.returned) {
+                    lease.depth++;
+                    return lease.newHandle();
+                }
+            }
+            // The last handle was closed on another thread, which could not
+            // clear this thread's lease; the connection is back in the pool
+            currentLease.remove();
+        }
+
+        Connection conn = idleReaders.poll();
+        if (conn == null) {
+            conn = createReaderIfAllowed();
+        }
+        if (conn == null) {
+            try {
+                conn = idleReaders.poll(BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database reader", e);
+            }
+            if (conn == null) {
+                throw new SQLException("Timed out waiting for a database reader");
+            }
+        }
+
+        lease = new ReaderLease(conn, Thread.currentThread());
+        currentLease.set(lease);
+        return lease.newHandle();
+    }
+
+    private Connection createReaderIfAllowed() throws SQLException {
+        synchronized (allReaders) {
+            if (allReaders.size() >= maxReaders) {
+                return null;
+            }
+            Connection conn = openReader();
+            allReaders.add(conn);
+            return conn;
+        }
+    }
+
+    private void release(ReaderLease lease) {
+        synchronized (lease) {
+            if (--lease.depth > 0) {
+                return;
+            }
+            lease.returned = true;
+        }
+        // Only the owner can clear its own lease; borrowReader drops a
+        // returned lease left behind by a close on another thread
+        if (Thread.currentThread() == lease.owner) {
+            currentLease.remove();
+        }
+
+        if (closed) {
+            closeQuietly(lease.connection);
+            return;
+        }
+        try {
+            if (!lease.connection.getAutoCommit()) {
+                lease.connection.rollback();
+                lease.connection.setAutoCommit(true);
+            }
+            idleReaders.offer(lease.connection);
+        } catch (SQLException e) {
+            // Drop the broken reader; a fresh one is opened on demand
+            synchronized (allReaders) {
+                allReaders.remove(lease.connection);
+            }
+            synchronized (statementCaches) {
+                statementCaches.remove(lease.connection);
+            }
+            closeQuietly(lease.connection);
+        }
+    }
+
+    public void close() {
+        closed = true;
+        synchronized (allReaders) {
+            for (Connection conn : allReaders) {
+                closeQuietly(conn);
+            }
+            allReaders.clear();
+        }
+        idleReaders.clear();
+        synchronized (statementCaches) {
+            statementCaches.clear();
+        }
+        closeQuietly(writer);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private static void closeQuietly(Connection conn) {
+        try {
+            if (conn != null && !conn.isClosed()) {
+                conn.close();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private class ReaderLease {
+        private final Connection connection;
+        private final Thread owner;
+        private int depth = 1;
+        private boolean returned = false;
+
+        ReaderLease(Connection connection, Thread owner) {
+            this.connection = connection;
+            this.owner = owner;
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ReaderHandle(this));
+        }
+    }
+
+    private class ReaderHandle implements InvocationHandler {
+        private final ReaderLease lease;
+        private boolean released = false;
+
+        ReaderHandle(ReaderLease lease) {
+            this.lease = lease;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        release(lease);
+                    }
+                    return null;
+                case "isClosed":
+                    return released || lease.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    if (released) {
+                        throw new SQLException("Reader connection already returned to the pool");
+                    }
+                    try {
+                        return method.invoke(lease.connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
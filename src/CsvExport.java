@@ -0,0 +1,165 @@
+import javax.swing.*;
+import java.awt.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+
+/**
+ * Exports report rows to a CSV file in the background.
+ *
+ * Rows come straight from a database cursor (LazyTableModel.allRows) and
+ * go through a buffered CsvWriter as they are read, so a date range of
+ * any size is exported in constant memory whatever the table has loaded.
+ * A modal dialog shows progress and can stop the export. The file is
+ * written next to the target under a temporary name and only moved into
+ * place once complete, so a stopped or failed export leaves nothing
+ * behind. Files are UTF-8 with a byte order mark, which Excel needs to
+ * show accented letters and the euro sign.
+ */
+public class CsvExport {
+    private static final int PROGRESS_EVERY = 1000;
+
+    private final File file;
+    private final String[] columns;
+    private final List<Object[]> linesBefore = new ArrayList<>();
+    private final List<Object[]> linesAfter = new ArrayList<>();
+
+    public CsvExport(File file, String[] columns) {
+        this.file = file;
+        this.columns = columns;
+    }
+
+    /**
+     * A line written before the column headers, e.g. a title
+     */
+    public CsvExport lineBefore(Object... values) {
+        linesBefore.add(values);
+        return this;
+    }
+
+    /**
+     * A line written after the rows, e.g. totals
+     */
+    public CsvExport lineAfter(Object... values) {
+        linesAfter.add(values);
+        return this;
+    }
+
+    /**
+     * Start the export and show its progress over parent until it ends
+     *
+     * @param expectedRows for the progress bar; 0 if unknown
+     */
+    public void start(Component parent, int expectedRows, BackgroundLoader.RowsTask<Object[]> rows) {
+        Window owner = SwingUtilities.getWindowAncestor(parent);
+        JDialog progressDialog = new JDialog(owner, "Export CSV", Dialog.ModalityType.APPLICATION_MODAL);
+        progressDialog.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        progressDialog.setLayout(new BorderLayout(10, 10));
+
+        JLabel progressLabel = new JLabel("Exporting to " + file.getName() + "...");
+        JProgressBar progressBar = new JProgressBar(0, Math.max(1, expectedRows));
+        progressBar.setIndeterminate(expectedRows <= 0);
+        progressBar.setStringPainted(expectedRows > 0);
+        JButton cancelButton = new JButton("Cancel");
+
+        JPanel content = new JPanel(new BorderLayout(5, 5));
+        content.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        content.add(progressLabel, BorderLayout.NORTH);
+        content.add(progressBar, BorderLayout.CENTER);
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(cancelButton);
+        content.add(buttonPanel, BorderLayout.SOUTH);
+        progressDialog.add(content);
+        progressDialog.setSize(380, 140);
+        progressDialog.setLocationRelativeTo(parent);
+
+        SwingWorker<Long, Long> worker = new SwingWorker<Long, Long>() {
+            @Override
+            protected Long doInBackground() throws Exception {
+                return write(rows, this::publish, this::isCancelled);
+            }
+
+            @Override
+            protected void process(List<Long> counts) {
+                long count = counts.get(counts.size() - 1);
+                progressBar.setValue((int) Math.min(count, progressBar.getMaximum()));
+                progressLabel.setText(String.format("Exporting to %s... %,d rows", file.getName(), count));
+            }
+
+            @Override
+            protected void done() {
+                progressDialog.dispose();
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    long count = get();
+                    JOptionPane.showMessageDialog(parent,
+                        String.format("Report exported successfully (%,d rows)", count),
+                        "Export Completed", JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(parent,
+                        "Error during export: " + cause.getMessage(),
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        cancelButton.addActionListener(e -> worker.cancel(true));
+
+        worker.execute();
+        progressDialog.setVisible(true);
+    }
+
+    // Returns the number of rows written
+    private long write(BackgroundLoader.RowsTask<Object[]> rows, LongConsumer progress, BooleanSupplier cancelled)
+            throws Exception {
+        File part = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".part");
+        long[] count = {0};
+        try (Writer out = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(part), StandardCharsets.UTF_8), 64 * 1024);
+             CsvWriter writer = new CsvWriter(out)) {
+            out.write('\uFEFF');
+            for (Object[] line : linesBefore) {
+                writer.writeRow(line);
+            }
+            writer.writeRow((Object[]) columns);
+            rows.run(row -> {
+                if (cancelled.getAsBoolean()) {
+                    // Unwinds the cursor; the statement is closed on the way out
+                    throw new CancellationException();
+                }
+                try {
+                    writer.writeRow(row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (++count[0] % PROGRESS_EVERY == 0) {
+                    progress.accept(count[0]);
+                }
+            });
+            for (Object[] line : linesAfter) {
+                writer.writeRow(line);
+            }
+        } catch (Exception e) {
+            Files.deleteIfExists(part.toPath());
+            throw e instanceof UncheckedIOException ? ((UncheckedIOException) e).getCause() : e;
+        }
+
+        try {
+            Files.move(part.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(part.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return count[0];
+    }
+}
@@ -0,0 +1,288 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Streaming CSV parser for large files (RFC 4180: quoted fields, doubled
+ * quotes, line breaks inside quotes, CRLF or LF).
+ *
+ * Records are parsed in place in one read buffer: a field is only a start
+ * and end offset until get() is asked for it, so columns that are not
+ * imported never become Strings and memory stays flat however big the
+ * file is. The delimiter (comma, semicolon or tab) is detected from the
+ * first line when not given; a UTF-8 byte order mark is skipped. Blank
+ * lines are skipped.
+ */
+public class CsvReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final char[] DELIMITERS = {',', ';', '\t'};
+
+    private final Reader in;
+    private char delimiter;
+    private char[] buffer = new char[BUFFER_SIZE];
+    // Unparsed input is buffer[position, limit)
+    private int position = 0;
+    private int limit = 0;
+    private boolean endOfInput = false;
+
+    // Fields of the current record
+    private int[] starts = new int[32];
+    private int[] ends = new int[32];
+    private boolean[] quoted = new boolean[32];
+    private int fieldCount = 0;
+
+    private long nextLine = 1;
+    private long recordLine = 0;
+
+    /**
+     * @param delimiter field separator, or 0 to detect it from the first line
+     */
+    public CsvReader(Reader in, char delimiter) throws IOException {
+        this.in = in;
+        fill();
+        if (limit > 0 && buffer[0] == '\uFEFF') {
+            position = 1;
+        }
+        this.delimiter = delimiter != 0 ? delimiter : detectDelimiter();
+    }
+
+    public CsvReader(Reader in) throws IOException {
+        this(in, (char) 0);
+    }
+
+    public char getDelimiter() { return delimiter; }
+
+    /**
+     * Move to the next record
+     *
+     * @return false at the end of the input
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            int end = parseRecord();
+            if (end >= 0) {
+                position = end;
+                if (fieldCount == 1 && starts[0] == ends[0] && !quoted[0]) {
+                    // Blank line
+                    continue;
+                }
+                return true;
+            }
+            if (endOfInput) {
+                fieldCount = 0;
+                return false;
+            }
+            // The record runs past the buffer: read more and parse it again
+            fill();
+        }
+    }
+
+    /**
+     * The fields of the current record as Strings, e.g. for the header
+     */
+    public String[] getAll() {
+        String[] values = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            values[i] = get(i);
+        }
+        return values;
+    }
+
+    /**
+     * Number of fields in the current record
+     */
+    public int size() { return fieldCount; }
+
+    /**
+     * The line the current record starts on, counting from 1
+     */
+    public long getLineNumber() { return recordLine; }
+
+    /**
+     * Field column of the current record, or null if the record is shorter
+     */
+    public String get(int column) {
+        if (column < 0 || column >= fieldCount) {
+            return null;
+        }
+        int start = starts[column];
+        int end = ends[column];
+        if (!quoted[column]) {
+            return new String(buffer, start, end - start);
+        }
+        // Undo doubled quotes
+        StringBuilder value = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = buffer[i];
+            value.append(c);
+            if (c == '"' && i + 1 < end && buffer[i + 1] == '"') {
+                i++;
+            }
+        }
+        return value.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Parse one record starting at position without consuming it.
+     *
+     * @return the offset just past the record, or -1 if the buffer ends
+     *         before the record does and more input is available
+     */
+    private int parseRecord() {
+        int p = position;
+        fieldCount = 0;
+        long lines = 0;
+        if (p >= limit) {
+            return -1;
+        }
+
+        while (true) {
+            if (buffer[p] == '"') {
+                int start = ++p;
+                while (true) {
+                    if (p >= limit) {
+                        if (!endOfInput) {
+                            return -1;
+                        }
+                        // Unterminated quote: the field runs to the end
+                        addField(start, p, true);
+                        break;
+                    }
+                    char c = buffer[p];
+                    if (c == '"') {
+                        if (p + 1 >= limit && !endOfInput) {
+                            return -1;
+                        }
+                        if (p + 1 < limit && buffer[p + 1] == '"') {
+                            p += 2;
+                            continue;
+                        }
+                        addField(start, p, true);
+                        p++;
+                        break;
+                    }
+                    if (c == '\n') {
+                        lines++;
+                    }
+                    p++;
+                }
+                // Anything between the closing quote and the delimiter is dropped
+                while (p < limit && buffer[p] != delimiter && buffer[p] != '\n' && buffer[p] != '\r') {
+                    p++;
+                }
+            } else {
+                int start = p;
+                while (p < limit && buffer[p] != delimiter && buffer[p] != '\n' && buffer[p] != '\r') {
+                    p++;
+                }
+                addField(start, p, false);
+            }
+
+            if (p >= limit) {
+                if (!endOfInput) {
+                    return -1;
+                }
+                break;
+            }
+            char c = buffer[p];
+            if (c == delimiter) {
+                p++;
+                if (p >= limit) {
+                    if (!endOfInput) {
+                        return -1;
+                    }
+                    // Trailing delimiter: one more empty field
+                    addField(p, p, false);
+                    break;
+                }
+                continue;
+            }
+            // Line end: CRLF, LF or a lone CR
+            p++;
+            if (c == '\r') {
+                if (p >= limit && !endOfInput) {
+                    return -1;
+                }
+                if (p < limit && buffer[p] == '\n') {
+                    p++;
+                }
+            }
+            lines++;
+            break;
+        }
+
+        recordLine = nextLine;
+        nextLine += lines;
+        return p;
+    }
+
+    private void addField(int start, int end, boolean isQuoted) {
+        if (fieldCount == starts.length) {
+            int size = fieldCount * 2;
+            starts = Arrays.copyOf(starts, size);
+            ends = Arrays.copyOf(ends, size);
+            quoted = Arrays.copyOf(quoted, size);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        quoted[fieldCount] = isQuoted;
+        fieldCount++;
+    }
+
+    // Move the unparsed rest to the front, growing the buffer when a single
+    // record fills it, and read as much as fits
+    private void fill() throws IOException {
+        int rest = limit - position;
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, rest);
+        } else if (rest == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        position = 0;
+        limit = rest;
+        while (limit < buffer.length) {
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                endOfInput = true;
+                break;
+            }
+            limit += read;
+            if (read == 0) {
+                break;
+            }
+        }
+    }
+
+    // The candidate occurring most often outside quotes on the first line
+    private char detectDelimiter() {
+        int[] counts = new int[DELIMITERS.length];
+        boolean inQuotes = false;
+        for (int p = position; p < limit; p++) {
+            char c = buffer[p];
+            if (c == '"') {
+                inQuotes = !inQuotes;
+            } else if (!inQuotes && (c == '\n' || c == '\r')) {
+                break;
+            } else if (!inQuotes) {
+                for (int i = 0; i < DELIMITERS.length; i++) {
+                    if (c == DELIMITERS[i]) {
+                        counts[i]++;
+                    }
+                }
+            }
+        }
+        int best = 0;
+        for (int i = 1; i < DELIMITERS.length; i++) {
+            if (counts[i] > counts[best]) {
+                best = i;
+            }
+        }
+        return DELIMITERS[best];
+    }
+}
@@ -0,0 +1,77 @@
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes CSV as RFC 4180 describes it: comma separated, CRLF line ends,
+ * and a field quoted (with inner quotes doubled) whenever it contains a
+ * comma, a quote, a line break or leading or trailing spaces. Nulls are
+ * written as empty fields. Wrap the Writer in a BufferedWriter.
+ */
+public class CsvWriter implements Closeable, Flushable {
+    private final Writer out;
+    private final char delimiter;
+
+    public CsvWriter(Writer out) {
+        this(out, ',');
+    }
+
+    public CsvWriter(Writer out, char delimiter) {
+        this.out = out;
+        this.delimiter = delimiter;
+    }
+
+    public void writeRow(Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.write(delimiter);
+            }
+            if (values[i] != null) {
+                writeField(values[i].toString());
+            }
+        }
+        out.write("\r\n");
+    }
+
+    private void writeField(String value) throws IOException {
+        if (!needsQuotes(value)) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        int start = 0;
+        int quote;
+        while ((quote = value.indexOf('"', start)) >= 0) {
+            out.write(value, start, quote + 1 - start);
+            out.write('"');
+            start = quote + 1;
+        }
+        out.write(value, start, value.length() - start);
+        out.write('"');
+    }
+
+    private boolean needsQuotes(String value) {
+        int len = value.length();
+        if (len > 0 && (value.charAt(0) == ' ' || value.charAt(len - 1) == ' ')) {
+            return true;
+        }
+        for (int i = 0; i < len; i++) {
+            char c = value.charAt(i);
+            if (c == delimiter || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,55 @@
+import java.sql.*;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory customer list, sorted by surname and searchable as you type
+ * on name, email and phone. Kept current from customer events on the
+ * EventBus.
+ */
+public class CustomerCatalog extends EntityCatalog<Customer> {
+    private static CustomerCatalog instance;
+
+    private CustomerCatalog() {
+        super("customer-catalog", Comparator
+            .comparing(Customer::getCognome, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+            .thenComparing(Customer::getNome, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+            .thenComparingInt(Customer::getId));
+        EventBus bus = EventBus.getInstance();
+        bus.subscribe(DomainEvent.CustomerChanged.class, e -> changed(e.getCustomerId()));
+        bus.subscribe(DomainEvent.CustomerDeleted.class, e -> deleted(e.getCustomerId()));
+        bus.subscribe(DomainEvent.CustomersImported.class, e -> invalidateAll());
+    }
+
+    public static synchronized CustomerCatalog getInstance() {
+        if (instance == null) {
+            instance = new CustomerCatalog();
+        }
+        return instance;
+    }
+
+    @Override
+    protected int idOf(Customer customer) {
+        return customer.getId();
+    }
+
+    @Override
+    protected List<Customer> loadAll() throws SQLException {
+        return CustomerRepository.getInstance().findAll();
+    }
+
+    @Override
+    protected Map<Integer, Customer> loadByIds(Collection<Integer> ids) throws SQLException {
+        return CustomerRepository.getInstance().findByIds(ids);
+    }
+
+    @Override
+    protected void configureTypeahead(TypeaheadIndex<Customer> index) {
+        index.field(Customer::getCognome, 3.0)
+             .field(Customer::getNome, 2.0)
+             .field(Customer::getEmail, 1.0)
+             .field(Customer::getTelefono, 1.0);
+    }
+}
@@ -9,6 +9,7 @@ public class CustomerDialog extends JDialog {
     private JTextField emailField;
     private JTextField telefonoField;
     private JTextArea indirizzoArea;
+    private JButton saveButton;
     private boolean customerSaved = false;
     private Customer customer;
     
@@ -93,7 +94,7 @@ public class CustomerDialog extends JDialog {
         
         // Button panel
         JPanel buttonPanel = new JPanel();
-        JButton saveButton = new JButton("Save");
+        saveButton = new JButton("Save");
         JButton cancelButton = new JButton("Cancel");
         
         saveButton.addActionListener(e -> saveCustomer());
@@ -116,34 +117,42 @@ public class CustomerDialog extends JDialog {
     }
     
     private void saveCustomer() {
-        try {
-            // Validation
-            String nome = nomeField.getText().trim();
-            String cognome = cognomeField.getText().trim();
-            String email = emailField.getText().trim();
-            String telefono = telefonoField.getText().trim();
-            String indirizzo = indirizzoArea.getText().trim();
-            
-            if (nome.isEmpty() || cognome.isEmpty()) {
-                JOptionPane.showMessageDialog(this,
-                    "First Name and Last Name fields are required",
-                    "Error", JOptionPane.ERROR_MESSAGE);
-                return;
-            }
-            
-            Connection conn = DatabaseManager.getInstance().getConnection();
+        // Validation
+        String nome = nomeField.getText().trim();
+        String cognome = cognomeField.getText().trim();
+        String email = emailField.getText().trim();
+        String telefono = telefonoField.getText().trim();
+        String indirizzo = indirizzoArea.getText().trim();
+        
+        if (nome.isEmpty() || cognome.isEmpty()) {
+            JOptionPane.showMessageDialog(this,
+                "First Name and Last Name fields are required",
+                "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        // Written on the group-commit thread; the dialog stays responsive
+        saveButton.setEnabled(false);
+        DatabaseManager.getInstance().submitWrite(conn -> {
             if (customer == null) { // New customer
                 String query = """
                     INSERT INTO clienti (nome, cognome, email, telefono, indirizzo)
                     VALUES (?, ?, ?, ?, ?)
                 """;
-                try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                try (PreparedStatement pstmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
                     pstmt.setString(1, nome);
                     pstmt.setString(2, cognome);
                     pstmt.setString(3, email);
                     pstmt.setString(4, telefono);
                     pstmt.setString(5, indirizzo);
                     pstmt.executeUpdate();
+                    
+                    try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                        if (rs.next()) {
+                            return rs.getInt(1);
+                        }
+                        throw new SQLException("Failed to get customer ID");
+                    }
                 }
             } else { // Edit customer
                 String query = """
@@ -160,16 +169,20 @@ public class CustomerDialog extends JDialog {
                     pstmt.setInt(6, customer.getId());
                     pstmt.executeUpdate();
                 }
+                return customer.getId();
+            }
+        }).whenComplete((customerId, error) -> SwingUtilities.invokeLater(() -> {
+            saveButton.setEnabled(true);
+            if (error != null) {
+                JOptionPane.showMessageDialog(this,
+                    "Error while saving customer: " + error.getMessage(),
+                    "Error", JOptionPane.ERROR_MESSAGE);
+                return;
             }
-            
             customerSaved = true;
+            EventBus.getInstance().publish(new DomainEvent.CustomerChanged(customerId, customer == null));
             dispose();
-            
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this,
-                "Error while saving customer: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        }));
     }
     
     public boolean isCustomerSaved() {
@@ -0,0 +1,79 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typed queries on clienti
+ */
+public class CustomerRepository extends Repository {
+    private static CustomerRepository instance;
+
+    private static final String COLUMNS = "id, nome, cognome, email, telefono, indirizzo";
+    private static final String SELECT = "SELECT " + COLUMNS + " FROM clienti";
+
+    // Column weights for bm25: surname, then name, then contact details
+    private static final String SEARCH = """
+        SELECT c.id, c.nome, c.cognome, c.email, c.telefono, c.indirizzo
+        FROM clienti_fts
+        JOIN clienti c ON c.id = clienti_fts.rowid
+        WHERE clienti_fts MATCH ?
+        ORDER BY bm25(clienti_fts, 5.0, 10.0, 2.0, 2.0, 1.0), c.cognome, c.nome
+        LIMIT ?
+    """;
+
+    private CustomerRepository() {
+        // Private constructor for the Singleton pattern
+    }
+
+    public static synchronized CustomerRepository getInstance() {
+        if (instance == null) {
+            instance = new CustomerRepository();
+        }
+        return instance;
+    }
+
+    public List<Customer> findAll() throws SQLException {
+        return queryList(SELECT + " ORDER BY cognome, nome", RowMappers.CUSTOMER);
+    }
+
+    public Page<Customer> findPage(int offset, int limit) throws SQLException {
+        return queryPage(SELECT + " ORDER BY cognome, nome, id", RowMappers.CUSTOMER, offset, limit);
+    }
+
+    /**
+     * Every customer by surname and name, for a table that pages rows in as
+     * it scrolls
+     */
+    public KeysetQuery<Customer> browse() {
+        return new KeysetQuery<>(COLUMNS, "clienti", RowMappers.CUSTOMER).orderBy(false, "cognome", "nome", "id");
+    }
+
+    public Customer findById(int id) throws SQLException {
+        return queryOne(SELECT + " WHERE id = ?", RowMappers.CUSTOMER, id);
+    }
+
+    public Map<Integer, Customer> findByIds(Collection<Integer> ids) throws SQLException {
+        return queryByIds(SELECT + " WHERE id", ids, RowMappers.CUSTOMER, Customer::getId);
+    }
+
+    /**
+     * Full-text search on name, surname, email, phone and address: every
+     * word of term must start a word of the customer, best matches first
+     */
+    public List<Customer> search(String term, int limit) throws SQLException {
+        String match = toPrefixQuery(term);
+        if (match == null) {
+            return new ArrayList<>();
+        }
+        return queryList(SEARCH, RowMappers.CUSTOMER, match, limit);
+    }
+
+    /**
+     * Every match, without a row limit
+     */
+    public List<Customer> search(String term) throws SQLException {
+        return search(term, -1);
+    }
+}
@@ -3,6 +3,7 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.*;
 import java.sql.*;
+import java.util.List;
 import java.util.Vector;
 
 public class CustomerSelectionDialog extends JDialog {
@@ -11,6 +12,8 @@ public class CustomerSelectionDialog extends JDialog {
     private DefaultTableModel tableModel;
     private Customer selectedCustomer;
     private boolean customerSelected = false;
+    private final BusyIndicator busyIndicator = new BusyIndicator();
+    private boolean waitingForCatalog = false;
     
     public CustomerSelectionDialog(JDialog parent) {
         super(parent, "Select Customer", true);
@@ -75,6 +78,7 @@ public class CustomerSelectionDialog extends JDialog {
         searchInputPanel.add(searchButton);
         searchInputPanel.add(clearButton);
         searchInputPanel.add(newCustomerButton);
+        searchInputPanel.add(busyIndicator);
         
         searchPanel.add(searchInputPanel, BorderLayout.CENTER);
         
@@ -152,21 +156,11 @@ public class CustomerSelectionDialog extends JDialog {
     }
     
     private void loadAllCustomers() {
-        tableModel.setRowCount(0);
+        if (!catalogReady()) {
+            return;
+        }
         try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = """
-                SELECT id, nome, cognome, email, telefono, indirizzo
-                FROM clienti 
-                ORDER BY cognome, nome
-            """;
-            
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(query)) {
-                while (rs.next()) {
-                    addCustomerRow(rs);
-                }
-            }
+            showCustomers(CustomerCatalog.getInstance().getAll());
         } catch (SQLException e) {
             e.printStackTrace();
             JOptionPane.showMessageDialog(this,
@@ -181,45 +175,12 @@ public class CustomerSelectionDialog extends JDialog {
             loadAllCustomers();
             return;
         }
+        if (!catalogReady()) {
+            return;
+        }
         
-        tableModel.setRowCount(0);
         try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = """
-                SELECT id, nome, cognome, email, telefono, indirizzo
-                FROM clienti 
-                WHERE LOWER(nome) LIKE LOWER(?) 
-                   OR LOWER(cognome) LIKE LOWER(?) 
-                   OR LOWER(email) LIKE LOWER(?)
-                   OR telefono LIKE ?
-                   OR LOWER(indirizzo) LIKE LOWER(?)
-                ORDER BY 
-                    CASE 
-                        WHEN LOWER(cognome) LIKE LOWER(?) THEN 1
-                        WHEN LOWER(nome) LIKE LOWER(?) THEN 2
-                        ELSE 3
-                    END,
-                    cognome, nome
-            """;
-            
-            String searchPattern = "%" + searchTerm + "%";
-            String exactPattern = searchTerm + "%";
-            
-            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-                pstmt.setString(1, searchPattern);
-                pstmt.setString(2, searchPattern);
-                pstmt.setString(3, searchPattern);
-                pstmt.setString(4, searchPattern);
-                pstmt.setString(5, searchPattern);
-                pstmt.setString(6, exactPattern); // Per ordinamento
-                pstmt.setString(7, exactPattern); // Per ordinamento
-                
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    while (rs.next()) {
-                        addCustomerRow(rs);
-                    }
-                }
-            }
+            showCustomers(CustomerCatalog.getInstance().search(searchTerm, 500));
         } catch (SQLException e) {
             e.printStackTrace();
             JOptionPane.showMessageDialog(this,
@@ -228,16 +189,48 @@ public class CustomerSelectionDialog extends JDialog {
         }
     }
     
-    private void addCustomerRow(ResultSet rs) throws SQLException {
+    // False while the catalog is loading; the list is filled in when it is ready
+    private boolean catalogReady() {
+        CustomerCatalog catalog = CustomerCatalog.getInstance();
+        if (catalog.isLoaded()) {
+            return true;
+        }
+        if (!waitingForCatalog) {
+            waitingForCatalog = true;
+            busyIndicator.begin();
+            catalog.whenLoaded(() -> {
+                waitingForCatalog = false;
+                busyIndicator.end();
+                performSearch();
+            }, error -> {
+                waitingForCatalog = false;
+                busyIndicator.end();
+                error.printStackTrace();
+                JOptionPane.showMessageDialog(this,
+                    "Error loading customers: " + error.getMessage(),
+                    "Error", JOptionPane.ERROR_MESSAGE);
+            });
+        }
+        return false;
+    }
+    
+    private void showCustomers(List<Customer> customers) {
+        tableModel.setRowCount(0);
+        for (Customer customer : customers) {
+            addCustomerRow(customer);
+        }
+    }
+    
+    private void addCustomerRow(Customer customer) {
         Vector<Object> row = new Vector<>();
-        row.add(rs.getInt("id")); // ID nascosto
-        row.add(rs.getString("nome"));
-        row.add(rs.getString("cognome"));
-        row.add(rs.getString("email"));
-        row.add(rs.getString("telefono"));
+        row.add(customer.getId()); // ID nascosto
+        row.add(customer.getNome());
+        row.add(customer.getCognome());
+        row.add(customer.getEmail());
+        row.add(customer.getTelefono());
         
         // Estrai la città dall'indirizzo (prendi l'ultima parte dopo la virgola)
-        String fullAddress = rs.getString("indirizzo");
+        String fullAddress = customer.getIndirizzo();
         String city = "";
         if (fullAddress != null && !fullAddress.isEmpty()) {
             String[] parts = fullAddress.split(",");
@@ -1,14 +1,13 @@
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.*;
 import java.sql.*;
-import java.util.Vector;
 
 public class CustomersPanel extends JPanel {
     private JTable customersTable;
-    private DefaultTableModel tableModel;
+    private LazyTableModel<Customer> tableModel;
     private JTextField searchField;
+    private final BusyIndicator busyIndicator = new BusyIndicator();
     private JButton addButton;
     private JButton editButton;
     private JButton deleteButton;
@@ -18,6 +17,12 @@ public class CustomersPanel extends JPanel {
         setupPanel();
         initComponents();
         loadCustomers();
+        
+        // Patch single rows when customers change anywhere in the application
+        EventBus bus = EventBus.getInstance();
+        bus.subscribe(DomainEvent.CustomerChanged.class, e -> customerChanged(e.getCustomerId(), e.isCreated()));
+        bus.subscribe(DomainEvent.CustomerDeleted.class, e -> tableModel.refresh());
+        bus.subscribe(DomainEvent.CustomersImported.class, e -> tableModel.refresh());
     }
     
     private void setupPanel() {
@@ -37,15 +42,20 @@ public class CustomersPanel extends JPanel {
         searchPanel.add(new JLabel("Search: "));
         searchPanel.add(searchField);
         searchPanel.add(searchButton);
+        searchPanel.add(busyIndicator);
         
         // Customers table
         String[] columns = {"ID", "Name", "Surname", "Email", "Phone", "Address"};
-        tableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        tableModel = new LazyTableModel<Customer>(columns, customer -> new Object[] {
+            customer.getId(),
+            customer.getNome(),
+            customer.getCognome(),
+            customer.getEmail(),
+            customer.getTelefono(),
+            customer.getIndirizzo()
+        }).showBusy(busyIndicator).onError(e -> JOptionPane.showMessageDialog(this,
+            "Error while loading customers: " + e.getMessage(),
+            "Error", JOptionPane.ERROR_MESSAGE));
         customersTable = new JTable(tableModel);
         customersTable.getSelectionModel().setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         customersTable.getSelectionModel().addListSelectionListener(e -> updateButtonStates());
@@ -95,27 +105,16 @@ public class CustomersPanel extends JPanel {
     }
     
     private void loadCustomers() {
-        tableModel.setRowCount(0);
-        try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = "SELECT * FROM clienti ORDER BY cognome, nome";
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(query)) {
-                while (rs.next()) {
-                    Vector<Object> row = new Vector<>();
-                    row.add(rs.getInt("id"));
-                    row.add(rs.getString("nome"));
-                    row.add(rs.getString("cognome"));
-                    row.add(rs.getString("email"));
-                    row.add(rs.getString("telefono"));
-                    row.add(rs.getString("indirizzo"));
-                    tableModel.addRow(row);
-                }
-            }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this,
-                "Error while loading customers: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
+        tableModel.setQuery(CustomerRepository.getInstance().browse());
+    }
+    
+    private void customerChanged(int customerId, boolean created) {
+        if (created) {
+            // Its position in the list is only known to the query
+            tableModel.refresh();
+        } else {
+            tableModel.reloadRows(customer -> customer.getId() == customerId,
+                () -> CustomerRepository.getInstance().findById(customerId));
         }
     }
     
@@ -126,40 +125,7 @@ public class CustomersPanel extends JPanel {
             return;
         }
         
-        tableModel.setRowCount(0);
-        try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = """
-                SELECT * FROM clienti 
-                WHERE nome LIKE ? OR cognome LIKE ? OR email LIKE ? OR telefono LIKE ?
-                ORDER BY cognome, nome
-            """;
-            String searchPattern = "%" + searchTerm + "%";
-            
-            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-                pstmt.setString(1, searchPattern);
-                pstmt.setString(2, searchPattern);
-                pstmt.setString(3, searchPattern);
-                pstmt.setString(4, searchPattern);
-                
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    while (rs.next()) {
-                        Vector<Object> row = new Vector<>();
-                        row.add(rs.getInt("id"));
-                        row.add(rs.getString("nome"));
-                        row.add(rs.getString("cognome"));
-                        row.add(rs.getString("email"));
-                        row.add(rs.getString("telefono"));
-                        row.add(rs.getString("indirizzo"));
-                        tableModel.addRow(row);
-                    }
-                }
-            }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this,
-                "Error while searching for customers: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        tableModel.loadItems(() -> CustomerRepository.getInstance().search(searchTerm));
     }
     
     private void showCustomerDialog(Customer customer) {
@@ -169,40 +135,33 @@ public class CustomersPanel extends JPanel {
         
         CustomerDialog dialog = new CustomerDialog(parentFrame, customer);
         dialog.setVisible(true);
-        if (dialog.isCustomerSaved()) {
-            loadCustomers();
-        }
     }
     
     private void editSelectedCustomer() {
         int selectedRow = customersTable.getSelectedRow();
-        if (selectedRow != -1) {
-            Customer customer = new Customer(
-                (int)tableModel.getValueAt(selectedRow, 0),
-                (String)tableModel.getValueAt(selectedRow, 1),
-                (String)tableModel.getValueAt(selectedRow, 2),
-                (String)tableModel.getValueAt(selectedRow, 3),
-                (String)tableModel.getValueAt(selectedRow, 4),
-                (String)tableModel.getValueAt(selectedRow, 5)
-            );
+        Customer customer = selectedRow != -1 ? tableModel.getItem(selectedRow) : null;
+        if (customer != null) {
             showCustomerDialog(customer);
         }
     }
     
     private void deleteSelectedCustomer() {
         int selectedRow = customersTable.getSelectedRow();
-        if (selectedRow != -1) {
-            int id = (int)tableModel.getValueAt(selectedRow, 0);
-            String nome = (String)tableModel.getValueAt(selectedRow, 1);
-            String cognome = (String)tableModel.getValueAt(selectedRow, 2);
+        Customer selected = selectedRow != -1 ? tableModel.getItem(selectedRow) : null;
+        if (selected != null) {
+            int id = selected.getId();
+            String nome = selected.getNome();
+            String cognome = selected.getCognome();
             String fullName = nome + " " + cognome;
             
             try {
-                Connection conn = DatabaseManager.getInstance().getConnection();
-                
                 // Check for existing dependencies
-                boolean hasOrders = hasCustomerOrders(conn, id);
-                boolean hasInvoices = hasCustomerInvoices(conn, id);
+                boolean hasOrders;
+                boolean hasInvoices;
+                try (Connection conn = DatabaseManager.getInstance().getReadConnection()) {
+                    hasOrders = hasCustomerOrders(conn, id);
+                    hasInvoices = hasCustomerInvoices(conn, id);
+                }
                 
                 if (hasOrders || hasInvoices) {
                     StringBuilder message = new StringBuilder();
@@ -224,7 +183,7 @@ public class CustomersPanel extends JPanel {
                         null, options, options[0]);
                     
                     if (choice == 1) { // Force Delete
-                        performCascadeDelete(conn, id, fullName);
+                        performCascadeDelete(id, fullName);
                     }
                     return;
                 }
@@ -237,17 +196,19 @@ public class CustomersPanel extends JPanel {
                     JOptionPane.WARNING_MESSAGE);
                     
                 if (result == JOptionPane.YES_OPTION) {
-                    String query = "DELETE FROM clienti WHERE id = ?";
-                    try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-                        pstmt.setInt(1, id);
-                        pstmt.executeUpdate();
-                        loadCustomers();
-                        
-                        JOptionPane.showMessageDialog(this,
-                            "Customer deleted successfully",
-                            "Success",
-                            JOptionPane.INFORMATION_MESSAGE);
-                    }
+                    DatabaseManager.getInstance().inWriteTransaction(conn -> {
+                        String query = "DELETE FROM clienti WHERE id = ?";
+                        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                            pstmt.setInt(1, id);
+                            return pstmt.executeUpdate();
+                        }
+                    });
+                    EventBus.getInstance().publish(new DomainEvent.CustomerDeleted(id));
+                    
+                    JOptionPane.showMessageDialog(this,
+                        "Customer deleted successfully",
+                        "Success",
+                        JOptionPane.INFORMATION_MESSAGE);
                 }
             } catch (SQLException e) {
                 e.printStackTrace();
@@ -258,7 +219,7 @@ public class CustomersPanel extends JPanel {
         }
     }
     
-    private void performCascadeDelete(Connection conn, int id, String fullName) {
+    private void performCascadeDelete(int id, String fullName) {
         int confirmResult = JOptionPane.showConfirmDialog(this,
             "WARNING: This will permanently delete customer '" + fullName + "' and ALL related data:\n" +
             "- All orders from this customer\n" +
@@ -275,9 +236,7 @@ public class CustomersPanel extends JPanel {
         }
         
         try {
-            conn.setAutoCommit(false);
-            
-            try {
+            DatabaseManager.getInstance().inWriteTransaction(conn -> {
                 // Delete in order to respect foreign key constraints
                 
                 // 1. Delete order details for this customer's orders
@@ -329,22 +288,14 @@ public class CustomersPanel extends JPanel {
                     pstmt.executeUpdate();
                     System.out.println("Deleted customer");
                 }
+                return null;
+            });
+            EventBus.getInstance().publish(new DomainEvent.CustomerDeleted(id));
                 
-                conn.commit();
-                loadCustomers();
-                
-                JOptionPane.showMessageDialog(this,
-                    "Customer '" + fullName + "' and all related records deleted successfully",
-                    "Force Delete Completed",
-                    JOptionPane.INFORMATION_MESSAGE);
-                    
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
-            }
-            
+            JOptionPane.showMessageDialog(this,
+                "Customer '" + fullName + "' and all related records deleted successfully",
+                "Force Delete Completed",
+                JOptionPane.INFORMATION_MESSAGE);
         } catch (SQLException e) {
             e.printStackTrace();
             JOptionPane.showMessageDialog(this,
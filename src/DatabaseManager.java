@@ -1,16 +1,38 @@
 import java.sql.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import javax.swing.JOptionPane;
 
 public class DatabaseManager {
     private static DatabaseManager instance;
-    private Connection connection;
+    private volatile ConnectionPool pool;
     private static final String DB_URL = "jdbc:sqlite:gestionale.db";
+    private static final int READER_CONNECTIONS =
+        Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final long HEALTH_CHECK_INTERVAL_SECONDS = 60;
+    
+    // Set when a database call fails; the next getConnection re-checks liveness
+    private volatile boolean connectionSuspect = false;
+    // Set by closeConnection so background queries cannot reopen the database
+    // (e.g. while a backup is restored); cleared by open()/initDatabase()
+    private volatile boolean closedOnPurpose = false;
+    private ScheduledExecutorService healthChecker;
+    private WriteQueue writeQueue;
+    
+    /**
+     * Unit of work executed on the writer connection inside a transaction
+     */
+    public interface TransactionWork<T> {
+        T execute(Connection conn) throws SQLException;
+    }
     
     private DatabaseManager() {
         // Private constructor for the Singleton pattern
     }
     
-    public static DatabaseManager getInstance() {
+    public static synchronized DatabaseManager getInstance() {
         if (instance == null) {
             instance = new DatabaseManager();
         }
@@ -19,23 +41,7 @@ public class DatabaseManager {
     
     public void initDatabase() {
         try {
-            // Load the SQLite JDBC driver
-            Class.forName("org.sqlite.JDBC");
-            
-            // Create the connection
-            connection = DriverManager.getConnection(DB_URL);
-            
-            // Enable foreign keys and set SQLite optimizations
-            try (Statement stmt = connection.createStatement()) {
-                stmt.execute("PRAGMA foreign_keys = ON");
-                stmt.execute("PRAGMA journal_mode = WAL");
-                stmt.execute("PRAGMA synchronous = NORMAL");
-            }
-            
-            // Create tables if they do not exist
-            createTables();
-            
-            System.out.println("Database initialized successfully");
+            open();
             
         } catch (Exception e) {
             e.printStackTrace();
@@ -46,6 +52,135 @@ public class DatabaseManager {
         }
     }
     
+    /**
+     * Like initDatabase, but failures go to the caller instead of a dialog,
+     * so it can run off the EDT
+     */
+    public synchronized void open() throws SQLException {
+        closedOnPurpose = false;
+        openDatabase();
+        System.out.println("Database initialized successfully");
+    }
+    
+    /**
+     * Open (or reopen) the pool and bring the schema up to date without any
+     * UI, so it is safe to call from background threads.
+     */
+    private synchronized void openDatabase() throws SQLException {
+        try {
+            // Load the SQLite JDBC driver
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("SQLite JDBC driver not found", e);
+        }
+        
+        // Create the writer connection and the read-only pool (WAL mode)
+        if (pool != null) {
+            pool.close();
+        }
+        ConnectionPool newPool = new ConnectionPool(DB_URL, READER_CONNECTIONS, this::markConnectionSuspect);
+        pool = newPool;
+        
+        // Create tables if they do not exist
+        createTables();
+        
+        // Bring indexes and later schema changes up to date
+        SchemaMigrations.migrate(newPool.getWriter());
+        // Indexes a first bulk import dropped and did not get to rebuild
+        BulkImporter.restoreDeferredIndexes(newPool.getWriter());
+        newPool.clearStatementCaches();
+        
+        if (Boolean.getBoolean("workgenio.checkQueryPlans")) {
+            QueryPlanChecker.report(newPool.getWriter());
+        }
+        
+        connectionSuspect = false;
+        startHealthChecker();
+    }
+    
+    private void startHealthChecker() {
+        if (healthChecker != null) {
+            return;
+        }
+        healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "db-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::runHealthCheck,
+            HEALTH_CHECK_INTERVAL_SECONDS, HEALTH_CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+    
+    private void runHealthCheck() {
+        ConnectionPool current = pool;
+        if (current == null || current.isClosed()) {
+            // Closed on purpose (shutdown or restore in progress)
+            return;
+        }
+        if (!current.isWriterAlive()) {
+            System.err.println("Database health check failed, reconnecting");
+            reconnectQuietly(current);
+        }
+    }
+    
+    void markConnectionSuspect() {
+        connectionSuspect = true;
+    }
+    
+    /**
+     * Reopen the pool unless another thread already replaced it. Failures are
+     * logged only: callers get an SQLException from their next query instead
+     * of a dialog popping up from a background thread.
+     */
+    private synchronized boolean reconnectQuietly(ConnectionPool broken) {
+        if (closedOnPurpose) {
+            return false;
+        }
+        if (pool != broken) {
+            return true;
+        }
+        try {
+            openDatabase();
+            System.out.println("Database connection re-established");
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Database reconnect failed: " + e.getMessage());
+            connectionSuspect = true;
+            return false;
+        }
+    }
+    
+    private ConnectionPool livePool() throws SQLException {
+        ConnectionPool current = pool;
+        if (current == null || current.isClosed()) {
+            return reopen(current);
+        }
+        if (connectionSuspect) {
+            // Only pay for a round trip after something went wrong
+            connectionSuspect = false;
+            if (!current.isWriterAlive() && !reconnectQuietly(current)) {
+                throw new SQLException("Database connection lost and could not be re-established");
+            }
+            current = pool;
+        }
+        return current;
+    }
+    
+    /**
+     * Open the pool again after it was found closed, unless another thread
+     * got here first or the database was closed on purpose
+     */
+    private synchronized ConnectionPool reopen(ConnectionPool observed) throws SQLException {
+        if (closedOnPurpose) {
+            throw new SQLException("Database is closed");
+        }
+        if (pool != observed && pool != null && !pool.isClosed()) {
+            return pool;
+        }
+        openDatabase();
+        return pool;
+    }
+    
     private void createTables() throws SQLException {
         // Customers Table
         String createClientiTable = """
@@ -202,7 +337,7 @@ public class DatabaseManager {
             CREATE TABLE IF NOT EXISTS movimenti_magazzino (
                 id INTEGER PRIMARY KEY AUTOINCREMENT,
                 prodotto_id INTEGER NOT NULL,
-                data DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                data DATETIME NOT NULL DEFAULT (datetime('now', 'localtime')),
                 tipo TEXT NOT NULL,
                 quantita INTEGER NOT NULL,
                 causale TEXT NOT NULL,
@@ -232,7 +367,7 @@ public class DatabaseManager {
             CREATE TABLE IF NOT EXISTS notifiche_magazzino (
                 id INTEGER PRIMARY KEY AUTOINCREMENT,
                 prodotto_id INTEGER NOT NULL,
-                data DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                data DATETIME NOT NULL DEFAULT (datetime('now', 'localtime')),
                 tipo TEXT NOT NULL,
                 messaggio TEXT NOT NULL,
                 stato TEXT NOT NULL DEFAULT 'NEW',
@@ -258,7 +393,7 @@ public class DatabaseManager {
             )
         """;
         
-        try (Statement stmt = connection.createStatement()) {
+        try (Statement stmt = pool.getWriter().createStatement()) {
             stmt.execute(createClientiTable);
             stmt.execute(createProdottiTable);
             stmt.execute(createOrdiniTable);
@@ -277,69 +412,119 @@ public class DatabaseManager {
         }
     }
     
+    /**
+     * The shared writer connection. Transactions on it must go through
+     * inWriteTransaction so they cannot interleave across threads.
+     */
     public Connection getConnection() throws SQLException {
-        // Check if connection is valid, if not recreate it
-        if (connection == null || connection.isClosed() || !connection.isValid(5)) {
-            initDatabase();
-        }
-        return connection;
+        return livePool().getWriter();
     }
     
-    public void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Database connection closed");
-            }
+    /**
+     * Borrow a read-only connection for queries. Use it in try-with-resources:
+     * closing it returns the connection to the pool.
+     */
+    public Connection getReadConnection() throws SQLException {
+        return livePool().borrowReader();
+    }
+    
+    /**
+     * A connection of its own, outside the pool, for long jobs such as a
+     * backup that must not hold the writer or a pooled reader. The caller
+     * closes it.
+     */
+    public Connection openDedicatedConnection() throws SQLException {
+        // Opening the pool first puts the database in WAL mode
+        livePool();
+        Connection conn = DriverManager.getConnection(DB_URL);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = 5000");
         } catch (SQLException e) {
-            e.printStackTrace();
+            conn.close();
+            throw e;
         }
+        return conn;
     }
     
-    public String getNextInvoiceNumber(int year) throws SQLException {
-        String numero;
-        Connection conn = getConnection(); // Use the safe getConnection method
-        conn.setAutoCommit(false);
+    /**
+     * Run work in a single transaction on the writer connection, holding the
+     * write lock so no other thread can toggle auto-commit meanwhile.
+     */
+    public <T> T inWriteTransaction(TransactionWork<T> work) throws SQLException {
+        ConnectionPool current = livePool();
+        Connection conn = current.getWriter();
+        current.getWriteLock().lock();
         try {
-            // Check if a record for the current year already exists
-            String checkQuery = "SELECT ultimo_numero FROM numerazione_fatture WHERE anno = ?";
-            try (PreparedStatement pstmt = conn.prepareStatement(checkQuery)) {
-                pstmt.setInt(1, year);
-                ResultSet rs = pstmt.executeQuery();
-                
-                int nextNumber;
-                if (rs.next()) {
-                    // Increment the last number
-                    nextNumber = rs.getInt("ultimo_numero") + 1;
-                    String updateQuery = "UPDATE numerazione_fatture SET ultimo_numero = ? WHERE anno = ?";
-                    try (PreparedStatement updateStmt = conn.prepareStatement(updateQuery)) {
-                        updateStmt.setInt(1, nextNumber);
-                        updateStmt.setInt(2, year);
-                        updateStmt.executeUpdate();
-                    }
-                } else {
-                    // Create a new record for the year
-                    nextNumber = 1;
-                    String insertQuery = "INSERT INTO numerazione_fatture (anno, ultimo_numero) VALUES (?, ?)";
-                    try (PreparedStatement insertStmt = conn.prepareStatement(insertQuery)) {
-                        insertStmt.setInt(1, year);
-                        insertStmt.setInt(2, nextNumber);
-                        insertStmt.executeUpdate();
-                    }
-                }
-                
-                // Format the invoice number (e.g., 2024/0001)
-                numero = String.format("%d/%04d", year, nextNumber);
+            if (current.getWriteLock().getHoldCount() > 1) {
+                // Nested call on the same thread: join the running transaction
+                return work.execute(conn);
+            }
+            conn.setAutoCommit(false);
+            try {
+                T result = work.execute(conn);
+                conn.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
-            
-            conn.commit();
-            return numero;
-            
-        } catch (SQLException e) {
-            conn.rollback();
-            throw e;
         } finally {
-            conn.setAutoCommit(true);
+            current.getWriteLock().unlock();
+        }
+    }
+    
+    /**
+     * Queue work for the group-commit writer thread instead of running it on
+     * the caller's thread. Units arriving close together share one commit;
+     * the future completes (on the writer thread) once the data is durable.
+     */
+    public <T> CompletableFuture<T> submitWrite(TransactionWork<T> work) {
+        return getWriteQueue().submit(work);
+    }
+    
+    private synchronized WriteQueue getWriteQueue() {
+        if (writeQueue == null || writeQueue.isShutdown()) {
+            writeQueue = new WriteQueue(this::livePool);
         }
+        return writeQueue;
+    }
+    
+    public long getStatementCacheHits() {
+        return StatementCache.getTotalHits();
+    }
+    
+    public long getStatementCacheMisses() {
+        return StatementCache.getTotalMisses();
+    }
+    
+    public void closeConnection() {
+        // Let queued writes commit before the writer connection goes away.
+        // Not under the monitor: the writer thread may need it to reconnect.
+        WriteQueue queue;
+        synchronized (this) {
+            queue = writeQueue;
+            writeQueue = null;
+        }
+        if (queue != null) {
+            queue.shutdown();
+        }
+        synchronized (this) {
+            closedOnPurpose = true;
+            if (pool != null && !pool.isClosed()) {
+                pool.close();
+                System.out.println("Database connection closed");
+            }
+        }
+    }
+    
+    /**
+     * Take the next invoice number in its own transaction. New code should
+     * number invoices inside the saving transaction via DocumentNumbering.
+     */
+    public String getNextInvoiceNumber(int year) throws SQLException {
+        return inWriteTransaction(conn ->
+            DocumentNumbering.getInstance().next(conn, DocumentNumbering.DocumentType.INVOICE, year));
     }
-}
\ No newline at end of file
+}
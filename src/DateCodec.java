@@ -0,0 +1,120 @@
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+/**
+ * Canonical storage encoding for every date column: local date-time as
+ * ISO-8601 text, "yyyy-MM-dd HH:mm:ss".
+ *
+ * This is the layout SQLite's own date functions produce and understand, and
+ * it sorts lexicographically in time order, so range filters are plain string
+ * comparisons that can use the date indexes. Write dates with bind() rather
+ * than setTimestamp/setDate, which the driver stores as epoch millis.
+ */
+public class DateCodec {
+    public static final String PATTERN = "yyyy-MM-dd HH:mm:ss";
+    public static final DateTimeFormatter CANONICAL = DateTimeFormatter.ofPattern(PATTERN);
+
+    private DateCodec() {
+        // Utility class
+    }
+
+    public static String encode(LocalDateTime value) {
+        return value != null ? CANONICAL.format(value) : null;
+    }
+
+    public static String encode(Date value) {
+        return value != null ? encode(toLocalDateTime(value)) : null;
+    }
+
+    /**
+     * Lower bound of a day, for inclusive range filters
+     */
+    public static String startOfDay(LocalDate day) {
+        return encode(day.atStartOfDay());
+    }
+
+    /**
+     * Upper bound of a day, for inclusive range filters
+     */
+    public static String endOfDay(LocalDate day) {
+        return encode(day.atTime(LocalTime.of(23, 59, 59)));
+    }
+
+    public static String startOfDay(Date day) {
+        return startOfDay(toLocalDateTime(day).toLocalDate());
+    }
+
+    public static String endOfDay(Date day) {
+        return endOfDay(toLocalDateTime(day).toLocalDate());
+    }
+
+    /**
+     * @return the decoded value, or null if the text is not in canonical form
+     */
+    public static LocalDateTime decode(String value) {
+        if (value == null || value.length() != PATTERN.length()
+                || value.charAt(4) != '-' || value.charAt(7) != '-'
+                || (value.charAt(10) != ' ' && value.charAt(10) != 'T')
+                || value.charAt(13) != ':' || value.charAt(16) != ':') {
+            return null;
+        }
+        // Straight from the fields: going through an instant would move wall
+        // times that fall in a DST gap
+        int year = digits(value, 0, 4);
+        int month = digits(value, 5, 2);
+        int day = digits(value, 8, 2);
+        int hour = digits(value, 11, 2);
+        int minute = digits(value, 14, 2);
+        int second = digits(value, 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > YearMonth.of(year, month).lengthOfMonth()
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return null;
+        }
+        return LocalDateTime.of(year, month, day, hour, minute, second);
+    }
+
+    /**
+     * @return the value of count decimal digits at from, or -1 if any is not a digit
+     */
+    private static int digits(String s, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    public static void bind(PreparedStatement pstmt, int index, Date value) throws SQLException {
+        if (value == null) {
+            pstmt.setNull(index, Types.VARCHAR);
+        } else {
+            pstmt.setString(index, encode(value));
+        }
+    }
+
+    public static void bind(PreparedStatement pstmt, int index, LocalDateTime value) throws SQLException {
+        if (value == null) {
+            pstmt.setNull(index, Types.VARCHAR);
+        } else {
+            pstmt.setString(index, encode(value));
+        }
+    }
+
+    public static LocalDateTime toLocalDateTime(Date value) {
+        return LocalDateTime.ofInstant(value.toInstant(), ZoneId.systemDefault());
+    }
+
+    public static Date toDate(LocalDateTime value) {
+        return Date.from(value.atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -2,66 +2,203 @@
 import java.sql.*;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Date;
+import java.util.TimeZone;
 
 public class DateUtils {
-    private static final SimpleDateFormat[] DATE_FORMATS = {
-        new SimpleDateFormat("yyyy-MM-dd HH:mm:ss"),
-        new SimpleDateFormat("yyyy-MM-dd"),
-        new SimpleDateFormat("dd/MM/yyyy HH:mm:ss"),
-        new SimpleDateFormat("dd/MM/yyyy"),
-        new SimpleDateFormat("MM/yyyy")
-    };
+    // Immutable and thread-safe: report workers can share them freely
+    public static final DateTimeFormatter DEFAULT_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    public static final DateTimeFormatter DATETIME_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+    public static final DateTimeFormatter DATETIME_MINUTES_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
     
-    public static final SimpleDateFormat DEFAULT_FORMAT = new SimpleDateFormat("dd/MM/yyyy");
-    public static final SimpleDateFormat DATETIME_FORMAT = new SimpleDateFormat("dd/MM/yyyy HH:mm:ss");
+    /** Returned by parseMillis when the text is not in a known layout */
+    public static final long INVALID = Long.MIN_VALUE;
+    
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    // Epoch millis have 12 digits from March 1973 on; anything shorter
+    // ("2024", a stray number) is not a stored timestamp
+    private static final int MIN_EPOCH_DIGITS = 12;
+    
+    // Cached once: TimeZone.getDefault() returns a fresh clone on every call
+    private static final TimeZone ZONE = TimeZone.getDefault();
+    private static final ZoneId ZONE_ID = ZONE.toZoneId();
     
     /**
      * Parse a date from ResultSet handling various formats
      */
     public static Date parseDate(ResultSet rs, String columnName) throws SQLException {
-        try {
-            // First try as Timestamp
-            Timestamp timestamp = rs.getTimestamp(columnName);
-            if (timestamp != null) {
-                return new Date(timestamp.getTime());
-            }
-        } catch (SQLException e) {
-            // Ignore and try as string
+        long millis = parseMillis(rs.getString(columnName));
+        return millis != INVALID ? new Date(millis) : null;
+    }
+    
+    /**
+     * Decode a stored date straight from its characters, without regex,
+     * exceptions or shared formatters. Accepted layouts:
+     * yyyy-MM-dd[( |T)HH:mm:ss[.fraction]], dd/MM/yyyy[ HH:mm:ss], MM/yyyy
+     * and plain epoch millis. Local layouts are read in the default zone.
+     *
+     * @return epoch millis, or INVALID if the text does not match
+     */
+    public static long parseMillis(String s) {
+        if (s == null) {
+            return INVALID;
         }
-        
-        try {
-            String dateStr = rs.getString(columnName);
-            if (dateStr != null && !dateStr.isEmpty()) {
-                // If it's a number (timestamp millis), convert it
-                if (dateStr.matches("\\d+")) {
-                    try {
-                        long timestampMillis = Long.parseLong(dateStr);
-                        return new Date(timestampMillis);
-                    } catch (NumberFormatException e) {
-                        // Continue with string parsing
-                    }
+        int len = s.length();
+        if (len == 0) {
+            return INVALID;
+        }
+    
+        if (len >= 10 && s.charAt(4) == '-' && s.charAt(7) == '-') {
+            // yyyy-MM-dd, optionally followed by a time
+            int year = digits(s, 0, 4);
+            int month = digits(s, 5, 2);
+            int day = digits(s, 8, 2);
+            if (len == 10) {
+                return localMillis(year, month, day, 0, 0, 0, 0);
+            }
+            char sep = s.charAt(10);
+            if (len < 19 || (sep != ' ' && sep != 'T') || s.charAt(13) != ':' || s.charAt(16) != ':') {
+                return INVALID;
+            }
+            int millis = 0;
+            if (len > 19) {
+                millis = fraction(s, 19);
+                if (millis < 0) {
+                    return INVALID;
                 }
-                
-                // Try all formats
-                for (SimpleDateFormat format : DATE_FORMATS) {
-                    try {
-                        synchronized (format) {
-                            return format.parse(dateStr);
-                        }
-                    } catch (ParseException e) {
-                        // Continue with next format
-                    }
+            }
+            return localMillis(year, month, day,
+                digits(s, 11, 2), digits(s, 14, 2), digits(s, 17, 2), millis);
+        }
+    
+        if (len >= 10 && s.charAt(2) == '/' && s.charAt(5) == '/') {
+            // dd/MM/yyyy, optionally followed by HH:mm:ss
+            int day = digits(s, 0, 2);
+            int month = digits(s, 3, 2);
+            int year = digits(s, 6, 4);
+            if (len == 10) {
+                return localMillis(year, month, day, 0, 0, 0, 0);
+            }
+            if (len != 19 || s.charAt(10) != ' ' || s.charAt(13) != ':' || s.charAt(16) != ':') {
+                return INVALID;
+            }
+            return localMillis(year, month, day,
+                digits(s, 11, 2), digits(s, 14, 2), digits(s, 17, 2), 0);
+        }
+    
+        if (len == 7 && s.charAt(2) == '/') {
+            // MM/yyyy
+            return localMillis(digits(s, 3, 4), digits(s, 0, 2), 1, 0, 0, 0, 0);
+        }
+    
+        // Epoch millis, as stored by setTimestamp/setDate
+        if (len >= MIN_EPOCH_DIGITS && len <= 18) {
+            long value = 0;
+            for (int i = 0; i < len; i++) {
+                int d = s.charAt(i) - '0';
+                if (d < 0 || d > 9) {
+                    return INVALID;
                 }
+                value = value * 10 + d;
+            }
+            return value;
+        }
+        return INVALID;
+    }
+    
+    /**
+     * @return the value of count decimal digits at from, or -1 if any is not a digit
+     */
+    private static int digits(String s, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) {
+                return -1;
             }
-        } catch (SQLException e) {
-            // Log the error if needed
+            value = value * 10 + d;
+        }
+        return value;
+    }
+    
+    /**
+     * Milliseconds of a ".fraction" suffix at from (extra digits are ignored)
+     */
+    private static int fraction(String s, int from) {
+        if (s.charAt(from) != '.' || from + 1 >= s.length()) {
+            return -1;
+        }
+        int millis = 0;
+        int scale = 100;
+        for (int i = from + 1; i < s.length(); i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            millis += d * scale;
+            scale /= 10;
+        }
+        return millis;
+    }
+    
+    private static long localMillis(int year, int month, int day, int hour, int minute, int second, int millis) {
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return INVALID;
+        }
+        long local = epochDay(year, month, day) * MILLIS_PER_DAY
+            + ((hour * 60L + minute) * 60L + second) * 1000L + millis;
+    
+        // Local wall time to UTC, resolved like java.time: in the repeated hour
+        // after a DST change take the earlier instant, in the skipped hour
+        // shift forward by the gap
+        int before = ZONE.getOffset(local - ZONE.getRawOffset() - ZONE.getDSTSavings());
+        int after = ZONE.getOffset(local - ZONE.getRawOffset());
+        int larger = Math.max(before, after);
+        if (ZONE.getOffset(local - larger) == larger) {
+            return local - larger;
         }
-        return null;
+        return local - Math.min(before, after);
+    }
+    
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4: case 6: case 9: case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+    
+    /**
+     * Days since 1970-01-01 in the proleptic Gregorian calendar
+     */
+    private static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+    
+    /**
+     * Format a date with an immutable formatter; safe from any thread
+     */
+    public static String formatDate(Date date, DateTimeFormatter format) {
+        if (date == null) return "";
+        return format.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(date.getTime()), ZONE_ID));
     }
     
     /**
-     * Format a date safely
+     * Format a date with a dialog's own SimpleDateFormat (EDT only)
      */
     public static String formatDate(Date date, SimpleDateFormat format) {
         if (date == null) return "";
@@ -100,4 +237,4 @@ public class DateUtils {
     public static Timestamp toSqlTimestamp(Date date) {
         return date != null ? new Timestamp(date.getTime()) : null;
     }
-}
\ No newline at end of file
+}
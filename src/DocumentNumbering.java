@@ -0,0 +1,153 @@
+import java.sql.*;
+
+/**
+ * Sequence service for every numbered document (invoices, customer orders,
+ * supplier orders), backed by the numerazione_documenti table.
+ *
+ * Numbers are handed out with a single atomic upsert ... RETURNING, so two
+ * writers can never read the same counter value. Invoices are fiscal
+ * documents and must stay gap-free: take their number with
+ * next(conn, type, year) inside the transaction that inserts the invoice, so a
+ * rollback also gives the number back. Non-fiscal types may reserve numbers in
+ * blocks for batch jobs.
+ */
+public class DocumentNumbering {
+    private static DocumentNumbering instance;
+
+    public enum DocumentType {
+        INVOICE("FATTURA", "%d/%04d", true),
+        CUSTOMER_ORDER("ORDINE", "OC%d%04d", false),
+        SUPPLIER_ORDER("ORDINE_FORNITORE", "OF%d%04d", false);
+
+        private final String code;
+        private final String pattern;
+        private final boolean gapFree;
+
+        DocumentType(String code, String pattern, boolean gapFree) {
+            this.code = code;
+            this.pattern = pattern;
+            this.gapFree = gapFree;
+        }
+
+        public String getCode() { return code; }
+        public boolean isGapFree() { return gapFree; }
+
+        public String format(int year, long number) {
+            return String.format(pattern, year, number);
+        }
+    }
+
+    /**
+     * A contiguous range of numbers already taken from the sequence
+     */
+    public static class NumberBlock {
+        private final DocumentType type;
+        private final int year;
+        private final long last;
+        private long next;
+
+        NumberBlock(DocumentType type, int year, long first, long last) {
+            this.type = type;
+            this.year = year;
+            this.next = first;
+            this.last = last;
+        }
+
+        public synchronized boolean hasNext() {
+            return next <= last;
+        }
+
+        public synchronized String next() {
+            if (next > last) {
+                throw new IllegalStateException("Number block exhausted");
+            }
+            return type.format(year, next++);
+        }
+
+        public synchronized int remaining() {
+            return (int) (last - next + 1);
+        }
+    }
+
+    private static final String ALLOCATE_QUERY = """
+        INSERT INTO numerazione_documenti (tipo, anno, ultimo_numero)
+        VALUES (?, ?, ?)
+        ON CONFLICT (tipo, anno) DO UPDATE SET ultimo_numero = ultimo_numero + excluded.ultimo_numero
+        RETURNING ultimo_numero
+    """;
+
+    private DocumentNumbering() {
+        // Private constructor for the Singleton pattern
+    }
+
+    public static synchronized DocumentNumbering getInstance() {
+        if (instance == null) {
+            instance = new DocumentNumbering();
+        }
+        return instance;
+    }
+
+    /**
+     * Take the next number as part of the caller's transaction on the writer
+     * connection. This is the only way to number gap-free documents.
+     */
+    public String next(Connection conn, DocumentType type, int year) throws SQLException {
+        return type.format(year, allocate(conn, type, year, 1));
+    }
+
+    /**
+     * Take the next number in its own short transaction. Not allowed for
+     * gap-free types: the number would be lost if the document is never saved.
+     */
+    public String next(DocumentType type, int year) throws SQLException {
+        if (type.isGapFree()) {
+            throw new IllegalArgumentException(type + " numbers must be taken inside the saving transaction");
+        }
+        return DatabaseManager.getInstance().inWriteTransaction(conn -> next(conn, type, year));
+    }
+
+    /**
+     * Reserve count consecutive numbers for a batch job in one round trip
+     */
+    public NumberBlock reserveBlock(DocumentType type, int year, int count) throws SQLException {
+        if (type.isGapFree()) {
+            throw new IllegalArgumentException(type + " numbering is gap-free and cannot be reserved in blocks");
+        }
+        if (count <= 0) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        long last = DatabaseManager.getInstance().inWriteTransaction(conn -> allocate(conn, type, year, count));
+        return new NumberBlock(type, year, last - count + 1, last);
+    }
+
+    /**
+     * Number the next document would get, for display only. It is not
+     * reserved and may differ from the number assigned on save.
+     */
+    public String peek(DocumentType type, int year) throws SQLException {
+        String query = "SELECT ultimo_numero FROM numerazione_documenti WHERE tipo = ? AND anno = ?";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setString(1, type.getCode());
+            pstmt.setInt(2, year);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                long last = rs.next() ? rs.getLong(1) : 0;
+                return type.format(year, last + 1);
+            }
+        }
+    }
+
+    private long allocate(Connection conn, DocumentType type, int year, int count) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(ALLOCATE_QUERY)) {
+            pstmt.setString(1, type.getCode());
+            pstmt.setInt(2, year);
+            pstmt.setInt(3, count);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Failed to allocate " + type + " number");
+                }
+                return rs.getLong(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Events published on the EventBus after a change has been committed.
+ * Each carries only the id of what changed; subscribers read the current
+ * state themselves if they need it.
+ */
+public final class DomainEvent {
+    private DomainEvent() {
+    }
+
+    /**
+     * A product was created or edited (not a stock movement)
+     */
+    public static final class ProductChanged {
+        private final int productId;
+        private final boolean created;
+
+        public ProductChanged(int productId, boolean created) {
+            this.productId = productId;
+            this.created = created;
+        }
+
+        public int getProductId() { return productId; }
+        public boolean isCreated() { return created; }
+    }
+
+    public static final class ProductDeleted {
+        private final int productId;
+
+        public ProductDeleted(int productId) {
+            this.productId = productId;
+        }
+
+        public int getProductId() { return productId; }
+    }
+
+    /**
+     * The stock of a product changed through a warehouse movement
+     */
+    public static final class StockMoved {
+        private final int productId;
+
+        public StockMoved(int productId) {
+            this.productId = productId;
+        }
+
+        public int getProductId() { return productId; }
+    }
+
+    public static final class MinimumStockChanged {
+        private final int productId;
+
+        public MinimumStockChanged(int productId) {
+            this.productId = productId;
+        }
+
+        public int getProductId() { return productId; }
+    }
+
+    public static final class CustomerChanged {
+        private final int customerId;
+        private final boolean created;
+
+        public CustomerChanged(int customerId, boolean created) {
+            this.customerId = customerId;
+            this.created = created;
+        }
+
+        public int getCustomerId() { return customerId; }
+        public boolean isCreated() { return created; }
+    }
+
+    /**
+     * A customer was deleted, possibly with their orders and invoices
+     */
+    public static final class CustomerDeleted {
+        private final int customerId;
+
+        public CustomerDeleted(int customerId) {
+            this.customerId = customerId;
+        }
+
+        public int getCustomerId() { return customerId; }
+    }
+
+    public static final class SupplierChanged {
+        private final int supplierId;
+
+        public SupplierChanged(int supplierId) {
+            this.supplierId = supplierId;
+        }
+
+        public int getSupplierId() { return supplierId; }
+    }
+
+    public static final class SupplierDeleted {
+        private final int supplierId;
+
+        public SupplierDeleted(int supplierId) {
+            this.supplierId = supplierId;
+        }
+
+        public int getSupplierId() { return supplierId; }
+    }
+
+    public static final class OrderSaved {
+        private final int orderId;
+        private final boolean created;
+
+        public OrderSaved(int orderId, boolean created) {
+            this.orderId = orderId;
+            this.created = created;
+        }
+
+        public int getOrderId() { return orderId; }
+        public boolean isCreated() { return created; }
+    }
+
+    public static final class OrderDeleted {
+        private final int orderId;
+
+        public OrderDeleted(int orderId) {
+            this.orderId = orderId;
+        }
+
+        public int getOrderId() { return orderId; }
+    }
+
+    public static final class InvoiceSaved {
+        private final int invoiceId;
+        private final boolean created;
+
+        public InvoiceSaved(int invoiceId, boolean created) {
+            this.invoiceId = invoiceId;
+            this.created = created;
+        }
+
+        public int getInvoiceId() { return invoiceId; }
+        public boolean isCreated() { return created; }
+    }
+
+    public static final class InvoiceDeleted {
+        private final int invoiceId;
+
+        public InvoiceDeleted(int invoiceId) {
+            this.invoiceId = invoiceId;
+        }
+
+        public int getInvoiceId() { return invoiceId; }
+    }
+
+    /**
+     * Products were loaded in bulk; any of them may have changed
+     */
+    public static final class ProductsImported {
+    }
+
+    public static final class CustomersImported {
+    }
+
+    public static final class SuppliersImported {
+    }
+}
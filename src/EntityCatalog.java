@@ -0,0 +1,270 @@
+import javax.swing.SwingUtilities;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Process-wide, in-memory copy of one table, with a typeahead index.
+ *
+ * The table is read once in the background and then kept current
+ * incrementally: subclasses feed the ids named by EventBus events to
+ * changed/deleted, and only those rows are read again. Items handed out
+ * are shared and must not be modified.
+ */
+public abstract class EntityCatalog<T> {
+    // Guarded by this
+    private final Map<Integer, T> byId = new HashMap<>();
+    private final TypeaheadIndex<T> typeahead;
+    private final Comparator<T> displayOrder;
+    private List<T> sorted = Collections.emptyList();
+    private boolean sortedStale = false;
+    private CompletableFuture<Void> loaded;
+    private Set<Integer> changedWhileLoading;
+
+    // Reads run here, never on the EDT or the db-writer thread
+    private final ExecutorService refresher;
+
+    protected EntityCatalog(String threadName, Comparator<T> displayOrder) {
+        this.displayOrder = displayOrder;
+        this.typeahead = new TypeaheadIndex<>(this::idOf);
+        this.refresher = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        configureTypeahead(typeahead);
+    }
+
+    protected abstract int idOf(T item);
+
+    protected abstract List<T> loadAll() throws SQLException;
+
+    protected abstract Map<Integer, T> loadByIds(Collection<Integer> ids) throws SQLException;
+
+    /**
+     * Declare the searchable fields and their weights
+     */
+    protected abstract void configureTypeahead(TypeaheadIndex<T> index);
+
+    /**
+     * Hooks for extra lookups kept by subclasses; called with the lock held
+     */
+    protected void indexed(T item) {
+    }
+
+    protected void unindexed(T item) {
+    }
+
+    /**
+     * Start loading in the background if not loaded or loading already
+     */
+    public synchronized CompletableFuture<Void> preload() {
+        if (loaded == null || loaded.isCompletedExceptionally()) {
+            changedWhileLoading = new HashSet<>();
+            loaded = CompletableFuture.runAsync(this::load, refresher);
+        }
+        return loaded;
+    }
+
+    private void load() {
+        List<T> items;
+        try {
+            items = new ArrayList<>(loadAll());
+        } catch (SQLException e) {
+            synchronized (this) {
+                changedWhileLoading = null;
+            }
+            throw new CompletionException(e);
+        }
+        // Typeahead ties come back in insertion order
+        items.sort(displayOrder);
+
+        Set<Integer> changed;
+        synchronized (this) {
+            for (T item : byId.values()) {
+                unindexed(item);
+            }
+            byId.clear();
+            typeahead.clear();
+            for (T item : items) {
+                put(item);
+            }
+            sorted = Collections.unmodifiableList(items);
+            sortedStale = false;
+            changed = changedWhileLoading;
+            changedWhileLoading = null;
+        }
+
+        // Rows written after the snapshot was read may be missing from it
+        if (changed != null && !changed.isEmpty()) {
+            reload(changed);
+        }
+    }
+
+    /**
+     * Run action on the EDT once the catalog is loaded, without waiting for
+     * it on the calling thread; onError gets the cause if the load fails
+     */
+    public void whenLoaded(Runnable action, Consumer<Throwable> onError) {
+        preload().whenComplete((ignored, error) -> SwingUtilities.invokeLater(() -> {
+            if (error != null) {
+                onError.accept(error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error);
+            } else if (!isLoaded()) {
+                // Invalidated again before the callback ran
+                whenLoaded(action, onError);
+            } else {
+                action.run();
+            }
+        }));
+    }
+
+    protected void awaitLoaded() throws SQLException {
+        try {
+            preload().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return every item in display order, waiting for the first load if needed
+     */
+    public List<T> getAll() throws SQLException {
+        awaitLoaded();
+        synchronized (this) {
+            if (sortedStale) {
+                List<T> items = new ArrayList<>(byId.values());
+                items.sort(displayOrder);
+                sorted = Collections.unmodifiableList(items);
+                sortedStale = false;
+            }
+            return sorted;
+        }
+    }
+
+    public T findById(int id) throws SQLException {
+        awaitLoaded();
+        synchronized (this) {
+            return byId.get(id);
+        }
+    }
+
+    /**
+     * Typo-tolerant search-as-you-type, best matches first
+     */
+    public List<T> search(String query, int limit) throws SQLException {
+        awaitLoaded();
+        synchronized (this) {
+            return typeahead.search(query, limit);
+        }
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded != null && loaded.isDone() && !loaded.isCompletedExceptionally();
+    }
+
+    /**
+     * Report committed inserts or updates; the rows are read again in the
+     * background
+     */
+    public void changed(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Set<Integer> copy = new HashSet<>(ids);
+        synchronized (this) {
+            if (loaded == null) {
+                return; // Nothing cached yet; the first load will see the change
+            }
+            if (changedWhileLoading != null) {
+                changedWhileLoading.addAll(copy);
+                return;
+            }
+        }
+        refresher.execute(() -> reload(copy));
+    }
+
+    public void changed(int id) {
+        changed(Collections.singleton(id));
+    }
+
+    /**
+     * Report a committed delete
+     */
+    public synchronized void deleted(int id) {
+        if (changedWhileLoading != null) {
+            changedWhileLoading.add(id);
+        }
+        remove(id);
+    }
+
+    /**
+     * Drop everything; the next read loads the table again. For bulk
+     * changes where reporting single ids is impractical.
+     */
+    public synchronized void invalidateAll() {
+        for (T item : byId.values()) {
+            unindexed(item);
+        }
+        byId.clear();
+        typeahead.clear();
+        sorted = Collections.emptyList();
+        sortedStale = false;
+        loaded = null;
+    }
+
+    private void reload(Set<Integer> ids) {
+        Map<Integer, T> current;
+        try {
+            current = loadByIds(ids);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            // Better to reload everything than to serve stale rows
+            invalidateAll();
+            return;
+        }
+        synchronized (this) {
+            for (Integer id : ids) {
+                remove(id);
+                T item = current.get(id);
+                if (item != null) {
+                    put(item);
+                }
+            }
+        }
+    }
+
+    // Callers hold the lock
+    private void put(T item) {
+        byId.put(idOf(item), item);
+        typeahead.put(item);
+        indexed(item);
+        sortedStale = true;
+    }
+
+    // Callers hold the lock
+    private void remove(int id) {
+        T old = byId.remove(id);
+        if (old != null) {
+            typeahead.remove(id);
+            unindexed(old);
+            sortedStale = true;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import javax.swing.*;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process publish/subscribe for DomainEvent types.
+ *
+ * Code that changes data publishes an event once its transaction has
+ * committed; catalogs and panels subscribe to the types they show and
+ * patch only what the event names instead of reloading everything.
+ * Handlers always run on the EDT, in publish order, whatever thread
+ * published. Subscribers are matched on the exact event class.
+ */
+public class EventBus {
+    private static EventBus instance;
+
+    private final Map<Class<?>, List<Consumer<Object>>> subscribers = new ConcurrentHashMap<>();
+
+    /**
+     * Cancels a subscription when closed
+     */
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private EventBus() {
+        // Private constructor for the Singleton pattern
+    }
+
+    public static synchronized EventBus getInstance() {
+        if (instance == null) {
+            instance = new EventBus();
+        }
+        return instance;
+    }
+
+    /**
+     * Call handler on the EDT for every event of type published from now on
+     */
+    public <E> Subscription subscribe(Class<E> type, Consumer<? super E> handler) {
+        Consumer<Object> subscriber = event -> handler.accept(type.cast(event));
+        List<Consumer<Object>> list = subscribers.computeIfAbsent(type, k -> new CopyOnWriteArrayList<>());
+        list.add(subscriber);
+        return () -> list.remove(subscriber);
+    }
+
+    /**
+     * Deliver event to its subscribers; from the EDT they run before this
+     * returns, from any other thread they are queued on the EDT
+     */
+    public void publish(Object event) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            deliver(event);
+        } else {
+            SwingUtilities.invokeLater(() -> deliver(event));
+        }
+    }
+
+    private void deliver(Object event) {
+        List<Consumer<Object>> list = subscribers.get(event.getClass());
+        if (list == null) {
+            return;
+        }
+        for (Consumer<Object> subscriber : list) {
+            try {
+                subscriber.accept(event);
+            } catch (RuntimeException e) {
+                // One broken subscriber must not starve the others
+                e.printStackTrace();
+            }
+        }
+    }
+}
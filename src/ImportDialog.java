@@ -0,0 +1,308 @@
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Imports products, customers or suppliers from a CSV file: pick the file,
+ * check which CSV column feeds each field, then run BulkImporter in the
+ * background with a progress bar and a list of the rejected rows.
+ */
+public class ImportDialog extends JDialog {
+    private static final String NOT_IMPORTED = "(not imported)";
+
+    private JComboBox<BulkImporter.Kind> kindCombo;
+    private JComboBox<String> encodingCombo;
+    private JTextField fileField;
+    private JCheckBox deferIndexesBox;
+    private JPanel mappingPanel;
+    private JComboBox<?>[] mappingCombos = new JComboBox<?>[0];
+    private JProgressBar progressBar;
+    private JLabel statusLabel;
+    private DefaultTableModel rejectedModel;
+    private JButton importButton;
+    private JButton cancelButton;
+    private JButton closeButton;
+
+    private File file;
+    private String[] header = new String[0];
+    private BulkImporter importer;
+
+    public ImportDialog(JFrame parent) {
+        super(parent, "Import from CSV", true);
+
+        setupWindow();
+        initComponents();
+        updateMapping();
+    }
+
+    private void setupWindow() {
+        setLayout(new BorderLayout(10, 10));
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                close();
+            }
+        });
+        setMinimumSize(new Dimension(650, 600));
+        setLocationRelativeTo(getOwner());
+    }
+
+    private void initComponents() {
+        // Source panel
+        JPanel sourcePanel = new JPanel(new GridBagLayout());
+        sourcePanel.setBorder(BorderFactory.createTitledBorder("Source"));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+
+        gbc.gridx = 0; gbc.gridy = 0;
+        sourcePanel.add(new JLabel("Import:"), gbc);
+
+        gbc.gridx = 1;
+        kindCombo = new JComboBox<>(BulkImporter.Kind.values());
+        kindCombo.addActionListener(e -> updateMapping());
+        sourcePanel.add(kindCombo, gbc);
+
+        gbc.gridx = 0; gbc.gridy = 1;
+        sourcePanel.add(new JLabel("File:"), gbc);
+
+        gbc.gridx = 1; gbc.weightx = 1.0;
+        fileField = new JTextField(30);
+        fileField.setEditable(false);
+        sourcePanel.add(fileField, gbc);
+
+        gbc.gridx = 2; gbc.weightx = 0;
+        JButton browseButton = new JButton("Browse...");
+        browseButton.addActionListener(e -> chooseFile());
+        sourcePanel.add(browseButton, gbc);
+
+        gbc.gridx = 0; gbc.gridy = 2;
+        sourcePanel.add(new JLabel("Encoding:"), gbc);
+
+        gbc.gridx = 1;
+        encodingCombo = new JComboBox<>(new String[] {"UTF-8", "windows-1252"});
+        encodingCombo.addActionListener(e -> readHeader());
+        sourcePanel.add(encodingCombo, gbc);
+
+        gbc.gridx = 1; gbc.gridy = 3; gbc.gridwidth = 2;
+        deferIndexesBox = new JCheckBox("First load: build indexes after loading (empty tables only)");
+        sourcePanel.add(deferIndexesBox, gbc);
+
+        // Column mapping
+        mappingPanel = new JPanel(new GridBagLayout());
+        JScrollPane mappingScroll = new JScrollPane(mappingPanel);
+        mappingScroll.setBorder(BorderFactory.createTitledBorder("Columns (* = required)"));
+
+        // Rejected rows
+        rejectedModel = new DefaultTableModel(new String[] {"Line", "Reason"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable rejectedTable = new JTable(rejectedModel);
+        rejectedTable.getColumnModel().getColumn(0).setMaxWidth(80);
+        JScrollPane rejectedScroll = new JScrollPane(rejectedTable);
+        rejectedScroll.setBorder(BorderFactory.createTitledBorder("Rejected Rows"));
+
+        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, mappingScroll, rejectedScroll);
+        splitPane.setResizeWeight(0.6);
+
+        // Progress and buttons
+        JPanel bottomPanel = new JPanel(new BorderLayout(5, 5));
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        statusLabel = new JLabel(" ");
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        importButton = new JButton("Import");
+        cancelButton = new JButton("Stop");
+        closeButton = new JButton("Close");
+        importButton.addActionListener(e -> startImport());
+        cancelButton.addActionListener(e -> stopImport());
+        closeButton.addActionListener(e -> close());
+        cancelButton.setEnabled(false);
+        buttonPanel.add(importButton);
+        buttonPanel.add(cancelButton);
+        buttonPanel.add(closeButton);
+
+        bottomPanel.add(progressBar, BorderLayout.NORTH);
+        bottomPanel.add(statusLabel, BorderLayout.CENTER);
+        bottomPanel.add(buttonPanel, BorderLayout.SOUTH);
+        bottomPanel.setBorder(BorderFactory.createEmptyBorder(0, 10, 10, 10));
+
+        add(sourcePanel, BorderLayout.NORTH);
+        add(splitPane, BorderLayout.CENTER);
+        add(bottomPanel, BorderLayout.SOUTH);
+    }
+
+    private void chooseFile() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Choose CSV File");
+        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("CSV files (*.csv, *.txt)", "csv", "txt"));
+        if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            file = fileChooser.getSelectedFile();
+            fileField.setText(file.getAbsolutePath());
+            readHeader();
+        }
+    }
+
+    private Charset getCharset() {
+        return "UTF-8".equals(encodingCombo.getSelectedItem())
+            ? StandardCharsets.UTF_8 : Charset.forName((String) encodingCombo.getSelectedItem());
+    }
+
+    private void readHeader() {
+        if (file == null) {
+            return;
+        }
+        try {
+            header = BulkImporter.readHeader(file, getCharset());
+        } catch (Exception e) {
+            e.printStackTrace();
+            header = new String[0];
+            JOptionPane.showMessageDialog(this,
+                "Error reading file: " + e.getMessage(),
+                "Error", JOptionPane.ERROR_MESSAGE);
+        }
+        updateMapping();
+    }
+
+    // One combo per field of the selected kind, preset from the header names
+    private void updateMapping() {
+        BulkImporter.Kind kind = (BulkImporter.Kind) kindCombo.getSelectedItem();
+        BulkImporter.Field[] fields = kind.getFields();
+        int[] guessed = BulkImporter.guessMapping(kind, header);
+
+        String[] choices = new String[header.length + 1];
+        choices[0] = NOT_IMPORTED;
+        for (int i = 0; i < header.length; i++) {
+            choices[i + 1] = (i + 1) + ": " + header[i];
+        }
+
+        mappingPanel.removeAll();
+        mappingCombos = new JComboBox<?>[fields.length];
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(3, 5, 3, 5);
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.anchor = GridBagConstraints.NORTHWEST;
+        for (int i = 0; i < fields.length; i++) {
+            gbc.gridx = 0; gbc.gridy = i; gbc.weightx = 0;
+            mappingPanel.add(new JLabel((fields[i].isRequired() ? "* " : "") + fields[i].getLabel() + ":"), gbc);
+
+            gbc.gridx = 1; gbc.weightx = 1.0;
+            JComboBox<String> combo = new JComboBox<>(choices);
+            combo.setSelectedIndex(guessed[i] + 1);
+            mappingCombos[i] = combo;
+            mappingPanel.add(combo, gbc);
+        }
+        // Keep the rows at the top
+        gbc.gridy = fields.length; gbc.weighty = 1.0;
+        mappingPanel.add(Box.createGlue(), gbc);
+        mappingPanel.revalidate();
+        mappingPanel.repaint();
+    }
+
+    private void startImport() {
+        if (file == null) {
+            JOptionPane.showMessageDialog(this,
+                "Choose a CSV file first",
+                "Validation Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        BulkImporter.Kind kind = (BulkImporter.Kind) kindCombo.getSelectedItem();
+        int[] mapping = new int[mappingCombos.length];
+        for (int i = 0; i < mapping.length; i++) {
+            mapping[i] = mappingCombos[i].getSelectedIndex() - 1;
+        }
+        try {
+            importer = new BulkImporter(kind, file, getCharset(), mapping, deferIndexesBox.isSelected());
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Validation Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        rejectedModel.setRowCount(0);
+        progressBar.setValue(0);
+        statusLabel.setText("Importing " + kind.toString().toLowerCase() + "...");
+        setRunning(true);
+
+        BulkImporter running = importer;
+        SwingWorker<BulkImporter.Result, long[]> worker = new SwingWorker<BulkImporter.Result, long[]>() {
+            @Override
+            protected BulkImporter.Result doInBackground() throws Exception {
+                return running.run((rows, bytes, total) -> publish(new long[] {rows, bytes, total}));
+            }
+
+            @Override
+            protected void process(List<long[]> chunks) {
+                long[] last = chunks.get(chunks.size() - 1);
+                progressBar.setValue(last[2] > 0 ? (int) Math.min(100, last[1] * 100 / last[2]) : 0);
+                statusLabel.setText(String.format("%,d rows read", last[0]));
+            }
+
+            @Override
+            protected void done() {
+                importer = null;
+                setRunning(false);
+                try {
+                    showResult(get());
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    statusLabel.setText("Import failed");
+                    JOptionPane.showMessageDialog(ImportDialog.this,
+                        "Error during import: " + cause.getMessage(),
+                        "Import Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void showResult(BulkImporter.Result result) {
+        progressBar.setValue(result.isCancelled() ? progressBar.getValue() : 100);
+        for (BulkImporter.Rejected rejected : result.getRejected()) {
+            rejectedModel.addRow(new Object[] {rejected.getLine(), rejected.getReason()});
+        }
+        String summary = String.format("%s%,d inserted, %,d updated, %,d rejected",
+            result.isCancelled() ? "Stopped: " : "", result.getInserted(), result.getUpdated(),
+            result.getRejectedCount());
+        if (result.getRejectedCount() > result.getRejected().size()) {
+            summary += String.format(" (first %,d listed)", result.getRejected().size());
+        }
+        statusLabel.setText(summary);
+    }
+
+    private void stopImport() {
+        if (importer != null) {
+            importer.cancel();
+            cancelButton.setEnabled(false);
+            statusLabel.setText("Stopping after the current block...");
+        }
+    }
+
+    private void setRunning(boolean running) {
+        importButton.setEnabled(!running);
+        cancelButton.setEnabled(running);
+        closeButton.setEnabled(!running);
+        kindCombo.setEnabled(!running);
+        encodingCombo.setEnabled(!running);
+        deferIndexesBox.setEnabled(!running);
+    }
+
+    private void close() {
+        if (importer != null) {
+            JOptionPane.showMessageDialog(this,
+                "Stop the import before closing",
+                "Import Running", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        dispose();
+    }
+}
@@ -0,0 +1,329 @@
+import javax.swing.*;
+import java.awt.*;
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Generates the PDFs of many invoices at once, either the invoices
+ * selected in the list or every invoice in a date range, as files in a
+ * folder, a ZIP archive or one merged PDF, with progress, the invoices
+ * per second achieved and a way to stop.
+ */
+public class InvoiceBatchDialog extends JDialog {
+    private final List<Integer> selectedIds;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
+
+    private JRadioButton selectedRadio;
+    private JRadioButton rangeRadio;
+    private JTextField startDateField;
+    private JTextField endDateField;
+    private JComboBox<InvoiceBatchExporter.Mode> modeCombo;
+    private JTextField directoryField;
+    private JTextField fileNameField;
+    private JProgressBar progressBar;
+    private JLabel statusLabel;
+    private JTextArea failuresArea;
+    private JButton startButton;
+    private JButton cancelButton;
+    private JButton closeButton;
+
+    private InvoiceBatchExporter exporter;
+
+    public InvoiceBatchDialog(Window owner, List<Integer> selectedIds) {
+        super(owner, "Generate Invoice PDFs", ModalityType.APPLICATION_MODAL);
+        this.selectedIds = new ArrayList<>(selectedIds);
+
+        setupWindow();
+        initComponents();
+    }
+
+    private void setupWindow() {
+        setLayout(new BorderLayout(10, 10));
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                close();
+            }
+        });
+        setMinimumSize(new Dimension(550, 500));
+        setLocationRelativeTo(getOwner());
+    }
+
+    private void initComponents() {
+        JPanel sourcePanel = new JPanel(new GridBagLayout());
+        sourcePanel.setBorder(BorderFactory.createTitledBorder("Invoices"));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.anchor = GridBagConstraints.WEST;
+
+        selectedRadio = new JRadioButton("Selected invoices (" + selectedIds.size() + ")");
+        rangeRadio = new JRadioButton("Invoices dated from");
+        ButtonGroup group = new ButtonGroup();
+        group.add(selectedRadio);
+        group.add(rangeRadio);
+        selectedRadio.setEnabled(!selectedIds.isEmpty());
+        (selectedIds.isEmpty() ? rangeRadio : selectedRadio).setSelected(true);
+
+        // Default range: the current month
+        Calendar cal = Calendar.getInstance();
+        endDateField = new JTextField(dateFormat.format(cal.getTime()), 10);
+        cal.set(Calendar.DAY_OF_MONTH, 1);
+        startDateField = new JTextField(dateFormat.format(cal.getTime()), 10);
+        startDateField.setToolTipText("Format: dd/MM/yyyy");
+        endDateField.setToolTipText("Format: dd/MM/yyyy");
+
+        gbc.gridx = 0; gbc.gridy = 0; gbc.gridwidth = 4;
+        sourcePanel.add(selectedRadio, gbc);
+
+        gbc.gridy = 1; gbc.gridwidth = 1;
+        sourcePanel.add(rangeRadio, gbc);
+        gbc.gridx = 1;
+        sourcePanel.add(startDateField, gbc);
+        gbc.gridx = 2;
+        sourcePanel.add(new JLabel("to"), gbc);
+        gbc.gridx = 3;
+        sourcePanel.add(endDateField, gbc);
+
+        gbc.gridx = 0; gbc.gridy = 2;
+        sourcePanel.add(new JLabel("Output:"), gbc);
+
+        gbc.gridx = 1; gbc.gridwidth = 3;
+        modeCombo = new JComboBox<>(InvoiceBatchExporter.Mode.values());
+        modeCombo.addActionListener(e -> updateFileName());
+        sourcePanel.add(modeCombo, gbc);
+
+        gbc.gridx = 0; gbc.gridy = 3; gbc.gridwidth = 1;
+        sourcePanel.add(new JLabel("Save to folder:"), gbc);
+
+        gbc.gridx = 1; gbc.gridwidth = 2; gbc.weightx = 1.0;
+        directoryField = new JTextField(25);
+        String lastDirectory = InvoicePDFGenerator.getLastDirectory();
+        directoryField.setText(lastDirectory != null ? lastDirectory : System.getProperty("user.home"));
+        sourcePanel.add(directoryField, gbc);
+
+        gbc.gridx = 3; gbc.gridwidth = 1; gbc.weightx = 0;
+        JButton browseButton = new JButton("Browse...");
+        browseButton.addActionListener(e -> chooseDirectory());
+        sourcePanel.add(browseButton, gbc);
+
+        gbc.gridx = 0; gbc.gridy = 4;
+        sourcePanel.add(new JLabel("File name:"), gbc);
+
+        gbc.gridx = 1; gbc.gridwidth = 3; gbc.weightx = 1.0;
+        fileNameField = new JTextField(25);
+        sourcePanel.add(fileNameField, gbc);
+        gbc.gridwidth = 1; gbc.weightx = 0;
+
+        selectedRadio.addActionListener(e -> updateFileName());
+        rangeRadio.addActionListener(e -> updateFileName());
+        updateFileName();
+
+        failuresArea = new JTextArea();
+        failuresArea.setEditable(false);
+        JScrollPane failuresScroll = new JScrollPane(failuresArea);
+        failuresScroll.setBorder(BorderFactory.createTitledBorder("Not Generated"));
+
+        JPanel bottomPanel = new JPanel(new BorderLayout(5, 5));
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        statusLabel = new JLabel(" ");
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        startButton = new JButton("Generate");
+        cancelButton = new JButton("Stop");
+        closeButton = new JButton("Close");
+        startButton.addActionListener(e -> startBatch());
+        cancelButton.addActionListener(e -> stopBatch());
+        closeButton.addActionListener(e -> close());
+        cancelButton.setEnabled(false);
+        buttonPanel.add(startButton);
+        buttonPanel.add(cancelButton);
+        buttonPanel.add(closeButton);
+
+        bottomPanel.add(progressBar, BorderLayout.NORTH);
+        bottomPanel.add(statusLabel, BorderLayout.CENTER);
+        bottomPanel.add(buttonPanel, BorderLayout.SOUTH);
+        bottomPanel.setBorder(BorderFactory.createEmptyBorder(0, 10, 10, 10));
+
+        add(sourcePanel, BorderLayout.NORTH);
+        add(failuresScroll, BorderLayout.CENTER);
+        add(bottomPanel, BorderLayout.SOUTH);
+    }
+
+    private void chooseDirectory() {
+        JFileChooser fileChooser = new JFileChooser(directoryField.getText());
+        fileChooser.setDialogTitle("Choose Folder");
+        fileChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            directoryField.setText(fileChooser.getSelectedFile().getAbsolutePath());
+        }
+    }
+
+    // Archive or merged PDF name, from the range it holds
+    private void updateFileName() {
+        InvoiceBatchExporter.Mode mode = (InvoiceBatchExporter.Mode) modeCombo.getSelectedItem();
+        fileNameField.setEnabled(mode != InvoiceBatchExporter.Mode.FILES);
+        if (mode == InvoiceBatchExporter.Mode.FILES) {
+            fileNameField.setText("");
+            return;
+        }
+        String name = rangeRadio.isSelected()
+            ? "Invoices_" + startDateField.getText().trim() + "_" + endDateField.getText().trim()
+            : "Invoices_selected";
+        name = name.replaceAll("[^a-zA-Z0-9._-]", "-");
+        fileNameField.setText(name + (mode == InvoiceBatchExporter.Mode.ZIP ? ".zip" : ".pdf"));
+    }
+
+    private void startBatch() {
+        InvoiceBatchExporter.Mode mode = (InvoiceBatchExporter.Mode) modeCombo.getSelectedItem();
+        File directory = new File(directoryField.getText().trim());
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            JOptionPane.showMessageDialog(this,
+                "Cannot create folder " + directory.getAbsolutePath(),
+                "Validation Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        Date startDate = null;
+        Date endDate = null;
+        if (rangeRadio.isSelected()) {
+            try {
+                startDate = DateUtils.parseDate(startDateField.getText(), dateFormat);
+                endDate = DateUtils.parseDate(endDateField.getText(), dateFormat);
+            } catch (Exception e) {
+                // Reported below
+            }
+            if (startDate == null || endDate == null) {
+                JOptionPane.showMessageDialog(this,
+                    "Invalid date format. Use dd/MM/yyyy",
+                    "Validation Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+        }
+        File target = directory;
+        if (mode != InvoiceBatchExporter.Mode.FILES) {
+            String fileName = fileNameField.getText().trim();
+            String extension = mode == InvoiceBatchExporter.Mode.ZIP ? ".zip" : ".pdf";
+            if (fileName.isEmpty()) {
+                JOptionPane.showMessageDialog(this,
+                    "Enter a file name",
+                    "Validation Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            if (!fileName.toLowerCase().endsWith(extension)) {
+                fileName += extension;
+            }
+            target = new File(directory, fileName);
+            if (target.exists() && JOptionPane.showConfirmDialog(this,
+                    target.getName() + " already exists. Replace it?",
+                    "Confirm", JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+                return;
+            }
+        }
+        InvoicePDFGenerator.saveLastDirectory(directory.getAbsolutePath());
+
+        failuresArea.setText("");
+        progressBar.setValue(0);
+        statusLabel.setText("Finding invoices...");
+        setRunning(true);
+
+        Date from = startDate;
+        Date to = endDate;
+        File output = target;
+        SwingWorker<InvoiceBatchExporter.Result, int[]> worker = new SwingWorker<InvoiceBatchExporter.Result, int[]>() {
+            @Override
+            protected InvoiceBatchExporter.Result doInBackground() throws Exception {
+                List<Integer> ids = from != null
+                    ? InvoiceRepository.getInstance().findIdsByDate(from, to) : selectedIds;
+                InvoiceBatchExporter running = new InvoiceBatchExporter(ids, output, mode);
+                SwingUtilities.invokeLater(() -> {
+                    exporter = running;
+                    // Stop may have been pressed before the ids were known
+                    if (!cancelButton.isEnabled()) {
+                        running.cancel();
+                    }
+                });
+                return running.run((written, failed, total) -> publish(new int[] {written, failed, total}));
+            }
+
+            @Override
+            protected void process(List<int[]> chunks) {
+                int[] last = chunks.get(chunks.size() - 1);
+                int done = last[0] + last[1];
+                progressBar.setValue(last[2] > 0 ? done * 100 / last[2] : 0);
+                statusLabel.setText(String.format("%,d of %,d invoices", done, last[2]));
+            }
+
+            @Override
+            protected void done() {
+                exporter = null;
+                setRunning(false);
+                try {
+                    showResult(get(), mode, output);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    statusLabel.setText("Generation failed");
+                    JOptionPane.showMessageDialog(InvoiceBatchDialog.this,
+                        "Error generating PDFs: " + cause.getMessage(),
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void showResult(InvoiceBatchExporter.Result result, InvoiceBatchExporter.Mode mode, File output) {
+        if (!result.isCancelled()) {
+            progressBar.setValue(100);
+        }
+        StringBuilder failures = new StringBuilder();
+        for (InvoiceBatchExporter.Failure failure : result.getFailures()) {
+            failures.append(failure.getNumero()).append(": ").append(failure.getReason()).append('\n');
+        }
+        failuresArea.setText(failures.toString());
+        failuresArea.setCaretPosition(0);
+        String summary = String.format("%s%,d of %,d invoices written, %,d failed in %.1f s (%.1f invoices/s)",
+            result.isCancelled() ? "Stopped: " : "", result.getWritten(), result.getTotal(),
+            result.getFailures().size(), result.getElapsedMillis() / 1000.0, result.getInvoicesPerSecond());
+        if (mode != InvoiceBatchExporter.Mode.FILES) {
+            summary += result.isCancelled() ? "; " + output.getName() + " not saved" : " to " + output.getName();
+        }
+        statusLabel.setText(summary);
+    }
+
+    private void stopBatch() {
+        cancelButton.setEnabled(false);
+        statusLabel.setText("Stopping after the invoices being written...");
+        if (exporter != null) {
+            exporter.cancel();
+        }
+    }
+
+    private void setRunning(boolean running) {
+        startButton.setEnabled(!running);
+        cancelButton.setEnabled(running);
+        closeButton.setEnabled(!running);
+        selectedRadio.setEnabled(!running && !selectedIds.isEmpty());
+        rangeRadio.setEnabled(!running);
+        modeCombo.setEnabled(!running);
+        directoryField.setEnabled(!running);
+        fileNameField.setEnabled(!running && modeCombo.getSelectedItem() != InvoiceBatchExporter.Mode.FILES);
+    }
+
+    private void close() {
+        if (!startButton.isEnabled()) {
+            JOptionPane.showMessageDialog(this,
+                "Stop the generation before closing",
+                "Generation Running", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        dispose();
+    }
+}
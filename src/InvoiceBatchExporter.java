@@ -0,0 +1,381 @@
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PageMode;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDDocumentOutline;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Renders many invoices to PDF: one file per invoice in a folder, one
+ * ZIP archive of those files, or one merged PDF with a bookmark per
+ * invoice.
+ *
+ * Invoices are read in blocks, each block in three queries (headers,
+ * lines, customers). For files and archives the next block is read while
+ * the previous one renders on a pool of one thread per processor, and the
+ * results are written in invoice order. A merged PDF is one document, so
+ * its invoices are drawn one after the other into it, sharing a single
+ * copy of the letterhead, and its pages are cached in a temporary file
+ * instead of the heap. Every invoice gets its usual
+ * Invoice_<number>_<customer>_<date>.pdf name. Output goes to a temporary
+ * name and is moved into place when complete; a stopped archive or
+ * merged PDF is discarded. Stopping lets the invoices already rendering
+ * finish and starts no more.
+ */
+public class InvoiceBatchExporter {
+    private static final int BLOCK_SIZE = 200;
+
+    public enum Mode {
+        FILES("One PDF per invoice"),
+        ZIP("ZIP archive of PDFs"),
+        MERGED("Single merged PDF");
+
+        private final String label;
+
+        Mode(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     * Receives progress, in invoice order
+     */
+    public interface Listener {
+        void progress(int written, int failed, int total);
+    }
+
+    public static class Failure {
+        private final String numero;
+        private final String reason;
+
+        Failure(String numero, String reason) {
+            this.numero = numero;
+            this.reason = reason;
+        }
+
+        public String getNumero() { return numero; }
+        public String getReason() { return reason; }
+    }
+
+    public static class Result {
+        private final int total;
+        private final int written;
+        private final List<Failure> failures;
+        private final long elapsedMillis;
+        private final boolean cancelled;
+
+        Result(int total, int written, List<Failure> failures, long elapsedMillis, boolean cancelled) {
+            this.total = total;
+            this.written = written;
+            this.failures = failures;
+            this.elapsedMillis = elapsedMillis;
+            this.cancelled = cancelled;
+        }
+
+        public int getTotal() { return total; }
+        public int getWritten() { return written; }
+        public List<Failure> getFailures() { return failures; }
+        public long getElapsedMillis() { return elapsedMillis; }
+        public boolean isCancelled() { return cancelled; }
+
+        public double getInvoicesPerSecond() {
+            return elapsedMillis > 0 ? written * 1000.0 / elapsedMillis : written;
+        }
+    }
+
+    // An invoice of the current block, and what became of it
+    private static class Job {
+        final int id;
+        final Invoice invoice;
+        final Customer customer;
+        String failure;
+        boolean rendered;
+        String fileName;
+        byte[] pdf;
+
+        Job(int id, Invoice invoice, Customer customer) {
+            this.id = id;
+            this.invoice = invoice;
+            this.customer = customer;
+            this.failure = invoice == null ? "Invoice not found"
+                : customer == null ? "Customer not found" : null;
+        }
+
+        String getNumero() {
+            return invoice != null ? invoice.getNumero() : "#" + id;
+        }
+    }
+
+    private final List<Integer> invoiceIds;
+    private final File target;
+    private final Mode mode;
+    private final int threads;
+    private volatile boolean cancelled;
+
+    private int written;
+    private final List<Failure> failures = new ArrayList<>();
+
+    /**
+     * @param target the folder for FILES, the file to create otherwise
+     */
+    public InvoiceBatchExporter(List<Integer> invoiceIds, File target, Mode mode) {
+        this(invoiceIds, target, mode, Runtime.getRuntime().availableProcessors());
+    }
+
+    public InvoiceBatchExporter(List<Integer> invoiceIds, File target, Mode mode, int threads) {
+        this.invoiceIds = new ArrayList<>(new LinkedHashSet<>(invoiceIds));
+        this.target = target;
+        this.mode = mode;
+        this.threads = Math.max(1, threads);
+    }
+
+    public int getTotal() {
+        return invoiceIds.size();
+    }
+
+    /**
+     * Stop starting new invoices; safe to call from any thread
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public Result run(Listener listener) throws SQLException, IOException, InterruptedException {
+        long start = System.nanoTime();
+        written = 0;
+        failures.clear();
+
+        // Loaded once here rather than lazily by several threads at once
+        CompanyData companyData = CompanyData.getInstance();
+
+        if (mode == Mode.FILES) {
+            renderInParallel(companyData, listener, null);
+        } else {
+            File part = new File(target.getAbsoluteFile().getParentFile(), target.getName() + ".part");
+            try {
+                if (mode == Mode.ZIP) {
+                    try (ZipOutputStream zip = new ZipOutputStream(
+                            new BufferedOutputStream(new FileOutputStream(part), 64 * 1024))) {
+                        renderInParallel(companyData, listener, zip);
+                    }
+                } else {
+                    renderMerged(companyData, listener, part);
+                }
+                if (cancelled) {
+                    Files.deleteIfExists(part.toPath());
+                } else {
+                    moveIntoPlace(part, target);
+                }
+            } catch (IOException | SQLException | InterruptedException | RuntimeException e) {
+                Files.deleteIfExists(part.toPath());
+                throw e;
+            }
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return new Result(invoiceIds.size(), written, new ArrayList<>(failures), elapsedMillis, cancelled);
+    }
+
+    private List<Job> loadBlock(List<Integer> block) throws SQLException {
+        Map<Integer, Invoice> invoices = InvoiceRepository.getInstance().findByIds(block);
+        Set<Integer> customerIds = new LinkedHashSet<>();
+        for (Invoice invoice : invoices.values()) {
+            customerIds.add(invoice.getClienteId());
+        }
+        Map<Integer, Customer> customers = CustomerRepository.getInstance().findByIds(customerIds);
+
+        List<Job> jobs = new ArrayList<>();
+        for (Integer id : block) {
+            Invoice invoice = invoices.get(id);
+            jobs.add(new Job(id, invoice, invoice != null ? customers.get(invoice.getClienteId()) : null));
+        }
+        return jobs;
+    }
+
+    // Files are written by the pool; archive entries in order by this thread
+    private void renderInParallel(CompanyData companyData, Listener listener, ZipOutputStream zip)
+            throws SQLException, IOException, InterruptedException {
+        int total = invoiceIds.size();
+        Set<String> fileNames = new HashSet<>();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "invoice-pdf");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Job>> previousBlock = new ArrayList<>();
+            for (int from = 0; from < total && !cancelled; from += BLOCK_SIZE) {
+                List<Future<Job>> currentBlock = new ArrayList<>();
+                for (Job job : loadBlock(invoiceIds.subList(from, Math.min(from + BLOCK_SIZE, total)))) {
+                    if (job.failure == null) {
+                        // Named here, in invoice order, so no two threads share a file
+                        job.fileName = uniqueFileName(job, fileNames);
+                    }
+                    currentBlock.add(pool.submit(() -> {
+                        if (job.failure == null && !cancelled) {
+                            render(job, companyData, zip != null);
+                        }
+                        return job;
+                    }));
+                }
+                // The pool works through this block while the previous one is written
+                collect(previousBlock, zip, listener);
+                previousBlock = currentBlock;
+            }
+            collect(previousBlock, zip, listener);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void render(Job job, CompanyData companyData, boolean inMemory) {
+        InvoicePDFGenerator generator = new InvoicePDFGenerator(
+            job.invoice, job.customer, job.invoice.getItems(), companyData);
+        try {
+            if (inMemory) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 * 1024);
+                generator.generatePDF(bytes);
+                job.pdf = bytes.toByteArray();
+            } else {
+                File file = new File(target, job.fileName);
+                File part = new File(target, job.fileName + ".part");
+                try {
+                    generator.generatePDF(part);
+                    moveIntoPlace(part, file);
+                } finally {
+                    part.delete();
+                }
+            }
+            job.rendered = true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            job.failure = e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+    }
+
+    private void collect(List<Future<Job>> futures, ZipOutputStream zip, Listener listener)
+            throws IOException, InterruptedException {
+        for (Future<Job> future : futures) {
+            Job job;
+            try {
+                job = future.get();
+            } catch (ExecutionException e) {
+                // Jobs record their own failures; this is a bug, not a bad invoice
+                throw new IllegalStateException(e.getCause());
+            }
+            if (job.failure == null && !job.rendered) {
+                continue; // Not started after Stop
+            }
+            if (zip != null && job.rendered) {
+                zip.putNextEntry(new ZipEntry(job.fileName));
+                zip.write(job.pdf);
+                zip.closeEntry();
+                job.pdf = null;
+            }
+            record(job, listener);
+        }
+    }
+
+    // Files and archive entries must be unique even if two numbers clean up the same
+    private static String uniqueFileName(Job job, Set<String> fileNames) {
+        String name = InvoicePDFGenerator.defaultFileName(job.invoice, job.customer);
+        if (!fileNames.add(name)) {
+            name = name.substring(0, name.length() - 4) + "_" + job.id + ".pdf";
+            fileNames.add(name);
+        }
+        return name;
+    }
+
+    private void renderMerged(CompanyData companyData, Listener listener, File part)
+            throws SQLException, IOException {
+        int total = invoiceIds.size();
+        try (PDDocument merged = new PDDocument(MemoryUsageSetting.setupTempFileOnly().streamCache)) {
+            PDDocumentOutline outline = new PDDocumentOutline();
+            merged.getDocumentCatalog().setDocumentOutline(outline);
+            merged.getDocumentCatalog().setPageMode(PageMode.USE_OUTLINES);
+            InvoiceTemplate.Forms forms = null;
+
+            for (int from = 0; from < total && !cancelled; from += BLOCK_SIZE) {
+                for (Job job : loadBlock(invoiceIds.subList(from, Math.min(from + BLOCK_SIZE, total)))) {
+                    if (cancelled) {
+                        break;
+                    }
+                    if (job.failure == null) {
+                        InvoicePDFGenerator generator = new InvoicePDFGenerator(
+                            job.invoice, job.customer, job.invoice.getItems(), companyData);
+                        int pageCount = merged.getNumberOfPages();
+                        try {
+                            if (forms == null) {
+                                forms = generator.createForms(merged);
+                            }
+                            PDPage firstPage = generator.render(merged, forms);
+
+                            PDOutlineItem bookmark = new PDOutlineItem();
+                            bookmark.setTitle(String.format("Invoice %s - %s %s (%s)", job.invoice.getNumero(),
+                                job.customer.getNome(), job.customer.getCognome(),
+                                DateUtils.formatDate(job.invoice.getData())));
+                            bookmark.setDestination(firstPage);
+                            outline.addLast(bookmark);
+                        } catch (Exception e) {
+                            e.printStackTrace();
+                            job.failure = e.getMessage() != null ? e.getMessage() : e.toString();
+                            // Drop the pages of the invoice that failed half way
+                            while (merged.getNumberOfPages() > pageCount) {
+                                merged.removePage(merged.getNumberOfPages() - 1);
+                            }
+                        }
+                    }
+                    record(job, listener);
+                }
+            }
+            if (!cancelled) {
+                merged.save(part);
+            }
+        }
+    }
+
+    private void record(Job job, Listener listener) {
+        if (job.failure == null) {
+            written++;
+        } else {
+            failures.add(new Failure(job.getNumero(), job.failure));
+        }
+        listener.progress(written, failures.size(), invoiceIds.size());
+    }
+
+    private static void moveIntoPlace(File part, File file) throws IOException {
+        try {
+            Files.move(part.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(part.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import java.util.*;
 import java.text.SimpleDateFormat;
 import java.text.ParseException;
 import java.util.Date;
+import java.util.List;
 
 public class InvoiceDialog extends JDialog {
     private Invoice invoice;
@@ -22,19 +23,18 @@ public class InvoiceDialog extends JDialog {
     private JLabel ivaLabel;
     private JLabel totaleLabel;
     private SimpleDateFormat dateFormat;
-    private Map<Integer, Product> productsCache;
+    private JButton saveButton;
     private volatile boolean isUpdatingTotals = false;
+    private Map<String, Integer> productIds = new HashMap<>(); // Product id of each row, by code
     
     // Constructor for JFrame parent
     public InvoiceDialog(JFrame parent, Invoice invoice) {
         super(parent, invoice == null ? "New Invoice" : "Modify Invoice", true);
         this.invoice = invoice;
         this.dateFormat = new SimpleDateFormat("dd/MM/yyyy");
-        this.productsCache = new HashMap<>();
         
         setupWindow();
         initComponents();
-        loadProducts();
         if (invoice != null) {
             loadInvoiceData();
         } else {
@@ -47,11 +47,9 @@ public class InvoiceDialog extends JDialog {
         super(parent, invoice == null ? "New Invoice" : "Modify Invoice", true);
         this.invoice = invoice;
         this.dateFormat = new SimpleDateFormat("dd/MM/yyyy");
-        this.productsCache = new HashMap<>();
         
         setupWindow();
         initComponents();
-        loadProducts();
         if (invoice != null) {
             loadInvoiceData();
         } else {
@@ -175,7 +173,7 @@ public class InvoiceDialog extends JDialog {
         
         // Button panel
         JPanel buttonPanel = new JPanel(new FlowLayout());
-        JButton saveButton = new JButton("Save Invoice");
+        saveButton = new JButton("Save Invoice");
         JButton cancelButton = new JButton("Cancel");
         
         saveButton.setPreferredSize(new Dimension(120, 35));
@@ -352,6 +350,7 @@ public class InvoiceDialog extends JDialog {
             }
             
             // Add new product to table
+            productIds.put(product.getCodice(), product.getId());
             Vector<Object> row = new Vector<>();
             row.add(product.getCodice());
             row.add(product.getNome());
@@ -423,38 +422,15 @@ public class InvoiceDialog extends JDialog {
         }
     }
     
-    private void loadProducts() {
-        try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = "SELECT * FROM prodotti ORDER BY nome";
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(query)) {
-                while (rs.next()) {
-                    Product product = new Product(
-                        rs.getInt("id"),
-                        rs.getString("codice"),
-                        rs.getString("nome"),
-                        rs.getString("descrizione"),
-                        rs.getDouble("prezzo"),
-                        rs.getInt("quantita")
-                    );
-                    productsCache.put(product.getId(), product);
-                }
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this,
-                "Error while loading products: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
-        }
-    }
-    
     private void setupNewInvoice() {
         try {
             Calendar cal = Calendar.getInstance();
             int year = cal.get(Calendar.YEAR);
-            String numero = DatabaseManager.getInstance().getNextInvoiceNumber(year);
-            numeroField.setText(numero);
+            // Preview only: the number is taken when the invoice is saved, so
+            // a cancelled dialog does not leave a gap in the sequence
+            numeroField.setText(DocumentNumbering.getInstance().peek(
+                DocumentNumbering.DocumentType.INVOICE, year));
+            numeroField.setToolTipText("Assigned when the invoice is saved");
             
             dataField.setText(dateFormat.format(cal.getTime()));
             statoCombo.setSelectedItem("Draft");
@@ -482,6 +458,7 @@ public class InvoiceDialog extends JDialog {
         
         // Load products
         for (InvoiceItem item : invoice.getItems()) {
+            productIds.put(item.getProdottoCodice(), item.getProdottoId());
             Vector<Object> row = new Vector<>();
             row.add(item.getProdottoCodice());
             row.add(item.getProdottoNome());
@@ -593,7 +570,9 @@ public class InvoiceDialog extends JDialog {
             }
             
             String stato = (String)statoCombo.getSelectedItem();
-            String numero = numeroField.getText();
+            Calendar cal = Calendar.getInstance();
+            cal.setTime(dataFattura);
+            int invoiceYear = cal.get(Calendar.YEAR);
             
             double imponibile = Double.parseDouble(imponibileLabel.getText()
                 .replace("Taxable Amount: € ", "").replace(",", "."));
@@ -602,19 +581,25 @@ public class InvoiceDialog extends JDialog {
             double totale = Double.parseDouble(totaleLabel.getText()
                 .replace("TOTAL: € ", "").replace(",", "."));
             
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            conn.setAutoCommit(false);
-            try {
+            int customerId = selectedCustomer.getId();
+            List<Object[]> items = snapshotInvoiceItems();
+            
+            saveButton.setEnabled(false);
+            DatabaseManager.getInstance().submitWrite(conn -> {
                 if (invoice == null) {
                     String invoiceQuery = """
                         INSERT INTO fatture (numero, data, cliente_id, imponibile, iva, totale, stato)
                         VALUES (?, ?, ?, ?, ?, ?, ?)
                     """;
+                    // Taken inside this transaction: a rollback gives the number back
+                    String numero = DocumentNumbering.getInstance().next(conn,
+                        DocumentNumbering.DocumentType.INVOICE, invoiceYear);
+                    
                     int invoiceId;
                     try (PreparedStatement pstmt = conn.prepareStatement(invoiceQuery, Statement.RETURN_GENERATED_KEYS)) {
                         pstmt.setString(1, numero);
-                        pstmt.setDate(2, new java.sql.Date(dataFattura.getTime()));
-                        pstmt.setInt(3, selectedCustomer.getId());
+                        DateCodec.bind(pstmt, 2, dataFattura);
+                        pstmt.setInt(3, customerId);
                         pstmt.setDouble(4, imponibile);
                         pstmt.setDouble(5, iva);
                         pstmt.setDouble(6, totale);
@@ -630,7 +615,8 @@ public class InvoiceDialog extends JDialog {
                         }
                     }
                     
-                    insertInvoiceDetails(conn, invoiceId);
+                    insertInvoiceDetails(conn, invoiceId, items);
+                    return invoiceId;
                     
                 } else {
                     String invoiceQuery = """
@@ -639,8 +625,8 @@ public class InvoiceDialog extends JDialog {
                         WHERE id = ?
                     """;
                     try (PreparedStatement pstmt = conn.prepareStatement(invoiceQuery)) {
-                        pstmt.setDate(1, new java.sql.Date(dataFattura.getTime()));
-                        pstmt.setInt(2, selectedCustomer.getId());
+                        DateCodec.bind(pstmt, 1, dataFattura);
+                        pstmt.setInt(2, customerId);
                         pstmt.setDouble(3, imponibile);
                         pstmt.setDouble(4, iva);
                         pstmt.setDouble(5, totale);
@@ -655,56 +641,72 @@ public class InvoiceDialog extends JDialog {
                         pstmt.executeUpdate();
                     }
                     
-                    insertInvoiceDetails(conn, invoice.getId());
+                    insertInvoiceDetails(conn, invoice.getId(), items);
                 }
                 
-                conn.commit();
+                return invoice.getId();
+            }).whenComplete((invoiceId, error) -> SwingUtilities.invokeLater(() -> {
+                saveButton.setEnabled(true);
+                if (error != null) {
+                    error.printStackTrace();
+                    JOptionPane.showMessageDialog(this,
+                        "Error while saving the invoice: " + error.getMessage(),
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
                 invoiceSaved = true;
+                EventBus.getInstance().publish(new DomainEvent.InvoiceSaved(invoiceId, invoice == null));
                 dispose();
-                
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
-            }
+            }));
             
-        } catch (SQLException e) {
-            e.printStackTrace();
+        } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this,
-                "Error while saving the invoice: " + e.getMessage(),
+                "Invalid amounts in the invoice totals",
                 "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
     
-    private void insertInvoiceDetails(Connection conn, int invoiceId) throws SQLException {
+    /**
+     * Copy the invoice lines out of the table model on the EDT, so the write
+     * can run on the group-commit thread without touching Swing state.
+     * Each entry is {prodottoId, quantita, prezzoUnitario, aliquotaIva};
+     * the ids were recorded as the rows were added, so nothing waits for
+     * the product catalog here.
+     */
+    private List<Object[]> snapshotInvoiceItems() {
+        List<Object[]> items = new ArrayList<>();
+        for (int i = 0; i < itemsTableModel.getRowCount(); i++) {
+            String codice = (String)itemsTableModel.getValueAt(i, 0);
+            Integer prodottoId = productIds.get(codice);
+            if (prodottoId == null) continue;
+            
+            items.add(new Object[]{
+                prodottoId,
+                parseInteger(itemsTableModel.getValueAt(i, 2)),
+                parseDouble(itemsTableModel.getValueAt(i, 3)),
+                parseDouble(itemsTableModel.getValueAt(i, 4))
+            });
+        }
+        return items;
+    }
+    
+    private void insertInvoiceDetails(Connection conn, int invoiceId, List<Object[]> items) throws SQLException {
         String detailQuery = """
             INSERT INTO dettagli_fattura 
             (fattura_id, prodotto_id, quantita, prezzo_unitario, aliquota_iva, totale)
             VALUES (?, ?, ?, ?, ?, ?)
         """;
         try (PreparedStatement pstmt = conn.prepareStatement(detailQuery)) {
-            for (int i = 0; i < itemsTableModel.getRowCount(); i++) {
-                String codice = (String)itemsTableModel.getValueAt(i, 0);
-                int prodottoId = -1;
-                for (Product p : productsCache.values()) {
-                    if (p.getCodice().equals(codice)) {
-                        prodottoId = p.getId();
-                        break;
-                    }
-                }
-                if (prodottoId == -1) continue;
-                
-                int quantita = parseInteger(itemsTableModel.getValueAt(i, 2));
-                double prezzoUnitario = parseDouble(itemsTableModel.getValueAt(i, 3));
-                double aliquotaIva = parseDouble(itemsTableModel.getValueAt(i, 4));
+            for (Object[] item : items) {
+                int quantita = (Integer)item[1];
+                double prezzoUnitario = (Double)item[2];
                 double totaleProdotto = quantita * prezzoUnitario;
                 
                 pstmt.setInt(1, invoiceId);
-                pstmt.setInt(2, prodottoId);
+                pstmt.setInt(2, (Integer)item[0]);
                 pstmt.setInt(3, quantita);
                 pstmt.setDouble(4, prezzoUnitario);
-                pstmt.setDouble(5, aliquotaIva);
+                pstmt.setDouble(5, (Double)item[3]);
                 pstmt.setDouble(6, totaleProdotto);
                 pstmt.executeUpdate();
             }
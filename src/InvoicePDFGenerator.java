@@ -1,17 +1,21 @@
+import org.apache.pdfbox.pdmodel.PDAbstractContentStream;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
 import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.sql.*;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 import java.util.ArrayList;
@@ -19,13 +23,21 @@ import java.util.ArrayList;
 public class InvoicePDFGenerator {
     private static final float MARGIN = 40f;
     private static final float LINE_HEIGHT = 12f;
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("dd/MM/yyyy");
     private static final String LAST_DIRECTORY_KEY = "last_pdf_directory";
+    private static final float ROW_HEIGHT = 18f;
+    // Lowest point for content; the footer sits below it
+    private static final float CONTENT_BOTTOM = 55f;
+    private static final float TOTALS_HEIGHT = 80f;
+    private static final float[] COLUMN_WIDTHS = {60f, 180f, 40f, 70f, 50f, 70f}; // Codice, Descrizione, Qta, Prezzo, IVA%, Totale
+    private static final String[] TABLE_HEADERS = {"Code", "Description", "Qty", "Price €", "VAT%", "Total €"};
     
     private Invoice invoice;
     private Customer customer;
     private CompanyData companyData;
     private List<InvoiceItem> invoiceItems;
+    // Created once per generator rather than for every row drawn
+    private final PDFont regularFont = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+    private final PDFont boldFont = new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD);
     
     public InvoicePDFGenerator(Invoice invoice, Customer customer) {
         this.invoice = invoice;
@@ -35,38 +47,20 @@ public class InvoicePDFGenerator {
         loadInvoiceItems();
     }
     
+    /**
+     * For batch runs that have already loaded the lines of many invoices
+     * at once
+     */
+    public InvoicePDFGenerator(Invoice invoice, Customer customer, List<InvoiceItem> items, CompanyData companyData) {
+        this.invoice = invoice;
+        this.customer = customer;
+        this.companyData = companyData;
+        this.invoiceItems = new ArrayList<>(items);
+    }
+    
     private void loadInvoiceItems() {
         try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = """
-                SELECT df.*, COALESCE(p.codice, 'N/A') as prodotto_codice, 
-                       COALESCE(p.nome, 'Prodotto N/D') as prodotto_nome,
-                       COALESCE(p.descrizione, '') as prodotto_descrizione
-                FROM dettagli_fattura df
-                LEFT JOIN prodotti p ON df.prodotto_id = p.id
-                WHERE df.fattura_id = ?
-                ORDER BY df.id
-            """;
-            
-            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-                pstmt.setInt(1, invoice.getId());
-                ResultSet rs = pstmt.executeQuery();
-                
-                while (rs.next()) {
-                    InvoiceItem item = new InvoiceItem(
-                        rs.getInt("id"),
-                        rs.getInt("fattura_id"),
-                        rs.getInt("prodotto_id"),
-                        rs.getString("prodotto_nome"),
-                        rs.getString("prodotto_codice"),
-                        rs.getInt("quantita"),
-                        rs.getDouble("prezzo_unitario"),
-                        rs.getDouble("aliquota_iva"),
-                        rs.getDouble("totale")
-                    );
-                    invoiceItems.add(item);
-                }
-            }
+            invoiceItems.addAll(InvoiceRepository.getInstance().findItems(invoice.getId()));
         } catch (SQLException e) {
             e.printStackTrace();
             System.err.println("Error loading invoice items: " + e.getMessage());
@@ -84,39 +78,7 @@ public class InvoicePDFGenerator {
             fileChooser.setCurrentDirectory(new File(lastDirectory));
         }
         
-        // Improved file name
-        String invoiceNumber = invoice.getNumero();
-        if (invoiceNumber == null || invoiceNumber.trim().isEmpty()) {
-            invoiceNumber = "INV_" + invoice.getId();
-        }
-        invoiceNumber = invoiceNumber.replaceAll("[^a-zA-Z0-9._-]", "_");
-        
-        String customerName = "";
-        if (customer.getCognome() != null && !customer.getCognome().trim().isEmpty()) {
-            customerName = customer.getCognome().trim();
-        } else if (customer.getNome() != null && !customer.getNome().trim().isEmpty()) {
-            customerName = customer.getNome().trim();
-        } else {
-            customerName = "Customer_" + customer.getId();
-        }
-        customerName = customerName.replaceAll("[^a-zA-Z0-9._-]", "_");
-        
-        String dateString = "";
-        try {
-            if (invoice.getData() != null) {
-                dateString = DATE_FORMAT.format(invoice.getData());
-            } else {
-                dateString = DATE_FORMAT.format(new Date());
-            }
-            dateString = dateString.replace("/", "-");
-        } catch (Exception e) {
-            dateString = String.valueOf(System.currentTimeMillis() / 1000);
-        }
-        
-        String defaultName = String.format("Invoice_%s_%s_%s.pdf", 
-            invoiceNumber, customerName, dateString);
-            
-        fileChooser.setSelectedFile(new File(defaultName));
+        fileChooser.setSelectedFile(new File(getDefaultFileName()));
         
         if (fileChooser.showSaveDialog(parent) == JFileChooser.APPROVE_OPTION) {
             File file = fileChooser.getSelectedFile();
@@ -160,113 +122,158 @@ public class InvoicePDFGenerator {
         }
     }
     
-    private void generatePDF(File outputFile) throws IOException {
+    /**
+     * Invoice_<number>_<customer>_<date>.pdf, with anything unsafe in a
+     * file name replaced; the same invoice always gets the same name
+     */
+    public String getDefaultFileName() {
+        return defaultFileName(invoice, customer);
+    }
+    
+    static String defaultFileName(Invoice invoice, Customer customer) {
+        String invoiceNumber = invoice.getNumero();
+        if (invoiceNumber == null || invoiceNumber.trim().isEmpty()) {
+            invoiceNumber = "INV_" + invoice.getId();
+        }
+        invoiceNumber = invoiceNumber.replaceAll("[^a-zA-Z0-9._-]", "_");
+        
+        String customerName = "";
+        if (customer.getCognome() != null && !customer.getCognome().trim().isEmpty()) {
+            customerName = customer.getCognome().trim();
+        } else if (customer.getNome() != null && !customer.getNome().trim().isEmpty()) {
+            customerName = customer.getNome().trim();
+        } else {
+            customerName = "Customer_" + customer.getId();
+        }
+        customerName = customerName.replaceAll("[^a-zA-Z0-9._-]", "_");
+        
+        String dateString = "";
+        try {
+            if (invoice.getData() != null) {
+                dateString = DateUtils.formatDate(invoice.getData());
+            } else {
+                dateString = DateUtils.formatDate(new Date());
+            }
+            dateString = dateString.replace("/", "-");
+        } catch (Exception e) {
+            dateString = String.valueOf(System.currentTimeMillis() / 1000);
+        }
+        
+        return String.format("Invoice_%s_%s_%s.pdf", 
+            invoiceNumber, customerName, dateString);
+    }
+    
+    /**
+     * Render the invoice to outputFile without any UI; safe to call from
+     * worker threads, one generator per thread
+     */
+    public void generatePDF(File outputFile) throws IOException {
         try (PDDocument document = new PDDocument()) {
-            PDPage page = new PDPage(PDRectangle.A4);
-            document.addPage(page);
+            render(document, createForms(document));
+            document.save(outputFile);
+        }
+    }
+    
+    public void generatePDF(OutputStream out) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            render(document, createForms(document));
+            document.save(out);
+        }
+    }
+    
+    /**
+     * The company letterhead and footer for document, drawn with this
+     * generator's fonts; the invoices of a merged document share them
+     */
+    public InvoiceTemplate.Forms createForms(PDDocument document) throws IOException {
+        return InvoiceTemplate.forCompany(companyData).createForms(document, regularFont, boldFont);
+    }
+    
+    /**
+     * Append the pages of the invoice to document
+     *
+     * @return the first of them
+     */
+    public PDPage render(PDDocument document, InvoiceTemplate.Forms forms) throws IOException {
+        try (PageFlow flow = new PageFlow(document, forms.getFooter())) {
+            PDPageContentStream contentStream = flow.stream;
+            PDPage page = flow.page;
             
-            try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-                float yPosition = page.getMediaBox().getHeight() - MARGIN;
-                
-                // Header con titolo FATTURA
-                yPosition = drawHeader(contentStream, yPosition, page);
-                yPosition -= 25f;
-                
-                // Informazioni azienda e cliente
-                yPosition = drawCompanyAndCustomerInfo(contentStream, yPosition, page);
-                yPosition -= 25f;
-                
-                // Dettagli fattura
-                yPosition = drawInvoiceDetails(contentStream, yPosition, page);
-                yPosition -= 25f;
-                
-                // Tabella prodotti migliorata
-                yPosition = drawItemsTable(contentStream, yPosition, page);
-                yPosition -= 20f;
-                
-                // Totali
-                yPosition = drawTotals(contentStream, yPosition, page);
-                
-                // Footer con marchio WorkGenio
-                drawFooter(contentStream, page);
-            }
+            // Titolo, logo e dati azienda dal modello già pronto
+            contentStream.drawForm(forms.getLetterhead());
+            float yPosition = forms.getCompanyTop();
             
-            document.save(outputFile);
+            // Informazioni cliente
+            yPosition = drawCustomerInfo(contentStream, yPosition, page);
+            yPosition -= 25f;
+            
+            // Dettagli fattura
+            yPosition = drawInvoiceDetails(contentStream, yPosition, page);
+            yPosition -= 25f;
+            
+            // Tabella prodotti, su quante pagine servono
+            yPosition = drawItemsTable(flow, yPosition);
+            yPosition -= 20f;
+            
+            // Totali, su una nuova pagina se non ci stanno
+            if (yPosition - TOTALS_HEIGHT < CONTENT_BOTTOM) {
+                flow.newPage();
+                yPosition = drawContinuationHeader(flow);
+            }
+            drawTotals(flow.stream, yPosition, flow.page);
+            return page;
         }
     }
     
-    private float drawHeader(PDPageContentStream contentStream, float yPosition, PDPage page) throws IOException {
-        // Invoice title centered and prominent
-        contentStream.beginText();
-        contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD), 28f);
-        String title = "INVOICE";
-        // Approximate width estimation for title
-        float titleWidth = title.length() * 28f * 0.7f;
-        float titleX = (page.getMediaBox().getWidth() - titleWidth) / 2;
-        contentStream.newLineAtOffset(titleX, yPosition);
-        contentStream.showText(title);
-        contentStream.endText();
+    /**
+     * The page being drawn. Starting a new page puts the footer on the
+     * previous one; closing puts it on the last.
+     */
+    private class PageFlow implements Closeable {
+        private final PDDocument document;
+        private final PDFormXObject footer;
+        private PDPage page;
+        private PDPageContentStream stream;
+        private int pageNumber;
+        
+        PageFlow(PDDocument document, PDFormXObject footer) throws IOException {
+            this.document = document;
+            this.footer = footer;
+            newPage();
+        }
         
-        // Line under title
-        float lineY = yPosition - 8f;
-        contentStream.moveTo(MARGIN, lineY);
-        contentStream.lineTo(page.getMediaBox().getWidth() - MARGIN, lineY);
-        contentStream.setLineWidth(1.5f);
-        contentStream.stroke();
+        void newPage() throws IOException {
+            close();
+            page = new PDPage(PDRectangle.A4);
+            document.addPage(page);
+            stream = new PDPageContentStream(document, page);
+            pageNumber++;
+        }
         
-        return lineY - 15f;
+        @Override
+        public void close() throws IOException {
+            if (stream != null) {
+                try {
+                    stream.drawForm(footer);
+                } finally {
+                    stream.close();
+                    stream = null;
+                }
+            }
+        }
     }
     
-    private float drawCompanyAndCustomerInfo(PDPageContentStream contentStream, float yPosition, PDPage page) throws IOException {
-        float leftColumn = MARGIN;
+    private float drawCustomerInfo(PDPageContentStream contentStream, float yPosition, PDPage page) throws IOException {
         float rightColumn = page.getMediaBox().getWidth() / 2f + 10f;
         float startY = yPosition;
         
-        // Box for company
-        drawInfoBox(contentStream, leftColumn, yPosition - 130f, 250f, 130f, "FROM");
-        
-        // Company information
-        yPosition -= 35f;
-        contentStream.beginText();
-        contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD), 11f);
-        contentStream.newLineAtOffset(leftColumn + 5f, yPosition);
-        contentStream.showText(safeTruncate(companyData.getCompanyName(), 35));
-        contentStream.endText();
-        
-        yPosition -= 15f;
-        String[] companyInfo = {
-            companyData.getAddress(),
-            companyData.getCity() + (companyData.getPostalCode().isEmpty() ? "" : " " + companyData.getPostalCode()),
-            companyData.getCountry(),
-            "VAT: " + companyData.getVatNumber(),
-            "Tax Code: " + companyData.getTaxCode(),
-            "Phone: " + companyData.getPhone(),
-            "Email: " + companyData.getEmail()
-        };
-        
-        contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 9f);
-        for (String line : companyInfo) {
-            if (line != null && !line.trim().isEmpty() && 
-                !line.equals("VAT: ") && !line.equals("Tax Code: ") && 
-                !line.equals("Phone: ") && !line.equals("Email: ")) {
-                contentStream.beginText();
-                contentStream.newLineAtOffset(leftColumn + 5f, yPosition);
-                contentStream.showText(safeTruncate(line, 40));
-                contentStream.endText();
-                yPosition -= 12f;
-            }
-        }
-        
-        // Reset position for customer
-        yPosition = startY;
-        
         // Box for customer
-        drawInfoBox(contentStream, rightColumn, yPosition - 130f, 250f, 130f, "BILL TO");
+        drawInfoBox(contentStream, boldFont, rightColumn, yPosition - 130f, 250f, 130f, "BILL TO");
         
         // Customer information
         yPosition -= 35f;
         contentStream.beginText();
-        contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD), 11f);
+        contentStream.setFont(boldFont, 11f);
         contentStream.newLineAtOffset(rightColumn + 5f, yPosition);
         String customerFullName = customer.getNome() + " " + customer.getCognome();
         contentStream.showText(safeTruncate(customerFullName, 35));
@@ -279,7 +286,7 @@ public class InvoicePDFGenerator {
             customer.getIndirizzo()
         };
         
-        contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 9f);
+        contentStream.setFont(regularFont, 9f);
         for (String line : customerInfo) {
             if (line != null && !line.trim().isEmpty()) {
                 contentStream.beginText();
@@ -293,7 +300,8 @@ public class InvoicePDFGenerator {
         return startY - 140f;
     }
     
-    private void drawInfoBox(PDPageContentStream contentStream, float x, float y, float width, float height, String title) throws IOException {
+    static void drawInfoBox(PDAbstractContentStream contentStream, PDFont titleFont, float x, float y,
+                            float width, float height, String title) throws IOException {
         // Box principale
         contentStream.addRect(x, y, width, height);
         contentStream.setLineWidth(1f);
@@ -311,7 +319,7 @@ public class InvoicePDFGenerator {
         
         // Titolo
         contentStream.beginText();
-        contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD), 10f);
+        contentStream.setFont(titleFont, 10f);
         contentStream.newLineAtOffset(x + 5f, y + height - 15f);
         contentStream.showText(title);
         contentStream.endText();
@@ -321,16 +329,16 @@ public class InvoicePDFGenerator {
         float rightColumn = page.getMediaBox().getWidth() - MARGIN - 150f;
         
         // Box for invoice details
-        drawInfoBox(contentStream, rightColumn, yPosition - 90f, 150f, 90f, "INVOICE DETAILS");
+        drawInfoBox(contentStream, boldFont, rightColumn, yPosition - 90f, 150f, 90f, "INVOICE DETAILS");
         
         yPosition -= 35f;
         String[][] details = {
             {"Number:", invoice.getNumero()},
-            {"Date:", DATE_FORMAT.format(invoice.getData())},
+            {"Date:", DateUtils.formatDate(invoice.getData())},
             {"Status:", invoice.getStato()}
         };
         
-        contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 9f);
+        contentStream.setFont(regularFont, 9f);
         for (String[] detail : details) {
             contentStream.beginText();
             contentStream.newLineAtOffset(rightColumn + 5f, yPosition);
@@ -338,42 +346,41 @@ public class InvoicePDFGenerator {
             contentStream.endText();
             
             contentStream.beginText();
-            contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD), 9f);
+            contentStream.setFont(boldFont, 9f);
             contentStream.newLineAtOffset(rightColumn + 50f, yPosition);
             contentStream.showText(safeTruncate(detail[1], 15));
             contentStream.endText();
             
-            contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 9f);
+            contentStream.setFont(regularFont, 9f);
             yPosition -= 15f;
         }
         
         return yPosition - 20f;
     }
     
-    private float drawItemsTable(PDPageContentStream contentStream, float yPosition, PDPage page) throws IOException {
-        float tableWidth = page.getMediaBox().getWidth() - 2 * MARGIN;
-        float[] columnWidths = {60f, 180f, 40f, 70f, 50f, 70f}; // Codice, Descrizione, Qta, Prezzo, IVA%, Totale
-        float rowHeight = 18f;
-        float headerHeight = 20f;
-        
-        // Table header with background
-        contentStream.addRect(MARGIN, yPosition - headerHeight, tableWidth, headerHeight);
-        contentStream.setNonStrokingColor(220f/255f, 220f/255f, 220f/255f);
-        contentStream.fill();
-        contentStream.setNonStrokingColor(0f, 0f, 0f); // Reset color
-        
-        // Header border
-        contentStream.addRect(MARGIN, yPosition - headerHeight, tableWidth, headerHeight);
-        contentStream.setLineWidth(1f);
-        contentStream.stroke();
-        
-        // Header texts
-        String[] headers = {"Code", "Description", "Qty", "Price €", "VAT%", "Total €"};
-        drawTableRow(contentStream, MARGIN, yPosition, columnWidths, headerHeight, headers, true);
-        yPosition -= headerHeight;
-        
-        // Product rows
+    /**
+     * One pass over the lines: rows that do not fit continue on a new page
+     * under a repeated header, and every page of a multi-page table ends
+     * with its own total and the total so far
+     */
+    private float drawItemsTable(PageFlow flow, float yPosition) throws IOException {
+        float tableWidth = flow.page.getMediaBox().getWidth() - 2 * MARGIN;
+        yPosition = drawTableHeader(flow.stream, yPosition, tableWidth);
+        
+        double pageTotal = 0;
+        double runningTotal = 0;
+        int index = 0;
         for (InvoiceItem item : invoiceItems) {
+            // Keep room under the row for the page total
+            if (yPosition - 2 * ROW_HEIGHT < CONTENT_BOTTOM) {
+                drawSubtotalRow(flow.stream, yPosition, tableWidth,
+                    "Page " + flow.pageNumber + " total", pageTotal, "Carried forward", runningTotal);
+                flow.newPage();
+                yPosition = drawContinuationHeader(flow);
+                yPosition = drawTableHeader(flow.stream, yPosition, tableWidth);
+                pageTotal = 0;
+            }
+            
             String code = item.getProdottoCodice();
             String name = item.getProdottoNome();
             
@@ -386,66 +393,157 @@ public class InvoicePDFGenerator {
                 String.format("%.2f", item.getTotale())
             };
             
+            PDPageContentStream contentStream = flow.stream;
             // Alternate rows with color
-            if ((invoiceItems.indexOf(item) % 2) == 1) {
-                contentStream.addRect(MARGIN, yPosition - rowHeight, tableWidth, rowHeight);
+            if (index % 2 == 1) {
+                contentStream.addRect(MARGIN, yPosition - ROW_HEIGHT, tableWidth, ROW_HEIGHT);
                 contentStream.setNonStrokingColor(248f/255f, 248f/255f, 248f/255f);
                 contentStream.fill();
                 contentStream.setNonStrokingColor(0f, 0f, 0f); // Reset color
             }
             
-            drawTableRow(contentStream, MARGIN, yPosition, columnWidths, rowHeight, rowData, false);
+            drawTableRow(contentStream, MARGIN, yPosition, COLUMN_WIDTHS, ROW_HEIGHT, rowData, false);
             
             // Row border
-            contentStream.addRect(MARGIN, yPosition - rowHeight, tableWidth, rowHeight);
-            contentStream.setLineWidth(0.5f);
+            contentStream.addRect(MARGIN, yPosition - ROW_HEIGHT, tableWidth, ROW_HEIGHT);
             contentStream.stroke();
             
-            yPosition -= rowHeight;
+            yPosition -= ROW_HEIGHT;
+            pageTotal += item.getTotale();
+            runningTotal += item.getTotale();
+            index++;
         }
         
+        if (flow.pageNumber > 1) {
+            drawSubtotalRow(flow.stream, yPosition, tableWidth,
+                "Page " + flow.pageNumber + " total", pageTotal, "Total of lines", runningTotal);
+            yPosition -= ROW_HEIGHT;
+        }
         return yPosition;
     }
     
-    private void drawTableRow(PDPageContentStream contentStream, float x, float y, float[] columnWidths, 
-                             float rowHeight, String[] data, boolean isHeader) throws IOException {
+    private float drawTableHeader(PDPageContentStream contentStream, float yPosition, float tableWidth) throws IOException {
+        float headerHeight = 20f;
         
-        if (isHeader) {
-            contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD), 9f);
-        } else {
-            contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 8f);
+        // Table header with background
+        contentStream.addRect(MARGIN, yPosition - headerHeight, tableWidth, headerHeight);
+        contentStream.setNonStrokingColor(220f/255f, 220f/255f, 220f/255f);
+        contentStream.fill();
+        contentStream.setNonStrokingColor(0f, 0f, 0f); // Reset color
+        
+        // Header border
+        contentStream.addRect(MARGIN, yPosition - headerHeight, tableWidth, headerHeight);
+        contentStream.setLineWidth(1f);
+        contentStream.stroke();
+        
+        drawTableRow(contentStream, MARGIN, yPosition, COLUMN_WIDTHS, headerHeight, TABLE_HEADERS, true);
+        
+        // Thinner borders for the rows below
+        contentStream.setLineWidth(0.5f);
+        return yPosition - headerHeight;
+    }
+    
+    private void drawSubtotalRow(PDPageContentStream contentStream, float yPosition, float tableWidth,
+                                 String pageLabel, double pageTotal, String runningLabel, double runningTotal) throws IOException {
+        contentStream.addRect(MARGIN, yPosition - ROW_HEIGHT, tableWidth, ROW_HEIGHT);
+        contentStream.setNonStrokingColor(235f/255f, 235f/255f, 235f/255f);
+        contentStream.fill();
+        contentStream.setNonStrokingColor(0f, 0f, 0f); // Reset color
+        contentStream.addRect(MARGIN, yPosition - ROW_HEIGHT, tableWidth, ROW_HEIGHT);
+        contentStream.stroke();
+        
+        String left = String.format("%s: € %.2f", pageLabel, pageTotal);
+        String right = String.format("%s: € %.2f", runningLabel, runningTotal);
+        float tableRight = MARGIN;
+        for (float width : COLUMN_WIDTHS) {
+            tableRight += width;
         }
+        float textY = yPosition - ROW_HEIGHT + 5f;
+        float rightX = tableRight - textWidth(boldFont, 8f, right) - 3f;
+        
+        contentStream.beginText();
+        contentStream.setFont(boldFont, 8f);
+        contentStream.newLineAtOffset(MARGIN + 3f, textY);
+        contentStream.showText(left);
+        contentStream.newLineAtOffset(rightX - (MARGIN + 3f), 0f);
+        contentStream.showText(right);
+        contentStream.endText();
+    }
+    
+    // Top of the pages after the first: invoice number and page number
+    private float drawContinuationHeader(PageFlow flow) throws IOException {
+        PDPageContentStream contentStream = flow.stream;
+        float pageWidth = flow.page.getMediaBox().getWidth();
+        float yPosition = flow.page.getMediaBox().getHeight() - MARGIN;
+        
+        contentStream.beginText();
+        contentStream.setFont(boldFont, 12f);
+        contentStream.newLineAtOffset(MARGIN, yPosition);
+        contentStream.showText("INVOICE " + safeTruncate(invoice.getNumero(), 20) + " (continued)");
+        contentStream.endText();
+        
+        String pageText = "Page " + flow.pageNumber;
+        contentStream.beginText();
+        contentStream.setFont(regularFont, 9f);
+        contentStream.newLineAtOffset(pageWidth - MARGIN - textWidth(regularFont, 9f, pageText), yPosition);
+        contentStream.showText(pageText);
+        contentStream.endText();
+        
+        float lineY = yPosition - 8f;
+        contentStream.moveTo(MARGIN, lineY);
+        contentStream.lineTo(pageWidth - MARGIN, lineY);
+        contentStream.setLineWidth(1f);
+        contentStream.stroke();
+        
+        return lineY - 20f;
+    }
+    
+    // One text object per row, each cell placed relative to the previous one
+    private void drawTableRow(PDPageContentStream contentStream, float x, float y, float[] columnWidths, 
+                             float rowHeight, String[] data, boolean isHeader) throws IOException {
+        PDFont font = isHeader ? boldFont : regularFont;
+        float fontSize = isHeader ? 9f : 8f;
+        float textY = y - rowHeight + 5f;
         
+        contentStream.beginText();
+        contentStream.setFont(font, fontSize);
         float currentX = x;
+        float lineX = 0f;
+        boolean firstCell = true;
         for (int i = 0; i < data.length && i < columnWidths.length; i++) {
             String text = data[i] != null ? data[i] : "";
             
             if (!text.trim().isEmpty()) {
-                contentStream.beginText();
-                
-                // Allineamento diverso per colonne numeriche
+                // Allineamento a destra per colonne numeriche (Qta, Prezzo, IVA%, Totale)
                 float textX = currentX + 3f;
-                if (i >= 2) { // Colonne numeriche (Qta, Prezzo, IVA%, Totale)
-                    // Stima approssimativa della larghezza del testo per allineamento a destra
-                    float fontSize = isHeader ? 9f : 8f;
-                    float estimatedTextWidth = text.length() * fontSize * 0.6f;
-                    textX = currentX + columnWidths[i] - estimatedTextWidth - 3f;
+                if (i >= 2) {
+                    textX = currentX + columnWidths[i] - textWidth(font, fontSize, text) - 3f;
                 }
                 
-                contentStream.newLineAtOffset(textX, y - rowHeight + 5f);
+                if (firstCell) {
+                    contentStream.newLineAtOffset(textX, textY);
+                    firstCell = false;
+                } else {
+                    contentStream.newLineAtOffset(textX - lineX, 0f);
+                }
                 contentStream.showText(text);
-                contentStream.endText();
+                lineX = textX;
             }
             
             currentX += columnWidths[i];
         }
+        contentStream.endText();
+    }
+    
+    private float textWidth(PDFont font, float fontSize, String text) throws IOException {
+        return font.getStringWidth(text) / 1000f * fontSize;
     }
     
     private float drawTotals(PDPageContentStream contentStream, float yPosition, PDPage page) throws IOException {
         float rightColumn = page.getMediaBox().getWidth() - MARGIN - 120f;
         
         // Totals box
-        drawInfoBox(contentStream, rightColumn, yPosition - 80f, 120f, 80f, "TOTALS");
+        drawInfoBox(contentStream, boldFont, rightColumn, yPosition - 80f, 120f, 80f, "TOTALS");
         
         yPosition -= 35f;
         String[][] totals = {
@@ -466,7 +564,7 @@ public class InvoicePDFGenerator {
             }
             
             contentStream.beginText();
-            contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD), 
+            contentStream.setFont(boldFont, 
                 isTotal ? 11f : 9f);
             contentStream.newLineAtOffset(rightColumn + 5f, yPosition);
             contentStream.showText(totals[i][0]);
@@ -483,27 +581,7 @@ public class InvoicePDFGenerator {
         return yPosition;
     }
     
-    private void drawFooter(PDPageContentStream contentStream, PDPage page) throws IOException {
-        // Discrete footer with WorkGenio branding
-        float footerY = 30f;
-        
-        contentStream.beginText();
-        contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 7f);
-        contentStream.setNonStrokingColor(0.6f, 0.6f, 0.6f);
-        
-        String footerText = "Document generated with WorkGenio - Business Management System";
-        // Approximate width estimation for text
-        float textWidth = footerText.length() * 7f * 0.5f;
-        float footerX = (page.getMediaBox().getWidth() - textWidth) / 2;
-        
-        contentStream.newLineAtOffset(footerX, footerY);
-        contentStream.showText(footerText);
-        contentStream.endText();
-        
-        contentStream.setNonStrokingColor(0f, 0f, 0f); // Reset color
-    }
-    
-    private String safeTruncate(String text, int maxLength) {
+    static String safeTruncate(String text, int maxLength) {
         if (text == null || text.trim().isEmpty()) {
             return "";
         }
@@ -511,6 +589,17 @@ public class InvoicePDFGenerator {
         return text.length() > maxLength ? text.substring(0, maxLength - 3) + "..." : text;
     }
     
+    static String getLastDirectory() {
+        String directory = SettingsWindow.getGlobalSetting(LAST_DIRECTORY_KEY, null);
+        return directory != null && new File(directory).isDirectory() ? directory : null;
+    }
+    
+    static void saveLastDirectory(String directory) {
+        if (directory != null) {
+            SettingsWindow.setGlobalSetting(LAST_DIRECTORY_KEY, directory);
+        }
+    }
+    
     // Metodo statico per uso facile
     public static void generateInvoicePDF(Invoice invoice, Customer customer, Component parent) {
         InvoicePDFGenerator generator = new InvoicePDFGenerator(invoice, customer);
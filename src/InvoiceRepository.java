@@ -0,0 +1,135 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typed queries on fatture and their lines
+ */
+public class InvoiceRepository extends Repository {
+    private static InvoiceRepository instance;
+
+    private static final String COLUMNS = "f.*, c.nome || ' ' || c.cognome as cliente_nome";
+    private static final String FROM = "fatture f LEFT JOIN clienti c ON f.cliente_id = c.id";
+    private static final String SELECT = "SELECT " + COLUMNS + " FROM " + FROM;
+
+    // Lines keep printing sensibly after their product has been deleted
+    private static final String SELECT_ITEMS = """
+        SELECT i.*, COALESCE(p.nome, 'Prodotto N/D') as prodotto_nome,
+               COALESCE(p.codice, 'N/A') as prodotto_codice
+        FROM dettagli_fattura i
+        LEFT JOIN prodotti p ON i.prodotto_id = p.id""";
+
+    private InvoiceRepository() {
+        // Private constructor for the Singleton pattern
+    }
+
+    public static synchronized InvoiceRepository getInstance() {
+        if (instance == null) {
+            instance = new InvoiceRepository();
+        }
+        return instance;
+    }
+
+    /**
+     * Invoice headers, newest first; lines are not loaded
+     */
+    public List<Invoice> findAll() throws SQLException {
+        return queryList(SELECT + " ORDER BY f.data DESC", RowMappers.INVOICE);
+    }
+
+    public Page<Invoice> findPage(int offset, int limit) throws SQLException {
+        return queryPage(SELECT + " ORDER BY f.data DESC, f.id DESC", RowMappers.INVOICE, offset, limit);
+    }
+
+    /**
+     * Invoice headers, newest first, for a table that pages rows in as it
+     * scrolls
+     */
+    public KeysetQuery<Invoice> browse() {
+        return new KeysetQuery<>(COLUMNS, FROM, RowMappers.INVOICE).orderBy(true, "f.data", "f.id");
+    }
+
+    /**
+     * Full-text search on invoice number and customer name, best matches
+     * first and newest first among equals
+     */
+    public List<Invoice> search(String term) throws SQLException {
+        String match = toPrefixQuery(term);
+        if (match == null) {
+            return new ArrayList<>();
+        }
+        String query = SELECT + """
+             JOIN fatture_fts ON fatture_fts.rowid = f.id
+            WHERE fatture_fts MATCH ?
+            ORDER BY bm25(fatture_fts, 5.0, 1.0), f.data DESC
+        """;
+        return queryList(query, RowMappers.INVOICE, match);
+    }
+
+    /**
+     * @return the invoice with its lines, or null
+     */
+    public Invoice findById(int id) throws SQLException {
+        return withItems(queryOne(SELECT + " WHERE f.id = ?", RowMappers.INVOICE, id));
+    }
+
+    /**
+     * @return the invoice with its lines, or null
+     */
+    public Invoice findByNumero(String numero) throws SQLException {
+        return withItems(queryOne(SELECT + " WHERE f.numero = ?", RowMappers.INVOICE, numero));
+    }
+
+    /**
+     * Ids of the invoices dated from..to inclusive, oldest first
+     */
+    public List<Integer> findIdsByDate(Date from, Date to) throws SQLException {
+        return queryList("SELECT id FROM fatture WHERE data >= ? AND data <= ? ORDER BY data, id",
+            rs -> rs.getInt(1), DateCodec.startOfDay(from), DateCodec.endOfDay(to));
+    }
+
+    /**
+     * Invoices with their lines in two queries, in the order of ids; ids
+     * that do not exist are left out
+     */
+    public Map<Integer, Invoice> findByIds(Collection<Integer> ids) throws SQLException {
+        Map<Integer, Invoice> invoices = queryByIds(SELECT + " WHERE f.id", ids, RowMappers.INVOICE, Invoice::getId);
+        Map<Integer, List<InvoiceItem>> items = findItemsByInvoiceIds(invoices.keySet());
+        for (Invoice invoice : invoices.values()) {
+            invoice.getItems().addAll(items.get(invoice.getId()));
+        }
+        return invoices;
+    }
+
+    public List<InvoiceItem> findItems(int invoiceId) throws SQLException {
+        return queryList(SELECT_ITEMS + " WHERE i.fattura_id = ? ORDER BY i.id", RowMappers.INVOICE_ITEM, invoiceId);
+    }
+
+    /**
+     * Lines of many invoices in one pass, keyed by invoice id, for batch
+     * jobs that would otherwise run one query per invoice
+     */
+    public Map<Integer, List<InvoiceItem>> findItemsByInvoiceIds(Collection<Integer> invoiceIds) throws SQLException {
+        Map<Integer, List<InvoiceItem>> byInvoice = new LinkedHashMap<>();
+        for (Integer invoiceId : invoiceIds) {
+            byInvoice.put(invoiceId, new ArrayList<>());
+        }
+        List<InvoiceItem> items = queryIn(
+            SELECT_ITEMS + " WHERE i.fattura_id", invoiceIds, "ORDER BY i.id", RowMappers.INVOICE_ITEM);
+        for (InvoiceItem item : items) {
+            byInvoice.get(item.getFatturaId()).add(item);
+        }
+        return byInvoice;
+    }
+
+    private Invoice withItems(Invoice invoice) throws SQLException {
+        if (invoice != null) {
+            invoice.getItems().addAll(findItems(invoice.getId()));
+        }
+        return invoice;
+    }
+}
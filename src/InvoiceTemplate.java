@@ -0,0 +1,333 @@
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDAbstractContentStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDFormContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * The parts of an invoice that depend only on the company: the INVOICE
+ * title, the logo, the FROM box with the company details and the footer.
+ *
+ * They are drawn once into two compressed content streams, and the logo
+ * is read, scaled and compressed once. Each PDF then only wraps these
+ * bytes in form XObjects, the letterhead for its first page and the
+ * footer for every page, instead of drawing them again. The template is
+ * built on first use and dropped when SettingsWindow saves the company
+ * data.
+ */
+public class InvoiceTemplate {
+    private static final float MARGIN = 40f;
+    private static final PDRectangle PAGE = PDRectangle.A4;
+    // Logo box, left of the title, and its resolution (about 200 dpi)
+    private static final float LOGO_MAX_WIDTH = 110f;
+    private static final float LOGO_MAX_HEIGHT = 36f;
+    private static final float LOGO_PIXELS_PER_POINT = 200f / 72f;
+
+    // Resource names the cached content streams refer to
+    private static final COSName REGULAR_FONT = COSName.getPDFName("F1");
+    private static final COSName BOLD_FONT = COSName.getPDFName("F2");
+    private static final COSName LOGO = COSName.getPDFName("Im1");
+
+    private static InvoiceTemplate cached;
+    private static int generation;
+
+    private final byte[] logoPixels;
+    private final int logoPixelWidth;
+    private final int logoPixelHeight;
+    private final float logoWidth;
+    private final float logoHeight;
+    private final byte[] letterhead;
+    private final byte[] footer;
+    private final float companyTop;
+
+    /**
+     * The template for companyData, built on first use
+     */
+    public static synchronized InvoiceTemplate forCompany(CompanyData companyData) throws IOException {
+        if (cached == null) {
+            cached = new InvoiceTemplate(companyData);
+        }
+        return cached;
+    }
+
+    /**
+     * Rebuild the template on next use; call after the company data or
+     * logo changes
+     */
+    public static synchronized void invalidate() {
+        cached = null;
+        generation++;
+    }
+
+    /**
+     * Changes on every invalidate, so caches of rendered invoices can tell
+     * that the letterhead changed
+     */
+    public static synchronized int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * The template's forms in one document, drawn with that document's
+     * fonts
+     */
+    public static class Forms {
+        private final PDFormXObject letterhead;
+        private final PDFormXObject footer;
+        private final float companyTop;
+
+        Forms(PDFormXObject letterhead, PDFormXObject footer, float companyTop) {
+            this.letterhead = letterhead;
+            this.footer = footer;
+            this.companyTop = companyTop;
+        }
+
+        public PDFormXObject getLetterhead() { return letterhead; }
+        public PDFormXObject getFooter() { return footer; }
+
+        /**
+         * Top of the FROM box on the first page; the invoice's own boxes
+         * line up with it
+         */
+        public float getCompanyTop() { return companyTop; }
+    }
+
+    private InvoiceTemplate(CompanyData companyData) throws IOException {
+        BufferedImage logo = readLogo(companyData.getLogoPath());
+        if (logo != null) {
+            float scale = Math.min(LOGO_MAX_WIDTH / logo.getWidth(), LOGO_MAX_HEIGHT / logo.getHeight());
+            logoWidth = logo.getWidth() * scale;
+            logoHeight = logo.getHeight() * scale;
+            logo = toRGB(logo,
+                Math.max(1, Math.min(logo.getWidth(), Math.round(logoWidth * LOGO_PIXELS_PER_POINT))),
+                Math.max(1, Math.min(logo.getHeight(), Math.round(logoHeight * LOGO_PIXELS_PER_POINT))));
+            logoPixelWidth = logo.getWidth();
+            logoPixelHeight = logo.getHeight();
+            logoPixels = deflatePixels(logo);
+        } else {
+            logoPixels = null;
+            logoPixelWidth = 0;
+            logoPixelHeight = 0;
+            logoWidth = 0;
+            logoHeight = 0;
+        }
+
+        // Draw once in a scratch document and keep only the content bytes
+        try (PDDocument scratch = new PDDocument()) {
+            PDFont regularFont = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            PDFont boldFont = new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD);
+            PDImageXObject logoImage = createLogo(scratch);
+            PDResources resources = createResources(regularFont, boldFont, logoImage);
+
+            PDFormXObject letterheadForm = new PDFormXObject(scratch);
+            letterheadForm.setResources(resources);
+            float yPosition;
+            try (PDFormContentStream contentStream = new PDFormContentStream(letterheadForm)) {
+                yPosition = drawHeader(contentStream, boldFont, logoImage);
+                yPosition -= 25f;
+                drawCompanyInfo(contentStream, regularFont, boldFont, companyData, yPosition);
+            }
+            companyTop = yPosition;
+            letterhead = deflate(letterheadForm.getContentStream().toByteArray());
+
+            PDFormXObject footerForm = new PDFormXObject(scratch);
+            footerForm.setResources(resources);
+            try (PDFormContentStream contentStream = new PDFormContentStream(footerForm)) {
+                drawFooter(contentStream, regularFont);
+            }
+            footer = deflate(footerForm.getContentStream().toByteArray());
+        }
+    }
+
+    public Forms createForms(PDDocument document, PDFont regularFont, PDFont boldFont) throws IOException {
+        PDResources resources = createResources(regularFont, boldFont, createLogo(document));
+        return new Forms(createForm(document, letterhead, resources), createForm(document, footer, resources),
+            companyTop);
+    }
+
+    private PDFormXObject createForm(PDDocument document, byte[] content, PDResources resources) throws IOException {
+        PDFormXObject form = new PDFormXObject(document);
+        try (OutputStream out = form.getCOSObject().createRawOutputStream()) {
+            out.write(content);
+        }
+        form.getCOSObject().setItem(COSName.FILTER, COSName.FLATE_DECODE);
+        form.setBBox(PAGE);
+        form.setResources(resources);
+        return form;
+    }
+
+    private PDImageXObject createLogo(PDDocument document) throws IOException {
+        if (logoPixels == null) {
+            return null;
+        }
+        // The pixels are already Flate-compressed; this only copies them
+        return new PDImageXObject(document, new ByteArrayInputStream(logoPixels), COSName.FLATE_DECODE,
+            logoPixelWidth, logoPixelHeight, 8, PDDeviceRGB.INSTANCE);
+    }
+
+    private PDResources createResources(PDFont regularFont, PDFont boldFont, PDImageXObject logoImage) {
+        PDResources resources = new PDResources();
+        resources.put(REGULAR_FONT, regularFont);
+        resources.put(BOLD_FONT, boldFont);
+        if (logoImage != null) {
+            resources.put(LOGO, logoImage);
+        }
+        return resources;
+    }
+
+    private float drawHeader(PDAbstractContentStream contentStream, PDFont boldFont,
+                             PDImageXObject logoImage) throws IOException {
+        float yPosition = PAGE.getHeight() - MARGIN;
+
+        // Invoice title centered and prominent
+        String title = "INVOICE";
+        float titleWidth = boldFont.getStringWidth(title) / 1000f * 28f;
+        contentStream.beginText();
+        contentStream.setFont(boldFont, 28f);
+        contentStream.newLineAtOffset((PAGE.getWidth() - titleWidth) / 2, yPosition);
+        contentStream.showText(title);
+        contentStream.endText();
+
+        // Logo on the left, sitting on the line under the title
+        if (logoImage != null) {
+            contentStream.drawImage(logoImage, MARGIN, yPosition - 3f, logoWidth, logoHeight);
+        }
+
+        // Line under title
+        float lineY = yPosition - 8f;
+        contentStream.moveTo(MARGIN, lineY);
+        contentStream.lineTo(PAGE.getWidth() - MARGIN, lineY);
+        contentStream.setLineWidth(1.5f);
+        contentStream.stroke();
+
+        return lineY - 15f;
+    }
+
+    private void drawCompanyInfo(PDAbstractContentStream contentStream, PDFont regularFont, PDFont boldFont,
+                                 CompanyData companyData, float yPosition) throws IOException {
+        float leftColumn = MARGIN;
+
+        // Box for company
+        InvoicePDFGenerator.drawInfoBox(contentStream, boldFont, leftColumn, yPosition - 130f, 250f, 130f, "FROM");
+
+        // Company information
+        yPosition -= 35f;
+        contentStream.beginText();
+        contentStream.setFont(boldFont, 11f);
+        contentStream.newLineAtOffset(leftColumn + 5f, yPosition);
+        contentStream.showText(InvoicePDFGenerator.safeTruncate(companyData.getCompanyName(), 35));
+        contentStream.endText();
+
+        yPosition -= 15f;
+        String[] companyInfo = {
+            companyData.getAddress(),
+            companyData.getCity() + (companyData.getPostalCode().isEmpty() ? "" : " " + companyData.getPostalCode()),
+            companyData.getCountry(),
+            "VAT: " + companyData.getVatNumber(),
+            "Tax Code: " + companyData.getTaxCode(),
+            "Phone: " + companyData.getPhone(),
+            "Email: " + companyData.getEmail()
+        };
+
+        contentStream.setFont(regularFont, 9f);
+        for (String line : companyInfo) {
+            if (line != null && !line.trim().isEmpty() &&
+                !line.equals("VAT: ") && !line.equals("Tax Code: ") &&
+                !line.equals("Phone: ") && !line.equals("Email: ")) {
+                contentStream.beginText();
+                contentStream.newLineAtOffset(leftColumn + 5f, yPosition);
+                contentStream.showText(InvoicePDFGenerator.safeTruncate(line, 40));
+                contentStream.endText();
+                yPosition -= 12f;
+            }
+        }
+    }
+
+    private void drawFooter(PDAbstractContentStream contentStream, PDFont regularFont) throws IOException {
+        // Discrete footer with WorkGenio branding
+        float footerY = 30f;
+        String footerText = "Document generated with WorkGenio - Business Management System";
+        float textWidth = regularFont.getStringWidth(footerText) / 1000f * 7f;
+
+        contentStream.beginText();
+        contentStream.setFont(regularFont, 7f);
+        contentStream.setNonStrokingColor(0.6f, 0.6f, 0.6f);
+        contentStream.newLineAtOffset((PAGE.getWidth() - textWidth) / 2, footerY);
+        contentStream.showText(footerText);
+        contentStream.endText();
+
+        contentStream.setNonStrokingColor(0f, 0f, 0f); // Reset color
+    }
+
+    private static BufferedImage readLogo(String logoPath) {
+        if (logoPath == null || logoPath.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            // null when the file is not an image ImageIO can read
+            return ImageIO.read(new File(logoPath.trim()));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // Scaled, with any transparency flattened onto white
+    private static BufferedImage toRGB(BufferedImage source, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        g.drawImage(source, 0, 0, width, height, null);
+        g.dispose();
+        return image;
+    }
+
+    private static byte[] deflatePixels(BufferedImage image) throws IOException {
+        int width = image.getWidth();
+        int[] row = new int[width];
+        byte[] rgb = new byte[width * 3];
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bytes)) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                for (int x = 0; x < width; x++) {
+                    rgb[x * 3] = (byte) (row[x] >> 16);
+                    rgb[x * 3 + 1] = (byte) (row[x] >> 8);
+                    rgb[x * 3 + 2] = (byte) row[x];
+                }
+                out.write(rgb);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bytes)) {
+            out.write(content);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -1,28 +1,38 @@
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.sql.*;
-import java.util.Vector;
-import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 public class InvoicesPanel extends JPanel {
     private JTable invoicesTable;
-    private DefaultTableModel tableModel;
+    private LazyTableModel<Invoice> tableModel;
     private JTextField searchField;
+    private final BusyIndicator busyIndicator = new BusyIndicator();
     private JButton addButton;
     private JButton editButton;
     private JButton deleteButton;
     private JButton printButton;
+    private JButton previewButton;
     private JButton generatePDFButton;
+    private JButton batchPDFButton;
     private JButton refreshButton;
-    private SimpleDateFormat dateFormat;
     
     public InvoicesPanel() {
-        dateFormat = new SimpleDateFormat("dd/MM/yyyy");
         setupPanel();
         initComponents();
         loadInvoices();
+        
+        // Patch single rows when invoices change anywhere in the application
+        EventBus bus = EventBus.getInstance();
+        bus.subscribe(DomainEvent.InvoiceSaved.class, e -> invoiceSaved(e.getInvoiceId(), e.isCreated()));
+        bus.subscribe(DomainEvent.InvoiceDeleted.class, e -> tableModel.refresh());
+        // Deleting a customer can delete their invoices too
+        bus.subscribe(DomainEvent.CustomerDeleted.class, e -> tableModel.refresh());
+        // Rows show customer names, which an edit or an import may have changed
+        bus.subscribe(DomainEvent.CustomerChanged.class, e -> customerChanged(e.getCustomerId(), e.isCreated()));
+        bus.subscribe(DomainEvent.CustomersImported.class, e -> tableModel.refresh());
     }
     
     private void setupPanel() {
@@ -42,15 +52,21 @@ public class InvoicesPanel extends JPanel {
         searchPanel.add(new JLabel("Search: "));
         searchPanel.add(searchField);
         searchPanel.add(searchButton);
+        searchPanel.add(busyIndicator);
         
         // Invoices table
         String[] columns = {"Number", "Date", "Customer", "Taxable Amount", "VAT", "Total", "Status"};
-        tableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        tableModel = new LazyTableModel<Invoice>(columns, invoice -> new Object[] {
+            invoice.getNumero(),
+            DateUtils.formatDate(invoice.getData()),
+            invoice.getClienteNome(),
+            String.format("%.2f €", invoice.getImponibile()),
+            String.format("%.2f €", invoice.getIva()),
+            String.format("%.2f €", invoice.getTotale()),
+            invoice.getStato()
+        }).showBusy(busyIndicator).onError(e -> JOptionPane.showMessageDialog(this,
+            "Error while loading invoices: " + e.getMessage(),
+            "Error", JOptionPane.ERROR_MESSAGE));
         invoicesTable = new JTable(tableModel);
         invoicesTable.getSelectionModel().addListSelectionListener(e -> updateButtonStates());
         
@@ -73,7 +89,9 @@ public class InvoicesPanel extends JPanel {
         editButton = new JButton("Modify");
         deleteButton = new JButton("Delete");
         printButton = new JButton("Print");
+        previewButton = new JButton("Preview");
         generatePDFButton = new JButton("Generate PDF");
+        batchPDFButton = new JButton("Batch PDF...");
         refreshButton = new JButton("Refresh");
         
         // FIXED: Stile migliorato per il pulsante PDF - rimuovi colore di sfondo problematico
@@ -86,14 +104,18 @@ public class InvoicesPanel extends JPanel {
         editButton.addActionListener(e -> editSelectedInvoice());
         deleteButton.addActionListener(e -> deleteSelectedInvoice());
         printButton.addActionListener(e -> printSelectedInvoice());
+        previewButton.addActionListener(e -> previewSelectedInvoice());
         generatePDFButton.addActionListener(e -> generateSelectedInvoicePDF());
+        batchPDFButton.addActionListener(e -> generateBatchPDF());
         refreshButton.addActionListener(e -> loadInvoices());
         
         buttonPanel.add(addButton);
         buttonPanel.add(editButton);
         buttonPanel.add(deleteButton);
         buttonPanel.add(printButton);
+        buttonPanel.add(previewButton);
         buttonPanel.add(generatePDFButton);
+        buttonPanel.add(batchPDFButton);
         buttonPanel.add(refreshButton);
         
         // Main layout
@@ -109,46 +131,26 @@ public class InvoicesPanel extends JPanel {
         editButton.setEnabled(isRowSelected);
         deleteButton.setEnabled(isRowSelected);
         printButton.setEnabled(isRowSelected);
+        previewButton.setEnabled(isRowSelected);
         generatePDFButton.setEnabled(isRowSelected);
     }
     
     private void loadInvoices() {
-        tableModel.setRowCount(0);
-        try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = """
-                SELECT f.*, c.nome || ' ' || c.cognome as cliente_nome
-                FROM fatture f
-                LEFT JOIN clienti c ON f.cliente_id = c.id
-                ORDER BY f.data DESC
-            """;
-            
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(query)) {
-                while (rs.next()) {
-                    Vector<Object> row = new Vector<>();
-                    row.add(rs.getString("numero"));
-                    
-                    Date date = DateUtils.parseDate(rs, "data");
-                    if (date != null) {
-                        row.add(DateUtils.formatDate(date, dateFormat));
-                    } else {
-                        row.add("");
-                    }
-                    
-                    row.add(rs.getString("cliente_nome"));
-                    row.add(String.format("%.2f €", rs.getDouble("imponibile")));
-                    row.add(String.format("%.2f €", rs.getDouble("iva")));
-                    row.add(String.format("%.2f €", rs.getDouble("totale")));
-                    row.add(rs.getString("stato"));
-                    tableModel.addRow(row);
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this,
-                "Error while loading invoices: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
+        tableModel.setQuery(InvoiceRepository.getInstance().browse());
+    }
+    
+    private void invoiceSaved(int invoiceId, boolean created) {
+        if (created) {
+            tableModel.refresh();
+        } else {
+            tableModel.reloadRows(invoice -> invoice.getId() == invoiceId,
+                () -> InvoiceRepository.getInstance().findById(invoiceId));
+        }
+    }
+    
+    private void customerChanged(int customerId, boolean created) {
+        if (!created) {
+            tableModel.refreshIfLoaded(invoice -> invoice.getClienteId() == customerId);
         }
     }
     
@@ -159,50 +161,7 @@ public class InvoicesPanel extends JPanel {
             return;
         }
         
-        tableModel.setRowCount(0);
-        try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = """
-                SELECT f.*, c.nome || ' ' || c.cognome as cliente_nome
-                FROM fatture f
-                LEFT JOIN clienti c ON f.cliente_id = c.id
-                WHERE f.numero LIKE ? OR c.nome LIKE ? OR c.cognome LIKE ?
-                ORDER BY f.data DESC
-            """;
-            
-            String searchPattern = "%" + searchTerm + "%";
-            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-                pstmt.setString(1, searchPattern);
-                pstmt.setString(2, searchPattern);
-                pstmt.setString(3, searchPattern);
-                
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    while (rs.next()) {
-                        Vector<Object> row = new Vector<>();
-                        row.add(rs.getString("numero"));
-                        
-                        Date date = DateUtils.parseDate(rs, "data");
-                        if (date != null) {
-                            row.add(DateUtils.formatDate(date, dateFormat));
-                        } else {
-                            row.add("");
-                        }
-                        
-                        row.add(rs.getString("cliente_nome"));
-                        row.add(String.format("%.2f €", rs.getDouble("imponibile")));
-                        row.add(String.format("%.2f €", rs.getDouble("iva")));
-                        row.add(String.format("%.2f €", rs.getDouble("totale")));
-                        row.add(rs.getString("stato"));
-                        tableModel.addRow(row);
-                    }
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this,
-                "Error while searching for invoices: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        tableModel.loadItems(() -> InvoiceRepository.getInstance().search(searchTerm));
     }
     
     private void createNewInvoice() {
@@ -217,9 +176,6 @@ public class InvoicesPanel extends JPanel {
             }
             
             dialog.setVisible(true);
-            if (dialog.isInvoiceSaved()) {
-                loadInvoices();
-            }
         } catch (Exception e) {
             e.printStackTrace();
             JOptionPane.showMessageDialog(this,
@@ -245,9 +201,6 @@ public class InvoicesPanel extends JPanel {
                     }
                     
                     dialog.setVisible(true);
-                    if (dialog.isInvoiceSaved()) {
-                        loadInvoices();
-                    }
                 }
             } catch (Exception e) {
                 e.printStackTrace();
@@ -258,6 +211,44 @@ public class InvoicesPanel extends JPanel {
         }
     }
     
+    // The selected invoices, or a date range chosen in the dialog
+    private void generateBatchPDF() {
+        List<Integer> selectedIds = new ArrayList<>();
+        for (int row : invoicesTable.getSelectedRows()) {
+            Invoice invoice = tableModel.getItem(row);
+            if (invoice != null) {
+                selectedIds.add(invoice.getId());
+            }
+        }
+        new InvoiceBatchDialog(SwingUtilities.getWindowAncestor(this), selectedIds).setVisible(true);
+    }
+    
+    private void previewSelectedInvoice() {
+        int selectedRow = invoicesTable.getSelectedRow();
+        if (selectedRow != -1) {
+            try {
+                String numero = (String)tableModel.getValueAt(selectedRow, 0);
+                Invoice invoice = loadInvoiceByNumber(numero);
+                Customer customer = loadCustomerByInvoice(invoice);
+                
+                if (invoice != null && customer != null) {
+                    if (PDFPreviewDialog.showPreview(this, invoice, customer)) {
+                        generateSelectedInvoicePDF();
+                    }
+                } else {
+                    JOptionPane.showMessageDialog(this,
+                        "Unable to load invoice or customer data",
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+                JOptionPane.showMessageDialog(this,
+                    "Error loading invoice: " + e.getMessage(),
+                    "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+    
     private void generateSelectedInvoicePDF() {
         int selectedRow = invoicesTable.getSelectedRow();
         if (selectedRow != -1) {
@@ -326,24 +317,7 @@ public class InvoicesPanel extends JPanel {
         if (invoice == null) return null;
         
         try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = "SELECT * FROM clienti WHERE id = ?";
-            
-            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-                pstmt.setInt(1, invoice.getClienteId());
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    if (rs.next()) {
-                        return new Customer(
-                            rs.getInt("id"),
-                            rs.getString("nome"),
-                            rs.getString("cognome"),
-                            rs.getString("email"),
-                            rs.getString("telefono"),
-                            rs.getString("indirizzo")
-                        );
-                    }
-                }
-            }
+            return CustomerRepository.getInstance().findById(invoice.getClienteId());
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -351,78 +325,19 @@ public class InvoicesPanel extends JPanel {
     }
     
     private Invoice loadInvoiceByNumber(String numero) throws SQLException {
-        Connection conn = DatabaseManager.getInstance().getConnection();
-        String query = """
-            SELECT f.*, c.nome || ' ' || c.cognome as cliente_nome
-            FROM fatture f
-            LEFT JOIN clienti c ON f.cliente_id = c.id
-            WHERE f.numero = ?
-        """;
-        
-        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-            pstmt.setString(1, numero);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    Date date = DateUtils.parseDate(rs, "data");
-                    if (date == null) {
-                        date = new Date();
-                    }
-                    
-                    Invoice invoice = new Invoice(
-                        rs.getInt("id"),
-                        rs.getString("numero"),
-                        date,
-                        rs.getInt("cliente_id"),
-                        rs.getString("cliente_nome"),
-                        rs.getDouble("imponibile"),
-                        rs.getDouble("iva"),
-                        rs.getDouble("totale"),
-                        rs.getString("stato")
-                    );
-                    
-                    loadInvoiceItems(invoice);
-                    return invoice;
-                }
-            }
-        }
-        return null;
-    }
-    
-    private void loadInvoiceItems(Invoice invoice) throws SQLException {
-        String query = """
-            SELECT i.*, p.nome as prodotto_nome, p.codice as prodotto_codice
-            FROM dettagli_fattura i
-            LEFT JOIN prodotti p ON i.prodotto_id = p.id
-            WHERE i.fattura_id = ?
-        """;
-        
-        Connection conn = DatabaseManager.getInstance().getConnection();
-        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-            pstmt.setInt(1, invoice.getId());
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    InvoiceItem item = new InvoiceItem(
-                        rs.getInt("id"),
-                        rs.getInt("fattura_id"),
-                        rs.getInt("prodotto_id"),
-                        rs.getString("prodotto_nome"),
-                        rs.getString("prodotto_codice"),
-                        rs.getInt("quantita"),
-                        rs.getDouble("prezzo_unitario"),
-                        rs.getDouble("aliquota_iva"),
-                        rs.getDouble("totale")
-                    );
-                    invoice.getItems().add(item);
-                }
-            }
+        Invoice invoice = InvoiceRepository.getInstance().findByNumero(numero);
+        if (invoice != null && invoice.getData() == null) {
+            invoice.setData(new Date());
         }
+        return invoice;
     }
     
     private void deleteSelectedInvoice() {
         int selectedRow = invoicesTable.getSelectedRow();
-        if (selectedRow != -1) {
-            String numero = (String)tableModel.getValueAt(selectedRow, 0);
-            String cliente = (String)tableModel.getValueAt(selectedRow, 2);
+        Invoice selected = selectedRow != -1 ? tableModel.getItem(selectedRow) : null;
+        if (selected != null) {
+            String numero = selected.getNumero();
+            String cliente = selected.getClienteNome();
             
             int result = JOptionPane.showConfirmDialog(this,
                 "Are you sure you want to delete invoice " + numero + " from customer " + cliente + "?",
@@ -432,10 +347,7 @@ public class InvoicesPanel extends JPanel {
                 
             if (result == JOptionPane.YES_OPTION) {
                 try {
-                    Connection conn = DatabaseManager.getInstance().getConnection();
-                    conn.setAutoCommit(false);
-                    
-                    try {
+                    DatabaseManager.getInstance().inWriteTransaction(conn -> {
                         // First, delete the invoice details
                         String deleteDetailsQuery = "DELETE FROM dettagli_fattura WHERE fattura_id = (SELECT id FROM fatture WHERE numero = ?)";
                         try (PreparedStatement pstmt = conn.prepareStatement(deleteDetailsQuery)) {
@@ -449,17 +361,9 @@ public class InvoicesPanel extends JPanel {
                             pstmt.setString(1, numero);
                             pstmt.executeUpdate();
                         }
-                        
-                        conn.commit();
-                        loadInvoices();
-                        
-                    } catch (SQLException e) {
-                        conn.rollback();
-                        throw e;
-                    } finally {
-                        conn.setAutoCommit(true);
-                    }
-                    
+                        return null;
+                    });
+                    EventBus.getInstance().publish(new DomainEvent.InvoiceDeleted(selected.getId()));
                 } catch (SQLException e) {
                     e.printStackTrace();
                     JOptionPane.showMessageDialog(this,
@@ -0,0 +1,144 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A sorted query read one page at a time.
+ *
+ * Each page continues from the sort key of the previous page's last row
+ * ("WHERE (nome, id) > (?, ?) ORDER BY nome, id LIMIT n"), so with an
+ * index on the sort columns page 5000 costs the same as page 1, where
+ * OFFSET would step over every earlier row. The last sort column must be
+ * unique (normally the id) and no sort column may be NULL. OFFSET is only
+ * used to land on a page whose predecessor's key is not known, e.g. after
+ * dragging the scrollbar.
+ *
+ * Configure with where/orderBy before handing the query out; it is not
+ * changed afterwards and may then be read from any thread.
+ */
+public class KeysetQuery<T> extends Repository {
+    private final String columns;
+    private final String from;
+    private final RowMapper<T> mapper;
+    private String where;
+    private Object[] params = new Object[0];
+    private String[] keyColumns = {"id"};
+    private boolean descending = false;
+
+    /**
+     * @param columns select list, e.g. "p.*, f.ragione_sociale as fornitore_nome"
+     * @param from    tables and joins, e.g. "prodotti p LEFT JOIN fornitori f ON ..."
+     */
+    public KeysetQuery(String columns, String from, RowMapper<T> mapper) {
+        this.columns = columns;
+        this.from = from;
+        this.mapper = mapper;
+    }
+
+    public KeysetQuery<T> where(String condition, Object... params) {
+        this.where = condition;
+        this.params = params;
+        return this;
+    }
+
+    /**
+     * Sort on keyColumns, all ascending or all descending; the last one must
+     * be unique
+     */
+    public KeysetQuery<T> orderBy(boolean descending, String... keyColumns) {
+        this.descending = descending;
+        this.keyColumns = keyColumns;
+        return this;
+    }
+
+    public int count() throws SQLException {
+        Integer count = aggregate("COUNT(*)", rs -> rs.getInt(1));
+        return count != null ? count : 0;
+    }
+
+    /**
+     * One row of aggregates over every row of the query, e.g. totals shown
+     * beside the table
+     */
+    public <R> R aggregate(String expressions, RowMapper<R> mapper) throws SQLException {
+        String sql = "SELECT " + expressions + " FROM " + from + (where != null ? " WHERE (" + where + ")" : "");
+        return queryOne(sql, mapper, params);
+    }
+
+    /**
+     * Read up to limit rows starting at offset. afterKey is the last key of
+     * the page ending just before offset, or null to fall back to OFFSET.
+     */
+    public Page<T> page(int offset, Object[] afterKey, int limit) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT ").append(columns);
+        for (int i = 0; i < keyColumns.length; i++) {
+            sql.append(", ").append(keyColumns[i]).append(" AS keyset_").append(i);
+        }
+        sql.append(" FROM ").append(from);
+
+        List<Object> all = new ArrayList<>(Arrays.asList(params));
+        boolean seek = afterKey != null && offset > 0;
+        if (where != null || seek) {
+            sql.append(" WHERE ");
+            if (where != null) {
+                sql.append('(').append(where).append(')');
+            }
+            if (seek) {
+                sql.append(where != null ? " AND " : "")
+                   .append('(').append(String.join(", ", keyColumns)).append(')')
+                   .append(descending ? " < (" : " > (")
+                   .append("?, ".repeat(keyColumns.length - 1)).append("?)");
+                all.addAll(Arrays.asList(afterKey));
+            }
+        }
+
+        String direction = descending ? " DESC" : "";
+        sql.append(" ORDER BY ").append(String.join(direction + ", ", keyColumns)).append(direction);
+        // One extra row tells whether another page follows
+        sql.append(" LIMIT ?");
+        all.add(limit + 1);
+        if (!seek && offset > 0) {
+            sql.append(" OFFSET ?");
+            all.add(offset);
+        }
+
+        List<Object[]> keys = new ArrayList<>();
+        List<T> items = queryList(sql.toString(), rs -> {
+            Object[] key = new Object[keyColumns.length];
+            for (int i = 0; i < key.length; i++) {
+                key[i] = rs.getObject("keyset_" + i);
+            }
+            keys.add(key);
+            return mapper.map(rs);
+        }, all.toArray());
+
+        boolean hasMore = items.size() > limit;
+        if (hasMore) {
+            items.remove(items.size() - 1);
+        }
+        Object[] lastKey = items.isEmpty() ? null : keys.get(items.size() - 1);
+        return new Page<>(items, offset, limit, hasMore, lastKey);
+    }
+
+    /**
+     * The first row in order, or null if there is none; with a where on
+     * the id, re-reads a single row
+     */
+    public T first() throws SQLException {
+        List<T> items = page(0, null, 1).getItems();
+        return items.isEmpty() ? null : items.get(0);
+    }
+
+    /**
+     * Stream every row in order through one cursor, without holding them
+     * all; for exports and printing
+     */
+    public void stream(Consumer<T> action) throws SQLException {
+        String direction = descending ? " DESC" : "";
+        String sql = "SELECT " + columns + " FROM " + from + (where != null ? " WHERE (" + where + ")" : "")
+            + " ORDER BY " + String.join(direction + ", ", keyColumns) + direction;
+        queryEach(sql, mapper, action, params);
+    }
+}
@@ -0,0 +1,370 @@
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableModel;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Read-only table model that pages rows in from a KeysetQuery as the table
+ * asks for them.
+ *
+ * Only the row count is read up front. A row that is not loaded yet shows
+ * as blank while its page is read in the background; the page after it is
+ * prefetched so scrolling down rarely waits. At most MAX_PAGES pages are
+ * kept, so memory does not grow with the table. Ranked results that do not
+ * come from a KeysetQuery (full-text search) are shown with setItems.
+ *
+ * All state is owned by the EDT; background reads only hand finished pages
+ * back to it. Reads still running when the query changes are cancelled.
+ */
+public class LazyTableModel<T> extends AbstractTableModel {
+    private static final int PAGE_SIZE = 200;
+    private static final int MAX_PAGES = 16;
+    // Keys of page ends seen so far, so jumping back continues by key
+    private static final int MAX_KEYS = 4096;
+
+    private static class LoadedPage<T> {
+        final List<T> items;
+        final Object[][] rows;
+
+        LoadedPage(List<T> items, Object[][] rows) {
+            this.items = items;
+            this.rows = rows;
+        }
+    }
+
+    private final String[] columnNames;
+    private final Function<T, Object[]> toRow;
+    private Consumer<Exception> errorHandler = Exception::printStackTrace;
+    private BackgroundLoader loader = newLoader(null);
+
+    private KeysetQuery<T> query;
+    private List<T> fixedItems;
+    private Object[][] fixedRows;
+    private int rowCount = 0;
+    // Bumped on every reset so reads started before it are dropped
+    private int generation = 0;
+
+    private final Map<Integer, LoadedPage<T>> pages = new LinkedHashMap<>(MAX_PAGES * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, LoadedPage<T>> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+    private final Map<Integer, Object[]> pageEndKeys = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Object[]> eldest) {
+            return size() > MAX_KEYS;
+        }
+    };
+    private final Set<Integer> pending = new HashSet<>();
+    private final Set<Integer> failed = new HashSet<>();
+
+    /**
+     * @param toRow cell values of one item, in column order
+     */
+    public LazyTableModel(String[] columnNames, Function<T, Object[]> toRow) {
+        this.columnNames = columnNames;
+        this.toRow = toRow;
+    }
+
+    /**
+     * Where failed background reads are reported, on the EDT
+     */
+    public LazyTableModel<T> onError(Consumer<Exception> errorHandler) {
+        this.errorHandler = errorHandler;
+        return this;
+    }
+
+    /**
+     * Show indicator while rows are being read
+     */
+    public LazyTableModel<T> showBusy(BusyIndicator indicator) {
+        loader.cancelAll();
+        loader = newLoader(indicator);
+        return this;
+    }
+
+    private BackgroundLoader newLoader(BusyIndicator indicator) {
+        return new BackgroundLoader(indicator).onError(e -> errorHandler.accept(e));
+    }
+
+    /**
+     * Show the rows of query; the table empties until the count is known
+     */
+    public void setQuery(KeysetQuery<T> query) {
+        reset();
+        this.query = query;
+        int expected = generation;
+        loader.replace(query::count, count -> {
+            if (expected == generation) {
+                rowCount = count;
+                fireTableDataChanged();
+            }
+        });
+    }
+
+    /**
+     * Show a list that is already in memory, such as search results
+     */
+    public void setItems(List<T> items) {
+        reset();
+        fixedItems = new ArrayList<>(items);
+        fixedRows = new Object[items.size()][];
+        for (int i = 0; i < items.size(); i++) {
+            fixedRows[i] = toRow.apply(items.get(i));
+        }
+        rowCount = items.size();
+        fireTableDataChanged();
+    }
+
+    /**
+     * Show the list task reads in the background, such as search results;
+     * a later setQuery, setItems or loadItems cancels it
+     */
+    public void loadItems(BackgroundLoader.Task<List<T>> task) {
+        reset();
+        int expected = generation;
+        loader.replace(task, items -> {
+            if (expected == generation) {
+                setItems(items);
+            }
+        });
+    }
+
+    /**
+     * Re-read the loaded rows showing an item that matches and repaint only
+     * those rows, e.g. after one record was edited. Rows that are not
+     * loaded are read fresh when scrolled to anyway, so nothing is read if
+     * none is loaded. If reread finds nothing the item is gone and the
+     * whole query is read again.
+     */
+    public void reloadRows(Predicate<T> matches, BackgroundLoader.Task<T> reread) {
+        if (!isLoaded(matches)) {
+            return;
+        }
+        int expected = generation;
+        loader.run(reread, item -> {
+            if (expected != generation) {
+                return;
+            }
+            if (item == null) {
+                refresh();
+                return;
+            }
+            if (fixedItems != null) {
+                for (int i = 0; i < fixedItems.size(); i++) {
+                    if (matches.test(fixedItems.get(i))) {
+                        fixedItems.set(i, item);
+                        fixedRows[i] = toRow.apply(item);
+                        fireTableRowsUpdated(i, i);
+                    }
+                }
+                return;
+            }
+            for (Map.Entry<Integer, LoadedPage<T>> entry : pages.entrySet()) {
+                LoadedPage<T> page = entry.getValue();
+                for (int i = 0; i < page.items.size(); i++) {
+                    if (matches.test(page.items.get(i))) {
+                        page.items.set(i, item);
+                        page.rows[i] = toRow.apply(item);
+                        int row = entry.getKey() * PAGE_SIZE + i;
+                        fireTableRowsUpdated(row, row);
+                    }
+                }
+            }
+        });
+    }
+
+    private boolean isLoaded(Predicate<T> matches) {
+        if (fixedItems != null) {
+            return fixedItems.stream().anyMatch(matches);
+        }
+        return pages.values().stream().anyMatch(page -> page.items.stream().anyMatch(matches));
+    }
+
+    /**
+     * Read the current query again if a loaded row matches, e.g. after an
+     * edit to a record that several rows show
+     */
+    public void refreshIfLoaded(Predicate<T> matches) {
+        if (isLoaded(matches)) {
+            refresh();
+        }
+    }
+
+    /**
+     * Read the current query again, e.g. after an edit
+     */
+    public void refresh() {
+        if (query != null) {
+            setQuery(query);
+        }
+    }
+
+    private void reset() {
+        loader.cancelAll();
+        generation++;
+        query = null;
+        fixedItems = null;
+        fixedRows = null;
+        rowCount = 0;
+        pages.clear();
+        pageEndKeys.clear();
+        pending.clear();
+        failed.clear();
+        fireTableDataChanged();
+    }
+
+    /**
+     * @return the item shown in row, or null while it is still loading
+     */
+    public T getItem(int row) {
+        if (fixedItems != null) {
+            return row >= 0 && row < fixedItems.size() ? fixedItems.get(row) : null;
+        }
+        LoadedPage<T> page = pageOf(row);
+        int index = row % PAGE_SIZE;
+        return page != null && index < page.items.size() ? page.items.get(index) : null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        if (fixedRows != null) {
+            return fixedRows[row][column];
+        }
+        LoadedPage<T> page = pageOf(row);
+        int index = row % PAGE_SIZE;
+        return page != null && index < page.rows.length ? page.rows[index][column] : null;
+    }
+
+    public String[] getColumnNames() {
+        return columnNames.clone();
+    }
+
+    /**
+     * Every row of the current query or list in table order, streamed from
+     * the database on the calling thread, for printing
+     */
+    public void forEachRow(Consumer<Object[]> action) throws SQLException {
+        forEachRow(fixedRows, query, action);
+    }
+
+    /**
+     * The rows forEachRow would give, as a task that can run on any thread
+     * later, e.g. a background export; it keeps reading the query shown now
+     */
+    public BackgroundLoader.RowsTask<Object[]> allRows() {
+        Object[][] rows = fixedRows;
+        KeysetQuery<T> current = query;
+        return action -> forEachRow(rows, current, action);
+    }
+
+    private void forEachRow(Object[][] rows, KeysetQuery<T> current, Consumer<Object[]> action) throws SQLException {
+        if (rows != null) {
+            for (Object[] row : rows) {
+                action.accept(row);
+            }
+        } else if (current != null) {
+            current.stream(item -> action.accept(toRow.apply(item)));
+        }
+    }
+
+    /**
+     * A fully loaded copy, for printing a report with JTable.print
+     */
+    public DefaultTableModel snapshot() throws SQLException {
+        DefaultTableModel copy = new DefaultTableModel(columnNames, 0);
+        forEachRow(copy::addRow);
+        return copy;
+    }
+
+    // Returns the cached page holding row, requesting it if missing
+    private LoadedPage<T> pageOf(int row) {
+        int pageIndex = row / PAGE_SIZE;
+        LoadedPage<T> page = pages.get(pageIndex);
+        if (page == null) {
+            request(pageIndex, true);
+        }
+        return page;
+    }
+
+    private void request(int pageIndex, boolean prefetchNext) {
+        if (query == null || pending.contains(pageIndex) || failed.contains(pageIndex)
+                || pages.containsKey(pageIndex) || pageIndex * PAGE_SIZE >= rowCount) {
+            return;
+        }
+        pending.add(pageIndex);
+        KeysetQuery<T> current = query;
+        int expected = generation;
+        int offset = pageIndex * PAGE_SIZE;
+        Object[] afterKey = pageEndKeys.get(pageIndex - 1);
+
+        loader.run(() -> {
+            try {
+                return current.page(offset, afterKey, PAGE_SIZE);
+            } catch (SQLException e) {
+                // Not retried until the next refresh
+                SwingUtilities.invokeLater(() -> {
+                    if (expected == generation) {
+                        pending.remove(pageIndex);
+                        failed.add(pageIndex);
+                    }
+                });
+                throw e;
+            }
+        }, page -> loaded(expected, pageIndex, page, prefetchNext));
+    }
+
+    private void loaded(int expected, int pageIndex, Page<T> page, boolean prefetchNext) {
+        if (expected != generation) {
+            return;
+        }
+        pending.remove(pageIndex);
+        Object[][] rows = new Object[page.getItems().size()][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = toRow.apply(page.getItems().get(i));
+        }
+        pages.put(pageIndex, new LoadedPage<>(new ArrayList<>(page.getItems()), rows));
+        if (page.getLastKey() != null) {
+            pageEndKeys.put(pageIndex, page.getLastKey());
+        }
+
+        int first = pageIndex * PAGE_SIZE;
+        int last = Math.min(first + PAGE_SIZE, rowCount) - 1;
+        if (last >= first) {
+            fireTableRowsUpdated(first, last);
+        }
+        if (prefetchNext && page.hasMore()) {
+            request(pageIndex + 1, false);
+        }
+    }
+}
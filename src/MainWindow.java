@@ -3,8 +3,24 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class MainWindow extends JFrame {
+    // How often each module was opened, to warm the favourites at startup
+    private static final String USAGE_FILE = "panel_usage.properties";
+    private static final Properties panelUsage = new Properties();
+    private static final int PREFETCH_PANELS = 3;
+    private static final int IDLE_MILLIS = 1500;
+    private static final String PLACEHOLDER = "LOADING";
+    
     private CardLayout cardLayout;
     private JPanel mainPanel;
     private JToolBar toolBar;
@@ -24,6 +40,55 @@ public class MainWindow extends JFrame {
     
     // Current panel name for reference
     private String currentPanel = "HOME";
+    private long lastInput = System.currentTimeMillis();
+    
+    /**
+     * Open the database and read the settings in parallel with setting up
+     * the look and feel, then build and show the window on the EDT. A
+     * database error is reported there too, once the window can show it.
+     */
+    public static void launch() {
+        CompletableFuture<Throwable> database = CompletableFuture.runAsync(() -> {
+            try {
+                DatabaseManager.getInstance().open();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+            // Warm the catalogs so the first document dialog opens at once
+            ProductCatalog.getInstance().preload();
+            CustomerCatalog.getInstance().preload();
+        }).handle((ignored, error) -> error);
+        CompletableFuture<Void> settings = CompletableFuture.runAsync(() -> {
+            SettingsWindow.loadGlobalSettings();
+            loadPanelUsage();
+        });
+        
+        SwingUtilities.invokeLater(() -> {
+            try {
+                UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        
+        settings.join();
+        Throwable databaseError = database.join();
+        SwingUtilities.invokeLater(() -> {
+            if (databaseError != null) {
+                Throwable cause = databaseError.getCause() != null ? databaseError.getCause() : databaseError;
+                cause.printStackTrace();
+                JOptionPane.showMessageDialog(null,
+                    "Error during database initialization: " + cause.getMessage(),
+                    "Database Error",
+                    JOptionPane.ERROR_MESSAGE);
+            }
+            // Before any component exists, so every one picks the fonts up
+            SettingsWindow.applyGlobalSettings();
+            MainWindow mainWindow = new MainWindow();
+            mainWindow.setVisible(true);
+            mainWindow.startPrefetch();
+        });
+    }
     
     public MainWindow() {
         setupWindow();
@@ -31,13 +96,6 @@ public class MainWindow extends JFrame {
         setupToolBar();
         setupMainPanel();
         setupPanels();
-        
-        // Initialize the database
-        DatabaseManager.getInstance().initDatabase();
-        
-        // Apply global settings on startup
-        SettingsWindow.loadGlobalSettings();
-        SettingsWindow.applyGlobalSettings();
     }
     
     private void setupWindow() {
@@ -50,6 +108,7 @@ public class MainWindow extends JFrame {
         addWindowListener(new java.awt.event.WindowAdapter() {
             @Override
             public void windowClosing(java.awt.event.WindowEvent windowEvent) {
+                savePanelUsage();
                 DatabaseManager.getInstance().closeConnection();
             }
         });
@@ -88,6 +147,11 @@ public class MainWindow extends JFrame {
         fileMenu.add(newInvoiceItem);
         fileMenu.addSeparator();
         
+        JMenuItem importItem = new JMenuItem("Import from CSV...");
+        importItem.addActionListener(e -> openImport());
+        fileMenu.add(importItem);
+        fileMenu.addSeparator();
+        
         JMenuItem settingsItem = new JMenuItem("Settings...");
         settingsItem.addActionListener(e -> openSettings());
         fileMenu.add(settingsItem);
@@ -335,8 +399,17 @@ public class MainWindow extends JFrame {
         
         // Create home panel (dashboard)
         JPanel homePanel = createHomePanel();
+        homePanel.setName("HOME");
         mainPanel.add(homePanel, "HOME");
         
+        // Shown while a module is built on first open
+        JPanel placeholder = new JPanel(new GridBagLayout());
+        JLabel loadingLabel = new JLabel("Loading...");
+        loadingLabel.setFont(new Font("Arial", Font.ITALIC, 16));
+        loadingLabel.setForeground(new Color(105, 105, 105));
+        placeholder.add(loadingLabel);
+        mainPanel.add(placeholder, PLACEHOLDER);
+        
         add(mainPanel, BorderLayout.CENTER);
     }
     
@@ -379,7 +452,67 @@ public class MainWindow extends JFrame {
     
     private void setupPanels() {
         // Initialize panels lazily to improve startup time
-        // Panels will be created when first accessed
+        // Panels will be created when first accessed, or while the user is idle
+        Toolkit.getDefaultToolkit().addAWTEventListener(e -> lastInput = System.currentTimeMillis(),
+            AWTEvent.KEY_EVENT_MASK | AWTEvent.MOUSE_EVENT_MASK);
+    }
+    
+    /**
+     * Build the most used modules one at a time whenever the user has been
+     * idle for a moment, so opening them later is instant and their first
+     * page of data is already loaded
+     */
+    private void startPrefetch() {
+        List<String> favourites = new ArrayList<>(panelUsage.stringPropertyNames());
+        favourites.sort((a, b) -> Integer.compare(usageCount(b), usageCount(a)));
+        List<String> pending = new ArrayList<>(favourites.subList(0, Math.min(PREFETCH_PANELS, favourites.size())));
+        if (pending.isEmpty()) {
+            return;
+        }
+        
+        Timer timer = new Timer(IDLE_MILLIS / 2, null);
+        timer.addActionListener(e -> {
+            if (System.currentTimeMillis() - lastInput < IDLE_MILLIS) {
+                return;
+            }
+            String panelName = pending.remove(0);
+            if (!isPanelCreated(panelName)) {
+                try {
+                    createPanel(panelName);
+                } catch (Exception ex) {
+                    // Not fatal: it is built again when opened
+                    ex.printStackTrace();
+                }
+            }
+            if (pending.isEmpty()) {
+                timer.stop();
+            }
+        });
+        timer.start();
+    }
+    
+    private static int usageCount(String panelName) {
+        try {
+            return Integer.parseInt(panelUsage.getProperty(panelName, "0"));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    private static void loadPanelUsage() {
+        try (FileInputStream fis = new FileInputStream(USAGE_FILE)) {
+            panelUsage.load(fis);
+        } catch (IOException e) {
+            // First run: nothing to prefetch
+        }
+    }
+    
+    private static void savePanelUsage() {
+        try (FileOutputStream fos = new FileOutputStream(USAGE_FILE)) {
+            panelUsage.store(fos, "Module usage");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
     
     // Menu action methods
@@ -430,18 +563,32 @@ public class MainWindow extends JFrame {
     }
     
     private void performQuickBackup() {
-        try {
-            BackupManager.getInstance().performBackup();
-            JOptionPane.showMessageDialog(this,
-                "Backup completed successfully!",
-                "Backup",
-                JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this,
-                "Error during backup: " + e.getMessage(),
-                "Backup Error",
-                JOptionPane.ERROR_MESSAGE);
-        }
+        // Runs while the application stays usable; the snapshot is consistent
+        SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() {
+                BackupManager.getInstance().performBackup();
+                return null;
+            }
+            
+            @Override
+            protected void done() {
+                try {
+                    get();
+                    JOptionPane.showMessageDialog(MainWindow.this,
+                        "Backup completed successfully!",
+                        "Backup",
+                        JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(MainWindow.this,
+                        "Error during backup: " + cause.getMessage(),
+                        "Backup Error",
+                        JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        worker.execute();
     }
     
     private void toggleToolbar(boolean visible) {
@@ -518,26 +665,38 @@ public class MainWindow extends JFrame {
     }
     
     private void showPanel(String panelName) {
-        try {
-            // Create panel if it doesn't exist
-            if (!isPanelCreated(panelName)) {
-                createPanel(panelName);
-            }
-            
-            // Switch to the panel
+        currentPanel = panelName;
+        updateWindowTitle(panelName);
+        if (!"HOME".equals(panelName)) {
+            panelUsage.setProperty(panelName, String.valueOf(usageCount(panelName) + 1));
+        }
+        
+        if (isPanelCreated(panelName)) {
             cardLayout.show(mainPanel, panelName);
-            currentPanel = panelName;
-            
-            // Update window title
-            updateWindowTitle(panelName);
-            
-        } catch (Exception e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this,
-                "Error opening " + panelName + ": " + e.getMessage(),
-                "WorkGenio - Error",
-                JOptionPane.ERROR_MESSAGE);
+            return;
         }
+        
+        // First open: show the placeholder at once and build the panel once
+        // it has painted; the panel then fills in from its background loads
+        cardLayout.show(mainPanel, PLACEHOLDER);
+        SwingUtilities.invokeLater(() -> {
+            try {
+                if (!isPanelCreated(panelName)) {
+                    createPanel(panelName);
+                }
+                // Unless the user moved on meanwhile
+                if (panelName.equals(currentPanel)) {
+                    cardLayout.show(mainPanel, panelName);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+                JOptionPane.showMessageDialog(this,
+                    "Error opening " + panelName + ": " + e.getMessage(),
+                    "WorkGenio - Error",
+                    JOptionPane.ERROR_MESSAGE);
+                showPanel("HOME");
+            }
+        });
     }
     
     private boolean isPanelCreated(String panelName) {
@@ -649,6 +808,11 @@ public class MainWindow extends JFrame {
         setTitle(title);
     }
     
+    private void openImport() {
+        ImportDialog dialog = new ImportDialog(this);
+        dialog.setVisible(true);
+    }
+    
     private void openSettings() {
         try {
             SettingsWindow settingsWindow = new SettingsWindow(this);
@@ -663,14 +827,6 @@ public class MainWindow extends JFrame {
     }
     
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(() -> {
-            try {
-                UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-            MainWindow mainWindow = new MainWindow();
-            mainWindow.setVisible(true);
-        });
+        launch();
     }
 }
\ No newline at end of file
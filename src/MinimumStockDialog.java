@@ -139,17 +139,8 @@ public class MinimumStockDialog extends JDialog {
     
     private void loadSuppliers() {
         try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = "SELECT id, ragione_sociale FROM fornitori ORDER BY ragione_sociale";
-            
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(query)) {
-                while (rs.next()) {
-                    supplierCombo.addItem(new SupplierComboItem(
-                        rs.getInt("id"), 
-                        rs.getString("ragione_sociale")
-                    ));
-                }
+            for (Supplier supplier : SupplierRepository.getInstance().findAll()) {
+                supplierCombo.addItem(new SupplierComboItem(supplier.getId(), supplier.getRagioneSociale()));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -206,67 +197,69 @@ public class MinimumStockDialog extends JDialog {
                     "Warning", JOptionPane.WARNING_MESSAGE);
             }
             
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            
-            // Check if record exists
-            String checkQuery = "SELECT COUNT(*) FROM scorte_minime WHERE prodotto_id = ?";
-            boolean exists = false;
-            try (PreparedStatement pstmt = conn.prepareStatement(checkQuery)) {
-                pstmt.setInt(1, minStock.getProdottoId());
-                ResultSet rs = pstmt.executeQuery();
-                if (rs.next()) {
-                    exists = rs.getInt(1) > 0;
+            DatabaseManager.getInstance().inWriteTransaction(conn -> {
+                // Check if record exists
+                String checkQuery = "SELECT COUNT(*) FROM scorte_minime WHERE prodotto_id = ?";
+                boolean exists = false;
+                try (PreparedStatement pstmt = conn.prepareStatement(checkQuery)) {
+                    pstmt.setInt(1, minStock.getProdottoId());
+                    ResultSet rs = pstmt.executeQuery();
+                    if (rs.next()) {
+                        exists = rs.getInt(1) > 0;
+                    }
                 }
-            }
             
-            SupplierComboItem selectedSupplier = (SupplierComboItem) supplierCombo.getSelectedItem();
-            Integer supplierId = selectedSupplier != null ? selectedSupplier.getId() : null;
+                SupplierComboItem selectedSupplier = (SupplierComboItem) supplierCombo.getSelectedItem();
+                Integer supplierId = selectedSupplier != null ? selectedSupplier.getId() : null;
             
-            if (exists) {
-                // Update existing record
-                String updateQuery = """
-                    UPDATE scorte_minime SET
-                        quantita_minima = ?, quantita_riordino = ?,
-                        lead_time_giorni = ?, fornitore_preferito_id = ?, note = ?
-                    WHERE prodotto_id = ?
-                """;
-                try (PreparedStatement pstmt = conn.prepareStatement(updateQuery)) {
-                    pstmt.setInt(1, minQuantity);
-                    pstmt.setInt(2, reorderQuantity);
-                    pstmt.setInt(3, (Integer) leadTimeSpinner.getValue());
-                    if (supplierId != null) {
-                        pstmt.setInt(4, supplierId);
-                    } else {
-                        pstmt.setNull(4, Types.INTEGER);
+                if (exists) {
+                    // Update existing record
+                    String updateQuery = """
+                        UPDATE scorte_minime SET
+                            quantita_minima = ?, quantita_riordino = ?,
+                            lead_time_giorni = ?, fornitore_preferito_id = ?, note = ?
+                        WHERE prodotto_id = ?
+                    """;
+                    try (PreparedStatement pstmt = conn.prepareStatement(updateQuery)) {
+                        pstmt.setInt(1, minQuantity);
+                        pstmt.setInt(2, reorderQuantity);
+                        pstmt.setInt(3, (Integer) leadTimeSpinner.getValue());
+                        if (supplierId != null) {
+                            pstmt.setInt(4, supplierId);
+                        } else {
+                            pstmt.setNull(4, Types.INTEGER);
+                        }
+                        pstmt.setString(5, notesArea.getText().trim());
+                        pstmt.setInt(6, minStock.getProdottoId());
+                        pstmt.executeUpdate();
                     }
-                    pstmt.setString(5, notesArea.getText().trim());
-                    pstmt.setInt(6, minStock.getProdottoId());
-                    pstmt.executeUpdate();
-                }
-            } else {
-                // Insert new record
-                String insertQuery = """
-                    INSERT INTO scorte_minime (
-                        prodotto_id, quantita_minima, quantita_riordino,
-                        lead_time_giorni, fornitore_preferito_id, note
-                    ) VALUES (?, ?, ?, ?, ?, ?)
-                """;
-                try (PreparedStatement pstmt = conn.prepareStatement(insertQuery)) {
-                    pstmt.setInt(1, minStock.getProdottoId());
-                    pstmt.setInt(2, minQuantity);
-                    pstmt.setInt(3, reorderQuantity);
-                    pstmt.setInt(4, (Integer) leadTimeSpinner.getValue());
-                    if (supplierId != null) {
-                        pstmt.setInt(5, supplierId);
-                    } else {
-                        pstmt.setNull(5, Types.INTEGER);
+                } else {
+                    // Insert new record
+                    String insertQuery = """
+                        INSERT INTO scorte_minime (
+                            prodotto_id, quantita_minima, quantita_riordino,
+                            lead_time_giorni, fornitore_preferito_id, note
+                        ) VALUES (?, ?, ?, ?, ?, ?)
+                    """;
+                    try (PreparedStatement pstmt = conn.prepareStatement(insertQuery)) {
+                        pstmt.setInt(1, minStock.getProdottoId());
+                        pstmt.setInt(2, minQuantity);
+                        pstmt.setInt(3, reorderQuantity);
+                        pstmt.setInt(4, (Integer) leadTimeSpinner.getValue());
+                        if (supplierId != null) {
+                            pstmt.setInt(5, supplierId);
+                        } else {
+                            pstmt.setNull(5, Types.INTEGER);
+                        }
+                        pstmt.setString(6, notesArea.getText().trim());
+                        pstmt.executeUpdate();
                     }
-                    pstmt.setString(6, notesArea.getText().trim());
-                    pstmt.executeUpdate();
                 }
-            }
+                return null;
+            });
             
             stockSaved = true;
+            EventBus.getInstance().publish(new DomainEvent.MinimumStockChanged(minStock.getProdottoId()));
             dispose();
             
         } catch (SQLException e) {
@@ -6,6 +6,7 @@ import java.sql.*;
 import java.util.*;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 import javax.swing.event.TableModelListener;
 import javax.swing.event.TableModelEvent;
 
@@ -13,6 +14,7 @@ public class OrderDialog extends JDialog {
     private Order order;
     private boolean orderSaved = false;
     private JButton selectCustomerButton;
+    private JButton saveButton;
     private Customer selectedCustomer;
     private JTextField dataField;
     private JComboBox<String> statoCombo;
@@ -20,7 +22,6 @@ public class OrderDialog extends JDialog {
     private DefaultTableModel itemsTableModel;
     private JLabel totalLabel;
     private SimpleDateFormat dateFormat;
-    private Map<Integer, Product> productsCache;
     private volatile boolean updatingTotals = false;
     private TableModelListener tableListener;
     
@@ -29,11 +30,9 @@ public class OrderDialog extends JDialog {
         super(parent, order == null ? "New Order" : "Edit Order", true);
         this.order = order;
         this.dateFormat = new SimpleDateFormat("dd/MM/yyyy");
-        this.productsCache = new HashMap<>();
         
         setupWindow();
         initComponents();
-        loadProducts();
         if (order != null) {
             loadOrderData();
         }
@@ -44,11 +43,9 @@ public class OrderDialog extends JDialog {
         super(parent, order == null ? "New Order" : "Edit Order", true);
         this.order = order;
         this.dateFormat = new SimpleDateFormat("dd/MM/yyyy");
-        this.productsCache = new HashMap<>();
         
         setupWindow();
         initComponents();
-        loadProducts();
         if (order != null) {
             loadOrderData();
         }
@@ -166,7 +163,7 @@ public class OrderDialog extends JDialog {
         
         // Panel for main buttons
         JPanel buttonPanel = new JPanel();
-        JButton saveButton = new JButton("Save");
+        saveButton = new JButton("Save");
         JButton cancelButton = new JButton("Cancel");
         
         saveButton.addActionListener(e -> saveOrder());
@@ -223,37 +220,11 @@ public class OrderDialog extends JDialog {
         }
     }
     
-    private void loadProducts() {
-        try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = "SELECT * FROM prodotti ORDER BY nome";
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(query)) {
-                while (rs.next()) {
-                    Product product = new Product(
-                        rs.getInt("id"),
-                        rs.getString("codice"),
-                        rs.getString("nome"),
-                        rs.getString("descrizione"),
-                        rs.getDouble("prezzo"),
-                        rs.getInt("quantita")
-                    );
-                    productsCache.put(product.getId(), product);
-                }
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this,
-                "Error loading products: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
-        }
-    }
-    
     private void loadOrderData() {
         // Load customer data
         if (order.getClienteId() > 0) {
             try {
-                selectedCustomer = loadCustomerById(order.getClienteId());
+                selectedCustomer = CustomerRepository.getInstance().findById(order.getClienteId());
                 if (selectedCustomer != null) {
                     updateCustomerButton();
                 }
@@ -279,27 +250,6 @@ public class OrderDialog extends JDialog {
         updateTotals();
     }
     
-    private Customer loadCustomerById(int customerId) throws SQLException {
-        Connection conn = DatabaseManager.getInstance().getConnection();
-        String query = "SELECT * FROM clienti WHERE id = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-            pstmt.setInt(1, customerId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return new Customer(
-                        rs.getInt("id"),
-                        rs.getString("nome"),
-                        rs.getString("cognome"),
-                        rs.getString("email"),
-                        rs.getString("telefono"),
-                        rs.getString("indirizzo")
-                    );
-                }
-            }
-        }
-        return null;
-    }
-    
     private void showProductSelectionDialog() {
         ProductSelectionDialog dialog = new ProductSelectionDialog(this);
         dialog.setVisible(true);
@@ -431,24 +381,33 @@ public class OrderDialog extends JDialog {
                 return;
             }
             
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            conn.setAutoCommit(false);
-            try {
-                Date orderDate = DateUtils.parseDate(dataField.getText(), dateFormat);
-                String stato = (String)statoCombo.getSelectedItem();
-                double totale = Double.parseDouble(totalLabel.getText().replace("Total: € ", "").replace(",", "."));
-                
+            Date orderDate = DateUtils.parseDate(dataField.getText(), dateFormat);
+            String stato = (String)statoCombo.getSelectedItem();
+            double totale = Double.parseDouble(totalLabel.getText().replace("Total: € ", "").replace(",", "."));
+            Calendar cal = Calendar.getInstance();
+            cal.setTime(orderDate);
+            int orderYear = cal.get(Calendar.YEAR);
+            
+            int customerId = selectedCustomer.getId();
+            List<Object[]> items = snapshotOrderItems();
+            
+            saveButton.setEnabled(false);
+            DatabaseManager.getInstance().submitWrite(conn -> {
                 if (order == null) {
+                    String numero = DocumentNumbering.getInstance().next(conn,
+                        DocumentNumbering.DocumentType.CUSTOMER_ORDER, orderYear);
+                    
                     String orderQuery = """
-                        INSERT INTO ordini (cliente_id, data_ordine, stato, totale)
-                        VALUES (?, ?, ?, ?)
+                        INSERT INTO ordini (numero, cliente_id, data_ordine, stato, totale)
+                        VALUES (?, ?, ?, ?, ?)
                     """;
                     int orderId;
                     try (PreparedStatement pstmt = conn.prepareStatement(orderQuery, Statement.RETURN_GENERATED_KEYS)) {
-                        pstmt.setInt(1, selectedCustomer.getId());
-                        pstmt.setTimestamp(2, DateUtils.toSqlTimestamp(orderDate));
-                        pstmt.setString(3, stato);
-                        pstmt.setDouble(4, totale);
+                        pstmt.setString(1, numero);
+                        pstmt.setInt(2, customerId);
+                        DateCodec.bind(pstmt, 3, orderDate);
+                        pstmt.setString(4, stato);
+                        pstmt.setDouble(5, totale);
                         pstmt.executeUpdate();
                         
                         try (ResultSet rs = pstmt.getGeneratedKeys()) {
@@ -465,14 +424,15 @@ public class OrderDialog extends JDialog {
                         VALUES (?, ?, ?, ?)
                     """;
                     try (PreparedStatement pstmt = conn.prepareStatement(detailQuery)) {
-                        for (int i = 0; i < itemsTableModel.getRowCount(); i++) {
+                        for (Object[] item : items) {
                             pstmt.setInt(1, orderId);
-                            pstmt.setInt(2, (int)itemsTableModel.getValueAt(i, 0));
-                            pstmt.setInt(3, parseInteger(itemsTableModel.getValueAt(i, 2)));
-                            pstmt.setDouble(4, parseDouble(itemsTableModel.getValueAt(i, 3)));
+                            pstmt.setInt(2, (Integer)item[0]);
+                            pstmt.setInt(3, (Integer)item[1]);
+                            pstmt.setDouble(4, (Double)item[2]);
                             pstmt.executeUpdate();
                         }
                     }
+                    return orderId;
                     
                 } else {
                     String orderQuery = """
@@ -481,8 +441,8 @@ public class OrderDialog extends JDialog {
                         WHERE id = ?
                     """;
                     try (PreparedStatement pstmt = conn.prepareStatement(orderQuery)) {
-                        pstmt.setInt(1, selectedCustomer.getId());
-                        pstmt.setTimestamp(2, DateUtils.toSqlTimestamp(orderDate));
+                        pstmt.setInt(1, customerId);
+                        DateCodec.bind(pstmt, 2, orderDate);
                         pstmt.setString(3, stato);
                         pstmt.setDouble(4, totale);
                         pstmt.setInt(5, order.getId());
@@ -500,26 +460,30 @@ public class OrderDialog extends JDialog {
                         VALUES (?, ?, ?, ?)
                     """;
                     try (PreparedStatement pstmt = conn.prepareStatement(detailQuery)) {
-                        for (int i = 0; i < itemsTableModel.getRowCount(); i++) {
+                        for (Object[] item : items) {
                             pstmt.setInt(1, order.getId());
-                            pstmt.setInt(2, (int)itemsTableModel.getValueAt(i, 0));
-                            pstmt.setInt(3, parseInteger(itemsTableModel.getValueAt(i, 2)));
-                            pstmt.setDouble(4, parseDouble(itemsTableModel.getValueAt(i, 3)));
+                            pstmt.setInt(2, (Integer)item[0]);
+                            pstmt.setInt(3, (Integer)item[1]);
+                            pstmt.setDouble(4, (Double)item[2]);
                             pstmt.executeUpdate();
                         }
                     }
                 }
                 
-                conn.commit();
+                return order.getId();
+            }).whenComplete((orderId, error) -> SwingUtilities.invokeLater(() -> {
+                saveButton.setEnabled(true);
+                if (error != null) {
+                    error.printStackTrace();
+                    JOptionPane.showMessageDialog(this,
+                        "Error saving the order: " + error.getMessage(),
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
                 orderSaved = true;
+                EventBus.getInstance().publish(new DomainEvent.OrderSaved(orderId, order == null));
                 dispose();
-                
-            } catch (Exception e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
-            }
+            }));
             
         } catch (Exception e) {
             e.printStackTrace();
@@ -529,6 +493,23 @@ public class OrderDialog extends JDialog {
         }
     }
     
+    /**
+     * Copy the order lines out of the table model on the EDT, so the write
+     * can run on the group-commit thread without touching Swing state.
+     * Each entry is {prodottoId, quantita, prezzoUnitario}.
+     */
+    private List<Object[]> snapshotOrderItems() {
+        List<Object[]> items = new ArrayList<>();
+        for (int i = 0; i < itemsTableModel.getRowCount(); i++) {
+            items.add(new Object[]{
+                (int)itemsTableModel.getValueAt(i, 0),
+                parseInteger(itemsTableModel.getValueAt(i, 2)),
+                parseDouble(itemsTableModel.getValueAt(i, 3))
+            });
+        }
+        return items;
+    }
+    
     public boolean isOrderSaved() {
         return orderSaved;
     }
@@ -1,26 +1,33 @@
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.sql.*;
-import java.util.Vector;
-import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
 
 public class OrdersPanel extends JPanel {
     private JTable ordersTable;
-    private DefaultTableModel tableModel;
+    private LazyTableModel<Object[]> tableModel;
     private JTextField searchField;
+    private final BusyIndicator busyIndicator = new BusyIndicator();
     private JButton addButton;
     private JButton editButton;
     private JButton deleteButton;
     private JButton refreshButton;
-    private SimpleDateFormat dateFormat;
     
     public OrdersPanel() {
-        dateFormat = new SimpleDateFormat("dd/MM/yyyy");
         setupPanel();
         initComponents();
         loadOrders();
+        
+        // Patch single rows when orders change anywhere in the application
+        EventBus bus = EventBus.getInstance();
+        bus.subscribe(DomainEvent.OrderSaved.class, e -> orderSaved(e.getOrderId(), e.isCreated()));
+        bus.subscribe(DomainEvent.OrderDeleted.class, e -> tableModel.refresh());
+        // Deleting a customer can delete their orders too
+        bus.subscribe(DomainEvent.CustomerDeleted.class, e -> tableModel.refresh());
+        // Rows show customer names, which an edit or an import may have changed
+        bus.subscribe(DomainEvent.CustomerChanged.class, e -> customerChanged(e.getCustomerId(), e.isCreated()));
+        bus.subscribe(DomainEvent.CustomersImported.class, e -> tableModel.refresh());
     }
     
     private void setupPanel() {
@@ -40,15 +47,16 @@ public class OrdersPanel extends JPanel {
         searchPanel.add(new JLabel("Search: "));
         searchPanel.add(searchField);
         searchPanel.add(searchButton);
+        searchPanel.add(busyIndicator);
         
         // Orders table
         String[] columns = {"ID", "Customer", "Date", "Status", "Total €"};
-        tableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        // Items carry the customer id after the shown columns
+        tableModel = new LazyTableModel<Object[]>(columns, row -> Arrays.copyOf(row, columns.length))
+            .showBusy(busyIndicator)
+            .onError(e -> JOptionPane.showMessageDialog(this,
+                "Error while loading orders: " + e.getMessage(),
+                "Error", JOptionPane.ERROR_MESSAGE));
         ordersTable = new JTable(tableModel);
         ordersTable.getSelectionModel().setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         ordersTable.getSelectionModel().addListSelectionListener(e -> updateButtonStates());
@@ -98,40 +106,21 @@ public class OrdersPanel extends JPanel {
     }
     
     private void loadOrders() {
-        tableModel.setRowCount(0);
-        try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = """
-                SELECT o.*, c.nome || ' ' || c.cognome as cliente_nome
-                FROM ordini o
-                LEFT JOIN clienti c ON o.cliente_id = c.id
-                ORDER BY o.data_ordine DESC
-            """;
-            
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(query)) {
-                while (rs.next()) {
-                    Vector<Object> row = new Vector<>();
-                    row.add(rs.getInt("id"));
-                    row.add(rs.getString("cliente_nome"));
-                    
-                    Date date = DateUtils.parseDate(rs, "data_ordine");
-                    if (date != null) {
-                        row.add(DateUtils.formatDate(date, dateFormat));
-                    } else {
-                        row.add("");
-                    }
-                    
-                    row.add(rs.getString("stato"));
-                    row.add(String.format("%.2f", rs.getDouble("totale")));
-                    tableModel.addRow(row);
-                }
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this,
-                "Error while loading orders: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
+        tableModel.setQuery(ordersQuery());
+    }
+    
+    private void orderSaved(int orderId, boolean created) {
+        if (created) {
+            tableModel.refresh();
+        } else {
+            tableModel.reloadRows(row -> (int) row[0] == orderId,
+                () -> ordersQuery().where("o.id = ?", orderId).first());
+        }
+    }
+    
+    private void customerChanged(int customerId, boolean created) {
+        if (!created) {
+            tableModel.refreshIfLoaded(row -> (int) row[5] == customerId);
         }
     }
     
@@ -142,48 +131,31 @@ public class OrdersPanel extends JPanel {
             return;
         }
         
-        tableModel.setRowCount(0);
-        try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = """
-                SELECT o.*, c.nome || ' ' || c.cognome as cliente_nome
-                FROM ordini o
-                LEFT JOIN clienti c ON o.cliente_id = c.id
-                WHERE c.nome LIKE ? OR c.cognome LIKE ? OR o.stato LIKE ?
-                ORDER BY o.data_ordine DESC
-            """;
-            
-            String searchPattern = "%" + searchTerm + "%";
-            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-                pstmt.setString(1, searchPattern);
-                pstmt.setString(2, searchPattern);
-                pstmt.setString(3, searchPattern);
-                
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    while (rs.next()) {
-                        Vector<Object> row = new Vector<>();
-                        row.add(rs.getInt("id"));
-                        row.add(rs.getString("cliente_nome"));
-                        
-                        Date date = DateUtils.parseDate(rs, "data_ordine");
-                        if (date != null) {
-                            row.add(DateUtils.formatDate(date, dateFormat));
-                        } else {
-                            row.add("");
-                        }
-                        
-                        row.add(rs.getString("stato"));
-                        row.add(String.format("%.2f", rs.getDouble("totale")));
-                        tableModel.addRow(row);
-                    }
-                }
+        String searchPattern = "%" + searchTerm + "%";
+        tableModel.setQuery(ordersQuery().where(
+            "c.nome LIKE ? OR c.cognome LIKE ? OR o.stato LIKE ?",
+            searchPattern, searchPattern, searchPattern));
+    }
+    
+    /**
+     * Orders newest first, read a page at a time as the table scrolls
+     */
+    private KeysetQuery<Object[]> ordersQuery() {
+        return new KeysetQuery<Object[]>(
+            "o.*, c.nome || ' ' || c.cognome as cliente_nome",
+            "ordini o LEFT JOIN clienti c ON o.cliente_id = c.id",
+            rs -> {
+                Date date = DateUtils.parseDate(rs, "data_ordine");
+                return new Object[] {
+                    rs.getInt("id"),
+                    rs.getString("cliente_nome"),
+                    date != null ? DateUtils.formatDate(date) : "",
+                    rs.getString("stato"),
+                    String.format("%.2f", rs.getDouble("totale")),
+                    rs.getInt("cliente_id")
+                };
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this,
-                "Error while searching orders: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        ).orderBy(true, "o.data_ordine", "o.id");
     }
     
     private void showOrderDialog(Order order) {
@@ -197,15 +169,13 @@ public class OrdersPanel extends JPanel {
         }
         
         dialog.setVisible(true);
-        if (dialog.isOrderSaved()) {
-            loadOrders();
-        }
     }
     
     private void editSelectedOrder() {
         int selectedRow = ordersTable.getSelectedRow();
-        if (selectedRow != -1) {
-            int orderId = (int)tableModel.getValueAt(selectedRow, 0);
+        Object[] selected = selectedRow != -1 ? tableModel.getItem(selectedRow) : null;
+        if (selected != null) {
+            int orderId = (int)selected[0];
             try {
                 Order order = loadOrderDetails(orderId);
                 if (order != null) {
@@ -221,7 +191,6 @@ public class OrdersPanel extends JPanel {
     }
     
     private Order loadOrderDetails(int orderId) throws SQLException {
-        Connection conn = DatabaseManager.getInstance().getConnection();
         String query = """
             SELECT o.*, c.nome || ' ' || c.cognome as cliente_nome
             FROM ordini o
@@ -229,7 +198,8 @@ public class OrdersPanel extends JPanel {
             WHERE o.id = ?
         """;
         
-        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, orderId);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
@@ -263,8 +233,8 @@ public class OrdersPanel extends JPanel {
             WHERE i.ordine_id = ?
         """;
         
-        Connection conn = DatabaseManager.getInstance().getConnection();
-        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, order.getId());
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
@@ -284,9 +254,10 @@ public class OrdersPanel extends JPanel {
     
     private void deleteSelectedOrder() {
         int selectedRow = ordersTable.getSelectedRow();
-        if (selectedRow != -1) {
-            int id = (int)tableModel.getValueAt(selectedRow, 0);
-            String cliente = (String)tableModel.getValueAt(selectedRow, 1);
+        Object[] selected = selectedRow != -1 ? tableModel.getItem(selectedRow) : null;
+        if (selected != null) {
+            int id = (int)selected[0];
+            String cliente = (String)selected[1];
             
             int result = JOptionPane.showConfirmDialog(this,
                 "Are you sure you want to delete the order from customer '" + cliente + "'?",
@@ -296,10 +267,7 @@ public class OrdersPanel extends JPanel {
                 
             if (result == JOptionPane.YES_OPTION) {
                 try {
-                    Connection conn = DatabaseManager.getInstance().getConnection();
-                    conn.setAutoCommit(false);
-                    
-                    try {
+                    DatabaseManager.getInstance().inWriteTransaction(conn -> {
                         // First, delete the order details
                         String deleteDetailsQuery = "DELETE FROM dettagli_ordine WHERE ordine_id = ?";
                         try (PreparedStatement pstmt = conn.prepareStatement(deleteDetailsQuery)) {
@@ -313,16 +281,9 @@ public class OrdersPanel extends JPanel {
                             pstmt.setInt(1, id);
                             pstmt.executeUpdate();
                         }
-                        
-                        conn.commit();
-                        loadOrders();
-                        
-                    } catch (SQLException e) {
-                        conn.rollback();
-                        throw e;
-                    } finally {
-                        conn.setAutoCommit(true);
-                    }
+                        return null;
+                    });
+                    EventBus.getInstance().publish(new DomainEvent.OrderDeleted(id));
                 } catch (SQLException e) {
                     e.printStackTrace();
                     JOptionPane.showMessageDialog(this,
@@ -1,254 +1,443 @@
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
 import javax.swing.*;
-import javax.swing.border.TitledBorder;
 import java.awt.*;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
 
+/**
+ * Shows an invoice exactly as InvoicePDFGenerator writes it.
+ *
+ * The PDF is generated in memory and PDFBox's renderer draws its pages,
+ * only those in view and at the current zoom, on a background thread.
+ * The PDF and the page images are cached per invoice id and version, a
+ * fingerprint of everything printed on the invoice including the company
+ * letterhead, so reopening an unchanged invoice shows it at once.
+ */
 public class PDFPreviewDialog extends JDialog {
+    private static final double[] ZOOMS = {0.5, 0.75, 1.0, 1.25, 1.5, 2.0};
+    private static final int PAGE_GAP = 12;
+    // Cached PDFs (a few KB each) and the memory page images may use
+    private static final int CACHED_DOCUMENTS = 16;
+    private static final long CACHED_IMAGE_BYTES = 96L * 1024 * 1024;
+
+    private static final Map<Integer, CachedDocument> documents =
+        new LinkedHashMap<Integer, CachedDocument>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, CachedDocument> eldest) {
+                return size() > CACHED_DOCUMENTS;
+            }
+        };
+    private static final Map<PageKey, BufferedImage> pageImages = new LinkedHashMap<>(64, 0.75f, true);
+    private static long pageImageBytes;
+
+    private static class CachedDocument {
+        final long version;
+        final byte[] pdf;
+        float[] pageWidths;
+        float[] pageHeights;
+
+        CachedDocument(long version, byte[] pdf) {
+            this.version = version;
+            this.pdf = pdf;
+        }
+    }
+
+    private static class PageKey {
+        final int invoiceId;
+        final long version;
+        final int page;
+        final double zoom;
+
+        PageKey(int invoiceId, long version, int page, double zoom) {
+            this.invoiceId = invoiceId;
+            this.version = version;
+            this.page = page;
+            this.zoom = zoom;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof PageKey)) {
+                return false;
+            }
+            PageKey other = (PageKey) o;
+            return invoiceId == other.invoiceId && version == other.version
+                && page == other.page && zoom == other.zoom;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(invoiceId, version, page, zoom);
+        }
+    }
+
     private Invoice invoice;
     private Customer customer;
-    private CompanyData companyData;
     private boolean generatePDF = false;
-    private SimpleDateFormat dateFormat;
-    
+
+    // The document and its renderer belong to this thread
+    private final ExecutorService renderThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pdf-preview");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private PDDocument document;
+    private PDFRenderer renderer;
+
+    private CachedDocument shown;
+    private final Set<PageKey> queued = new HashSet<>();
+    private volatile double zoom = 1.0;
+    private volatile int firstVisiblePage;
+    private volatile int lastVisiblePage = -1;
+
+    private PagesPanel pagesPanel;
+    private JLabel statusLabel;
+
     public PDFPreviewDialog(JDialog parent, Invoice invoice, Customer customer) {
         super(parent, "PDF Preview - Invoice " + invoice.getNumero(), true);
         this.invoice = invoice;
         this.customer = customer;
-        this.companyData = CompanyData.getInstance();
-        this.dateFormat = new SimpleDateFormat("dd/MM/yyyy");
-        
+
         setupWindow();
         initComponents();
+        loadDocument();
     }
-    
+
     public PDFPreviewDialog(JFrame parent, Invoice invoice, Customer customer) {
         super(parent, "PDF Preview - Invoice " + invoice.getNumero(), true);
         this.invoice = invoice;
         this.customer = customer;
-        this.companyData = CompanyData.getInstance();
-        this.dateFormat = new SimpleDateFormat("dd/MM/yyyy");
-        
+
         setupWindow();
         initComponents();
+        loadDocument();
     }
-    
+
     private void setupWindow() {
+        // dispose() closes the document and stops the render thread
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
         setSize(700, 800);
         setLocationRelativeTo(getOwner());
         setLayout(new BorderLayout(10, 10));
     }
-    
+
     private void initComponents() {
         // Main panel with padding
         JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
         mainPanel.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
-        
-        // Preview panel
-        JPanel previewPanel = new JPanel();
-        previewPanel.setLayout(new BoxLayout(previewPanel, BoxLayout.Y_AXIS));
-        previewPanel.setBackground(Color.WHITE);
-        previewPanel.setBorder(BorderFactory.createCompoundBorder(
-            BorderFactory.createTitledBorder("Invoice Preview"),
-            BorderFactory.createEmptyBorder(10, 10, 10, 10)
-        ));
-        
-        // Header section
-        JPanel headerPanel = createHeaderPanel();
-        previewPanel.add(headerPanel);
-        previewPanel.add(Box.createVerticalStrut(20));
-        
-        // Company and customer info
-        JPanel infoPanel = createInfoPanel();
-        previewPanel.add(infoPanel);
-        previewPanel.add(Box.createVerticalStrut(20));
-        
-        // Invoice details
-        JPanel detailsPanel = createDetailsPanel();
-        previewPanel.add(detailsPanel);
-        previewPanel.add(Box.createVerticalStrut(20));
-        
-        // Items table
-        JPanel itemsPanel = createItemsPanel();
-        previewPanel.add(itemsPanel);
-        previewPanel.add(Box.createVerticalStrut(20));
-        
-        // Totals
-        JPanel totalsPanel = createTotalsPanel();
-        previewPanel.add(totalsPanel);
-        
-        // Scroll pane for preview
-        JScrollPane scrollPane = new JScrollPane(previewPanel);
-        scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
-        scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
-        
+
+        // Zoom and status
+        JPanel toolbar = new JPanel(new BorderLayout(10, 0));
+        JPanel zoomPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        String[] zoomLabels = new String[ZOOMS.length];
+        for (int i = 0; i < ZOOMS.length; i++) {
+            zoomLabels[i] = Math.round(ZOOMS[i] * 100) + "%";
+        }
+        JComboBox<String> zoomCombo = new JComboBox<>(zoomLabels);
+        zoomCombo.setSelectedIndex(2);
+        zoomCombo.addActionListener(e -> setZoom(ZOOMS[zoomCombo.getSelectedIndex()]));
+        zoomPanel.add(new JLabel("Zoom:"));
+        zoomPanel.add(zoomCombo);
+        statusLabel = new JLabel("Generating preview...");
+        toolbar.add(zoomPanel, BorderLayout.WEST);
+        toolbar.add(statusLabel, BorderLayout.EAST);
+
+        // Pages
+        pagesPanel = new PagesPanel();
+        JScrollPane scrollPane = new JScrollPane(pagesPanel);
+        scrollPane.getVerticalScrollBar().setUnitIncrement(24);
+        scrollPane.getHorizontalScrollBar().setUnitIncrement(24);
+
         // Button panel
         JPanel buttonPanel = new JPanel(new FlowLayout());
         JButton generateButton = new JButton("Generate PDF");
         JButton cancelButton = new JButton("Cancel");
-        
+
         generateButton.setPreferredSize(new Dimension(120, 35));
         cancelButton.setPreferredSize(new Dimension(100, 35));
-        
+
         generateButton.setBackground(new Color(51, 122, 183));
         generateButton.setForeground(Color.WHITE);
         generateButton.setFont(generateButton.getFont().deriveFont(Font.BOLD));
-        
+
         generateButton.addActionListener(e -> {
             generatePDF = true;
             dispose();
         });
         cancelButton.addActionListener(e -> dispose());
-        
+
         buttonPanel.add(generateButton);
         buttonPanel.add(cancelButton);
-        
+
         // Assembly
+        mainPanel.add(toolbar, BorderLayout.NORTH);
         mainPanel.add(scrollPane, BorderLayout.CENTER);
         mainPanel.add(buttonPanel, BorderLayout.SOUTH);
-        
+
         add(mainPanel);
     }
-    
-    private JPanel createHeaderPanel() {
-        JPanel panel = new JPanel(new BorderLayout());
-        
-        // Company name
-        JLabel titleLabel = new JLabel("INVOICE", SwingConstants.RIGHT);
-        titleLabel.setFont(new Font("Arial", Font.BOLD, 24));
-        titleLabel.setForeground(new Color(51, 122, 183));
-        
-        JLabel companyLabel = new JLabel(companyData.getCompanyName(), SwingConstants.LEFT);
-        companyLabel.setFont(new Font("Arial", Font.BOLD, 18));
-        
-        panel.add(companyLabel, BorderLayout.WEST);
-        panel.add(titleLabel, BorderLayout.EAST);
-        
-        return panel;
-    }
-    
-    private JPanel createInfoPanel() {
-        JPanel panel = new JPanel(new GridLayout(1, 2, 20, 0));
-        
-        // Company info
-        JPanel companyPanel = new JPanel();
-        companyPanel.setLayout(new BoxLayout(companyPanel, BoxLayout.Y_AXIS));
-        companyPanel.setBorder(BorderFactory.createTitledBorder("From"));
-        
-        addInfoLine(companyPanel, companyData.getCompanyName(), true);
-        addInfoLine(companyPanel, companyData.getAddress(), false);
-        addInfoLine(companyPanel, companyData.getCity() + " " + companyData.getPostalCode(), false);
-        addInfoLine(companyPanel, companyData.getCountry(), false);
-        addInfoLine(companyPanel, "VAT: " + companyData.getVatNumber(), false);
-        addInfoLine(companyPanel, "Phone: " + companyData.getPhone(), false);
-        addInfoLine(companyPanel, "Email: " + companyData.getEmail(), false);
-        
-        // Customer info
-        JPanel customerPanel = new JPanel();
-        customerPanel.setLayout(new BoxLayout(customerPanel, BoxLayout.Y_AXIS));
-        customerPanel.setBorder(BorderFactory.createTitledBorder("Bill To"));
-        
-        addInfoLine(customerPanel, customer.getNome() + " " + customer.getCognome(), true);
-        addInfoLine(customerPanel, customer.getEmail(), false);
-        addInfoLine(customerPanel, customer.getTelefono(), false);
-        addInfoLine(customerPanel, customer.getIndirizzo(), false);
-        
-        panel.add(companyPanel);
-        panel.add(customerPanel);
-        
-        return panel;
-    }
-    
-    private void addInfoLine(JPanel parent, String text, boolean bold) {
-        if (text != null && !text.trim().isEmpty() && 
-            !text.equals("VAT: ") && !text.equals("Phone: ") && !text.equals("Email: ")) {
-            JLabel label = new JLabel(text);
-            if (bold) {
-                label.setFont(label.getFont().deriveFont(Font.BOLD));
+
+    // Generate the PDF, or take it from the cache, and open it for rendering
+    private void loadDocument() {
+        SwingWorker<CachedDocument, Void> worker = new SwingWorker<CachedDocument, Void>() {
+            @Override
+            protected CachedDocument doInBackground() throws Exception {
+                List<InvoiceItem> items = invoice.getItems();
+                if (items.isEmpty() && invoice.getId() > 0) {
+                    items = InvoiceRepository.getInstance().findItems(invoice.getId());
+                }
+                long version = versionOf(items);
+                CachedDocument cached = getCachedDocument(invoice.getId(), version);
+                if (cached == null) {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 * 1024);
+                    new InvoicePDFGenerator(invoice, customer, items, CompanyData.getInstance()).generatePDF(bytes);
+                    cached = new CachedDocument(version, bytes.toByteArray());
+                }
+                CachedDocument loaded = cached;
+                renderThread.submit(() -> openDocument(loaded)).get();
+                putCachedDocument(invoice.getId(), loaded);
+                return loaded;
+            }
+
+            @Override
+            protected void done() {
+                if (!isDisplayable()) {
+                    return; // Closed while loading; the render thread is gone
+                }
+                try {
+                    shown = get();
+                    statusLabel.setText(shown.pageWidths.length == 1 ? "1 page" : shown.pageWidths.length + " pages");
+                    pagesPanel.revalidate();
+                    pagesPanel.repaint();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    statusLabel.setText("Preview not available");
+                    JOptionPane.showMessageDialog(PDFPreviewDialog.this,
+                        "Error generating preview: " + cause.getMessage(),
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    // On the render thread
+    private Void openDocument(CachedDocument cached) throws IOException {
+        document = Loader.loadPDF(cached.pdf);
+        renderer = new PDFRenderer(document);
+        if (cached.pageWidths == null) {
+            int pages = document.getNumberOfPages();
+            float[] widths = new float[pages];
+            float[] heights = new float[pages];
+            for (int i = 0; i < pages; i++) {
+                PDRectangle box = document.getPage(i).getMediaBox();
+                widths[i] = box.getWidth();
+                heights[i] = box.getHeight();
+            }
+            cached.pageWidths = widths;
+            cached.pageHeights = heights;
+        }
+        return null;
+    }
+
+    /**
+     * Fingerprint of what the invoice prints; a cached preview with
+     * another version is out of date
+     */
+    private long versionOf(List<InvoiceItem> items) {
+        StringBuilder printed = new StringBuilder();
+        printed.append(InvoiceTemplate.getGeneration()).append('|')
+            .append(invoice.getNumero()).append('|').append(invoice.getData()).append('|')
+            .append(invoice.getStato()).append('|').append(invoice.getImponibile()).append('|')
+            .append(invoice.getIva()).append('|').append(invoice.getTotale()).append('|')
+            .append(customer.getNome()).append('|').append(customer.getCognome()).append('|')
+            .append(customer.getEmail()).append('|').append(customer.getTelefono()).append('|')
+            .append(customer.getIndirizzo());
+        for (InvoiceItem item : items) {
+            printed.append('\n').append(item.getProdottoCodice()).append('|').append(item.getProdottoNome())
+                .append('|').append(item.getQuantita()).append('|').append(item.getPrezzoUnitario())
+                .append('|').append(item.getAliquotaIva()).append('|').append(item.getTotale());
+        }
+        String text = printed.toString();
+        CRC32 crc = new CRC32();
+        crc.update(text.getBytes(StandardCharsets.UTF_8));
+        return (crc.getValue() << 32) | (text.hashCode() & 0xFFFFFFFFL);
+    }
+
+    private void setZoom(double newZoom) {
+        zoom = newZoom;
+        queued.clear();
+        pagesPanel.revalidate();
+        pagesPanel.repaint();
+    }
+
+    // Called while painting for pages in view that have no image yet
+    private void requestPage(int page) {
+        PageKey key = new PageKey(invoice.getId(), shown.version, page, zoom);
+        if (!queued.add(key)) {
+            return;
+        }
+        renderThread.submit(() -> {
+            // Skip pages scrolled away or zoomed past while waiting
+            boolean wanted = key.zoom == zoom && page >= firstVisiblePage && page <= lastVisiblePage;
+            if (wanted && renderer != null) {
+                try {
+                    putPageImage(key, renderer.renderImage(page, (float) key.zoom));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            SwingUtilities.invokeLater(() -> {
+                queued.remove(key);
+                pagesPanel.repaint();
+            });
+        });
+    }
+
+    /**
+     * The pages one under the other, each drawn from the image cache or as
+     * a blank sheet until its image is ready
+     */
+    private class PagesPanel extends JPanel {
+        PagesPanel() {
+            setBackground(Color.GRAY);
+        }
+
+        @Override
+        public Dimension getPreferredSize() {
+            if (shown == null) {
+                return new Dimension(1, 1);
+            }
+            int width = 0;
+            int height = PAGE_GAP;
+            for (int i = 0; i < shown.pageWidths.length; i++) {
+                width = Math.max(width, (int) Math.ceil(shown.pageWidths[i] * zoom));
+                height += (int) Math.ceil(shown.pageHeights[i] * zoom) + PAGE_GAP;
+            }
+            return new Dimension(width + 2 * PAGE_GAP, height);
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            if (shown == null) {
+                return;
+            }
+            Rectangle visible = getVisibleRect();
+            int first = -1;
+            int last = -1;
+            int y = PAGE_GAP;
+            for (int i = 0; i < shown.pageWidths.length; i++) {
+                int width = (int) Math.ceil(shown.pageWidths[i] * zoom);
+                int height = (int) Math.ceil(shown.pageHeights[i] * zoom);
+                int x = Math.max(PAGE_GAP, (getWidth() - width) / 2);
+                if (y > visible.y + visible.height) {
+                    break;
+                }
+                if (y + height >= visible.y) {
+                    if (first < 0) {
+                        first = i;
+                    }
+                    last = i;
+                    BufferedImage image = getPageImage(new PageKey(invoice.getId(), shown.version, i, zoom));
+                    if (image != null) {
+                        g.drawImage(image, x, y, width, height, null);
+                    } else {
+                        g.setColor(Color.WHITE);
+                        g.fillRect(x, y, width, height);
+                        g.setColor(Color.LIGHT_GRAY);
+                        g.drawString("Rendering page " + (i + 1) + "...", x + 20, y + 30);
+                    }
+                }
+                y += height + PAGE_GAP;
+            }
+            firstVisiblePage = first;
+            lastVisiblePage = last;
+            for (int i = Math.max(first, 0); i <= last; i++) {
+                if (getPageImage(new PageKey(invoice.getId(), shown.version, i, zoom)) == null) {
+                    requestPage(i);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void dispose() {
+        renderThread.submit(() -> {
+            if (document != null) {
+                document.close();
             }
-            label.setAlignmentX(Component.LEFT_ALIGNMENT);
-            parent.add(label);
+            return null;
+        });
+        renderThread.shutdown();
+        super.dispose();
+    }
+
+    // Previews of invoices not yet saved (id 0) are not cached
+    private static synchronized CachedDocument getCachedDocument(int invoiceId, long version) {
+        CachedDocument cached = invoiceId > 0 ? documents.get(invoiceId) : null;
+        return cached != null && cached.version == version ? cached : null;
+    }
+
+    private static synchronized void putCachedDocument(int invoiceId, CachedDocument cached) {
+        if (invoiceId > 0) {
+            documents.put(invoiceId, cached);
         }
     }
-    
-    private JPanel createDetailsPanel() {
-        JPanel panel = new JPanel(new GridLayout(2, 2, 10, 5));
-        panel.setBorder(BorderFactory.createTitledBorder("Invoice Details"));
-        
-        panel.add(new JLabel("Invoice Number:"));
-        panel.add(new JLabel(invoice.getNumero()));
-        panel.add(new JLabel("Date:"));
-        panel.add(new JLabel(dateFormat.format(invoice.getData())));
-        
-        return panel;
-    }
-    
-    private JPanel createItemsPanel() {
-        JPanel panel = new JPanel(new BorderLayout());
-        panel.setBorder(BorderFactory.createTitledBorder("Items"));
-        
-        String[] columns = {"Code", "Description", "Qty", "Unit Price", "VAT %", "Total"};
-        Object[][] data = new Object[invoice.getItems().size()][6];
-        
-        for (int i = 0; i < invoice.getItems().size(); i++) {
-            InvoiceItem item = invoice.getItems().get(i);
-            data[i][0] = item.getProdottoCodice();
-            data[i][1] = item.getProdottoNome();
-            data[i][2] = item.getQuantita();
-            data[i][3] = String.format("€ %.2f", item.getPrezzoUnitario());
-            data[i][4] = String.format("%.1f%%", item.getAliquotaIva());
-            data[i][5] = String.format("€ %.2f", item.getTotale());
+
+    private static synchronized BufferedImage getPageImage(PageKey key) {
+        return pageImages.get(key);
+    }
+
+    // Least recently shown pages go first once the budget is used
+    private static synchronized void putPageImage(PageKey key, BufferedImage image) {
+        BufferedImage previous = pageImages.put(key, image);
+        if (previous != null) {
+            pageImageBytes -= imageBytes(previous);
+        }
+        pageImageBytes += imageBytes(image);
+        var eldest = pageImages.entrySet().iterator();
+        while (pageImageBytes > CACHED_IMAGE_BYTES && pageImages.size() > 1) {
+            pageImageBytes -= imageBytes(eldest.next().getValue());
+            eldest.remove();
         }
-        
-        JTable table = new JTable(data, columns);
-        table.setEnabled(false);
-        table.setRowHeight(25);
-        
-        JScrollPane scrollPane = new JScrollPane(table);
-        scrollPane.setPreferredSize(new Dimension(600, 150));
-        
-        panel.add(scrollPane, BorderLayout.CENTER);
-        
-        return panel;
-    }
-    
-    private JPanel createTotalsPanel() {
-        JPanel panel = new JPanel(new GridLayout(3, 2, 10, 5));
-        panel.setBorder(BorderFactory.createTitledBorder("Totals"));
-        
-        panel.add(new JLabel("Subtotal:", SwingConstants.RIGHT));
-        panel.add(new JLabel(String.format("€ %.2f", invoice.getImponibile())));
-        
-        panel.add(new JLabel("VAT:", SwingConstants.RIGHT));
-        panel.add(new JLabel(String.format("€ %.2f", invoice.getIva())));
-        
-        JLabel totalLabel = new JLabel("TOTAL:", SwingConstants.RIGHT);
-        totalLabel.setFont(totalLabel.getFont().deriveFont(Font.BOLD, 14f));
-        
-        JLabel totalValueLabel = new JLabel(String.format("€ %.2f", invoice.getTotale()));
-        totalValueLabel.setFont(totalValueLabel.getFont().deriveFont(Font.BOLD, 14f));
-        
-        panel.add(totalLabel);
-        panel.add(totalValueLabel);
-        
-        return panel;
-    }
-    
+    }
+
+    private static long imageBytes(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * 4;
+    }
+
     public boolean shouldGeneratePDF() {
         return generatePDF;
     }
-    
+
     public static boolean showPreview(Component parent, Invoice invoice, Customer customer) {
         PDFPreviewDialog dialog;
-        
+
         Window parentWindow = SwingUtilities.getWindowAncestor(parent);
         if (parentWindow instanceof JFrame) {
             dialog = new PDFPreviewDialog((JFrame) parentWindow, invoice, customer);
         } else {
             dialog = new PDFPreviewDialog((JDialog) parentWindow, invoice, customer);
         }
-        
+
         dialog.setVisible(true);
         return dialog.shouldGeneratePDF();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,38 @@
+import java.util.List;
+
+/**
+ * One page of a paged query
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final int offset;
+    private final int limit;
+    private final boolean hasMore;
+    private final Object[] lastKey;
+
+    public Page(List<T> items, int offset, int limit, boolean hasMore) {
+        this(items, offset, limit, hasMore, null);
+    }
+
+    /**
+     * @param lastKey sort key of the last item, for keyset paging; null if
+     *                the page is empty or the query is not keyset-paged
+     */
+    public Page(List<T> items, int offset, int limit, boolean hasMore, Object[] lastKey) {
+        this.items = items;
+        this.offset = offset;
+        this.limit = limit;
+        this.hasMore = hasMore;
+        this.lastKey = lastKey;
+    }
+
+    public List<T> getItems() { return items; }
+    public int getOffset() { return offset; }
+    public int getLimit() { return limit; }
+    public boolean hasMore() { return hasMore; }
+    public Object[] getLastKey() { return lastKey; }
+
+    public int getNextOffset() {
+        return offset + items.size();
+    }
+}
@@ -0,0 +1,83 @@
+import java.sql.*;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory product catalog, by id, by code, sorted by name and searchable
+ * as you type. Product selectors read from here instead of running
+ * "SELECT * FROM prodotti" every time a dialog opens. Kept current from
+ * product and stock events on the EventBus.
+ */
+public class ProductCatalog extends EntityCatalog<Product> {
+    private static ProductCatalog instance;
+
+    // Guarded by this
+    private final Map<String, Product> byCode = new HashMap<>();
+
+    private ProductCatalog() {
+        super("product-catalog", Comparator
+            .comparing(Product::getNome, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+            .thenComparingInt(Product::getId));
+        EventBus bus = EventBus.getInstance();
+        bus.subscribe(DomainEvent.ProductChanged.class, e -> changed(e.getProductId()));
+        bus.subscribe(DomainEvent.StockMoved.class, e -> changed(e.getProductId()));
+        bus.subscribe(DomainEvent.ProductDeleted.class, e -> deleted(e.getProductId()));
+        bus.subscribe(DomainEvent.ProductsImported.class, e -> invalidateAll());
+    }
+
+    public static synchronized ProductCatalog getInstance() {
+        if (instance == null) {
+            instance = new ProductCatalog();
+        }
+        return instance;
+    }
+
+    public Product findByCode(String codice) throws SQLException {
+        if (codice == null) {
+            return null;
+        }
+        awaitLoaded();
+        synchronized (this) {
+            return byCode.get(codice);
+        }
+    }
+
+    @Override
+    protected int idOf(Product product) {
+        return product.getId();
+    }
+
+    @Override
+    protected List<Product> loadAll() throws SQLException {
+        return ProductRepository.getInstance().findAll();
+    }
+
+    @Override
+    protected Map<Integer, Product> loadByIds(Collection<Integer> ids) throws SQLException {
+        return ProductRepository.getInstance().findByIds(ids);
+    }
+
+    @Override
+    protected void configureTypeahead(TypeaheadIndex<Product> index) {
+        index.field(Product::getCodice, 3.0)
+             .field(Product::getNome, 2.0)
+             .field(Product::getDescrizione, 0.5);
+    }
+
+    @Override
+    protected void indexed(Product product) {
+        if (product.getCodice() != null) {
+            byCode.put(product.getCodice(), product);
+        }
+    }
+
+    @Override
+    protected void unindexed(Product product) {
+        if (product.getCodice() != null) {
+            byCode.remove(product.getCodice(), product);
+        }
+    }
+}
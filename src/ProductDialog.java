@@ -9,6 +9,7 @@ public class ProductDialog extends JDialog {
     private JTextArea descrizioneArea;
     private JTextField prezzoField;
     private JSpinner quantitaSpinner;
+    private JButton saveButton;
     private boolean productSaved = false;
     private Product product;
     
@@ -94,7 +95,7 @@ public class ProductDialog extends JDialog {
         
         // Button panel
         JPanel buttonPanel = new JPanel();
-        JButton saveButton = new JButton("Save");
+        saveButton = new JButton("Save");
         JButton cancelButton = new JButton("Cancel");
         
         saveButton.addActionListener(e -> saveProduct());
@@ -132,48 +133,63 @@ public class ProductDialog extends JDialog {
                 return;
             }
             
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            if (product == null) { // New product
-                String query = """
-                    INSERT INTO prodotti (codice, nome, descrizione, prezzo, quantita)
-                    VALUES (?, ?, ?, ?, ?)
-                """;
-                try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-                    pstmt.setString(1, codice);
-                    pstmt.setString(2, nome);
-                    pstmt.setString(3, descrizione);
-                    pstmt.setDouble(4, prezzo);
-                    pstmt.setInt(5, quantita);
-                    pstmt.executeUpdate();
+            // Written on the group-commit thread; the dialog stays responsive
+            saveButton.setEnabled(false);
+            DatabaseManager.getInstance().submitWrite(conn -> {
+                if (product == null) { // New product
+                    String query = """
+                        INSERT INTO prodotti (codice, nome, descrizione, prezzo, quantita)
+                        VALUES (?, ?, ?, ?, ?)
+                    """;
+                    try (PreparedStatement pstmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+                        pstmt.setString(1, codice);
+                        pstmt.setString(2, nome);
+                        pstmt.setString(3, descrizione);
+                        pstmt.setDouble(4, prezzo);
+                        pstmt.setInt(5, quantita);
+                        pstmt.executeUpdate();
+                        
+                        try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                            if (rs.next()) {
+                                return rs.getInt(1);
+                            }
+                            throw new SQLException("Failed to get product ID");
+                        }
+                    }
+                } else { // Edit product
+                    String query = """
+                        UPDATE prodotti
+                        SET codice = ?, nome = ?, descrizione = ?, prezzo = ?, quantita = ?
+                        WHERE id = ?
+                    """;
+                    try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                        pstmt.setString(1, codice);
+                        pstmt.setString(2, nome);
+                        pstmt.setString(3, descrizione);
+                        pstmt.setDouble(4, prezzo);
+                        pstmt.setInt(5, quantita);
+                        pstmt.setInt(6, product.getId());
+                        pstmt.executeUpdate();
+                    }
+                    return product.getId();
                 }
-            } else { // Edit product
-                String query = """
-                    UPDATE prodotti
-                    SET codice = ?, nome = ?, descrizione = ?, prezzo = ?, quantita = ?
-                    WHERE id = ?
-                """;
-                try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-                    pstmt.setString(1, codice);
-                    pstmt.setString(2, nome);
-                    pstmt.setString(3, descrizione);
-                    pstmt.setDouble(4, prezzo);
-                    pstmt.setInt(5, quantita);
-                    pstmt.setInt(6, product.getId());
-                    pstmt.executeUpdate();
+            }).whenComplete((productId, error) -> SwingUtilities.invokeLater(() -> {
+                saveButton.setEnabled(true);
+                if (error != null) {
+                    JOptionPane.showMessageDialog(this,
+                        "Error while saving product: " + error.getMessage(),
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
                 }
-            }
-            
-            productSaved = true;
-            dispose();
+                productSaved = true;
+                EventBus.getInstance().publish(new DomainEvent.ProductChanged(productId, product == null));
+                dispose();
+            }));
             
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this,
                 "Price must be a valid number",
                 "Error", JOptionPane.ERROR_MESSAGE);
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this,
-                "Error while saving product: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
     
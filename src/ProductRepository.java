@@ -0,0 +1,86 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typed queries on prodotti
+ */
+public class ProductRepository extends Repository {
+    private static ProductRepository instance;
+
+    private static final String COLUMNS = "id, codice, nome, descrizione, prezzo, quantita";
+    private static final String SELECT = "SELECT " + COLUMNS + " FROM prodotti";
+
+    // Column weights for bm25: a hit on the code counts most, then the name
+    private static final String SEARCH = """
+        SELECT p.id, p.codice, p.nome, p.descrizione, p.prezzo, p.quantita
+        FROM prodotti_fts
+        JOIN prodotti p ON p.id = prodotti_fts.rowid
+        WHERE prodotti_fts MATCH ?
+        ORDER BY bm25(prodotti_fts, 10.0, 5.0, 1.0), p.nome
+        LIMIT ?
+    """;
+
+    private ProductRepository() {
+        // Private constructor for the Singleton pattern
+    }
+
+    public static synchronized ProductRepository getInstance() {
+        if (instance == null) {
+            instance = new ProductRepository();
+        }
+        return instance;
+    }
+
+    public List<Product> findAll() throws SQLException {
+        return queryList(SELECT + " ORDER BY nome", RowMappers.PRODUCT);
+    }
+
+    public Page<Product> findPage(int offset, int limit) throws SQLException {
+        return queryPage(SELECT + " ORDER BY nome, id", RowMappers.PRODUCT, offset, limit);
+    }
+
+    /**
+     * Every product by name, for a table that pages rows in as it scrolls
+     */
+    public KeysetQuery<Product> browse() {
+        return new KeysetQuery<>(COLUMNS, "prodotti", RowMappers.PRODUCT).orderBy(false, "nome", "id");
+    }
+
+    public Product findById(int id) throws SQLException {
+        return queryOne(SELECT + " WHERE id = ?", RowMappers.PRODUCT, id);
+    }
+
+    public Map<Integer, Product> findByIds(Collection<Integer> ids) throws SQLException {
+        return queryByIds(SELECT + " WHERE id", ids, RowMappers.PRODUCT, Product::getId);
+    }
+
+    /**
+     * Full-text search on code, name and description: every word of term
+     * must start a word of the product, best matches first
+     */
+    public List<Product> search(String term, int limit) throws SQLException {
+        String match = toPrefixQuery(term);
+        if (match == null) {
+            return new ArrayList<>();
+        }
+        return queryList(SEARCH, RowMappers.PRODUCT, match, limit);
+    }
+
+    /**
+     * Every match, without a row limit
+     */
+    public List<Product> search(String term) throws SQLException {
+        return search(term, -1);
+    }
+
+    /**
+     * @return the stock on hand, or 0 if the product does not exist
+     */
+    public int getStock(int productId) throws SQLException {
+        Integer stock = queryOne("SELECT quantita FROM prodotti WHERE id = ?", rs -> rs.getInt(1), productId);
+        return stock != null ? stock : 0;
+    }
+}
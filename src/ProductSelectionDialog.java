@@ -3,8 +3,8 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.*;
 import java.sql.*;
+import java.util.List;
 import java.util.Vector;
-import javax.swing.Timer;
 
 public class ProductSelectionDialog extends JDialog {
     private JTextField searchField;
@@ -15,11 +15,12 @@ public class ProductSelectionDialog extends JDialog {
     private JSpinner quantitySpinner;
     private JTextField vatRateField;
     private JLabel noteLabel;
+    private final BusyIndicator busyIndicator = new BusyIndicator();
+    private boolean waitingForCatalog = false;
     
     // Dati del prodotto selezionato per l'ordine
     private int selectedQuantity = 1;
     private double selectedVatRate = 22.0;
-    private Timer searchTimer;
     
     public ProductSelectionDialog(JDialog parent) {
         super(parent, "Select Product", true);
@@ -52,14 +53,14 @@ public class ProductSelectionDialog extends JDialog {
         JButton clearButton = new JButton("Clear");
         JButton newProductButton = new JButton("New Product");
         
-        // Ricerca in tempo reale con delay
+        // Ricerca in tempo reale sul catalogo in memoria, senza attese
         searchField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
             @Override
-            public void insertUpdate(javax.swing.event.DocumentEvent e) { scheduleSearch(); }
+            public void insertUpdate(javax.swing.event.DocumentEvent e) { performSearch(); }
             @Override
-            public void removeUpdate(javax.swing.event.DocumentEvent e) { scheduleSearch(); }
+            public void removeUpdate(javax.swing.event.DocumentEvent e) { performSearch(); }
             @Override
-            public void changedUpdate(javax.swing.event.DocumentEvent e) { scheduleSearch(); }
+            public void changedUpdate(javax.swing.event.DocumentEvent e) { performSearch(); }
         });
         
         // Enter key per ricerca
@@ -84,6 +85,7 @@ public class ProductSelectionDialog extends JDialog {
         searchInputPanel.add(searchButton);
         searchInputPanel.add(clearButton);
         searchInputPanel.add(newProductButton);
+        searchInputPanel.add(busyIndicator);
         
         searchPanel.add(searchInputPanel, BorderLayout.CENTER);
         
@@ -237,32 +239,13 @@ public class ProductSelectionDialog extends JDialog {
         return panel;
     }
     
-    private void scheduleSearch() {
-        if (searchTimer != null) {
-            searchTimer.stop();
-        }
-        searchTimer = new Timer(300, e -> performSearch());
-        searchTimer.setRepeats(false);
-        searchTimer.start();
-    }
-    
     private void loadAllProducts() {
-        tableModel.setRowCount(0);
+        if (!catalogReady()) {
+            return;
+        }
         try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = """
-                SELECT id, codice, nome, descrizione, prezzo, quantita
-                FROM prodotti 
-                ORDER BY nome
-                LIMIT 1000
-            """;
-            
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(query)) {
-                while (rs.next()) {
-                    addProductRow(rs);
-                }
-            }
+            List<Product> products = ProductCatalog.getInstance().getAll();
+            showProducts(products.subList(0, Math.min(1000, products.size())));
         } catch (SQLException e) {
             e.printStackTrace();
             JOptionPane.showMessageDialog(this,
@@ -277,42 +260,12 @@ public class ProductSelectionDialog extends JDialog {
             loadAllProducts();
             return;
         }
+        if (!catalogReady()) {
+            return;
+        }
         
-        tableModel.setRowCount(0);
         try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = """
-                SELECT id, codice, nome, descrizione, prezzo, quantita
-                FROM prodotti 
-                WHERE LOWER(codice) LIKE LOWER(?) 
-                   OR LOWER(nome) LIKE LOWER(?) 
-                   OR LOWER(descrizione) LIKE LOWER(?)
-                ORDER BY 
-                    CASE 
-                        WHEN LOWER(codice) LIKE LOWER(?) THEN 1
-                        WHEN LOWER(nome) LIKE LOWER(?) THEN 2
-                        ELSE 3
-                    END,
-                    nome
-                LIMIT 500
-            """;
-            
-            String searchPattern = "%" + searchTerm + "%";
-            String exactPattern = searchTerm + "%";
-            
-            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-                pstmt.setString(1, searchPattern);
-                pstmt.setString(2, searchPattern);
-                pstmt.setString(3, searchPattern);
-                pstmt.setString(4, exactPattern); // Per ordinamento
-                pstmt.setString(5, exactPattern); // Per ordinamento
-                
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    while (rs.next()) {
-                        addProductRow(rs);
-                    }
-                }
-            }
+            showProducts(ProductCatalog.getInstance().search(searchTerm, 500));
         } catch (SQLException e) {
             e.printStackTrace();
             JOptionPane.showMessageDialog(this,
@@ -321,22 +274,57 @@ public class ProductSelectionDialog extends JDialog {
         }
     }
     
-    private void addProductRow(ResultSet rs) throws SQLException {
+    /**
+     * False while the catalog is still loading; the list is filled in once
+     * it is ready, so the dialog never waits for a full load on the EDT
+     */
+    private boolean catalogReady() {
+        ProductCatalog catalog = ProductCatalog.getInstance();
+        if (catalog.isLoaded()) {
+            return true;
+        }
+        if (!waitingForCatalog) {
+            waitingForCatalog = true;
+            busyIndicator.begin();
+            catalog.whenLoaded(() -> {
+                waitingForCatalog = false;
+                busyIndicator.end();
+                performSearch();
+            }, error -> {
+                waitingForCatalog = false;
+                busyIndicator.end();
+                error.printStackTrace();
+                JOptionPane.showMessageDialog(this,
+                    "Error loading products: " + error.getMessage(),
+                    "Error", JOptionPane.ERROR_MESSAGE);
+            });
+        }
+        return false;
+    }
+    
+    private void showProducts(List<Product> products) {
+        tableModel.setRowCount(0);
+        for (Product product : products) {
+            addProductRow(product);
+        }
+    }
+    
+    private void addProductRow(Product product) {
         Vector<Object> row = new Vector<>();
-        row.add(rs.getInt("id")); // ID nascosto
-        row.add(rs.getString("codice"));
-        row.add(rs.getString("nome"));
+        row.add(product.getId()); // ID nascosto
+        row.add(product.getCodice());
+        row.add(product.getNome());
         
-        String description = rs.getString("descrizione");
+        String description = product.getDescrizione();
         // Tronca descrizione se troppo lunga
         if (description != null && description.length() > 50) {
             description = description.substring(0, 47) + "...";
         }
         row.add(description);
         
-        row.add(String.format("%.2f", rs.getDouble("prezzo")));
+        row.add(String.format("%.2f", product.getPrezzo()));
         
-        int stock = rs.getInt("quantita");
+        int stock = product.getQuantita();
         row.add(stock);
         
         // Status basato su disponibilità
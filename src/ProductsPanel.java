@@ -1,14 +1,13 @@
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.*;
 import java.sql.*;
-import java.util.Vector;
 
 public class ProductsPanel extends JPanel {
     private JTable productsTable;
-    private DefaultTableModel tableModel;
+    private LazyTableModel<Product> tableModel;
     private JTextField searchField;
+    private final BusyIndicator busyIndicator = new BusyIndicator();
     private JButton addButton;
     private JButton editButton;
     private JButton deleteButton;
@@ -18,6 +17,13 @@ public class ProductsPanel extends JPanel {
         setupPanel();
         initComponents();
         loadProducts();
+        
+        // Patch single rows when products change anywhere in the application
+        EventBus bus = EventBus.getInstance();
+        bus.subscribe(DomainEvent.ProductChanged.class, e -> productChanged(e.getProductId(), e.isCreated()));
+        bus.subscribe(DomainEvent.StockMoved.class, e -> productChanged(e.getProductId(), false));
+        bus.subscribe(DomainEvent.ProductDeleted.class, e -> tableModel.refresh());
+        bus.subscribe(DomainEvent.ProductsImported.class, e -> tableModel.refresh());
     }
     
     private void setupPanel() {
@@ -37,15 +43,20 @@ public class ProductsPanel extends JPanel {
         searchPanel.add(new JLabel("Search: "));
         searchPanel.add(searchField);
         searchPanel.add(searchButton);
+        searchPanel.add(busyIndicator);
         
         // Products table
         String[] columns = {"ID", "Code", "Name", "Description", "Price", "Quantity"};
-        tableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        tableModel = new LazyTableModel<Product>(columns, product -> new Object[] {
+            product.getId(),
+            product.getCodice(),
+            product.getNome(),
+            product.getDescrizione(),
+            product.getPrezzo(),
+            product.getQuantita()
+        }).showBusy(busyIndicator).onError(e -> JOptionPane.showMessageDialog(this,
+            "Error loading products: " + e.getMessage(),
+            "Error", JOptionPane.ERROR_MESSAGE));
         productsTable = new JTable(tableModel);
         productsTable.getSelectionModel().setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         productsTable.getSelectionModel().addListSelectionListener(e -> updateButtonStates());
@@ -95,27 +106,16 @@ public class ProductsPanel extends JPanel {
     }
     
     private void loadProducts() {
-        tableModel.setRowCount(0);
-        try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = "SELECT * FROM prodotti ORDER BY nome";
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(query)) {
-                while (rs.next()) {
-                    Vector<Object> row = new Vector<>();
-                    row.add(rs.getInt("id"));
-                    row.add(rs.getString("codice"));
-                    row.add(rs.getString("nome"));
-                    row.add(rs.getString("descrizione"));
-                    row.add(rs.getDouble("prezzo"));
-                    row.add(rs.getInt("quantita"));
-                    tableModel.addRow(row);
-                }
-            }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this,
-                "Error loading products: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
+        tableModel.setQuery(ProductRepository.getInstance().browse());
+    }
+    
+    private void productChanged(int productId, boolean created) {
+        if (created) {
+            // Its position in the list is only known to the query
+            tableModel.refresh();
+        } else {
+            tableModel.reloadRows(product -> product.getId() == productId,
+                () -> ProductRepository.getInstance().findById(productId));
         }
     }
     
@@ -126,39 +126,7 @@ public class ProductsPanel extends JPanel {
             return;
         }
         
-        tableModel.setRowCount(0);
-        try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = """
-                SELECT * FROM prodotti 
-                WHERE codice LIKE ? OR nome LIKE ? OR descrizione LIKE ?
-                ORDER BY nome
-            """;
-            String searchPattern = "%" + searchTerm + "%";
-            
-            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-                pstmt.setString(1, searchPattern);
-                pstmt.setString(2, searchPattern);
-                pstmt.setString(3, searchPattern);
-                
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    while (rs.next()) {
-                        Vector<Object> row = new Vector<>();
-                        row.add(rs.getInt("id"));
-                        row.add(rs.getString("codice"));
-                        row.add(rs.getString("nome"));
-                        row.add(rs.getString("descrizione"));
-                        row.add(rs.getDouble("prezzo"));
-                        row.add(rs.getInt("quantita"));
-                        tableModel.addRow(row);
-                    }
-                }
-            }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this,
-                "Error searching for products: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        tableModel.loadItems(() -> ProductRepository.getInstance().search(searchTerm));
     }
     
     private void showProductDialog(Product product) {
@@ -173,42 +141,39 @@ public class ProductsPanel extends JPanel {
         }
         
         dialog.setVisible(true);
-        if (dialog.isProductSaved()) {
-            loadProducts();
-        }
     }
     
     private void editSelectedProduct() {
         int selectedRow = productsTable.getSelectedRow();
-        if (selectedRow != -1) {
-            Product product = new Product(
-                (int)tableModel.getValueAt(selectedRow, 0),
-                (String)tableModel.getValueAt(selectedRow, 1),
-                (String)tableModel.getValueAt(selectedRow, 2),
-                (String)tableModel.getValueAt(selectedRow, 3),
-                (double)tableModel.getValueAt(selectedRow, 4),
-                (int)tableModel.getValueAt(selectedRow, 5)
-            );
+        Product product = selectedRow != -1 ? tableModel.getItem(selectedRow) : null;
+        if (product != null) {
             showProductDialog(product);
         }
     }
     
     private void deleteSelectedProduct() {
         int selectedRow = productsTable.getSelectedRow();
-        if (selectedRow != -1) {
-            int id = (int)tableModel.getValueAt(selectedRow, 0);
-            String nome = (String)tableModel.getValueAt(selectedRow, 2);
+        Product selected = selectedRow != -1 ? tableModel.getItem(selectedRow) : null;
+        if (selected != null) {
+            int id = selected.getId();
+            String nome = selected.getNome();
             
             try {
-                Connection conn = DatabaseManager.getInstance().getConnection();
-                
                 // Check for existing dependencies
-                boolean hasOrders = hasProductInOrders(conn, id);
-                boolean hasInvoices = hasProductInInvoices(conn, id);
-                boolean hasSupplierOrders = hasProductInSupplierOrders(conn, id);
-                boolean hasPriceLists = hasProductInPriceLists(conn, id);
-                boolean hasWarehouseMovements = hasProductInWarehouseMovements(conn, id);
-                boolean hasMinStock = hasProductInMinStock(conn, id);
+                boolean hasOrders;
+                boolean hasInvoices;
+                boolean hasSupplierOrders;
+                boolean hasPriceLists;
+                boolean hasWarehouseMovements;
+                boolean hasMinStock;
+                try (Connection conn = DatabaseManager.getInstance().getReadConnection()) {
+                    hasOrders = hasProductInOrders(conn, id);
+                    hasInvoices = hasProductInInvoices(conn, id);
+                    hasSupplierOrders = hasProductInSupplierOrders(conn, id);
+                    hasPriceLists = hasProductInPriceLists(conn, id);
+                    hasWarehouseMovements = hasProductInWarehouseMovements(conn, id);
+                    hasMinStock = hasProductInMinStock(conn, id);
+                }
                 
                 if (hasOrders || hasInvoices || hasSupplierOrders || hasPriceLists || hasWarehouseMovements || hasMinStock) {
                     StringBuilder message = new StringBuilder();
@@ -234,7 +199,7 @@ public class ProductsPanel extends JPanel {
                         null, options, options[0]);
                     
                     if (choice == 1) { // Force Delete
-                        performCascadeDelete(conn, id, nome);
+                        performCascadeDelete(id, nome);
                     }
                     return;
                 }
@@ -247,17 +212,19 @@ public class ProductsPanel extends JPanel {
                     JOptionPane.WARNING_MESSAGE);
                     
                 if (result == JOptionPane.YES_OPTION) {
-                    String query = "DELETE FROM prodotti WHERE id = ?";
-                    try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-                        pstmt.setInt(1, id);
-                        pstmt.executeUpdate();
-                        loadProducts();
-                        
-                        JOptionPane.showMessageDialog(this,
-                            "Product deleted successfully",
-                            "Success",
-                            JOptionPane.INFORMATION_MESSAGE);
-                    }
+                    DatabaseManager.getInstance().inWriteTransaction(conn -> {
+                        String query = "DELETE FROM prodotti WHERE id = ?";
+                        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                            pstmt.setInt(1, id);
+                            return pstmt.executeUpdate();
+                        }
+                    });
+                    EventBus.getInstance().publish(new DomainEvent.ProductDeleted(id));
+                    
+                    JOptionPane.showMessageDialog(this,
+                        "Product deleted successfully",
+                        "Success",
+                        JOptionPane.INFORMATION_MESSAGE);
                 }
             } catch (SQLException e) {
                 e.printStackTrace();
@@ -268,7 +235,7 @@ public class ProductsPanel extends JPanel {
         }
     }
     
-    private void performCascadeDelete(Connection conn, int id, String nome) {
+    private void performCascadeDelete(int id, String nome) {
         int confirmResult = JOptionPane.showConfirmDialog(this,
             "WARNING: This will permanently delete product '" + nome + "' and ALL related data:\n" +
             "- All customer orders containing this product\n" +
@@ -288,9 +255,7 @@ public class ProductsPanel extends JPanel {
         }
         
         try {
-            conn.setAutoCommit(false);
-            
-            try {
+            DatabaseManager.getInstance().inWriteTransaction(conn -> {
                 // Delete in order to respect foreign key constraints
                 
                 // 1. Delete order details
@@ -356,22 +321,14 @@ public class ProductsPanel extends JPanel {
                     pstmt.executeUpdate();
                     System.out.println("Deleted product");
                 }
+                return null;
+            });
+            EventBus.getInstance().publish(new DomainEvent.ProductDeleted(id));
                 
-                conn.commit();
-                loadProducts();
-                
-                JOptionPane.showMessageDialog(this,
-                    "Product '" + nome + "' and all related records deleted successfully",
-                    "Force Delete Completed",
-                    JOptionPane.INFORMATION_MESSAGE);
-                    
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
-            }
-            
+            JOptionPane.showMessageDialog(this,
+                "Product '" + nome + "' and all related records deleted successfully",
+                "Force Delete Completed",
+                JOptionPane.INFORMATION_MESSAGE);
         } catch (SQLException e) {
             e.printStackTrace();
             JOptionPane.showMessageDialog(this,
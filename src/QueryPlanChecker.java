@@ -0,0 +1,151 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs EXPLAIN QUERY PLAN on the application's known hot queries and reports
+ * the ones that still scan a whole table. Parameters are bound to NULL, which
+ * SQLite plans the same way as real values.
+ *
+ * Enable at startup with -Dworkgenio.checkQueryPlans=true.
+ */
+public class QueryPlanChecker {
+    private static final Map<String, String> KNOWN_QUERIES = new LinkedHashMap<>();
+
+    static {
+        // List panels, one keyset page after the first
+        KNOWN_QUERIES.put("ProductsPanel.loadData", """
+            SELECT id, codice, nome, descrizione, prezzo, quantita FROM prodotti
+            WHERE (nome, id) > (?, ?) ORDER BY nome, id LIMIT ?
+        """);
+        KNOWN_QUERIES.put("CustomersPanel.loadData", """
+            SELECT id, nome, cognome, email, telefono, indirizzo FROM clienti
+            WHERE (cognome, nome, id) > (?, ?, ?) ORDER BY cognome, nome, id LIMIT ?
+        """);
+        KNOWN_QUERIES.put("SuppliersPanel.loadData", "SELECT * FROM fornitori ORDER BY ragione_sociale");
+        KNOWN_QUERIES.put("OrdersPanel.loadData", """
+            SELECT o.*, c.nome || ' ' || c.cognome as cliente_nome
+            FROM ordini o LEFT JOIN clienti c ON o.cliente_id = c.id
+            WHERE (o.data_ordine, o.id) < (?, ?)
+            ORDER BY o.data_ordine DESC, o.id DESC LIMIT ?
+        """);
+        KNOWN_QUERIES.put("InvoicesPanel.loadData", """
+            SELECT f.*, c.nome || ' ' || c.cognome as cliente_nome
+            FROM fatture f LEFT JOIN clienti c ON f.cliente_id = c.id
+            WHERE (f.data, f.id) < (?, ?)
+            ORDER BY f.data DESC, f.id DESC LIMIT ?
+        """);
+        KNOWN_QUERIES.put("WarehousePanel.loadMovementsData", """
+            SELECT m.*, p.nome as prodotto_nome
+            FROM movimenti_magazzino m JOIN prodotti p ON m.prodotto_id = p.id
+            WHERE (m.data, m.id) < (?, ?)
+            ORDER BY m.data DESC, m.id DESC LIMIT ?
+        """);
+        KNOWN_QUERIES.put("SalesReportPanel.loadReportData", """
+            SELECT o.id, o.data_ordine, o.stato, o.totale
+            FROM ordini o LEFT JOIN clienti c ON o.cliente_id = c.id
+            WHERE (o.data_ordine >= ? AND o.data_ordine <= ?) AND (o.data_ordine, o.id) < (?, ?)
+            ORDER BY o.data_ordine DESC, o.id DESC LIMIT ?
+        """);
+        KNOWN_QUERIES.put("AdvancedStatsPanel.loadSalesData",
+            "SELECT mese, totale, ordini FROM vendite_mensili WHERE mese >= ? ORDER BY mese");
+        KNOWN_QUERIES.put("AdvancedStatsPanel.loadProductsData", """
+            SELECT v.prodotto_id, SUM(v.quantita), SUM(v.fatturato) as fatturato
+            FROM vendite_prodotti_mensili v
+            WHERE v.mese >= ?
+            GROUP BY v.prodotto_id ORDER BY fatturato DESC LIMIT 10
+        """);
+        KNOWN_QUERIES.put("WarehouseReportPanel.loadMovementsData", """
+            SELECT m.*, p.nome as prodotto_nome
+            FROM movimenti_magazzino m LEFT JOIN prodotti p ON m.prodotto_id = p.id
+            WHERE (1=1 AND m.data >= ? AND m.data <= ?) AND (m.data, m.id) < (?, ?)
+            ORDER BY m.data DESC, m.id DESC LIMIT ?
+        """);
+
+        // Detail lookups
+        KNOWN_QUERIES.put("OrdersPanel.loadOrderItems",
+            "SELECT * FROM dettagli_ordine WHERE ordine_id = ?");
+        KNOWN_QUERIES.put("InvoicePDFGenerator.loadInvoiceItems",
+            "SELECT * FROM dettagli_fattura WHERE fattura_id = ? ORDER BY id");
+        KNOWN_QUERIES.put("SupplierOrdersWindow.loadOrders",
+            "SELECT * FROM ordini_fornitori WHERE fornitore_id = ? ORDER BY data_ordine DESC");
+        KNOWN_QUERIES.put("SupplierOrdersWindow.loadOrderItems",
+            "SELECT * FROM dettagli_ordini_fornitori WHERE ordine_id = ?");
+        KNOWN_QUERIES.put("SupplierPriceListDialog.checkExisting",
+            "SELECT id FROM listini_fornitori WHERE fornitore_id = ? AND prodotto_id = ?");
+        KNOWN_QUERIES.put("WarehouseMovements.byProduct",
+            "SELECT * FROM movimenti_magazzino WHERE prodotto_id = ? ORDER BY data DESC");
+
+        // Delete-dependency counts
+        KNOWN_QUERIES.put("CustomersPanel.countOrders", "SELECT COUNT(*) FROM ordini WHERE cliente_id = ?");
+        KNOWN_QUERIES.put("CustomersPanel.countInvoices", "SELECT COUNT(*) FROM fatture WHERE cliente_id = ?");
+        KNOWN_QUERIES.put("ProductsPanel.countOrderLines", "SELECT COUNT(*) FROM dettagli_ordine WHERE prodotto_id = ?");
+        KNOWN_QUERIES.put("ProductsPanel.countInvoiceLines", "SELECT COUNT(*) FROM dettagli_fattura WHERE prodotto_id = ?");
+        KNOWN_QUERIES.put("ProductsPanel.countSupplierOrderLines",
+            "SELECT COUNT(*) FROM dettagli_ordini_fornitori WHERE prodotto_id = ?");
+        KNOWN_QUERIES.put("ProductsPanel.countPriceLists", "SELECT COUNT(*) FROM listini_fornitori WHERE prodotto_id = ?");
+        KNOWN_QUERIES.put("ProductsPanel.countMovements", "SELECT COUNT(*) FROM movimenti_magazzino WHERE prodotto_id = ?");
+        KNOWN_QUERIES.put("SuppliersPanel.countOrders", "SELECT COUNT(*) FROM ordini_fornitori WHERE fornitore_id = ?");
+        KNOWN_QUERIES.put("SuppliersPanel.countPriceLists", "SELECT COUNT(*) FROM listini_fornitori WHERE fornitore_id = ?");
+        KNOWN_QUERIES.put("SuppliersPanel.countMinimumStock",
+            "SELECT COUNT(*) FROM scorte_minime WHERE fornitore_preferito_id = ?");
+    }
+
+    private QueryPlanChecker() {
+        // Utility class
+    }
+
+    /**
+     * @return one line per query that still contains a full table scan
+     */
+    public static List<String> findFullScans(Connection conn) throws SQLException {
+        List<String> warnings = new ArrayList<>();
+
+        for (Map.Entry<String, String> entry : KNOWN_QUERIES.entrySet()) {
+            try (PreparedStatement pstmt = conn.prepareStatement("EXPLAIN QUERY PLAN " + entry.getValue())) {
+                int paramCount = pstmt.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= paramCount; i++) {
+                    pstmt.setNull(i, Types.NULL);
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        String detail = rs.getString("detail");
+                        if (isFullScan(detail)) {
+                            warnings.add(entry.getKey() + ": " + detail);
+                        }
+                    }
+                }
+            }
+        }
+        return warnings;
+    }
+
+    static boolean isFullScan(String detail) {
+        if (detail == null || !detail.startsWith("SCAN ")) {
+            return false;
+        }
+        // Index scans, constant rows and subquery/CTE scans are not table scans
+        return !detail.contains(" USING ")
+            && !detail.startsWith("SCAN CONSTANT ROW")
+            && !detail.startsWith("SCAN SUBQUERY")
+            && !detail.startsWith("SCAN (subquery");
+    }
+
+    public static void report(Connection conn) {
+        try {
+            List<String> warnings = findFullScans(conn);
+            if (warnings.isEmpty()) {
+                System.out.println("Query plan check: no full table scans in " + KNOWN_QUERIES.size() + " known queries");
+            } else {
+                System.err.println("Query plan check: " + warnings.size() + " full table scan(s)");
+                for (String warning : warnings) {
+                    System.err.println("  " + warning);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Query plan check failed: " + e.getMessage());
+        }
+    }
+}
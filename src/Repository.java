@@ -0,0 +1,163 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Query helpers shared by the repositories. Every query runs on a pooled
+ * read connection through the prepared-statement cache, and can be
+ * cancelled when it runs inside a BackgroundLoader load; nothing here
+ * touches Swing, so the data layer can be exercised on its own.
+ */
+public abstract class Repository {
+    // Well below SQLite's default limit of 999 bound parameters
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    protected <T> List<T> queryList(String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             BackgroundLoader.Tracking tracking = BackgroundLoader.track(pstmt)) {
+            bind(pstmt, params);
+            List<T> result = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    result.add(mapper.map(rs));
+                }
+            }
+            return result;
+        }
+    }
+
+    protected <T> T queryOne(String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             BackgroundLoader.Tracking tracking = BackgroundLoader.track(pstmt)) {
+            bind(pstmt, params);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? mapper.map(rs) : null;
+            }
+        }
+    }
+
+    /**
+     * Hand every row to action as the cursor reaches it, keeping none of
+     * them, so exports of any size run in constant memory
+     */
+    protected <T> void queryEach(String sql, RowMapper<T> mapper, Consumer<T> action, Object... params)
+            throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             BackgroundLoader.Tracking tracking = BackgroundLoader.track(pstmt)) {
+            bind(pstmt, params);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(mapper.map(rs));
+                }
+            }
+        }
+    }
+
+    /**
+     * Run sql with " LIMIT ? OFFSET ?" appended, fetching one extra row to
+     * tell whether another page follows
+     */
+    protected <T> Page<T> queryPage(String sql, RowMapper<T> mapper, int offset, int limit, Object... params)
+            throws SQLException {
+        Object[] all = new Object[params.length + 2];
+        System.arraycopy(params, 0, all, 0, params.length);
+        all[params.length] = limit + 1;
+        all[params.length + 1] = offset;
+
+        List<T> items = queryList(sql + " LIMIT ? OFFSET ?", mapper, all);
+        boolean hasMore = items.size() > limit;
+        if (hasMore) {
+            items.remove(items.size() - 1);
+        }
+        return new Page<>(items, offset, limit, hasMore);
+    }
+
+    /**
+     * Run one "selectPrefix IN (...) orderBy" query per chunk of ids instead
+     * of one query per id. selectPrefix must end with the column the ids are
+     * matched against, e.g. "SELECT * FROM prodotti WHERE id"; orderBy may be
+     * empty and applies within each chunk.
+     */
+    protected <T> List<T> queryIn(String selectPrefix, Collection<Integer> ids, String orderBy,
+                                  RowMapper<T> mapper) throws SQLException {
+        List<T> result = new ArrayList<>();
+        List<Integer> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        for (int from = 0; from < distinct.size(); from += MAX_IDS_PER_QUERY) {
+            List<Integer> chunk = distinct.subList(from, Math.min(from + MAX_IDS_PER_QUERY, distinct.size()));
+            StringBuilder sql = new StringBuilder(selectPrefix).append(" IN (");
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(") ").append(orderBy);
+            result.addAll(queryList(sql.toString(), mapper, chunk.toArray()));
+        }
+        return result;
+    }
+
+    /**
+     * Batch-load rows by primary key. The map follows the order of ids and
+     * leaves out ids that do not exist.
+     */
+    protected <T> Map<Integer, T> queryByIds(String selectPrefix, Collection<Integer> ids,
+                                             RowMapper<T> mapper, Function<T, Integer> idOf) throws SQLException {
+        Map<Integer, T> loaded = new HashMap<>();
+        for (T item : queryIn(selectPrefix, ids, "", mapper)) {
+            loaded.put(idOf.apply(item), item);
+        }
+
+        Map<Integer, T> found = new LinkedHashMap<>();
+        for (Integer id : ids) {
+            T item = loaded.get(id);
+            if (item != null) {
+                found.put(id, item);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Turn free text typed by the user into an FTS5 prefix query: every run
+     * of letters and digits becomes a quoted prefix term and all terms must
+     * match, so "ab-12" finds code "AB-123". Quoting keeps words like OR or
+     * NEAR from being read as operators.
+     *
+     * @return the MATCH expression, or null if term has nothing searchable
+     */
+    protected static String toPrefixQuery(String term) {
+        StringBuilder query = new StringBuilder();
+        int i = 0;
+        int len = term.length();
+        while (i < len) {
+            while (i < len && !Character.isLetterOrDigit(term.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < len && Character.isLetterOrDigit(term.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                if (query.length() > 0) {
+                    query.append(' ');
+                }
+                query.append('"').append(term, start, i).append("\"*");
+            }
+        }
+        return query.length() > 0 ? query.toString() : null;
+    }
+
+    private static void bind(PreparedStatement pstmt, Object[] params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            pstmt.setObject(i + 1, params[i]);
+        }
+    }
+}
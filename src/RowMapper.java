@@ -0,0 +1,8 @@
+import java.sql.*;
+
+/**
+ * Maps the current row of a ResultSet to an object
+ */
+public interface RowMapper<T> {
+    T map(ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,75 @@
+import java.util.Date;
+
+/**
+ * Shared ResultSet-to-model mappers, so every query that selects a table's
+ * columns builds its objects the same way.
+ */
+public class RowMappers {
+    public static final RowMapper<Product> PRODUCT = rs -> new Product(
+        rs.getInt("id"),
+        rs.getString("codice"),
+        rs.getString("nome"),
+        rs.getString("descrizione"),
+        rs.getDouble("prezzo"),
+        rs.getInt("quantita")
+    );
+
+    public static final RowMapper<Customer> CUSTOMER = rs -> new Customer(
+        rs.getInt("id"),
+        rs.getString("nome"),
+        rs.getString("cognome"),
+        rs.getString("email"),
+        rs.getString("telefono"),
+        rs.getString("indirizzo")
+    );
+
+    public static final RowMapper<Supplier> SUPPLIER = rs -> new Supplier(
+        rs.getInt("id"),
+        rs.getString("ragione_sociale"),
+        rs.getString("partita_iva"),
+        rs.getString("codice_fiscale"),
+        rs.getString("indirizzo"),
+        rs.getString("telefono"),
+        rs.getString("email"),
+        rs.getString("pec"),
+        rs.getString("sito_web"),
+        rs.getString("note")
+    );
+
+    /**
+     * Expects the fatture columns plus a cliente_nome column
+     */
+    public static final RowMapper<Invoice> INVOICE = rs -> {
+        Date date = DateUtils.parseDate(rs, "data");
+        return new Invoice(
+            rs.getInt("id"),
+            rs.getString("numero"),
+            date,
+            rs.getInt("cliente_id"),
+            rs.getString("cliente_nome"),
+            rs.getDouble("imponibile"),
+            rs.getDouble("iva"),
+            rs.getDouble("totale"),
+            rs.getString("stato")
+        );
+    };
+
+    /**
+     * Expects the dettagli_fattura columns plus prodotto_nome and prodotto_codice
+     */
+    public static final RowMapper<InvoiceItem> INVOICE_ITEM = rs -> new InvoiceItem(
+        rs.getInt("id"),
+        rs.getInt("fattura_id"),
+        rs.getInt("prodotto_id"),
+        rs.getString("prodotto_nome"),
+        rs.getString("prodotto_codice"),
+        rs.getInt("quantita"),
+        rs.getDouble("prezzo_unitario"),
+        rs.getDouble("aliquota_iva"),
+        rs.getDouble("totale")
+    );
+
+    private RowMappers() {
+        // Utility class
+    }
+}
@@ -8,9 +8,6 @@ import javax.swing.border.TitledBorder;
 import java.util.Date;
 import java.awt.event.ActionEvent;
 import java.text.ParseException;
-import java.io.FileWriter;
-import java.io.PrintWriter;
-import java.io.IOException;
 import java.io.File;
 import java.awt.Desktop;
 import javax.swing.filechooser.FileNameExtensionFilter;
@@ -19,11 +16,19 @@ public class SalesReportPanel extends JPanel {
     private JTextField startDateField;
     private JTextField endDateField;
     private JTable reportTable;
-    private DefaultTableModel tableModel;
+    private LazyTableModel<Object[]> tableModel;
     private JLabel totalSalesLabel;
     private JLabel totalOrdersLabel;
     private JLabel averageOrderLabel;
     private SimpleDateFormat dateFormat;
+    private final BusyIndicator busyIndicator = new BusyIndicator();
+    private final BackgroundLoader statisticsLoader = new BackgroundLoader(busyIndicator)
+        .onError(e -> {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(this,
+                "Error loading the report: " + e.getMessage(),
+                "Error", JOptionPane.ERROR_MESSAGE);
+        });
     
     public SalesReportPanel() {
         dateFormat = new SimpleDateFormat("dd/MM/yyyy");
@@ -64,6 +69,7 @@ public class SalesReportPanel extends JPanel {
         JButton filterButton = new JButton("Apply Filters");
         filterButton.addActionListener(e -> loadReportData());
         filterPanel.add(filterButton);
+        filterPanel.add(busyIndicator);
         
         // Pannello statistiche
         JPanel statsPanel = new JPanel(new GridLayout(1, 3, 10, 10));
@@ -79,12 +85,11 @@ public class SalesReportPanel extends JPanel {
         
         // Tabella report
         String[] columns = {"Date", "Order ID", "Customer", "Status", "Total €"};
-        tableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        tableModel = new LazyTableModel<Object[]>(columns, row -> row)
+            .showBusy(busyIndicator)
+            .onError(e -> JOptionPane.showMessageDialog(this,
+                "Error loading the report: " + e.getMessage(),
+                "Error", JOptionPane.ERROR_MESSAGE));
         reportTable = new JTable(tableModel);
         
         // Pannello pulsanti
@@ -117,133 +122,85 @@ public class SalesReportPanel extends JPanel {
     }
     
     private void loadReportData() {
-        tableModel.setRowCount(0);
-        try {
-            String startDateText = startDateField.getText().trim();
-            String endDateText = endDateField.getText().trim();
+        String startDateText = startDateField.getText().trim();
+        String endDateText = endDateField.getText().trim();
+        
+        KeysetQuery<Object[]> query = new KeysetQuery<Object[]>(
+            "o.id, o.data_ordine, o.stato, o.totale, COALESCE(c.nome || ' ' || c.cognome, 'N/A') as cliente_nome",
+            "ordini o LEFT JOIN clienti c ON o.cliente_id = c.id",
+            rs -> {
+                // PARSING DATA
+                Date orderDate = DateUtils.parseDate(rs, "data_ordine");
+                return new Object[] {
+                    orderDate != null ? DateUtils.formatDate(orderDate) : "N/A",
+                    rs.getInt("id"),
+                    rs.getString("cliente_nome"),
+                    rs.getString("stato"),
+                    String.format("%.2f", rs.getDouble("totale"))
+                };
+            }
+        ).orderBy(true, "o.data_ordine", "o.id");
+        
+        // Se le date sono vuote, carica tutto
+        if (startDateText.isEmpty() || endDateText.isEmpty()) {
+            System.out.println("Loading all orders (no date filter)");
+        } else {
+            // Prova a parsare le date
+            Date startDate = null;
+            Date endDate = null;
             
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query;
-            PreparedStatement pstmt = null;
+            try {
+                startDate = DateUtils.parseDate(startDateText, dateFormat);
+                endDate = DateUtils.parseDate(endDateText, dateFormat);
+            } catch (Exception e) {
+                System.err.println("Error parsing dates: " + e.getMessage());
+            }
             
-            // Se le date sono vuote, carica tutto
-            if (startDateText.isEmpty() || endDateText.isEmpty()) {
-                query = """
-                    SELECT o.id, o.data_ordine, o.stato, o.totale,
-                           COALESCE(c.nome || ' ' || c.cognome, 'N/A') as cliente_nome
-                    FROM ordini o
-                    LEFT JOIN clienti c ON o.cliente_id = c.id
-                    ORDER BY o.data_ordine DESC
-                    LIMIT 1000
-                """;
-                pstmt = conn.prepareStatement(query);
-                System.out.println("Loading all orders (no date filter)");
+            if (startDate == null || endDate == null) {
+                JOptionPane.showMessageDialog(this,
+                    "Invalid date format. Use dd/MM/yyyy\nLoading all orders instead.",
+                    "Warning", JOptionPane.WARNING_MESSAGE);
             } else {
-                // Prova a parsare le date
-                Date startDate = null;
-                Date endDate = null;
-                
-                try {
-                    startDate = DateUtils.parseDate(startDateText, dateFormat);
-                    endDate = DateUtils.parseDate(endDateText, dateFormat);
-                } catch (Exception e) {
-                    System.err.println("Error parsing dates: " + e.getMessage());
-                }
+                // Dates are stored in DateCodec's canonical form, so the
+                // range is a plain string comparison on idx_ordini_data
+                String startDateISO = DateCodec.startOfDay(startDate);
+                String endDateISO = DateCodec.endOfDay(endDate);
+                query.where("o.data_ordine >= ? AND o.data_ordine <= ?", startDateISO, endDateISO);
                 
-                if (startDate == null || endDate == null) {
-                    JOptionPane.showMessageDialog(this,
-                        "Invalid date format. Use dd/MM/yyyy\nLoading all orders instead.",
-                        "Warning", JOptionPane.WARNING_MESSAGE);
-                    
-                    // Fallback: carica tutto
-                    query = """
-                        SELECT o.id, o.data_ordine, o.stato, o.totale,
-                               COALESCE(c.nome || ' ' || c.cognome, 'N/A') as cliente_nome
-                        FROM ordini o
-                        LEFT JOIN clienti c ON o.cliente_id = c.id
-                        ORDER BY o.data_ordine DESC
-                        LIMIT 1000
-                    """;
-                    pstmt = conn.prepareStatement(query);
-                } else {
-                    // FILTRO DATE CON APPROCCIO STRING SEMPLICE
-                    query = """
-                        SELECT o.id, o.data_ordine, o.stato, o.totale,
-                               COALESCE(c.nome || ' ' || c.cognome, 'N/A') as cliente_nome
-                        FROM ordini o
-                        LEFT JOIN clienti c ON o.cliente_id = c.id
-                        WHERE o.data_ordine >= ? AND o.data_ordine <= ?
-                        ORDER BY o.data_ordine DESC
-                    """;
-                    
-                    pstmt = conn.prepareStatement(query);
-                    
-                    // CONVERTI DATE IN STRINGA ISO PER IL CONFRONTO
-                    String startDateISO = String.format("%04d-%02d-%02d 00:00:00",
-                        startDate.getYear() + 1900, startDate.getMonth() + 1, startDate.getDate());
-                    String endDateISO = String.format("%04d-%02d-%02d 23:59:59",
-                        endDate.getYear() + 1900, endDate.getMonth() + 1, endDate.getDate());
-                    
-                    pstmt.setString(1, startDateISO);
-                    pstmt.setString(2, endDateISO);
-                    
-                    System.out.println("Filtering orders from " + startDateISO + " to " + endDateISO);
-                }
+                System.out.println("Filtering orders from " + startDateISO + " to " + endDateISO);
             }
+        }
+        
+        // The table pages rows in as it scrolls; the totals are one aggregate
+        // over the same range
+        tableModel.setQuery(query);
+        updateStatistics(query);
+    }
+    
+    private void updateStatistics(KeysetQuery<Object[]> query) {
+        statisticsLoader.replace(() -> query.aggregate("TOTAL(o.totale), COUNT(*)",
+            rs -> new double[] {rs.getDouble(1), rs.getInt(2)}), totals -> {
+            double totalSales = totals[0];
+            int totalOrders = (int) totals[1];
             
-            try (ResultSet rs = pstmt.executeQuery()) {
-                double totalSales = 0;
-                int totalOrders = 0;
-                
-                while (rs.next()) {
-                    Vector<Object> row = new Vector<>();
-                    
-                    // PARSING DATA
-                    Date orderDate = DateUtils.parseDate(rs, "data_ordine");
-                    if (orderDate != null) {
-                        row.add(DateUtils.formatDate(orderDate, dateFormat));
-                    } else {
-                        row.add("N/A");
-                    }
-                    
-                    row.add(rs.getInt("id"));
-                    row.add(rs.getString("cliente_nome"));
-                    row.add(rs.getString("stato"));
-                    double total = rs.getDouble("totale");
-                    row.add(String.format("%.2f", total));
-                    
-                    tableModel.addRow(row);
-                    
-                    totalSales += total;
-                    totalOrders++;
-                }
-                
-                // Aggiorna statistiche
-                totalSalesLabel.setText(String.format("Total Sales: € %.2f", totalSales));
-                totalOrdersLabel.setText("Number of Orders: " + totalOrders);
-                if (totalOrders > 0) {
-                    averageOrderLabel.setText(String.format("Average per Order: € %.2f", totalSales / totalOrders));
-                } else {
-                    averageOrderLabel.setText("Average per Order: € 0.00");
-                }
-                
-                System.out.println("Loaded " + totalOrders + " orders, total sales: €" + totalSales);
+            // Aggiorna statistiche
+            totalSalesLabel.setText(String.format("Total Sales: € %.2f", totalSales));
+            totalOrdersLabel.setText("Number of Orders: " + totalOrders);
+            if (totalOrders > 0) {
+                averageOrderLabel.setText(String.format("Average per Order: € %.2f", totalSales / totalOrders));
+            } else {
+                averageOrderLabel.setText("Average per Order: € 0.00");
             }
             
-            if (pstmt != null) pstmt.close();
-            
-        } catch (Exception e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this,
-                "Error loading the report: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
-        }
+            System.out.println("Loaded " + totalOrders + " orders, total sales: €" + totalSales);
+        });
     }
     
     private void showOrderDetails() {
         int selectedRow = reportTable.getSelectedRow();
-        if (selectedRow != -1) {
-            int orderId = (int)tableModel.getValueAt(selectedRow, 1);
+        Object[] selected = selectedRow != -1 ? tableModel.getItem(selectedRow) : null;
+        if (selected != null) {
+            int orderId = (int)selected[1];
             
             // Crea una finestra di dettaglio
             Window parentWindow = SwingUtilities.getWindowAncestor(this);
@@ -264,8 +221,7 @@ public class SalesReportPanel extends JPanel {
             DefaultTableModel detailModel = new DefaultTableModel(columns, 0);
             JTable detailTable = new JTable(detailModel);
             
-            try {
-                Connection conn = DatabaseManager.getInstance().getConnection();
+            try (Connection conn = DatabaseManager.getInstance().getReadConnection()) {
                 String query = """
                     SELECT COALESCE(p.nome, 'Product N/A') as prodotto_nome, 
                            d.quantita, d.prezzo_unitario,
@@ -330,7 +286,17 @@ public class SalesReportPanel extends JPanel {
         dateRangeLabel.setHorizontalAlignment(SwingConstants.CENTER);
         headerPanel.add(dateRangeLabel, BorderLayout.CENTER);
         
-        JTable previewTable = new JTable(tableModel);
+        // Printing needs every row, not just the pages scrolled through
+        JTable previewTable;
+        try {
+            previewTable = new JTable(tableModel.snapshot());
+        } catch (SQLException e) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(this,
+                "Error loading the report: " + e.getMessage(),
+                "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
         
         previewPanel.add(headerPanel, BorderLayout.NORTH);
         previewPanel.add(new JScrollPane(previewTable), BorderLayout.CENTER);
@@ -367,44 +333,14 @@ public class SalesReportPanel extends JPanel {
                 fileToSave = new File(fileToSave + ".csv");
             }
             
-            try (PrintWriter writer = new PrintWriter(new FileWriter(fileToSave))) {
-                // Intestazione colonne
-                for (int i = 0; i < tableModel.getColumnCount(); i++) {
-                    if (i > 0) writer.print(",");
-                    writer.print(tableModel.getColumnName(i));
-                }
-                writer.println();
-                
-                // Dati tabella
-                for (int i = 0; i < tableModel.getRowCount(); i++) {
-                    StringBuilder line = new StringBuilder();
-                    for (int j = 0; j < tableModel.getColumnCount(); j++) {
-                        if (j > 0) line.append(",");
-                        String value = tableModel.getValueAt(i, j).toString();
-                        if (value.contains(",")) {
-                            value = "\"" + value + "\"";
-                        }
-                        line.append(value);
-                    }
-                    writer.println(line);
-                }
-                
-                writer.println();
-                writer.println("Summary");
-                writer.println("Total Sales," + totalSalesLabel.getText().replace("Total Sales: ", ""));
-                writer.println("Number of Orders," + totalOrdersLabel.getText().replace("Number of Orders: ", ""));
-                writer.println("Average per Order," + averageOrderLabel.getText().replace("Average per Order: ", ""));
-                
-                JOptionPane.showMessageDialog(this,
-                    "Report exported successfully",
-                    "Export complete", JOptionPane.INFORMATION_MESSAGE);
-                    
-            } catch (IOException e) {
-                e.printStackTrace();
-                JOptionPane.showMessageDialog(this,
-                    "Error during export: " + e.getMessage(),
-                    "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            // Every order in the range, read from the database in the background
+            new CsvExport(fileToSave, tableModel.getColumnNames())
+                .lineAfter()
+                .lineAfter("Summary")
+                .lineAfter("Total Sales", totalSalesLabel.getText().replace("Total Sales: ", ""))
+                .lineAfter("Number of Orders", totalOrdersLabel.getText().replace("Number of Orders: ", ""))
+                .lineAfter("Average per Order", averageOrderLabel.getText().replace("Average per Order: ", ""))
+                .start(this, tableModel.getRowCount(), tableModel.allRows());
         }
     }
 }
\ No newline at end of file
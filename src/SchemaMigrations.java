@@ -0,0 +1,395 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Versioned schema migrations keyed on PRAGMA user_version.
+ *
+ * createTables only guarantees the base tables exist; everything added later
+ * (indexes, new columns, data rewrites) goes here as a numbered migration.
+ * Each migration runs in its own transaction together with the user_version
+ * bump, so a crash halfway leaves the database at the previous version and
+ * the migration simply runs again on the next start.
+ */
+public class SchemaMigrations {
+
+    /**
+     * A single schema change applied on the writer connection
+     */
+    public interface MigrationStep {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private static class Migration {
+        final int version;
+        final String description;
+        final MigrationStep step;
+
+        Migration(int version, String description, MigrationStep step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    // Accent-insensitive tokens, with prefix indexes for typeahead
+    private static final String FTS_OPTIONS = "tokenize = 'unicode61 remove_diacritics 2', prefix = '2 3'";
+
+    private static final List<Migration> MIGRATIONS = new ArrayList<>();
+
+    static {
+        MIGRATIONS.add(new Migration(1, "Indexes on foreign keys and sort columns", sql(
+            // Order lines
+            "CREATE INDEX IF NOT EXISTS idx_dettagli_ordine_ordine ON dettagli_ordine (ordine_id)",
+            "CREATE INDEX IF NOT EXISTS idx_dettagli_ordine_prodotto ON dettagli_ordine (prodotto_id)",
+            // Invoice lines
+            "CREATE INDEX IF NOT EXISTS idx_dettagli_fattura_fattura ON dettagli_fattura (fattura_id)",
+            "CREATE INDEX IF NOT EXISTS idx_dettagli_fattura_prodotto ON dettagli_fattura (prodotto_id)",
+            // Orders and invoices
+            "CREATE INDEX IF NOT EXISTS idx_ordini_data ON ordini (data_ordine)",
+            "CREATE INDEX IF NOT EXISTS idx_ordini_cliente ON ordini (cliente_id)",
+            "CREATE INDEX IF NOT EXISTS idx_fatture_cliente ON fatture (cliente_id)",
+            "CREATE INDEX IF NOT EXISTS idx_fatture_data ON fatture (data)",
+            // Warehouse
+            "CREATE INDEX IF NOT EXISTS idx_movimenti_prodotto_data ON movimenti_magazzino (prodotto_id, data)",
+            "CREATE INDEX IF NOT EXISTS idx_movimenti_data ON movimenti_magazzino (data)",
+            "CREATE INDEX IF NOT EXISTS idx_notifiche_prodotto ON notifiche_magazzino (prodotto_id)",
+            "CREATE INDEX IF NOT EXISTS idx_notifiche_data ON notifiche_magazzino (data)",
+            "CREATE INDEX IF NOT EXISTS idx_scorte_fornitore ON scorte_minime (fornitore_preferito_id)",
+            // Suppliers
+            "CREATE INDEX IF NOT EXISTS idx_listini_fornitore_prodotto ON listini_fornitori (fornitore_id, prodotto_id)",
+            "CREATE INDEX IF NOT EXISTS idx_listini_prodotto ON listini_fornitori (prodotto_id)",
+            "CREATE INDEX IF NOT EXISTS idx_ordini_fornitori_fornitore ON ordini_fornitori (fornitore_id, data_ordine)",
+            "CREATE INDEX IF NOT EXISTS idx_ordini_fornitori_numero ON ordini_fornitori (numero)",
+            "CREATE INDEX IF NOT EXISTS idx_dettagli_ordini_fornitori_ordine ON dettagli_ordini_fornitori (ordine_id)",
+            "CREATE INDEX IF NOT EXISTS idx_dettagli_ordini_fornitori_prodotto ON dettagli_ordini_fornitori (prodotto_id)",
+            // ORDER BY columns of the list panels
+            "CREATE INDEX IF NOT EXISTS idx_prodotti_nome ON prodotti (nome)",
+            "CREATE INDEX IF NOT EXISTS idx_clienti_cognome_nome ON clienti (cognome, nome)",
+            "CREATE INDEX IF NOT EXISTS idx_fornitori_ragione_sociale ON fornitori (ragione_sociale)",
+            "ANALYZE"
+        )));
+
+        MIGRATIONS.add(new Migration(2, "Unified document numbering", sql(
+            """
+            CREATE TABLE IF NOT EXISTS numerazione_documenti (
+                tipo TEXT NOT NULL,
+                anno INTEGER NOT NULL,
+                ultimo_numero INTEGER NOT NULL,
+                PRIMARY KEY (tipo, anno)
+            )
+            """,
+            // Carry over the invoice counters, then make sure no counter is
+            // below a number already in use
+            """
+            INSERT OR IGNORE INTO numerazione_documenti (tipo, anno, ultimo_numero)
+            SELECT 'FATTURA', anno, ultimo_numero FROM numerazione_fatture
+            """,
+            """
+            INSERT INTO numerazione_documenti (tipo, anno, ultimo_numero)
+            SELECT 'FATTURA', CAST(SUBSTR(numero, 1, 4) AS INTEGER), MAX(CAST(SUBSTR(numero, 6) AS INTEGER))
+            FROM fatture
+            WHERE numero GLOB '[0-9][0-9][0-9][0-9]/[0-9]*'
+            GROUP BY CAST(SUBSTR(numero, 1, 4) AS INTEGER)
+            ON CONFLICT (tipo, anno) DO UPDATE SET ultimo_numero = MAX(ultimo_numero, excluded.ultimo_numero)
+            """,
+            """
+            INSERT INTO numerazione_documenti (tipo, anno, ultimo_numero)
+            SELECT 'ORDINE_FORNITORE', CAST(SUBSTR(numero, 3, 4) AS INTEGER), MAX(CAST(SUBSTR(numero, 7) AS INTEGER))
+            FROM ordini_fornitori
+            WHERE numero GLOB 'OF[0-9][0-9][0-9][0-9][0-9]*'
+            GROUP BY CAST(SUBSTR(numero, 3, 4) AS INTEGER)
+            ON CONFLICT (tipo, anno) DO UPDATE SET ultimo_numero = MAX(ultimo_numero, excluded.ultimo_numero)
+            """,
+            // Customer orders get a document number from now on
+            "ALTER TABLE ordini ADD COLUMN numero TEXT",
+            "CREATE INDEX IF NOT EXISTS idx_ordini_numero ON ordini (numero)"
+        )));
+
+        MIGRATIONS.add(new Migration(3, "Canonical date encoding", sql(
+            normalizeDateColumn("ordini", "data_ordine"),
+            normalizeDateColumn("fatture", "data"),
+            normalizeDateColumn("ordini_fornitori", "data_ordine"),
+            normalizeDateColumn("ordini_fornitori", "data_consegna_prevista"),
+            normalizeDateColumn("listini_fornitori", "data_validita_inizio"),
+            normalizeDateColumn("listini_fornitori", "data_validita_fine"),
+            normalizeDateColumn("movimenti_magazzino", "data"),
+            normalizeDateColumn("notifiche_magazzino", "data"),
+            "ANALYZE"
+        )));
+
+        MIGRATIONS.add(new Migration(4, "Full-text search indexes", conn -> {
+            sql(fullTextIndex("prodotti", "codice", "nome", "descrizione")).apply(conn);
+            sql(fullTextIndex("clienti", "nome", "cognome", "email", "telefono", "indirizzo")).apply(conn);
+            sql(fullTextIndex("fornitori", "ragione_sociale", "partita_iva", "email")).apply(conn);
+            // Invoices are found by number or customer name, which lives in
+            // clienti, so this index keeps its own copy of the text
+            sql(
+                "CREATE VIRTUAL TABLE IF NOT EXISTS fatture_fts USING fts5(numero, cliente, " + FTS_OPTIONS + ")",
+                """
+                INSERT INTO fatture_fts (rowid, numero, cliente)
+                SELECT f.id, f.numero, c.nome || ' ' || c.cognome
+                FROM fatture f
+                LEFT JOIN clienti c ON f.cliente_id = c.id
+                """,
+                """
+                CREATE TRIGGER IF NOT EXISTS fatture_fts_insert AFTER INSERT ON fatture BEGIN
+                    INSERT INTO fatture_fts (rowid, numero, cliente)
+                    VALUES (new.id, new.numero, (SELECT nome || ' ' || cognome FROM clienti WHERE id = new.cliente_id));
+                END
+                """,
+                """
+                CREATE TRIGGER IF NOT EXISTS fatture_fts_update AFTER UPDATE OF numero, cliente_id ON fatture BEGIN
+                    UPDATE fatture_fts
+                    SET numero = new.numero,
+                        cliente = (SELECT nome || ' ' || cognome FROM clienti WHERE id = new.cliente_id)
+                    WHERE rowid = new.id;
+                END
+                """,
+                """
+                CREATE TRIGGER IF NOT EXISTS fatture_fts_delete AFTER DELETE ON fatture BEGIN
+                    DELETE FROM fatture_fts WHERE rowid = old.id;
+                END
+                """,
+                """
+                CREATE TRIGGER IF NOT EXISTS fatture_fts_cliente AFTER UPDATE OF nome, cognome ON clienti BEGIN
+                    UPDATE fatture_fts SET cliente = new.nome || ' ' || new.cognome
+                    WHERE rowid IN (SELECT id FROM fatture WHERE cliente_id = new.id);
+                END
+                """
+            ).apply(conn);
+        }));
+
+        MIGRATIONS.add(new Migration(5, "Monthly sales aggregates", sql(
+            // One row per month and one per product and month, so the stats
+            // panel reads a few dozen rows however long the history is.
+            // Lines whose order is missing are left out, as the old joins did.
+            """
+            CREATE TABLE IF NOT EXISTS vendite_mensili (
+                mese TEXT PRIMARY KEY,
+                ordini INTEGER NOT NULL,
+                totale REAL NOT NULL
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS vendite_prodotti_mensili (
+                mese TEXT NOT NULL,
+                prodotto_id INTEGER NOT NULL,
+                righe INTEGER NOT NULL,
+                quantita INTEGER NOT NULL,
+                fatturato REAL NOT NULL,
+                PRIMARY KEY (mese, prodotto_id)
+            )
+            """,
+            "DELETE FROM vendite_mensili",
+            "DELETE FROM vendite_prodotti_mensili",
+            """
+            INSERT INTO vendite_mensili (mese, ordini, totale)
+            SELECT substr(data_ordine, 1, 7), COUNT(*), TOTAL(totale)
+            FROM ordini
+            WHERE data_ordine IS NOT NULL
+            GROUP BY substr(data_ordine, 1, 7)
+            """,
+            """
+            INSERT INTO vendite_prodotti_mensili (mese, prodotto_id, righe, quantita, fatturato)
+            SELECT substr(o.data_ordine, 1, 7), IFNULL(d.prodotto_id, 0), COUNT(*),
+                   TOTAL(d.quantita), TOTAL(d.quantita * d.prezzo_unitario)
+            FROM dettagli_ordine d
+            JOIN ordini o ON d.ordine_id = o.id
+            WHERE o.data_ordine IS NOT NULL
+            GROUP BY substr(o.data_ordine, 1, 7), IFNULL(d.prodotto_id, 0)
+            """,
+            "CREATE TRIGGER IF NOT EXISTS vendite_ordini_insert AFTER INSERT ON ordini BEGIN "
+                + orderSales("new", 1) + " END",
+            "CREATE TRIGGER IF NOT EXISTS vendite_ordini_update AFTER UPDATE OF data_ordine, totale ON ordini BEGIN "
+                + orderSales("old", -1) + " " + orderSales("new", 1) + " END",
+            // Lines follow their order to the new month
+            "CREATE TRIGGER IF NOT EXISTS vendite_ordini_sposta AFTER UPDATE OF data_ordine ON ordini"
+                + " WHEN substr(old.data_ordine, 1, 7) IS NOT substr(new.data_ordine, 1, 7) BEGIN "
+                + orderLineSales("old", -1) + " " + orderLineSales("new", 1) + " END",
+            // Lines are normally deleted first; any left become orphans
+            "CREATE TRIGGER IF NOT EXISTS vendite_ordini_delete AFTER DELETE ON ordini BEGIN "
+                + orderSales("old", -1) + " " + orderLineSales("old", -1) + " END",
+            "CREATE TRIGGER IF NOT EXISTS vendite_dettagli_insert AFTER INSERT ON dettagli_ordine BEGIN "
+                + lineSales("new", 1) + " END",
+            "CREATE TRIGGER IF NOT EXISTS vendite_dettagli_update"
+                + " AFTER UPDATE OF ordine_id, prodotto_id, quantita, prezzo_unitario ON dettagli_ordine BEGIN "
+                + lineSales("old", -1) + " " + lineSales("new", 1) + " END",
+            "CREATE TRIGGER IF NOT EXISTS vendite_dettagli_delete AFTER DELETE ON dettagli_ordine BEGIN "
+                + lineSales("old", -1) + " END"
+        )));
+
+        MIGRATIONS.add(new Migration(6, "Bulk import support", sql(
+            // Imported customers are matched to existing ones by email
+            "CREATE INDEX IF NOT EXISTS idx_clienti_email ON clienti (email COLLATE NOCASE)",
+            // Indexes and triggers dropped for a first load until they are
+            // rebuilt, so a crash during the load cannot lose them
+            """
+            CREATE TABLE IF NOT EXISTS indici_differiti (
+                nome TEXT PRIMARY KEY,
+                tabella TEXT NOT NULL,
+                sql TEXT NOT NULL
+            )
+            """
+        )));
+    }
+
+    private SchemaMigrations() {
+        // Utility class
+    }
+
+    private static MigrationStep sql(String... statements) {
+        return conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                for (String statement : statements) {
+                    stmt.execute(statement);
+                }
+            }
+        };
+    }
+
+    /**
+     * Rewrite one date column to DateCodec's canonical "yyyy-MM-dd HH:mm:ss".
+     * Handles every encoding older versions wrote: epoch millis from
+     * setTimestamp/setDate, ISO text with or without time, fractional
+     * seconds or a 'T' separator, and the dd/MM/yyyy and MM/yyyy UI formats.
+     * Millis are converted to local time, which is how they were displayed.
+     */
+    private static String normalizeDateColumn(String table, String column) {
+        String c = column;
+        String digits4 = "[0-9][0-9][0-9][0-9]";
+        String digits2 = "[0-9][0-9]";
+        String time = digits2 + ":" + digits2 + ":" + digits2;
+        String isoDate = digits4 + "-" + digits2 + "-" + digits2;
+        String itDate = digits2 + "/" + digits2 + "/" + digits4;
+        String itToIso = "substr(" + c + ", 7, 4) || '-' || substr(" + c + ", 4, 2) || '-' || substr(" + c + ", 1, 2)";
+        return "UPDATE " + table + " SET " + c + " = CASE"
+            + " WHEN typeof(" + c + ") IN ('integer', 'real')"
+            + " THEN strftime('%Y-%m-%d %H:%M:%S', CAST(" + c + " AS INTEGER) / 1000, 'unixepoch', 'localtime')"
+            + " WHEN " + c + " GLOB '[0-9]*' AND " + c + " NOT GLOB '*[^0-9]*'"
+            + " THEN strftime('%Y-%m-%d %H:%M:%S', CAST(" + c + " AS INTEGER) / 1000, 'unixepoch', 'localtime')"
+            + " WHEN " + c + " GLOB '" + isoDate + " " + time + "?*' THEN substr(" + c + ", 1, 19)"
+            + " WHEN " + c + " GLOB '" + isoDate + "T" + time + "*'"
+            + " THEN substr(" + c + ", 1, 10) || ' ' || substr(" + c + ", 12, 8)"
+            + " WHEN " + c + " GLOB '" + isoDate + "' THEN " + c + " || ' 00:00:00'"
+            + " WHEN " + c + " GLOB '" + itDate + " " + time + "*'"
+            + " THEN " + itToIso + " || ' ' || substr(" + c + ", 12, 8)"
+            + " WHEN " + c + " GLOB '" + itDate + "' THEN " + itToIso + " || ' 00:00:00'"
+            + " WHEN " + c + " GLOB '" + digits2 + "/" + digits4 + "'"
+            + " THEN substr(" + c + ", 4, 4) || '-' || substr(" + c + ", 1, 2) || '-01 00:00:00'"
+            + " ELSE " + c + " END"
+            + " WHERE " + c + " IS NOT NULL AND " + c + " NOT GLOB '" + isoDate + " " + time + "'";
+    }
+
+    /**
+     * An FTS5 index over columns of table, named table_fts, filled from the
+     * existing rows and kept in sync by triggers. It is an external-content
+     * index: the text stays in table and only the index is stored. The
+     * update trigger fires only for the indexed columns, so stock and price
+     * changes do not touch the index.
+     */
+    private static String[] fullTextIndex(String table, String... columns) {
+        String fts = table + "_fts";
+        String cols = String.join(", ", columns);
+        String newValues = "new.id, new." + String.join(", new.", columns);
+        String oldValues = "old.id, old." + String.join(", old.", columns);
+        String insert = "INSERT INTO " + fts + " (rowid, " + cols + ") VALUES (" + newValues + ");";
+        String delete = "INSERT INTO " + fts + " (" + fts + ", rowid, " + cols + ") VALUES ('delete', " + oldValues + ");";
+        return new String[] {
+            "CREATE VIRTUAL TABLE IF NOT EXISTS " + fts + " USING fts5(" + cols
+                + ", content = '" + table + "', content_rowid = 'id', " + FTS_OPTIONS + ")",
+            "INSERT INTO " + fts + " (" + fts + ") VALUES ('rebuild')",
+            "CREATE TRIGGER IF NOT EXISTS " + fts + "_insert AFTER INSERT ON " + table
+                + " BEGIN " + insert + " END",
+            "CREATE TRIGGER IF NOT EXISTS " + fts + "_delete AFTER DELETE ON " + table
+                + " BEGIN " + delete + " END",
+            "CREATE TRIGGER IF NOT EXISTS " + fts + "_update AFTER UPDATE OF " + cols + " ON " + table
+                + " BEGIN " + delete + " " + insert + " END"
+        };
+    }
+
+    /**
+     * Trigger statements adding (sign 1) or removing (sign -1) the order
+     * row ("new" or "old") to vendite_mensili. Months left without orders
+     * are dropped.
+     */
+    private static String orderSales(String row, int sign) {
+        String month = "substr(" + row + ".data_ordine, 1, 7)";
+        return "INSERT INTO vendite_mensili (mese, ordini, totale)"
+            + " SELECT " + month + ", " + sign + ", " + sign + " * IFNULL(" + row + ".totale, 0)"
+            + " WHERE " + row + ".data_ordine IS NOT NULL"
+            + " ON CONFLICT (mese) DO UPDATE SET ordini = ordini + excluded.ordini, totale = totale + excluded.totale;"
+            + (sign < 0 ? " DELETE FROM vendite_mensili WHERE mese = " + month + " AND ordini <= 0;" : "");
+    }
+
+    /**
+     * Adds or removes every line of the order row to vendite_prodotti_mensili
+     */
+    private static String orderLineSales(String row, int sign) {
+        String month = "substr(" + row + ".data_ordine, 1, 7)";
+        return productSales("SELECT " + month + ", IFNULL(d.prodotto_id, 0), " + sign + " * COUNT(*),"
+                + " " + sign + " * TOTAL(d.quantita), " + sign + " * TOTAL(d.quantita * d.prezzo_unitario)"
+                + " FROM dettagli_ordine d WHERE d.ordine_id = " + row + ".id AND " + row + ".data_ordine IS NOT NULL"
+                + " GROUP BY IFNULL(d.prodotto_id, 0)")
+            + (sign < 0 ? " DELETE FROM vendite_prodotti_mensili WHERE mese = " + month + " AND righe <= 0;" : "");
+    }
+
+    /**
+     * Adds or removes the order line row, in the month of its order
+     */
+    private static String lineSales(String row, int sign) {
+        return productSales("SELECT substr(o.data_ordine, 1, 7), IFNULL(" + row + ".prodotto_id, 0), " + sign + ","
+                + " " + sign + " * " + row + ".quantita, " + sign + " * " + row + ".quantita * " + row + ".prezzo_unitario"
+                + " FROM ordini o WHERE o.id = " + row + ".ordine_id AND o.data_ordine IS NOT NULL")
+            + (sign < 0 ? " DELETE FROM vendite_prodotti_mensili WHERE prodotto_id = IFNULL(" + row + ".prodotto_id, 0)"
+                + " AND mese = (SELECT substr(data_ordine, 1, 7) FROM ordini WHERE id = " + row + ".ordine_id)"
+                + " AND righe <= 0;" : "");
+    }
+
+    private static String productSales(String select) {
+        return "INSERT INTO vendite_prodotti_mensili (mese, prodotto_id, righe, quantita, fatturato) " + select
+            + " ON CONFLICT (mese, prodotto_id) DO UPDATE SET righe = righe + excluded.righe,"
+            + " quantita = quantita + excluded.quantita, fatturato = fatturato + excluded.fatturato;";
+    }
+
+    public static int getLatestVersion() {
+        return MIGRATIONS.isEmpty() ? 0 : MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    public static int getSchemaVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Apply every migration newer than the database's user_version
+     */
+    public static void migrate(Connection conn) throws SQLException {
+        int current = getSchemaVersion(conn);
+
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version <= current) {
+                continue;
+            }
+
+            System.out.println("Applying schema migration " + migration.version + ": " + migration.description);
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                migration.step.apply(conn);
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("PRAGMA user_version = " + migration.version);
+                }
+                conn.commit();
+                current = migration.version;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw new SQLException("Schema migration " + migration.version + " failed: " + e.getMessage(), e);
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+}
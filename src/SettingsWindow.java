@@ -306,6 +306,8 @@ public class SettingsWindow extends JDialog {
         companyData.setEmail(emailField.getText().trim());
         companyData.setWebsite(websiteField.getText().trim());
         companyData.setLogoPath(logoPathField.getText().trim());
+        // The cached invoice letterhead shows the old details and logo
+        InvoiceTemplate.invalidate();
         
         return companyData.saveToDatabase();
     }
@@ -455,6 +457,22 @@ public class SettingsWindow extends JDialog {
         return settings.getProperty(key, defaultValue);
     }
     
+    /**
+     * Remember a value outside the settings dialog, e.g. the last folder
+     * used, and write the settings file
+     */
+    public static synchronized void setGlobalSetting(String key, String value) {
+        if (settings.isEmpty()) {
+            loadGlobalSettings();
+        }
+        settings.setProperty(key, value);
+        try (FileOutputStream fos = new FileOutputStream(SETTINGS_FILE)) {
+            settings.store(fos, "Application Settings");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+    
     public static void loadGlobalSettings() {
         try (FileInputStream fis = new FileInputStream(SETTINGS_FILE)) {
             settings.load(fis);
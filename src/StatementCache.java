@@ -0,0 +1,252 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of compiled prepared statements for one connection, keyed by SQL
+ * text.
+ *
+ * prepare() checks a statement out of the cache; closing the returned
+ * statement clears its parameters and checks it back in, so the usual
+ * try-with-resources pattern keeps working and two callers never share a
+ * statement at the same time. Statements evicted from the LRU are closed.
+ */
+public class StatementCache {
+    public static final int DEFAULT_CAPACITY = 64;
+
+    // Process-wide counters across every connection's cache
+    private static final AtomicLong totalHits = new AtomicLong();
+    private static final AtomicLong totalMisses = new AtomicLong();
+
+    private final Connection connection;
+    private final int capacity;
+    private final Runnable errorListener;
+    private final LinkedHashMap<String, PreparedStatement> idle;
+    private long hits = 0;
+    private long misses = 0;
+    private boolean closed = false;
+
+    /**
+     * @param errorListener notified whenever a call on the connection or one of
+     *                      its statements throws an SQLException; may be null
+     */
+    public StatementCache(Connection connection, int capacity, Runnable errorListener) {
+        this.connection = connection;
+        this.capacity = capacity;
+        this.errorListener = errorListener;
+        this.idle = new LinkedHashMap<>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > StatementCache.this.capacity) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement stmt;
+        synchronized (this) {
+            stmt = closed ? null : idle.remove(sql);
+            if (stmt != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+        }
+
+        if (stmt != null) {
+            totalHits.incrementAndGet();
+        } else {
+            totalMisses.incrementAndGet();
+            try {
+                stmt = connection.prepareStatement(sql);
+            } catch (SQLException e) {
+                reportError();
+                throw e;
+            }
+        }
+        return wrap(sql, stmt);
+    }
+
+    private void checkIn(String sql, PreparedStatement stmt, ResultSet openResult) {
+        try {
+            // Reset the statement so it does not pin a read transaction while idle
+            if (openResult != null && !openResult.isClosed()) {
+                openResult.close();
+            }
+            stmt.clearParameters();
+            // A batch left by a failed executeBatch must not run with the next one
+            stmt.clearBatch();
+        } catch (SQLException e) {
+            closeQuietly(stmt);
+            return;
+        }
+
+        PreparedStatement displaced;
+        synchronized (this) {
+            // A nested caller may have checked in the same SQL first
+            displaced = closed ? stmt : idle.put(sql, stmt);
+        }
+        if (displaced != null) {
+            closeQuietly(displaced);
+        }
+    }
+
+    /**
+     * Close every idle statement; statements still checked out are closed
+     * when their callers release them.
+     */
+    public void close() {
+        List<PreparedStatement> toClose;
+        synchronized (this) {
+            closed = true;
+            toClose = new ArrayList<>(idle.values());
+            idle.clear();
+        }
+        for (PreparedStatement stmt : toClose) {
+            closeQuietly(stmt);
+        }
+    }
+
+    /**
+     * Drop all idle statements, e.g. after a schema change invalidated them
+     */
+    public void clear() {
+        synchronized (this) {
+            Iterator<PreparedStatement> it = idle.values().iterator();
+            while (it.hasNext()) {
+                closeQuietly(it.next());
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return idle.size();
+    }
+
+    public static long getTotalHits() {
+        return totalHits.get();
+    }
+
+    public static long getTotalMisses() {
+        return totalMisses.get();
+    }
+
+    public static void resetTotals() {
+        totalHits.set(0);
+        totalMisses.set(0);
+    }
+
+    private void reportError() {
+        if (errorListener != null) {
+            errorListener.run();
+        }
+    }
+
+    private PreparedStatement wrap(String sql, PreparedStatement stmt) {
+        return (PreparedStatement) Proxy.newProxyInstance(
+            PreparedStatement.class.getClassLoader(),
+            new Class<?>[]{PreparedStatement.class},
+            new CachedStatementHandle(sql, stmt));
+    }
+
+    private static void closeQuietly(Statement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            // Nothing useful to do with a statement we are discarding
+        }
+    }
+
+    /**
+     * Wrap a connection so that prepareStatement(String) goes through the cache
+     */
+    public static Connection cachingConnection(Connection connection, StatementCache cache) {
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[]{Connection.class},
+            (proxy, method, args) -> {
+                if ("prepareStatement".equals(method.getName())
+                        && args != null && args.length == 1 && args[0] instanceof String) {
+                    return cache.prepare((String) args[0]);
+                }
+                if ("close".equals(method.getName())) {
+                    cache.close();
+                }
+                try {
+                    return method.invoke(connection, args);
+                } catch (InvocationTargetException e) {
+                    if (e.getCause() instanceof SQLException) {
+                        cache.reportError();
+                    }
+                    throw e.getCause();
+                }
+            });
+    }
+
+    private class CachedStatementHandle implements InvocationHandler {
+        private final String sql;
+        private final PreparedStatement delegate;
+        private ResultSet lastResult;
+        private boolean released = false;
+
+        CachedStatementHandle(String sql, PreparedStatement delegate) {
+            this.sql = sql;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        checkIn(sql, delegate, lastResult);
+                    }
+                    return null;
+                case "isClosed":
+                    return released || delegate.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    if (released) {
+                        throw new SQLException("Statement already returned to the cache");
+                    }
+                    try {
+                        Object result = method.invoke(delegate, args);
+                        if (result instanceof ResultSet) {
+                            lastResult = (ResultSet) result;
+                        }
+                        return result;
+                    } catch (InvocationTargetException e) {
+                        if (e.getCause() instanceof SQLException) {
+                            reportError();
+                        }
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
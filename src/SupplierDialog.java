@@ -149,23 +149,17 @@ public class SupplierDialog extends JDialog {
     
     private void loadSupplierData() {
         try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = "SELECT * FROM fornitori WHERE id = ?";
-            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-                pstmt.setInt(1, supplier.getId());
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    if (rs.next()) {
-                        ragioneSocialeField.setText(rs.getString("ragione_sociale"));
-                        partitaIvaField.setText(rs.getString("partita_iva"));
-                        codiceFiscaleField.setText(rs.getString("codice_fiscale"));
-                        indirizzoField.setText(rs.getString("indirizzo"));
-                        telefonoField.setText(rs.getString("telefono"));
-                        emailField.setText(rs.getString("email"));
-                        pecField.setText(rs.getString("pec"));
-                        sitoWebField.setText(rs.getString("sito_web"));
-                        noteArea.setText(rs.getString("note"));
-                    }
-                }
+            Supplier stored = SupplierRepository.getInstance().findById(supplier.getId());
+            if (stored != null) {
+                ragioneSocialeField.setText(stored.getRagioneSociale());
+                partitaIvaField.setText(stored.getPartitaIva());
+                codiceFiscaleField.setText(stored.getCodiceFiscale());
+                indirizzoField.setText(stored.getIndirizzo());
+                telefonoField.setText(stored.getTelefono());
+                emailField.setText(stored.getEmail());
+                pecField.setText(stored.getPec());
+                sitoWebField.setText(stored.getSitoWeb());
+                noteArea.setText(stored.getNote());
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -187,68 +181,72 @@ public class SupplierDialog extends JDialog {
         }
         
         try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            
-            if (supplier == null) {
-                // Nuovo fornitore
-                String insertQuery = """
-                    INSERT INTO fornitori (ragione_sociale, partita_iva, codice_fiscale,
-                                          indirizzo, telefono, email, pec, sito_web, note)
-                    VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
-                """;
+            DatabaseManager.getInstance().inWriteTransaction(conn -> {
+                if (supplier == null) {
+                    // Nuovo fornitore
+                    String insertQuery = """
+                        INSERT INTO fornitori (ragione_sociale, partita_iva, codice_fiscale,
+                                              indirizzo, telefono, email, pec, sito_web, note)
+                        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+                    """;
                 
-                try (PreparedStatement pstmt = conn.prepareStatement(insertQuery, Statement.RETURN_GENERATED_KEYS)) {
-                    pstmt.setString(1, ragioneSociale);
-                    pstmt.setString(2, partitaIva);
-                    pstmt.setString(3, codiceFiscaleField.getText().trim());
-                    pstmt.setString(4, indirizzoField.getText().trim());
-                    pstmt.setString(5, telefonoField.getText().trim());
-                    pstmt.setString(6, emailField.getText().trim());
-                    pstmt.setString(7, pecField.getText().trim());
-                    pstmt.setString(8, sitoWebField.getText().trim());
-                    pstmt.setString(9, noteArea.getText().trim());
+                    try (PreparedStatement pstmt = conn.prepareStatement(insertQuery, Statement.RETURN_GENERATED_KEYS)) {
+                        pstmt.setString(1, ragioneSociale);
+                        pstmt.setString(2, partitaIva);
+                        pstmt.setString(3, codiceFiscaleField.getText().trim());
+                        pstmt.setString(4, indirizzoField.getText().trim());
+                        pstmt.setString(5, telefonoField.getText().trim());
+                        pstmt.setString(6, emailField.getText().trim());
+                        pstmt.setString(7, pecField.getText().trim());
+                        pstmt.setString(8, sitoWebField.getText().trim());
+                        pstmt.setString(9, noteArea.getText().trim());
                     
-                    pstmt.executeUpdate();
+                        pstmt.executeUpdate();
                     
-                    // Recupera l'ID del nuovo fornitore
-                    try (ResultSet rs = pstmt.getGeneratedKeys()) {
-                        if (rs.next()) {
-                            int newId = rs.getInt(1);
-                            supplier = new Supplier(newId, ragioneSociale, partitaIva,
-                                codiceFiscaleField.getText().trim(), indirizzoField.getText().trim(),
-                                telefonoField.getText().trim(), emailField.getText().trim(),
-                                pecField.getText().trim(), sitoWebField.getText().trim(),
-                                noteArea.getText().trim());
+                        // Recupera l'ID del nuovo fornitore
+                        try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                            if (rs.next()) {
+                                int newId = rs.getInt(1);
+                                supplier = new Supplier(newId, ragioneSociale, partitaIva,
+                                    codiceFiscaleField.getText().trim(), indirizzoField.getText().trim(),
+                                    telefonoField.getText().trim(), emailField.getText().trim(),
+                                    pecField.getText().trim(), sitoWebField.getText().trim(),
+                                    noteArea.getText().trim());
+                            }
                         }
                     }
-                }
-            } else {
-                // Modifica fornitore esistente
-                String updateQuery = """
-                    UPDATE fornitori
-                    SET ragione_sociale = ?, partita_iva = ?, codice_fiscale = ?,
-                        indirizzo = ?, telefono = ?, email = ?, pec = ?,
-                        sito_web = ?, note = ?
-                    WHERE id = ?
-                """;
+                } else {
+                    // Modifica fornitore esistente
+                    String updateQuery = """
+                        UPDATE fornitori
+                        SET ragione_sociale = ?, partita_iva = ?, codice_fiscale = ?,
+                            indirizzo = ?, telefono = ?, email = ?, pec = ?,
+                            sito_web = ?, note = ?
+                        WHERE id = ?
+                    """;
                 
-                try (PreparedStatement pstmt = conn.prepareStatement(updateQuery)) {
-                    pstmt.setString(1, ragioneSociale);
-                    pstmt.setString(2, partitaIva);
-                    pstmt.setString(3, codiceFiscaleField.getText().trim());
-                    pstmt.setString(4, indirizzoField.getText().trim());
-                    pstmt.setString(5, telefonoField.getText().trim());
-                    pstmt.setString(6, emailField.getText().trim());
-                    pstmt.setString(7, pecField.getText().trim());
-                    pstmt.setString(8, sitoWebField.getText().trim());
-                    pstmt.setString(9, noteArea.getText().trim());
-                    pstmt.setInt(10, supplier.getId());
+                    try (PreparedStatement pstmt = conn.prepareStatement(updateQuery)) {
+                        pstmt.setString(1, ragioneSociale);
+                        pstmt.setString(2, partitaIva);
+                        pstmt.setString(3, codiceFiscaleField.getText().trim());
+                        pstmt.setString(4, indirizzoField.getText().trim());
+                        pstmt.setString(5, telefonoField.getText().trim());
+                        pstmt.setString(6, emailField.getText().trim());
+                        pstmt.setString(7, pecField.getText().trim());
+                        pstmt.setString(8, sitoWebField.getText().trim());
+                        pstmt.setString(9, noteArea.getText().trim());
+                        pstmt.setInt(10, supplier.getId());
                     
-                    pstmt.executeUpdate();
+                        pstmt.executeUpdate();
+                    }
                 }
-            }
+                return null;
+            });
             
             supplierSaved = true;
+            if (supplier != null) {
+                EventBus.getInstance().publish(new DomainEvent.SupplierChanged(supplier.getId()));
+            }
             dispose();
             
         } catch (SQLException e) {
@@ -24,7 +24,8 @@ public class SupplierOrderDialog extends JDialog {
     private DefaultTableModel itemsTableModel;
     private JLabel totalLabel;
     private SimpleDateFormat dateFormat;
-    private Map<Integer, Product> productsCache;
+    private Map<Integer, Double> supplierPrices;
+    private Map<String, Integer> productIds; // Product id of each row, by code
     private boolean updatingTotals = false; // Flag to prevent recursion
     
     public SupplierOrderDialog(JDialog parent, int supplierId, String supplierName, SupplierOrder order) {
@@ -33,11 +34,12 @@ public class SupplierOrderDialog extends JDialog {
         this.supplierName = supplierName;
         this.order = order;
         this.dateFormat = new SimpleDateFormat("dd/MM/yyyy");
-        this.productsCache = new HashMap<>();
+        this.supplierPrices = new HashMap<>();
+        this.productIds = new HashMap<>();
         
         setupWindow();
         initComponents();
-        loadProducts();
+        loadSupplierPrices();
         if (order != null) {
             loadOrderData();
         } else {
@@ -176,24 +178,11 @@ public class SupplierOrderDialog extends JDialog {
     
     private void generateOrderNumber() {
         try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = """
-                SELECT COALESCE(MAX(CAST(SUBSTR(numero, 5) AS INTEGER)), 0) + 1 as next_num
-                FROM ordini_fornitori
-                WHERE numero LIKE ?
-            """;
-            
-            Calendar cal = Calendar.getInstance();
-            String yearPrefix = String.format("OF%d", cal.get(Calendar.YEAR));
-            
-            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-                pstmt.setString(1, yearPrefix + "%");
-                ResultSet rs = pstmt.executeQuery();
-                if (rs.next()) {
-                    int nextNum = rs.getInt("next_num");
-                    numeroField.setText(String.format("%s%04d", yearPrefix, nextNum));
-                }
-            }
+            // Preview only: the definitive number is assigned when the order is saved
+            int year = Calendar.getInstance().get(Calendar.YEAR);
+            numeroField.setText(DocumentNumbering.getInstance().peek(
+                DocumentNumbering.DocumentType.SUPPLIER_ORDER, year));
+            numeroField.setToolTipText("Assigned when the order is saved");
         } catch (SQLException e) {
             e.printStackTrace();
             JOptionPane.showMessageDialog(this,
@@ -202,33 +191,23 @@ public class SupplierOrderDialog extends JDialog {
         }
     }
     
-    private void loadProducts() {
-        try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = """
-                SELECT p.*, COALESCE(l.prezzo, p.prezzo) as prezzo_fornitore,
-                       l.codice_prodotto_fornitore
-                FROM prodotti p
-                LEFT JOIN listini_fornitori l ON p.id = l.prodotto_id 
-                    AND l.fornitore_id = ?
-                    AND (l.data_validita_fine IS NULL OR DATE(l.data_validita_fine) >= DATE('now'))
-                ORDER BY p.nome
-            """;
-            
-            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-                pstmt.setInt(1, supplierId);
-                ResultSet rs = pstmt.executeQuery();
-                
+    /**
+     * Load this supplier's current list prices; the products themselves come
+     * from the shared catalog
+     */
+    private void loadSupplierPrices() {
+        String query = """
+            SELECT prodotto_id, prezzo
+            FROM listini_fornitori
+            WHERE fornitore_id = ?
+              AND (data_validita_fine IS NULL OR DATE(data_validita_fine) >= DATE('now'))
+        """;
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, supplierId);
+            try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    Product product = new Product(
-                        rs.getInt("id"),
-                        rs.getString("codice"),
-                        rs.getString("nome"),
-                        rs.getString("descrizione"),
-                        rs.getDouble("prezzo_fornitore"),
-                        rs.getInt("quantita")
-                    );
-                    productsCache.put(product.getId(), product);
+                    supplierPrices.put(rs.getInt("prodotto_id"), rs.getDouble("prezzo"));
                 }
             }
         } catch (SQLException e) {
@@ -250,6 +229,7 @@ public class SupplierOrderDialog extends JDialog {
         
         // Carica prodotti
         for (SupplierOrderItem item : order.getItems()) {
+            productIds.put(item.getProdottoCodice(), item.getProdottoId());
             Vector<Object> row = new Vector<>();
             row.add(item.getProdottoCodice());
             row.add(item.getProdottoNome());
@@ -280,9 +260,19 @@ public class SupplierOrderDialog extends JDialog {
         
         gbc.gridx = 1;
         JComboBox<ProductDisplay> productCombo = new JComboBox<>();
-        for (Product product : productsCache.values()) {
-            productCombo.addItem(new ProductDisplay(product));
-        }
+        productCombo.setEnabled(false);
+        // Filled once the catalog is loaded, without blocking the EDT
+        ProductCatalog.getInstance().whenLoaded(() -> {
+            try {
+                for (Product product : ProductCatalog.getInstance().getAll()) {
+                    double price = supplierPrices.getOrDefault(product.getId(), product.getPrezzo());
+                    productCombo.addItem(new ProductDisplay(product, price));
+                }
+                productCombo.setEnabled(true);
+            } catch (SQLException e) {
+                showProductLoadError(dialog, e);
+            }
+        }, error -> showProductLoadError(dialog, error));
         panel.add(productCombo, gbc);
         
         // Quantità
@@ -331,12 +321,13 @@ public class SupplierOrderDialog extends JDialog {
             }
             
             // Aggiungi alla tabella
+            productIds.put(selectedProduct.getProduct().getCodice(), selectedProduct.getProduct().getId());
             Vector<Object> row = new Vector<>();
             row.add(selectedProduct.getProduct().getCodice());
             row.add(selectedProduct.getProduct().getNome());
             row.add(quantity);
-            row.add(String.format("%.2f", selectedProduct.getProduct().getPrezzo()));
-            row.add(String.format("%.2f", quantity * selectedProduct.getProduct().getPrezzo()));
+            row.add(String.format("%.2f", selectedProduct.getPrice()));
+            row.add(String.format("%.2f", quantity * selectedProduct.getPrice()));
             row.add(note);
             itemsTableModel.addRow(row);
             
@@ -354,19 +345,30 @@ public class SupplierOrderDialog extends JDialog {
         dialog.setVisible(true);
     }
     
+    private void showProductLoadError(JDialog dialog, Throwable error) {
+        error.printStackTrace();
+        JOptionPane.showMessageDialog(this,
+            "Error loading products: " + error.getMessage(),
+            "Error", JOptionPane.ERROR_MESSAGE);
+        dialog.dispose();
+    }
+    
     private static class ProductDisplay {
         private Product product;
+        private double price;
         
-        public ProductDisplay(Product product) {
+        public ProductDisplay(Product product, double price) {
             this.product = product;
+            this.price = price;
         }
         
         public Product getProduct() { return product; }
+        public double getPrice() { return price; }
         
         @Override
         public String toString() {
             return String.format("%s - %s (€ %.2f)", 
-                product.getCodice(), product.getNome(), product.getPrezzo());
+                product.getCodice(), product.getNome(), price);
         }
     }
     
@@ -492,10 +494,13 @@ public class SupplierOrderDialog extends JDialog {
             double totale = Double.parseDouble(
                 totalLabel.getText().replace("Total: € ", "").replace(",", "."));
             
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            conn.setAutoCommit(false);
+            String dataOrdineValue = DateCodec.encode(dataOrdine);
+            String dataConsegnaValue = DateCodec.encode(dataConsegna);
+            Calendar cal = Calendar.getInstance();
+            cal.setTime(dataOrdine);
+            int orderYear = cal.get(Calendar.YEAR);
             
-            try {
+            DatabaseManager.getInstance().inWriteTransaction(conn -> {
                 if (order == null) {
                     // Inserisci nuovo ordine
                     String orderQuery = """
@@ -505,12 +510,16 @@ public class SupplierOrderDialog extends JDialog {
                         ) VALUES (?, ?, ?, ?, ?, ?, ?)
                     """;
                     
+                    // Number is taken in the same transaction as the insert
+                    String numero = DocumentNumbering.getInstance().next(conn,
+                        DocumentNumbering.DocumentType.SUPPLIER_ORDER, orderYear);
+                    
                     int orderId;
                     try (PreparedStatement pstmt = conn.prepareStatement(orderQuery, Statement.RETURN_GENERATED_KEYS)) {
                         pstmt.setInt(1, supplierId);
-                        pstmt.setString(2, numeroField.getText());
-                        pstmt.setTimestamp(3, DateUtils.toSqlTimestamp(dataOrdine));
-                        pstmt.setTimestamp(4, dataConsegna != null ? DateUtils.toSqlTimestamp(dataConsegna) : null);
+                        pstmt.setString(2, numero);
+                        pstmt.setString(3, dataOrdineValue);
+                        pstmt.setString(4, dataConsegnaValue);
                         pstmt.setString(5, (String)statoCombo.getSelectedItem());
                         pstmt.setDouble(6, totale);
                         pstmt.setString(7, noteArea.getText().trim());
@@ -538,8 +547,8 @@ public class SupplierOrderDialog extends JDialog {
                     """;
                     
                     try (PreparedStatement pstmt = conn.prepareStatement(orderQuery)) {
-                        pstmt.setTimestamp(1, DateUtils.toSqlTimestamp(dataOrdine));
-                        pstmt.setTimestamp(2, dataConsegna != null ? DateUtils.toSqlTimestamp(dataConsegna) : null);
+                        pstmt.setString(1, dataOrdineValue);
+                        pstmt.setString(2, dataConsegnaValue);
                         pstmt.setString(3, (String)statoCombo.getSelectedItem());
                         pstmt.setDouble(4, totale);
                         pstmt.setString(5, noteArea.getText().trim());
@@ -558,16 +567,10 @@ public class SupplierOrderDialog extends JDialog {
                     insertOrderDetails(conn, order.getId());
                 }
                 
-                conn.commit();
-                orderSaved = true;
-                dispose();
-                
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
-            }
+                return null;
+            });
+            orderSaved = true;
+            dispose();
             
         } catch (SQLException e) {
             e.printStackTrace();
@@ -588,14 +591,10 @@ public class SupplierOrderDialog extends JDialog {
         try (PreparedStatement pstmt = conn.prepareStatement(detailQuery)) {
             for (int i = 0; i < itemsTableModel.getRowCount(); i++) {
                 String codice = (String)itemsTableModel.getValueAt(i, 0);
-                int prodottoId = -1;
-                for (Product p : productsCache.values()) {
-                    if (p.getCodice().equals(codice)) {
-                        prodottoId = p.getId();
-                        break;
-                    }
-                }
-                if (prodottoId == -1) continue;
+                // Ids were resolved when the rows were added: no catalog
+                // lookups while the writer lock is held
+                Integer prodottoId = productIds.get(codice);
+                if (prodottoId == null) continue;
                 
                 int quantita = parseInteger(itemsTableModel.getValueAt(i, 2));
                 double prezzoUnitario = parseDouble(itemsTableModel.getValueAt(i, 3));
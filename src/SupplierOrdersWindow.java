@@ -4,7 +4,6 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.sql.*;
 import java.util.Vector;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 
 public class SupplierOrdersWindow extends JDialog {
@@ -16,13 +15,11 @@ public class SupplierOrdersWindow extends JDialog {
     private JButton editButton;
     private JButton deleteButton;
     private JButton refreshButton;
-    private SimpleDateFormat dateFormat;
     
     public SupplierOrdersWindow(JDialog parent, int supplierId, String supplierName) {
         super(parent, "Supplier Orders: " + supplierName, true);
         this.supplierId = supplierId;
         this.supplierName = supplierName;
-        this.dateFormat = new SimpleDateFormat("dd/MM/yyyy");
         
         setupWindow();
         initComponents();
@@ -34,7 +31,6 @@ public class SupplierOrdersWindow extends JDialog {
         super(parent, "Supplier Orders: " + supplierName, true);
         this.supplierId = supplierId;
         this.supplierName = supplierName;
-        this.dateFormat = new SimpleDateFormat("dd/MM/yyyy");
         
         setupWindow();
         initComponents();
@@ -93,14 +89,14 @@ public class SupplierOrdersWindow extends JDialog {
     private void loadOrders() {
         tableModel.setRowCount(0);
         try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
             String query = """
                 SELECT * FROM ordini_fornitori 
                 WHERE fornitore_id = ?
                 ORDER BY data_ordine DESC
             """;
             
-            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+            try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(query)) {
                 pstmt.setInt(1, supplierId);
                 ResultSet rs = pstmt.executeQuery();
                 
@@ -111,7 +107,7 @@ public class SupplierOrdersWindow extends JDialog {
                     // FIXED: Use DateUtils for proper date parsing
                     Date orderDate = DateUtils.parseDate(rs, "data_ordine");
                     if (orderDate != null) {
-                        row.add(DateUtils.formatDate(orderDate, dateFormat));
+                        row.add(DateUtils.formatDate(orderDate));
                     } else {
                         row.add("");
                     }
@@ -119,7 +115,7 @@ public class SupplierOrdersWindow extends JDialog {
                     // FIXED: Use DateUtils for delivery date parsing
                     Date deliveryDate = DateUtils.parseDate(rs, "data_consegna_prevista");
                     if (deliveryDate != null) {
-                        row.add(DateUtils.formatDate(deliveryDate, dateFormat));
+                        row.add(DateUtils.formatDate(deliveryDate));
                     } else {
                         row.add("");
                     }
@@ -165,10 +161,10 @@ public class SupplierOrdersWindow extends JDialog {
     }
     
     private SupplierOrder loadOrderByNumber(String numero) throws SQLException {
-        Connection conn = DatabaseManager.getInstance().getConnection();
         String query = "SELECT * FROM ordini_fornitori WHERE numero = ? AND fornitore_id = ?";
         
-        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setString(1, numero);
             pstmt.setInt(2, supplierId);
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -210,8 +206,8 @@ public class SupplierOrdersWindow extends JDialog {
             WHERE i.ordine_id = ?
         """;
         
-        Connection conn = DatabaseManager.getInstance().getConnection();
-        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, order.getId());
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
@@ -245,10 +241,7 @@ public class SupplierOrdersWindow extends JDialog {
                 
             if (result == JOptionPane.YES_OPTION) {
                 try {
-                    Connection conn = DatabaseManager.getInstance().getConnection();
-                    conn.setAutoCommit(false);
-                    
-                    try {
+                    DatabaseManager.getInstance().inWriteTransaction(conn -> {
                         // First delete order details
                         String deleteDetailsQuery = """
                             DELETE FROM dettagli_ordini_fornitori 
@@ -270,17 +263,9 @@ public class SupplierOrdersWindow extends JDialog {
                             pstmt.setInt(2, supplierId);
                             pstmt.executeUpdate();
                         }
-                        
-                        conn.commit();
-                        loadOrders();
-                        
-                    } catch (SQLException e) {
-                        conn.rollback();
-                        throw e;
-                    } finally {
-                        conn.setAutoCommit(true);
-                    }
-                    
+                        return null;
+                    });
+                    loadOrders();
                 } catch (SQLException e) {
                     e.printStackTrace();
                     JOptionPane.showMessageDialog(this,
@@ -18,6 +18,7 @@ public class SupplierPriceListDialog extends JDialog {
     private JTextField dataFineField;
     private JTextArea noteArea;
     private SimpleDateFormat dateFormat;
+    private int selectedProductId = -1; // Product of the price being edited
     
     public SupplierPriceListDialog(JDialog parent, int supplierId, String supplierName, SupplierPriceList priceList) {
         super(parent, priceList == null ? "New Price" : "Edit Price", true);
@@ -141,30 +142,39 @@ public class SupplierPriceListDialog extends JDialog {
         add(legendPanel, BorderLayout.NORTH);
     }
     
+    /**
+     * Fill the product combo once the catalog is loaded, without blocking
+     * the EDT; the edited price's product is selected afterwards
+     */
     private void loadProducts() {
-        try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = "SELECT * FROM prodotti ORDER BY nome";
-            
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(query)) {
-                while (rs.next()) {
-                    Product product = new Product(
-                        rs.getInt("id"),
-                        rs.getString("codice"),
-                        rs.getString("nome"),
-                        rs.getString("descrizione"),
-                        rs.getDouble("prezzo"),
-                        rs.getInt("quantita")
-                    );
+        productCombo.setEnabled(false);
+        ProductCatalog.getInstance().whenLoaded(() -> {
+            try {
+                for (Product product : ProductCatalog.getInstance().getAll()) {
                     productCombo.addItem(new ProductDisplay(product));
                 }
+                productCombo.setEnabled(true);
+                selectProduct();
+            } catch (SQLException e) {
+                showProductLoadError(e);
+            }
+        }, this::showProductLoadError);
+    }
+    
+    private void showProductLoadError(Throwable error) {
+        error.printStackTrace();
+        JOptionPane.showMessageDialog(this,
+            "Error loading products: " + error.getMessage(),
+            "Error", JOptionPane.ERROR_MESSAGE);
+    }
+    
+    private void selectProduct() {
+        for (int i = 0; i < productCombo.getItemCount(); i++) {
+            ProductDisplay item = (ProductDisplay)productCombo.getItemAt(i);
+            if (item.getProduct().getId() == selectedProductId) {
+                productCombo.setSelectedIndex(i);
+                break;
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this,
-                "Error loading products: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
     
@@ -185,7 +195,6 @@ public class SupplierPriceListDialog extends JDialog {
     
     private void loadPriceData() {
         try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
             String query = """
                 SELECT l.*, p.nome as prodotto_nome
                 FROM listini_fornitori l
@@ -193,18 +202,14 @@ public class SupplierPriceListDialog extends JDialog {
                 WHERE l.id = ?
             """;
             
-            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+            try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(query)) {
                 pstmt.setInt(1, priceList.getId());
                 try (ResultSet rs = pstmt.executeQuery()) {
                     if (rs.next()) {
-                        // Select product
-                        for (int i = 0; i < productCombo.getItemCount(); i++) {
-                            ProductDisplay item = (ProductDisplay)productCombo.getItemAt(i);
-                            if (item.getProduct().getId() == rs.getInt("prodotto_id")) {
-                                productCombo.setSelectedIndex(i);
-                                break;
-                            }
-                        }
+                        // Select product (again once the combo is filled)
+                        selectedProductId = rs.getInt("prodotto_id");
+                        selectProduct();
                         
                         codiceFornitoreField.setText(rs.getString("codice_prodotto_fornitore"));
                         prezzoField.setText(String.format("%.2f", rs.getDouble("prezzo")));
@@ -301,74 +306,80 @@ public class SupplierPriceListDialog extends JDialog {
             ProductDisplay selectedProduct = (ProductDisplay)productCombo.getSelectedItem();
             int prodottoId = selectedProduct.getProduct().getId();
             
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            
-            if (priceList == null) {
-                // Check if a valid price already exists for this product
-                String checkQuery = """
-                    SELECT id FROM listini_fornitori 
-                    WHERE fornitore_id = ? AND prodotto_id = ?
-                    AND (data_validita_fine IS NULL OR DATE(data_validita_fine) >= DATE(?))
-                    AND DATE(data_validita_inizio) <= DATE(?)
-                """;
+            // The overlap check and the insert share one transaction
+            Date validoFino = dataFine;
+            boolean saved = DatabaseManager.getInstance().inWriteTransaction(conn -> {
+                if (priceList == null) {
+                    // Check if a valid price already exists for this product
+                    String checkQuery = """
+                        SELECT id FROM listini_fornitori 
+                        WHERE fornitore_id = ? AND prodotto_id = ?
+                        AND (data_validita_fine IS NULL OR data_validita_fine >= ?)
+                        AND data_validita_inizio <= ?
+                    """;
                 
-                try (PreparedStatement pstmt = conn.prepareStatement(checkQuery)) {
-                    pstmt.setInt(1, supplierId);
-                    pstmt.setInt(2, prodottoId);
-                    pstmt.setDate(3, DateUtils.toSqlDate(dataInizio));
-                    pstmt.setDate(4, dataFine != null ? DateUtils.toSqlDate(dataFine) : DateUtils.toSqlDate(dataInizio));
+                    try (PreparedStatement pstmt = conn.prepareStatement(checkQuery)) {
+                        pstmt.setInt(1, supplierId);
+                        pstmt.setInt(2, prodottoId);
+                        pstmt.setString(3, DateCodec.startOfDay(dataInizio));
+                        pstmt.setString(4, DateCodec.endOfDay(validoFino != null ? validoFino : dataInizio));
                     
-                    ResultSet rs = pstmt.executeQuery();
-                    if (rs.next()) {
-                        JOptionPane.showMessageDialog(this,
-                            "A valid price already exists for this product in the specified period",
-                            "Error", JOptionPane.ERROR_MESSAGE);
-                        return;
+                        ResultSet rs = pstmt.executeQuery();
+                        if (rs.next()) {
+                            return false;
+                        }
                     }
-                }
                 
-                // Insert new price
-                String insertQuery = """
-                    INSERT INTO listini_fornitori (
-                        fornitore_id, prodotto_id, codice_prodotto_fornitore,
-                        prezzo, quantita_minima, data_validita_inizio,
-                        data_validita_fine, note
-                    ) VALUES (?, ?, ?, ?, ?, ?, ?, ?)
-                """;
+                    // Insert new price
+                    String insertQuery = """
+                        INSERT INTO listini_fornitori (
+                            fornitore_id, prodotto_id, codice_prodotto_fornitore,
+                            prezzo, quantita_minima, data_validita_inizio,
+                            data_validita_fine, note
+                        ) VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+                    """;
                 
-                try (PreparedStatement pstmt = conn.prepareStatement(insertQuery)) {
-                    pstmt.setInt(1, supplierId);
-                    pstmt.setInt(2, prodottoId);
-                    pstmt.setString(3, codiceFornitoreField.getText().trim());
-                    pstmt.setDouble(4, prezzo);
-                    pstmt.setInt(5, (Integer)quantitaMinimaSpinner.getValue());
-                    pstmt.setTimestamp(6, DateUtils.toSqlTimestamp(dataInizio));
-                    pstmt.setTimestamp(7, dataFine != null ? DateUtils.toSqlTimestamp(dataFine) : null);
-                    pstmt.setString(8, noteArea.getText().trim());
-                    pstmt.executeUpdate();
-                }
+                    try (PreparedStatement pstmt = conn.prepareStatement(insertQuery)) {
+                        pstmt.setInt(1, supplierId);
+                        pstmt.setInt(2, prodottoId);
+                        pstmt.setString(3, codiceFornitoreField.getText().trim());
+                        pstmt.setDouble(4, prezzo);
+                        pstmt.setInt(5, (Integer)quantitaMinimaSpinner.getValue());
+                        DateCodec.bind(pstmt, 6, dataInizio);
+                        DateCodec.bind(pstmt, 7, validoFino);
+                        pstmt.setString(8, noteArea.getText().trim());
+                        pstmt.executeUpdate();
+                    }
                 
-            } else {
-                // Update existing price
-                String updateQuery = """
-                    UPDATE listini_fornitori SET
-                        codice_prodotto_fornitore = ?,
-                        prezzo = ?, quantita_minima = ?,
-                        data_validita_inizio = ?, data_validita_fine = ?,
-                        note = ?
-                    WHERE id = ?
-                """;
+                } else {
+                    // Update existing price
+                    String updateQuery = """
+                        UPDATE listini_fornitori SET
+                            codice_prodotto_fornitore = ?,
+                            prezzo = ?, quantita_minima = ?,
+                            data_validita_inizio = ?, data_validita_fine = ?,
+                            note = ?
+                        WHERE id = ?
+                    """;
                 
-                try (PreparedStatement pstmt = conn.prepareStatement(updateQuery)) {
-                    pstmt.setString(1, codiceFornitoreField.getText().trim());
-                    pstmt.setDouble(2, prezzo);
-                    pstmt.setInt(3, (Integer)quantitaMinimaSpinner.getValue());
-                    pstmt.setTimestamp(4, DateUtils.toSqlTimestamp(dataInizio));
-                    pstmt.setTimestamp(5, dataFine != null ? DateUtils.toSqlTimestamp(dataFine) : null);
-                    pstmt.setString(6, noteArea.getText().trim());
-                    pstmt.setInt(7, priceList.getId());
-                    pstmt.executeUpdate();
+                    try (PreparedStatement pstmt = conn.prepareStatement(updateQuery)) {
+                        pstmt.setString(1, codiceFornitoreField.getText().trim());
+                        pstmt.setDouble(2, prezzo);
+                        pstmt.setInt(3, (Integer)quantitaMinimaSpinner.getValue());
+                        DateCodec.bind(pstmt, 4, dataInizio);
+                        DateCodec.bind(pstmt, 5, validoFino);
+                        pstmt.setString(6, noteArea.getText().trim());
+                        pstmt.setInt(7, priceList.getId());
+                        pstmt.executeUpdate();
+                    }
                 }
+                return true;
+            });
+            if (!saved) {
+                JOptionPane.showMessageDialog(this,
+                    "A valid price already exists for this product in the specified period",
+                    "Error", JOptionPane.ERROR_MESSAGE);
+                return;
             }
             
             priceSaved = true;
@@ -4,7 +4,6 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.sql.*;
 import java.util.Vector;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 
 public class SupplierPriceListWindow extends JDialog {
@@ -16,13 +15,11 @@ public class SupplierPriceListWindow extends JDialog {
     private JButton editButton;
     private JButton deleteButton;
     private JButton refreshButton;
-    private SimpleDateFormat dateFormat;
     
     public SupplierPriceListWindow(JDialog parent, int supplierId, String supplierName) {
         super(parent, "Price List: " + supplierName, true);
         this.supplierId = supplierId;
         this.supplierName = supplierName;
-        this.dateFormat = new SimpleDateFormat("dd/MM/yyyy");
         
         setupWindow();
         initComponents();
@@ -34,7 +31,6 @@ public class SupplierPriceListWindow extends JDialog {
         super(parent, "Price List: " + supplierName, true);
         this.supplierId = supplierId;
         this.supplierName = supplierName;
-        this.dateFormat = new SimpleDateFormat("dd/MM/yyyy");
         
         setupWindow();
         initComponents();
@@ -93,7 +89,6 @@ public class SupplierPriceListWindow extends JDialog {
     private void loadPriceList() {
         tableModel.setRowCount(0);
         try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
             String query = """
                 SELECT l.*, p.nome as prodotto_nome
                 FROM listini_fornitori l
@@ -102,7 +97,8 @@ public class SupplierPriceListWindow extends JDialog {
                 ORDER BY p.nome
             """;
             
-            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+            try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(query)) {
                 pstmt.setInt(1, supplierId);
                 ResultSet rs = pstmt.executeQuery();
                 
@@ -112,9 +108,9 @@ public class SupplierPriceListWindow extends JDialog {
                     row.add(rs.getString("codice_prodotto_fornitore"));
                     row.add(String.format("%.2f", rs.getDouble("prezzo")));
                     row.add(rs.getInt("quantita_minima"));
-                    row.add(dateFormat.format(rs.getDate("data_validita_inizio")));
-                    Date validitaFine = rs.getDate("data_validita_fine");
-                    row.add(validitaFine != null ? dateFormat.format(validitaFine) : "");
+                    row.add(DateUtils.formatDate(DateUtils.parseDate(rs, "data_validita_inizio")));
+                    Date validitaFine = DateUtils.parseDate(rs, "data_validita_fine");
+                    row.add(DateUtils.formatDate(validitaFine));
                     row.add(rs.getString("note"));
                     tableModel.addRow(row);
                 }
@@ -155,7 +151,6 @@ public class SupplierPriceListWindow extends JDialog {
     }
     
     private SupplierPriceList loadPriceListItem(String prodottoNome, String codiceFornitore) throws SQLException {
-        Connection conn = DatabaseManager.getInstance().getConnection();
         String query = """
             SELECT l.*, p.nome as prodotto_nome
             FROM listini_fornitori l
@@ -163,7 +158,8 @@ public class SupplierPriceListWindow extends JDialog {
             WHERE l.fornitore_id = ? AND p.nome = ? AND l.codice_prodotto_fornitore = ?
         """;
         
-        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, supplierId);
             pstmt.setString(2, prodottoNome);
             pstmt.setString(3, codiceFornitore);
@@ -176,8 +172,8 @@ public class SupplierPriceListWindow extends JDialog {
                         rs.getString("codice_prodotto_fornitore"),
                         rs.getDouble("prezzo"),
                         rs.getInt("quantita_minima"),
-                        rs.getDate("data_validita_inizio"),
-                        rs.getDate("data_validita_fine"),
+                        DateUtils.parseDate(rs, "data_validita_inizio"),
+                        DateUtils.parseDate(rs, "data_validita_fine"),
                         rs.getString("note")
                     );
                 }
@@ -200,7 +196,6 @@ public class SupplierPriceListWindow extends JDialog {
                 
             if (result == JOptionPane.YES_OPTION) {
                 try {
-                    Connection conn = DatabaseManager.getInstance().getConnection();
                     String query = """
                         DELETE FROM listini_fornitori 
                         WHERE fornitore_id = ? 
@@ -208,13 +203,15 @@ public class SupplierPriceListWindow extends JDialog {
                         AND codice_prodotto_fornitore = ?
                     """;
                     
-                    try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-                        pstmt.setInt(1, supplierId);
-                        pstmt.setString(2, prodottoNome);
-                        pstmt.setString(3, codiceFornitore);
-                        pstmt.executeUpdate();
-                        loadPriceList();
-                    }
+                    DatabaseManager.getInstance().inWriteTransaction(conn -> {
+                        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                            pstmt.setInt(1, supplierId);
+                            pstmt.setString(2, prodottoNome);
+                            pstmt.setString(3, codiceFornitore);
+                            return pstmt.executeUpdate();
+                        }
+                    });
+                    loadPriceList();
                 } catch (SQLException e) {
                     e.printStackTrace();
                     JOptionPane.showMessageDialog(this,
@@ -0,0 +1,64 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typed queries on fornitori
+ */
+public class SupplierRepository extends Repository {
+    private static SupplierRepository instance;
+
+    private static final String SELECT = """
+        SELECT id, ragione_sociale, partita_iva, codice_fiscale, indirizzo,
+               telefono, email, pec, sito_web, note
+        FROM fornitori""";
+
+    private SupplierRepository() {
+        // Private constructor for the Singleton pattern
+    }
+
+    public static synchronized SupplierRepository getInstance() {
+        if (instance == null) {
+            instance = new SupplierRepository();
+        }
+        return instance;
+    }
+
+    public List<Supplier> findAll() throws SQLException {
+        return queryList(SELECT + " ORDER BY ragione_sociale", RowMappers.SUPPLIER);
+    }
+
+    public Page<Supplier> findPage(int offset, int limit) throws SQLException {
+        return queryPage(SELECT + " ORDER BY ragione_sociale, id", RowMappers.SUPPLIER, offset, limit);
+    }
+
+    public Supplier findById(int id) throws SQLException {
+        return queryOne(SELECT + " WHERE id = ?", RowMappers.SUPPLIER, id);
+    }
+
+    public Map<Integer, Supplier> findByIds(Collection<Integer> ids) throws SQLException {
+        return queryByIds(SELECT + " WHERE id", ids, RowMappers.SUPPLIER, Supplier::getId);
+    }
+
+    /**
+     * Full-text search on company name, VAT number and email, best matches
+     * first
+     */
+    public List<Supplier> search(String term) throws SQLException {
+        String match = toPrefixQuery(term);
+        if (match == null) {
+            return new ArrayList<>();
+        }
+        String query = """
+            SELECT f.id, f.ragione_sociale, f.partita_iva, f.codice_fiscale, f.indirizzo,
+                   f.telefono, f.email, f.pec, f.sito_web, f.note
+            FROM fornitori_fts
+            JOIN fornitori f ON f.id = fornitori_fts.rowid
+            WHERE fornitori_fts MATCH ?
+            ORDER BY bm25(fornitori_fts, 10.0, 5.0, 1.0), f.ragione_sociale
+        """;
+        return queryList(query, RowMappers.SUPPLIER, match);
+    }
+}
@@ -2,12 +2,15 @@ import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.sql.*;
+import java.util.List;
 import java.util.Vector;
 
 public class SuppliersPanel extends JPanel {
     private JTable suppliersTable;
     private DefaultTableModel tableModel;
     private JTextField searchField;
+    private final BusyIndicator busyIndicator = new BusyIndicator();
+    private final BackgroundLoader loader = new BackgroundLoader(busyIndicator);
     private JButton addButton;
     private JButton editButton;
     private JButton deleteButton;
@@ -19,6 +22,12 @@ public class SuppliersPanel extends JPanel {
         setupPanel();
         initComponents();
         loadSuppliers();
+        
+        // Patch single rows when suppliers change anywhere in the application
+        EventBus bus = EventBus.getInstance();
+        bus.subscribe(DomainEvent.SupplierChanged.class, e -> supplierChanged(e.getSupplierId()));
+        bus.subscribe(DomainEvent.SupplierDeleted.class, e -> supplierDeleted(e.getSupplierId()));
+        bus.subscribe(DomainEvent.SuppliersImported.class, e -> loadSuppliers());
     }
     
     private void setupPanel() {
@@ -38,6 +47,7 @@ public class SuppliersPanel extends JPanel {
         searchPanel.add(new JLabel("Search: "));
         searchPanel.add(searchField);
         searchPanel.add(searchButton);
+        searchPanel.add(busyIndicator);
         
         // Suppliers table
         String[] columns = {"ID", "Company Name", "VAT No.", "Email", "Phone", "Address"};
@@ -104,30 +114,8 @@ public class SuppliersPanel extends JPanel {
     }
     
     private void loadSuppliers() {
-        tableModel.setRowCount(0);
-        try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = "SELECT * FROM fornitori ORDER BY ragione_sociale";
-            
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(query)) {
-                while (rs.next()) {
-                    Vector<Object> row = new Vector<>();
-                    row.add(rs.getInt("id"));
-                    row.add(rs.getString("ragione_sociale"));
-                    row.add(rs.getString("partita_iva"));
-                    row.add(rs.getString("email"));
-                    row.add(rs.getString("telefono"));
-                    row.add(rs.getString("indirizzo"));
-                    tableModel.addRow(row);
-                }
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this,
-                "Error loading suppliers: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        loader.onError(e -> showError("Error loading suppliers: ", e))
+            .replace(() -> SupplierRepository.getInstance().findAll(), this::showSuppliers);
     }
     
     private void searchSuppliers() {
@@ -137,44 +125,66 @@ public class SuppliersPanel extends JPanel {
             return;
         }
         
+        loader.onError(e -> showError("Error searching for suppliers: ", e))
+            .replace(() -> SupplierRepository.getInstance().search(searchTerm), this::showSuppliers);
+    }
+    
+    private void showError(String message, Exception e) {
+        e.printStackTrace();
+        JOptionPane.showMessageDialog(this,
+            message + e.getMessage(),
+            "Error", JOptionPane.ERROR_MESSAGE);
+    }
+    
+    private void showSuppliers(List<Supplier> suppliers) {
         tableModel.setRowCount(0);
-        try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = """
-                SELECT * FROM fornitori 
-                WHERE ragione_sociale LIKE ? 
-                   OR partita_iva LIKE ? 
-                   OR email LIKE ?
-                ORDER BY ragione_sociale
-            """;
-            
-            String searchPattern = "%" + searchTerm + "%";
-            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-                pstmt.setString(1, searchPattern);
-                pstmt.setString(2, searchPattern);
-                pstmt.setString(3, searchPattern);
-                
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    while (rs.next()) {
-                        Vector<Object> row = new Vector<>();
-                        row.add(rs.getInt("id"));
-                        row.add(rs.getString("ragione_sociale"));
-                        row.add(rs.getString("partita_iva"));
-                        row.add(rs.getString("email"));
-                        row.add(rs.getString("telefono"));
-                        row.add(rs.getString("indirizzo"));
-                        tableModel.addRow(row);
-                    }
-                }
+        for (Supplier supplier : suppliers) {
+            tableModel.addRow(toRow(supplier));
+        }
+    }
+    
+    private Vector<Object> toRow(Supplier supplier) {
+        Vector<Object> row = new Vector<>();
+        row.add(supplier.getId());
+        row.add(supplier.getRagioneSociale());
+        row.add(supplier.getPartitaIva());
+        row.add(supplier.getEmail());
+        row.add(supplier.getTelefono());
+        row.add(supplier.getIndirizzo());
+        return row;
+    }
+    
+    private void supplierChanged(int supplierId) {
+        loader.run(() -> SupplierRepository.getInstance().findById(supplierId), supplier -> {
+            int row = rowOf(supplierId);
+            if (supplier == null || row == -1) {
+                // New: only the query knows where it goes
+                loadSuppliers();
+                return;
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this,
-                "Error searching for suppliers: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
+            Vector<Object> values = toRow(supplier);
+            for (int column = 0; column < values.size(); column++) {
+                tableModel.setValueAt(values.get(column), row, column);
+            }
+        });
+    }
+    
+    private void supplierDeleted(int supplierId) {
+        int row = rowOf(supplierId);
+        if (row != -1) {
+            tableModel.removeRow(row);
         }
     }
     
+    private int rowOf(int supplierId) {
+        for (int row = 0; row < tableModel.getRowCount(); row++) {
+            if ((int) tableModel.getValueAt(row, 0) == supplierId) {
+                return row;
+            }
+        }
+        return -1;
+    }
+    
     private void showSupplierDialog(Supplier supplier) {
         Window parentWindow = SwingUtilities.getWindowAncestor(this);
         
@@ -186,9 +196,6 @@ public class SuppliersPanel extends JPanel {
         }
         
         dialog.setVisible(true);
-        if (dialog.isSupplierSaved()) {
-            loadSuppliers();
-        }
     }
     
     private void editSelectedSupplier() {
@@ -217,12 +224,15 @@ public class SuppliersPanel extends JPanel {
             String nome = (String)tableModel.getValueAt(selectedRow, 1);
             
             try {
-                Connection conn = DatabaseManager.getInstance().getConnection();
-                
                 // Check for existing dependencies
-                boolean hasOrders = hasSupplierOrders(conn, id);
-                boolean hasPriceList = hasSupplierPriceList(conn, id);
-                boolean hasMinStockReferences = hasMinStockReferences(conn, id);
+                boolean hasOrders;
+                boolean hasPriceList;
+                boolean hasMinStockReferences;
+                try (Connection conn = DatabaseManager.getInstance().getReadConnection()) {
+                    hasOrders = hasSupplierOrders(conn, id);
+                    hasPriceList = hasSupplierPriceList(conn, id);
+                    hasMinStockReferences = hasMinStockReferences(conn, id);
+                }
                 
                 if (hasOrders || hasPriceList || hasMinStockReferences) {
                     StringBuilder message = new StringBuilder();
@@ -245,7 +255,7 @@ public class SuppliersPanel extends JPanel {
                         null, options, options[0]);
                     
                     if (choice == 1) { // Force Delete
-                        performCascadeDelete(conn, id, nome);
+                        performCascadeDelete(id, nome);
                     }
                     return;
                 }
@@ -258,17 +268,19 @@ public class SuppliersPanel extends JPanel {
                     JOptionPane.WARNING_MESSAGE);
                     
                 if (result == JOptionPane.YES_OPTION) {
-                    String query = "DELETE FROM fornitori WHERE id = ?";
-                    try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-                        pstmt.setInt(1, id);
-                        pstmt.executeUpdate();
-                        loadSuppliers();
-                        
-                        JOptionPane.showMessageDialog(this,
-                            "Supplier deleted successfully",
-                            "Success",
-                            JOptionPane.INFORMATION_MESSAGE);
-                    }
+                    DatabaseManager.getInstance().inWriteTransaction(conn -> {
+                        String query = "DELETE FROM fornitori WHERE id = ?";
+                        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                            pstmt.setInt(1, id);
+                            return pstmt.executeUpdate();
+                        }
+                    });
+                    EventBus.getInstance().publish(new DomainEvent.SupplierDeleted(id));
+                    
+                    JOptionPane.showMessageDialog(this,
+                        "Supplier deleted successfully",
+                        "Success",
+                        JOptionPane.INFORMATION_MESSAGE);
                 }
             } catch (SQLException e) {
                 e.printStackTrace();
@@ -279,7 +291,7 @@ public class SuppliersPanel extends JPanel {
         }
     }
     
-    private void performCascadeDelete(Connection conn, int id, String nome) {
+    private void performCascadeDelete(int id, String nome) {
         int confirmResult = JOptionPane.showConfirmDialog(this,
             "WARNING: This will permanently delete supplier '" + nome + "' and ALL related data:\n" +
             "- All orders from this supplier\n" +
@@ -296,9 +308,7 @@ public class SuppliersPanel extends JPanel {
         }
         
         try {
-            conn.setAutoCommit(false);
-            
-            try {
+            DatabaseManager.getInstance().inWriteTransaction(conn -> {
                 // Delete in order to respect foreign key constraints
                 
                 // 1. Delete supplier order details
@@ -349,22 +359,14 @@ public class SuppliersPanel extends JPanel {
                     pstmt.executeUpdate();
                     System.out.println("Deleted supplier");
                 }
+                return null;
+            });
+            EventBus.getInstance().publish(new DomainEvent.SupplierDeleted(id));
                 
-                conn.commit();
-                loadSuppliers();
-                
-                JOptionPane.showMessageDialog(this,
-                    "Supplier '" + nome + "' and all related records deleted successfully",
-                    "Force Delete Completed",
-                    JOptionPane.INFORMATION_MESSAGE);
-                    
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
-            }
-            
+            JOptionPane.showMessageDialog(this,
+                "Supplier '" + nome + "' and all related records deleted successfully",
+                "Force Delete Completed",
+                JOptionPane.INFORMATION_MESSAGE);
         } catch (SQLException e) {
             e.printStackTrace();
             JOptionPane.showMessageDialog(this,
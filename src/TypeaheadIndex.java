@@ -0,0 +1,306 @@
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * In-memory trigram index for search-as-you-type.
+ *
+ * Every word of every indexed field is lower-cased, stripped of accents,
+ * prefixed with two blanks and cut into trigrams ("  bo", " bol", "bol",
+ * "olt", ...). The leading blanks make one- and two-letter prefixes
+ * searchable and rank word starts above matches inside a word. A query
+ * matches an item when enough of its trigrams occur in the item, so a
+ * missing, extra or swapped letter still finds it.
+ *
+ * Items with equal scores come back in insertion order, so owners should
+ * add them in display order. Not thread-safe: the owner serialises access.
+ */
+public class TypeaheadIndex<T> {
+    // Share of the query's trigrams an item must contain
+    private static final double MIN_MATCH = 0.6;
+    private static final double PREFIX_BONUS = 2.0;
+
+    private static class Field<T> {
+        final Function<T, String> text;
+        final float weight;
+
+        Field(Function<T, String> text, float weight) {
+            this.text = text;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Growable int array; postings entries are slot * MAX_FIELDS + field
+     */
+    private static class Postings {
+        int[] entries = new int[4];
+        int size;
+
+        void add(int entry) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            entries[size++] = entry;
+        }
+    }
+
+    private static final int MAX_FIELDS = 8;
+
+    private final ToIntFunction<T> idOf;
+    private final List<Field<T>> fields = new ArrayList<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final Map<Integer, Integer> slotById = new HashMap<>();
+    private final List<T> slots = new ArrayList<>();
+    private final List<String[]> slotTexts = new ArrayList<>();
+    private int live = 0;
+
+    // Per-slot scratch space reused across searches; only touched entries
+    // are reset, so a keystroke costs nothing per indexed item
+    private float[] scores = new float[0];
+    private int[] hits = new int[0];
+    private int[] lastTrigram = new int[0];
+
+    public TypeaheadIndex(ToIntFunction<T> idOf) {
+        this.idOf = idOf;
+    }
+
+    public TypeaheadIndex<T> field(Function<T, String> text, double weight) {
+        if (fields.size() == MAX_FIELDS) {
+            throw new IllegalStateException("At most " + MAX_FIELDS + " fields");
+        }
+        fields.add(new Field<>(text, (float) weight));
+        return this;
+    }
+
+    public void clear() {
+        postings.clear();
+        slotById.clear();
+        slots.clear();
+        slotTexts.clear();
+        live = 0;
+    }
+
+    /**
+     * Add an item, or replace the item with the same id
+     */
+    public void put(T item) {
+        remove(idOf.applyAsInt(item));
+
+        // Slots are never reused, so postings of removed items stay harmless
+        // until the next compaction
+        int slot = slots.size();
+        slots.add(item);
+        String[] texts = new String[fields.size()];
+        for (int f = 0; f < fields.size(); f++) {
+            texts[f] = normalize(fields.get(f).text.apply(item));
+            for (long trigram : trigrams(texts[f], true)) {
+                postings.computeIfAbsent(trigram, k -> new Postings()).add(slot * MAX_FIELDS + f);
+            }
+        }
+        slotTexts.add(texts);
+        slotById.put(idOf.applyAsInt(item), slot);
+        live++;
+    }
+
+    public void remove(int id) {
+        Integer slot = slotById.remove(id);
+        if (slot == null) {
+            return;
+        }
+        slots.set(slot, null);
+        slotTexts.set(slot, null);
+        live--;
+        if (slots.size() > 1024 && live < slots.size() / 2) {
+            compact();
+        }
+    }
+
+    public int size() {
+        return live;
+    }
+
+    /**
+     * @return at most limit items matching query, best first
+     */
+    public List<T> search(String query, int limit) {
+        String normalized = normalize(query);
+        long[] queryTrigrams = trigrams(normalized, false);
+        if (queryTrigrams.length == 0) {
+            return new ArrayList<>();
+        }
+        int required = queryTrigrams.length <= 2
+            ? queryTrigrams.length
+            : (int) Math.ceil(queryTrigrams.length * MIN_MATCH);
+
+        ensureScratch(slots.size());
+        int[] touched = new int[16];
+        int touchedCount = 0;
+
+        for (int q = 0; q < queryTrigrams.length; q++) {
+            Postings list = postings.get(queryTrigrams[q]);
+            if (list == null) {
+                continue;
+            }
+            for (int i = 0; i < list.size; i++) {
+                int entry = list.entries[i];
+                int slot = entry / MAX_FIELDS;
+                if (slots.get(slot) == null) {
+                    continue;
+                }
+                if (hits[slot] == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = slot;
+                }
+                // Count each query trigram once per item, score every field it hits
+                if (lastTrigram[slot] != q + 1) {
+                    hits[slot]++;
+                    lastTrigram[slot] = q + 1;
+                }
+                scores[slot] += fields.get(entry % MAX_FIELDS).weight;
+            }
+        }
+
+        // Sort keys pack the score (best first) above the slot (oldest first),
+        // so ranking is a primitive sort with no comparator calls
+        long[] matches = new long[touchedCount];
+        int matchCount = 0;
+        for (int i = 0; i < touchedCount; i++) {
+            int slot = touched[i];
+            if (hits[slot] >= required) {
+                float score = scores[slot];
+                if (startsWithQuery(slotTexts.get(slot), normalized)) {
+                    score += PREFIX_BONUS * queryTrigrams.length;
+                }
+                long rank = Integer.MAX_VALUE - Math.round(score * 100);
+                matches[matchCount++] = (rank << 32) | slot;
+            }
+        }
+        Arrays.sort(matches, 0, matchCount);
+
+        List<T> result = new ArrayList<>(Math.min(limit, matchCount));
+        for (int i = 0; i < matchCount && i < limit; i++) {
+            result.add(slots.get((int) matches[i]));
+        }
+
+        for (int i = 0; i < touchedCount; i++) {
+            int slot = touched[i];
+            scores[slot] = 0;
+            hits[slot] = 0;
+            lastTrigram[slot] = 0;
+        }
+        return result;
+    }
+
+    private void ensureScratch(int slotCount) {
+        if (scores.length < slotCount) {
+            int capacity = Math.max(slotCount, scores.length * 2);
+            scores = new float[capacity];
+            hits = new int[capacity];
+            lastTrigram = new int[capacity];
+        }
+    }
+
+    private static boolean startsWithQuery(String[] texts, String query) {
+        for (String text : texts) {
+            if (text.startsWith(query)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void compact() {
+        List<T> items = new ArrayList<>(live);
+        for (T item : slots) {
+            if (item != null) {
+                items.add(item);
+            }
+        }
+        clear();
+        for (T item : items) {
+            put(item);
+        }
+    }
+
+    /**
+     * Lower case without accents, anything but letters and digits as a
+     * single blank
+     */
+    static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder out = new StringBuilder(decomposed.length());
+        boolean blank = true;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                out.append(Character.toLowerCase(c));
+                blank = false;
+            } else if (!blank) {
+                out.append(' ');
+                blank = true;
+            }
+        }
+        int end = out.length();
+        if (end > 0 && out.charAt(end - 1) == ' ') {
+            out.setLength(end - 1);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Distinct trigrams of the words of normalized text, each word prefixed
+     * with two blanks. Items also get the trigram ending at the word's
+     * last letter plus a blank, so a finished word ranks a full match
+     * higher; queries leave it out because the last word may be incomplete.
+     */
+    private static long[] trigrams(String text, boolean closeWords) {
+        if (text.isEmpty()) {
+            return new long[0];
+        }
+        long[] result = new long[text.length() * 2 + 4];
+        int count = 0;
+        char a = ' ';
+        char b = ' ';
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (c == ' ') {
+                if (closeWords && b != ' ') {
+                    result[count++] = pack(a, b, ' ');
+                }
+                a = ' ';
+                b = ' ';
+                continue;
+            }
+            result[count++] = pack(a, b, c);
+            a = b;
+            b = c;
+        }
+        long[] distinct = Arrays.copyOf(result, count);
+        Arrays.sort(distinct);
+        int unique = 0;
+        for (int i = 0; i < distinct.length; i++) {
+            if (i == 0 || distinct[i] != distinct[i - 1]) {
+                distinct[unique++] = distinct[i];
+            }
+        }
+        return Arrays.copyOf(distinct, unique);
+    }
+
+    private static long pack(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+}
@@ -9,6 +9,7 @@ public class WarehouseMovementDialog extends JDialog {
     private boolean movementSaved = false;
     
     private JButton selectProductButton;
+    private JButton saveButton;
     private Product selectedProduct;
     private JComboBox<String> typeCombo;
     private JSpinner quantitySpinner;
@@ -187,7 +188,7 @@ public class WarehouseMovementDialog extends JDialog {
         
         // Buttons panel
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 8));
-        JButton saveButton = new JButton("Save");
+        saveButton = new JButton("Save");
         JButton cancelButton = new JButton("Cancel");
         
         saveButton.setPreferredSize(new Dimension(90, 32));
@@ -301,16 +302,7 @@ public class WarehouseMovementDialog extends JDialog {
     // NEW: Method to get current stock from database
     private int getCurrentStock(int productId) {
         try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = "SELECT quantita FROM prodotti WHERE id = ?";
-            
-            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-                pstmt.setInt(1, productId);
-                ResultSet rs = pstmt.executeQuery();
-                if (rs.next()) {
-                    return rs.getInt("quantita");
-                }
-            }
+            return ProductRepository.getInstance().getStock(productId);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -319,12 +311,6 @@ public class WarehouseMovementDialog extends JDialog {
     
     // UPDATED: Method to load movement data for editing
     private void loadMovementData() {
-        // Load product by ID from movement
-        selectedProduct = loadProductById(movement.getProdottoId());
-        if (selectedProduct != null) {
-            updateProductButton();
-        }
-        
         typeCombo.setSelectedItem(movement.getTipo());
         quantitySpinner.setValue(movement.getQuantita());
         reasonCombo.setSelectedItem(movement.getCausale());
@@ -334,37 +320,36 @@ public class WarehouseMovementDialog extends JDialog {
         
         // Disable product modification for existing movements
         selectProductButton.setEnabled(false);
-        selectProductButton.setText("Product: " + (selectedProduct != null ? 
-            selectedProduct.getCodice() + " - " + selectedProduct.getNome() : "N/A"));
+        selectProductButton.setText("Product: loading...");
         
-        // Update availability info
-        updateAvailabilityCheck();
+        // Load product by ID from movement
+        loadProductById(movement.getProdottoId());
     }
     
-    // NEW: Method to load product by ID
-    private Product loadProductById(int productId) {
-        try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = "SELECT * FROM prodotti WHERE id = ?";
-            
-            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-                pstmt.setInt(1, productId);
-                ResultSet rs = pstmt.executeQuery();
-                if (rs.next()) {
-                    return new Product(
-                        rs.getInt("id"),
-                        rs.getString("codice"),
-                        rs.getString("nome"),
-                        rs.getString("descrizione"),
-                        rs.getDouble("prezzo"),
-                        rs.getInt("quantita")
-                    );
-                }
+    // Resolve the product once the catalog is loaded, without blocking the EDT
+    private void loadProductById(int productId) {
+        ProductCatalog.getInstance().whenLoaded(() -> {
+            try {
+                selectedProduct = ProductCatalog.getInstance().findById(productId);
+            } catch (SQLException e) {
+                e.printStackTrace();
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
+            showMovementProduct();
+        }, error -> {
+            error.printStackTrace();
+            showMovementProduct();
+        });
+    }
+    
+    private void showMovementProduct() {
+        if (selectedProduct != null) {
+            updateProductButton();
         }
-        return null;
+        selectProductButton.setText("Product: " + (selectedProduct != null ? 
+            selectedProduct.getCodice() + " - " + selectedProduct.getNome() : "N/A"));
+        
+        // Update availability info
+        updateAvailabilityCheck();
     }
     
     // UPDATED: Save movement method
@@ -406,32 +391,30 @@ public class WarehouseMovementDialog extends JDialog {
                 }
             }
             
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            conn.setAutoCommit(false);
+            // Read the form on the EDT; the write itself runs on the group-commit thread
+            int productId = selectedProduct.getId();
+            String docNumber = documentNumberField.getText().trim();
+            String docType = (String)documentTypeCombo.getSelectedItem();
+            String notes = notesArea.getText().trim();
             
-            try {
+            saveButton.setEnabled(false);
+            DatabaseManager.getInstance().submitWrite(conn -> {
                 if (movement == null) {
                     // Insert new movement
                     String insertQuery = """
                         INSERT INTO movimenti_magazzino (
                             prodotto_id, data, tipo, quantita, causale,
                             documento_numero, documento_tipo, note
-                        ) VALUES (?, CURRENT_TIMESTAMP, ?, ?, ?, ?, ?, ?)
+                        ) VALUES (?, datetime('now', 'localtime'), ?, ?, ?, ?, ?, ?)
                     """;
                     
                     try (PreparedStatement pstmt = conn.prepareStatement(insertQuery)) {
-                        pstmt.setInt(1, selectedProduct.getId());
+                        pstmt.setInt(1, productId);
                         pstmt.setString(2, type);
                         pstmt.setInt(3, quantity);
                         pstmt.setString(4, reason);
-                        
-                        String docNumber = documentNumberField.getText().trim();
                         pstmt.setString(5, docNumber.isEmpty() ? null : docNumber);
-                        
-                        String docType = (String)documentTypeCombo.getSelectedItem();
                         pstmt.setString(6, (docType == null || docType.trim().isEmpty()) ? null : docType);
-                        
-                        String notes = notesArea.getText().trim();
                         pstmt.setString(7, notes.isEmpty() ? null : notes);
                         
                         pstmt.executeUpdate();
@@ -450,14 +433,8 @@ public class WarehouseMovementDialog extends JDialog {
                         pstmt.setString(1, type);
                         pstmt.setInt(2, quantity);
                         pstmt.setString(3, reason);
-                        
-                        String docNumber = documentNumberField.getText().trim();
                         pstmt.setString(4, docNumber.isEmpty() ? null : docNumber);
-                        
-                        String docType = (String)documentTypeCombo.getSelectedItem();
                         pstmt.setString(5, (docType == null || docType.trim().isEmpty()) ? null : docType);
-                        
-                        String notes = notesArea.getText().trim();
                         pstmt.setString(6, notes.isEmpty() ? null : notes);
                         
                         pstmt.setInt(7, movement.getId());
@@ -488,27 +465,34 @@ public class WarehouseMovementDialog extends JDialog {
                 try (PreparedStatement pstmt = conn.prepareStatement(updateProductQuery)) {
                     int quantityDelta = "INWARD".equals(type) ? quantity : -quantity;
                     pstmt.setInt(1, quantityDelta);
-                    pstmt.setInt(2, selectedProduct.getId());
+                    pstmt.setInt(2, productId);
                     pstmt.executeUpdate();
                 }
                 
-                conn.commit();
+                return null;
+            }).whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+                saveButton.setEnabled(true);
+                if (error != null) {
+                    error.printStackTrace();
+                    JOptionPane.showMessageDialog(this,
+                        "Error saving movement: " + error.getMessage(),
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
                 movementSaved = true;
+                if (movement != null && movement.getProdottoId() != productId) {
+                    EventBus.getInstance().publish(new DomainEvent.StockMoved(movement.getProdottoId()));
+                }
+                EventBus.getInstance().publish(new DomainEvent.StockMoved(productId));
                 
                 JOptionPane.showMessageDialog(this,
                     "Movement saved successfully!",
                     "Success", JOptionPane.INFORMATION_MESSAGE);
                 
                 dispose();
-                
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
-            }
+            }));
             
-        } catch (SQLException e) {
+        } catch (Exception e) {
             e.printStackTrace();
             JOptionPane.showMessageDialog(this,
                 "Error saving movement: " + e.getMessage(),
@@ -3,25 +3,58 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.sql.*;
 import java.util.*;
-import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 
 public class WarehousePanel extends JPanel {
+    // Stock rows carry the product id after the visible columns
+    private static final int STOCK_PRODUCT_ID = 6;
+    
     private JTabbedPane tabbedPane;
     private JTable stockTable;
     private JTable movementsTable;
     private JTable notificationsTable;
-    private DefaultTableModel stockModel;
-    private DefaultTableModel movementsModel;
+    private LazyTableModel<Object[]> stockModel;
+    private LazyTableModel<Object[]> movementsModel;
     private DefaultTableModel notificationsModel;
-    private SimpleDateFormat dateFormat;
+    private final BusyIndicator stockBusy = new BusyIndicator();
+    private final BusyIndicator movementsBusy = new BusyIndicator();
+    private final BusyIndicator notificationsBusy = new BusyIndicator();
+    private final BackgroundLoader notificationsLoader = new BackgroundLoader(notificationsBusy)
+        .onError(e -> {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(this,
+                "Error loading notifications: " + e.getMessage(),
+                "Error", JOptionPane.ERROR_MESSAGE);
+        });
     
     public WarehousePanel() {
-        dateFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm");
         
         setupPanel();
         initComponents();
         loadData();
+        
+        // A movement repaints one stock row and the newest movements page
+        // instead of reloading every table
+        EventBus bus = EventBus.getInstance();
+        bus.subscribe(DomainEvent.StockMoved.class, e -> {
+            reloadStockRow(e.getProductId());
+            movementsModel.refresh();
+            checkLowStock();
+        });
+        bus.subscribe(DomainEvent.MinimumStockChanged.class, e -> {
+            reloadStockRow(e.getProductId());
+            checkLowStock();
+        });
+        bus.subscribe(DomainEvent.ProductChanged.class, e -> {
+            if (e.isCreated()) {
+                stockModel.refresh();
+            } else {
+                reloadStockRow(e.getProductId());
+            }
+        });
+        bus.subscribe(DomainEvent.ProductDeleted.class, e -> loadData());
+        bus.subscribe(DomainEvent.ProductsImported.class, e -> loadData());
     }
     
     private void setupPanel() {
@@ -52,12 +85,11 @@ public class WarehousePanel extends JPanel {
         
         // Stock table
         String[] columns = {"Code", "Product", "Quantity", "Minimum Stock", "Status", "Preferred Supplier"};
-        stockModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        stockModel = new LazyTableModel<Object[]>(columns, row -> row)
+            .showBusy(stockBusy)
+            .onError(e -> JOptionPane.showMessageDialog(this,
+                "Error loading warehouse data: " + e.getMessage(),
+                "Error", JOptionPane.ERROR_MESSAGE));
         stockTable = new JTable(stockModel);
         
         // Buttons
@@ -73,6 +105,7 @@ public class WarehousePanel extends JPanel {
         buttonPanel.add(newMovementButton);
         buttonPanel.add(setMinStockButton);
         buttonPanel.add(refreshButton);
+        buttonPanel.add(stockBusy);
         
         panel.add(buttonPanel, BorderLayout.NORTH);
         panel.add(new JScrollPane(stockTable), BorderLayout.CENTER);
@@ -91,15 +124,15 @@ public class WarehousePanel extends JPanel {
         filterPanel.add(new JLabel("Search:"));
         filterPanel.add(searchField);
         filterPanel.add(searchButton);
+        filterPanel.add(movementsBusy);
         
         // Movements table
         String[] columns = {"Date", "Product", "Type", "Quantity", "Reason", "Document", "Notes"};
-        movementsModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        movementsModel = new LazyTableModel<Object[]>(columns, row -> row)
+            .showBusy(movementsBusy)
+            .onError(e -> JOptionPane.showMessageDialog(this,
+                "Error loading movements: " + e.getMessage(),
+                "Error", JOptionPane.ERROR_MESSAGE));
         movementsTable = new JTable(movementsModel);
         
         searchButton.addActionListener(e -> searchMovements(searchField.getText()));
@@ -136,6 +169,7 @@ public class WarehousePanel extends JPanel {
         buttonPanel.add(markReadButton);
         buttonPanel.add(markHandledButton);
         buttonPanel.add(refreshButton);
+        buttonPanel.add(notificationsBusy);
         
         panel.add(buttonPanel, BorderLayout.NORTH);
         panel.add(new JScrollPane(notificationsTable), BorderLayout.CENTER);
@@ -151,199 +185,183 @@ public class WarehousePanel extends JPanel {
     }
     
     private void loadStockData() {
-        stockModel.setRowCount(0);
-        try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = """
-                SELECT p.*, sm.quantita_minima, sm.quantita_riordino,
-                        f.ragione_sociale as fornitore_nome
-                FROM prodotti p
+        stockModel.setQuery(stockQuery());
+    }
+    
+    private void reloadStockRow(int productId) {
+        stockModel.reloadRows(row -> (int) row[STOCK_PRODUCT_ID] == productId,
+            () -> stockQuery().where("p.id = ?", productId).first());
+    }
+    
+    /**
+     * Products with their stock levels by name, read a page at a time
+     */
+    private KeysetQuery<Object[]> stockQuery() {
+        return new KeysetQuery<Object[]>(
+            "p.*, sm.quantita_minima, sm.quantita_riordino, f.ragione_sociale as fornitore_nome",
+            """
+                prodotti p
                 LEFT JOIN scorte_minime sm ON p.id = sm.prodotto_id
                 LEFT JOIN fornitori f ON sm.fornitore_preferito_id = f.id
-                ORDER BY p.nome
-            """;
-            
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(query)) {
-                while (rs.next()) {
-                    Vector<Object> row = new Vector<>();
-                    row.add(rs.getString("codice"));
-                    row.add(rs.getString("nome"));
-                    int quantity = rs.getInt("quantita");
-                    row.add(quantity);
-                    int minQuantity = rs.getInt("quantita_minima");
-                    row.add(minQuantity > 0 ? minQuantity : "-");
-                    
-                    // Determine stock status
-                    String status;
-                    if (minQuantity > 0) {
-                        if (quantity <= 0) {
-                            status = "OUT OF STOCK";
-                        } else if (quantity < minQuantity) {
-                            status = "LOW STOCK";
-                        } else {
-                            status = "OK";
-                        }
+            """,
+            rs -> {
+                int quantity = rs.getInt("quantita");
+                int minQuantity = rs.getInt("quantita_minima");
+                
+                // Determine stock status
+                String status;
+                if (minQuantity > 0) {
+                    if (quantity <= 0) {
+                        status = "OUT OF STOCK";
+                    } else if (quantity < minQuantity) {
+                        status = "LOW STOCK";
                     } else {
-                        status = quantity <= 0 ? "OUT OF STOCK" : "OK";
+                        status = "OK";
                     }
-                    row.add(status);
-                    
-                    row.add(rs.getString("fornitore_nome"));
-                    stockModel.addRow(row);
+                } else {
+                    status = quantity <= 0 ? "OUT OF STOCK" : "OK";
                 }
+                
+                return new Object[] {
+                    rs.getString("codice"),
+                    rs.getString("nome"),
+                    quantity,
+                    minQuantity > 0 ? minQuantity : "-",
+                    status,
+                    rs.getString("fornitore_nome"),
+                    rs.getInt("id")
+                };
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this,
-                "Error loading warehouse data: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        ).orderBy(false, "p.nome", "p.id");
     }
     
     private void loadMovementsData() {
-        movementsModel.setRowCount(0);
-        try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = """
-                SELECT m.*, p.nome as prodotto_nome
-                FROM movimenti_magazzino m
-                JOIN prodotti p ON m.prodotto_id = p.id
-                ORDER BY m.data DESC
-                LIMIT 100
-            """;
-            
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(query)) {
-                while (rs.next()) {
-                    Vector<Object> row = new Vector<>();
-                    
-                    Date movementDate = DateUtils.parseDate(rs, "data");
-                    if (movementDate != null) {
-                        row.add(DateUtils.formatDate(movementDate, dateFormat));
-                    } else {
-                        row.add("");
-                    }
-                    
-                    row.add(rs.getString("prodotto_nome"));
-                    row.add(rs.getString("tipo"));
-                    row.add(rs.getInt("quantita"));
-                    row.add(rs.getString("causale"));
-                    
-                    String document = rs.getString("documento_tipo");
-                    if (document != null && !document.isEmpty()) {
-                        document += " " + rs.getString("documento_numero");
-                    }
-                    row.add(document);
-                    
-                    row.add(rs.getString("note"));
-                    movementsModel.addRow(row);
+        movementsModel.setQuery(movementsQuery());
+    }
+    
+    /**
+     * Movements newest first, read a page at a time as the table scrolls
+     */
+    private KeysetQuery<Object[]> movementsQuery() {
+        return new KeysetQuery<Object[]>(
+            "m.*, p.nome as prodotto_nome",
+            "movimenti_magazzino m JOIN prodotti p ON m.prodotto_id = p.id",
+            rs -> {
+                Date movementDate = DateUtils.parseDate(rs, "data");
+                String document = rs.getString("documento_tipo");
+                if (document != null && !document.isEmpty()) {
+                    document += " " + rs.getString("documento_numero");
                 }
+                return new Object[] {
+                    movementDate != null ? DateUtils.formatDate(movementDate, DateUtils.DATETIME_MINUTES_FORMAT) : "",
+                    rs.getString("prodotto_nome"),
+                    rs.getString("tipo"),
+                    rs.getInt("quantita"),
+                    rs.getString("causale"),
+                    document,
+                    rs.getString("note")
+                };
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this,
-                "Error loading movements: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        ).orderBy(true, "m.data", "m.id");
     }
     
     private void loadNotificationsData() {
         notificationsModel.setRowCount(0);
-        try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = """
-                SELECT n.*, p.nome as prodotto_nome
-                FROM notifiche_magazzino n
-                JOIN prodotti p ON n.prodotto_id = p.id
-                WHERE n.stato != 'HANDLED'
-                ORDER BY n.data DESC
-            """;
-            
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(query)) {
-                while (rs.next()) {
-                    Vector<Object> row = new Vector<>();
-                    
-                    Date notificationDate = DateUtils.parseDate(rs, "data");
-                    if (notificationDate != null) {
-                        row.add(DateUtils.formatDate(notificationDate, dateFormat));
-                    } else {
-                        row.add("");
+        // Rows are added in chunks while the query is still reading
+        notificationsLoader.<Vector<Object>>replaceRows(publish -> {
+            try (Connection conn = DatabaseManager.getInstance().getReadConnection()) {
+                String query = """
+                    SELECT n.*, p.nome as prodotto_nome
+                    FROM notifiche_magazzino n
+                    JOIN prodotti p ON n.prodotto_id = p.id
+                    WHERE n.stato != 'HANDLED'
+                    ORDER BY n.data DESC
+                """;
+                
+                try (PreparedStatement stmt = conn.prepareStatement(query);
+                     BackgroundLoader.Tracking tracking = BackgroundLoader.track(stmt);
+                     ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Vector<Object> row = new Vector<>();
+                        
+                        Date notificationDate = DateUtils.parseDate(rs, "data");
+                        if (notificationDate != null) {
+                            row.add(DateUtils.formatDate(notificationDate, DateUtils.DATETIME_MINUTES_FORMAT));
+                        } else {
+                            row.add("");
+                        }
+                        
+                        row.add(rs.getString("prodotto_nome"));
+                        row.add(rs.getString("tipo"));
+                        row.add(rs.getString("messaggio"));
+                        row.add(rs.getString("stato"));
+                        publish.accept(row);
                     }
-                    
-                    row.add(rs.getString("prodotto_nome"));
-                    row.add(rs.getString("tipo"));
-                    row.add(rs.getString("messaggio"));
-                    row.add(rs.getString("stato"));
-                    notificationsModel.addRow(row);
                 }
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this,
-                "Error loading notifications: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        }, rows -> rows.forEach(notificationsModel::addRow), () -> { });
     }
     
     private void checkLowStock() {
-        try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = """
-                SELECT p.id, p.nome, p.quantita, sm.quantita_minima, sm.quantita_riordino
-                FROM prodotti p
-                JOIN scorte_minime sm ON p.id = sm.prodotto_id
-                WHERE p.quantita <= sm.quantita_minima
-                AND NOT EXISTS (
-                    SELECT 1 FROM notifiche_magazzino n
-                    WHERE n.prodotto_id = p.id
-                    AND n.tipo = 'MIN_STOCK'
-                    AND n.stato != 'HANDLED'
-                    AND DATE(n.data) = DATE('now')
-                )
-            """;
-            
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(query)) {
-                while (rs.next()) {
-                    int productId = rs.getInt("id");
-                    String productName = rs.getString("nome");
-                    int quantity = rs.getInt("quantita");
-                    int minQuantity = rs.getInt("quantita_minima");
-                    
-                    // Create notification
-                    String message = String.format(
-                        "Stock is below minimum (%d). Current quantity: %d",
-                        minQuantity, quantity
-                    );
-                    
-                    createNotification(productId, "MIN_STOCK", message);
+        // The check reads in the background; notifications are written back
+        // on the EDT like every other change made from this panel
+        notificationsLoader.run(() -> {
+            List<int[]> lowStock = new ArrayList<>();
+            try (Connection conn = DatabaseManager.getInstance().getReadConnection()) {
+                String query = """
+                    SELECT p.id, p.nome, p.quantita, sm.quantita_minima, sm.quantita_riordino
+                    FROM prodotti p
+                    JOIN scorte_minime sm ON p.id = sm.prodotto_id
+                    WHERE p.quantita <= sm.quantita_minima
+                    AND NOT EXISTS (
+                        SELECT 1 FROM notifiche_magazzino n
+                        WHERE n.prodotto_id = p.id
+                        AND n.tipo = 'MIN_STOCK'
+                        AND n.stato != 'HANDLED'
+                        AND DATE(n.data) = DATE('now')
+                    )
+                """;
+                
+                try (PreparedStatement stmt = conn.prepareStatement(query);
+                     BackgroundLoader.Tracking tracking = BackgroundLoader.track(stmt);
+                     ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        lowStock.add(new int[] {rs.getInt("id"), rs.getInt("quantita"), rs.getInt("quantita_minima")});
+                    }
                 }
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this,
-                "Error checking minimum stock: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
-        }
+            return lowStock;
+        }, lowStock -> {
+            for (int[] product : lowStock) {
+                // Create notification
+                String message = String.format(
+                    "Stock is below minimum (%d). Current quantity: %d",
+                    product[2], product[1]
+                );
+                
+                createNotification(product[0], "MIN_STOCK", message);
+            }
+            if (!lowStock.isEmpty()) {
+                loadNotificationsData();
+            }
+        });
     }
     
     private void createNotification(int productId, String type, String message) {
+        String query = """
+            INSERT INTO notifiche_magazzino 
+            (prodotto_id, data, tipo, messaggio, stato)
+            VALUES (?, datetime('now', 'localtime'), ?, ?, 'NEW')
+        """;
         try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = """
-                INSERT INTO notifiche_magazzino 
-                (prodotto_id, data, tipo, messaggio, stato)
-                VALUES (?, CURRENT_TIMESTAMP, ?, ?, 'NEW')
-            """;
-            
-            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-                pstmt.setInt(1, productId);
-                pstmt.setString(2, type);
-                pstmt.setString(3, message);
-                pstmt.executeUpdate();
-            }
+            DatabaseManager.getInstance().inWriteTransaction(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                    pstmt.setInt(1, productId);
+                    pstmt.setString(2, type);
+                    pstmt.setString(3, message);
+                    return pstmt.executeUpdate();
+                }
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -355,58 +373,10 @@ public class WarehousePanel extends JPanel {
             return;
         }
         
-        movementsModel.setRowCount(0);
-        try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = """
-                SELECT m.*, p.nome as prodotto_nome
-                FROM movimenti_magazzino m
-                JOIN prodotti p ON m.prodotto_id = p.id
-                WHERE p.nome LIKE ? 
-                    OR m.causale LIKE ?
-                    OR m.documento_numero LIKE ?
-                ORDER BY m.data DESC
-            """;
-            
-            String searchPattern = "%" + searchTerm + "%";
-            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-                pstmt.setString(1, searchPattern);
-                pstmt.setString(2, searchPattern);
-                pstmt.setString(3, searchPattern);
-                
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    while (rs.next()) {
-                        Vector<Object> row = new Vector<>();
-                        
-                        Date movementDate = DateUtils.parseDate(rs, "data");
-                        if (movementDate != null) {
-                            row.add(DateUtils.formatDate(movementDate, dateFormat));
-                        } else {
-                            row.add("");
-                        }
-                        
-                        row.add(rs.getString("prodotto_nome"));
-                        row.add(rs.getString("tipo"));
-                        row.add(rs.getInt("quantita"));
-                        row.add(rs.getString("causale"));
-                        
-                        String document = rs.getString("documento_tipo");
-                        if (document != null && !document.isEmpty()) {
-                            document += " " + rs.getString("documento_numero");
-                        }
-                        row.add(document);
-                        
-                        row.add(rs.getString("note"));
-                        movementsModel.addRow(row);
-                    }
-                }
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this,
-                "Error searching for movements: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        String searchPattern = "%" + searchTerm + "%";
+        movementsModel.setQuery(movementsQuery().where(
+            "p.nome LIKE ? OR m.causale LIKE ? OR m.documento_numero LIKE ?",
+            searchPattern, searchPattern, searchPattern));
     }
     
     private void markSelectedNotifications(String newStatus) {
@@ -414,37 +384,32 @@ public class WarehousePanel extends JPanel {
         if (selectedRows.length == 0) return;
         
         try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            conn.setAutoCommit(false);
+            List<Integer> notificationIds = new ArrayList<>();
+            for (int row : selectedRows) {
+                // Find notification ID by matching data
+                String dateStr = (String)notificationsModel.getValueAt(row, 0);
+                String product = (String)notificationsModel.getValueAt(row, 1);
+                String type = (String)notificationsModel.getValueAt(row, 2);
+                String message = (String)notificationsModel.getValueAt(row, 3);
+                
+                int notificationId = findNotificationId(dateStr, product, type, message);
+                if (notificationId > 0) {
+                    notificationIds.add(notificationId);
+                }
+            }
             
-            try {
+            DatabaseManager.getInstance().inWriteTransaction(conn -> {
                 String updateQuery = "UPDATE notifiche_magazzino SET stato = ? WHERE id = ?";
                 try (PreparedStatement pstmt = conn.prepareStatement(updateQuery)) {
-                    for (int row : selectedRows) {
-                        // Find notification ID by matching data
-                        String dateStr = (String)notificationsModel.getValueAt(row, 0);
-                        String product = (String)notificationsModel.getValueAt(row, 1);
-                        String type = (String)notificationsModel.getValueAt(row, 2);
-                        String message = (String)notificationsModel.getValueAt(row, 3);
-                        
-                        int notificationId = findNotificationId(dateStr, product, type, message);
-                        if (notificationId > 0) {
-                            pstmt.setString(1, newStatus);
-                            pstmt.setInt(2, notificationId);
-                            pstmt.executeUpdate();
-                        }
+                    for (int notificationId : notificationIds) {
+                        pstmt.setString(1, newStatus);
+                        pstmt.setInt(2, notificationId);
+                        pstmt.executeUpdate();
                     }
                 }
-                
-                conn.commit();
-                loadNotificationsData();
-                
-            } catch (Exception e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
-            }
+                return null;
+            });
+            loadNotificationsData();
         } catch (Exception e) {
             e.printStackTrace();
             JOptionPane.showMessageDialog(this,
@@ -455,7 +420,6 @@ public class WarehousePanel extends JPanel {
     
     private int findNotificationId(String dateStr, String productName, String type, String message) {
         try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
             String query = """
                 SELECT n.id 
                 FROM notifiche_magazzino n
@@ -465,7 +429,8 @@ public class WarehousePanel extends JPanel {
                 LIMIT 1
             """;
             
-            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+            try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(query)) {
                 pstmt.setString(1, productName);
                 pstmt.setString(2, type);
                 pstmt.setString(3, message);
@@ -493,9 +458,6 @@ public class WarehousePanel extends JPanel {
         }
         
         dialog.setVisible(true);
-        if (dialog.isMovementSaved()) {
-            loadData();
-        }
     }
     
     private void showMinStockDialog() {
@@ -520,9 +482,6 @@ public class WarehousePanel extends JPanel {
             }
             
             dialog.setVisible(true);
-            if (dialog.isStockSaved()) {
-                loadData();
-            }
         } catch (SQLException e) {
             e.printStackTrace();
             JOptionPane.showMessageDialog(this,
@@ -532,7 +491,6 @@ public class WarehousePanel extends JPanel {
     }
     
     private MinimumStock loadMinimumStock(String code) throws SQLException {
-        Connection conn = DatabaseManager.getInstance().getConnection();
         String query = """
             SELECT p.id, p.nome, sm.quantita_minima, sm.quantita_riordino,
                     sm.lead_time_giorni, sm.fornitore_preferito_id,
@@ -543,7 +501,8 @@ public class WarehousePanel extends JPanel {
             WHERE p.codice = ?
         """;
         
-        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setString(1, code);
             ResultSet rs = pstmt.executeQuery();
             if (rs.next()) {
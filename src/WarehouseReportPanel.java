@@ -1,24 +1,33 @@
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.print.PrinterException;
 import java.sql.*;
 import java.text.MessageFormat;
 import java.text.SimpleDateFormat;
-import java.util.Vector;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.io.*;
 
 public class WarehouseReportPanel extends JPanel {
     private JTabbedPane tabbedPane;
     private JTable productsTable;
     private JTable movementsTable;
-    private DefaultTableModel productsModel;
-    private DefaultTableModel movementsModel;
+    private LazyTableModel<Object[]> productsModel;
+    private LazyTableModel<Object[]> movementsModel;
     private SimpleDateFormat dateFormat;
     private JTextField startDateField;
     private JTextField endDateField;
     private JComboBox<String> typeCombo; // Made it a field to access in loadMovementsData
+    private final BusyIndicator productsBusy = new BusyIndicator();
+    private final BusyIndicator movementsBusy = new BusyIndicator();
+    private final BackgroundLoader statisticsLoader = new BackgroundLoader(productsBusy)
+        .onError(e -> {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(this,
+                "Error loading data: " + e.getMessage(),
+                "Error", JOptionPane.ERROR_MESSAGE);
+        });
     
     public WarehouseReportPanel() {
         dateFormat = new SimpleDateFormat("dd/MM/yyyy");
@@ -66,12 +75,11 @@ public class WarehouseReportPanel extends JPanel {
         
         // Products Table
         String[] columns = {"Code", "Product", "Quantity", "Unit Value", "Total Value", "Status"};
-        productsModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        productsModel = new LazyTableModel<Object[]>(columns, row -> row)
+            .showBusy(productsBusy)
+            .onError(e -> JOptionPane.showMessageDialog(this,
+                "Error loading data: " + e.getMessage(),
+                "Error", JOptionPane.ERROR_MESSAGE));
         productsTable = new JTable(productsModel);
         
         // Buttons
@@ -87,6 +95,7 @@ public class WarehouseReportPanel extends JPanel {
         buttonPanel.add(printButton);
         buttonPanel.add(exportButton);
         buttonPanel.add(refreshButton);
+        buttonPanel.add(productsBusy);
         
         panel.add(statsPanel, BorderLayout.NORTH);
         panel.add(new JScrollPane(productsTable), BorderLayout.CENTER);
@@ -122,15 +131,15 @@ public class WarehouseReportPanel extends JPanel {
         JButton applyButton = new JButton("Apply");
         applyButton.addActionListener(e -> loadMovementsData());
         filterPanel.add(applyButton);
+        filterPanel.add(movementsBusy);
         
         // Movements Table
         String[] columns = {"Date", "Product", "Type", "Quantity", "Reason", "Document"};
-        movementsModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        movementsModel = new LazyTableModel<Object[]>(columns, row -> row)
+            .showBusy(movementsBusy)
+            .onError(e -> JOptionPane.showMessageDialog(this,
+                "Error loading movements: " + e.getMessage(),
+                "Error", JOptionPane.ERROR_MESSAGE));
         movementsTable = new JTable(movementsModel);
         
         // Buttons
@@ -157,65 +166,57 @@ public class WarehouseReportPanel extends JPanel {
     }
     
     private void loadProductsData() {
-        productsModel.setRowCount(0);
-        try {
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = """
-                SELECT p.*, COALESCE(sm.quantita_minima, 0) as quantita_minima
-                FROM prodotti p
-                LEFT JOIN scorte_minime sm ON p.id = sm.prodotto_id
-                ORDER BY p.nome
-            """;
-            
-            int totalProducts = 0;
-            double totalValue = 0;
-            int lowStock = 0;
-            int outOfStock = 0;
-            
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(query)) {
-                while (rs.next()) {
-                    Vector<Object> row = new Vector<>();
-                    row.add(rs.getString("codice"));
-                    row.add(rs.getString("nome"));
-                    
-                    int quantity = rs.getInt("quantita");
-                    double price = rs.getDouble("prezzo");
-                    double totalValueProduct = quantity * price;
-                    int minQuantity = rs.getInt("quantita_minima");
-                    
-                    row.add(quantity);
-                    row.add(String.format("%.2f", price));
-                    row.add(String.format("%.2f", totalValueProduct));
-                    
-                    // Determine status
-                    String status;
-                    if (quantity <= 0) {
-                        status = "OUT OF STOCK";
-                        outOfStock++;
-                    } else if (minQuantity > 0 && quantity < minQuantity) {
-                        status = "LOW STOCK";
-                        lowStock++;
-                    } else {
-                        status = "OK";
-                    }
-                    row.add(status);
-                    
-                    productsModel.addRow(row);
-                    totalProducts++;
-                    totalValue += totalValueProduct;
+        productsModel.setQuery(new KeysetQuery<Object[]>(
+            "p.*, COALESCE(sm.quantita_minima, 0) as quantita_minima",
+            "prodotti p LEFT JOIN scorte_minime sm ON p.id = sm.prodotto_id",
+            rs -> {
+                int quantity = rs.getInt("quantita");
+                double price = rs.getDouble("prezzo");
+                int minQuantity = rs.getInt("quantita_minima");
+                
+                // Determine status
+                String status;
+                if (quantity <= 0) {
+                    status = "OUT OF STOCK";
+                } else if (minQuantity > 0 && quantity < minQuantity) {
+                    status = "LOW STOCK";
+                } else {
+                    status = "OK";
                 }
+                
+                return new Object[] {
+                    rs.getString("codice"),
+                    rs.getString("nome"),
+                    quantity,
+                    String.format("%.2f", price),
+                    String.format("%.2f", quantity * price),
+                    status
+                };
             }
-            
-            // Update statistics
-            updateStatistics(totalProducts, totalValue, lowStock, outOfStock);
-            
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this,
-                "Error loading data: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        ).orderBy(false, "p.nome", "p.id"));
+        
+        // Totals come from one aggregate query rather than from the rows
+        statisticsLoader.replace(() -> {
+            try (Connection conn = DatabaseManager.getInstance().getReadConnection()) {
+                String query = """
+                    SELECT COUNT(*) as prodotti,
+                           TOTAL(p.quantita * p.prezzo) as valore,
+                           TOTAL(p.quantita > 0 AND COALESCE(sm.quantita_minima, 0) > 0
+                                 AND p.quantita < sm.quantita_minima) as scorta_bassa,
+                           TOTAL(p.quantita <= 0) as esauriti
+                    FROM prodotti p
+                    LEFT JOIN scorte_minime sm ON p.id = sm.prodotto_id
+                """;
+                
+                try (PreparedStatement stmt = conn.prepareStatement(query);
+                     BackgroundLoader.Tracking tracking = BackgroundLoader.track(stmt);
+                     ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    return new double[] {rs.getInt("prodotti"), rs.getDouble("valore"),
+                        rs.getInt("scorta_bassa"), rs.getInt("esauriti")};
+                }
+            }
+        }, totals -> updateStatistics((int) totals[0], totals[1], (int) totals[2], (int) totals[3]));
     }
     
     private void updateStatistics(int totalProducts, double totalValue, int lowStock, int outOfStock) {
@@ -237,104 +238,69 @@ public class WarehouseReportPanel extends JPanel {
     }
     
     private void loadMovementsData() {
-        movementsModel.setRowCount(0);
-        try {
-            String startDateText = startDateField.getText().trim();
-            String endDateText = endDateField.getText().trim();
-            String selectedType = (String) typeCombo.getSelectedItem();
-            
-            Connection conn = DatabaseManager.getInstance().getConnection();
-            String query = """
-                SELECT m.*, p.nome as prodotto_nome
-                FROM movimenti_magazzino m
-                LEFT JOIN prodotti p ON m.prodotto_id = p.id
-                WHERE 1=1
-            """;
-            
-            // Build query based on filters
-            boolean hasDateFilter = false;
-            boolean hasTypeFilter = false;
-            Date startDate = null;
-            Date endDate = null;
-            
-            if (!startDateText.isEmpty() && !endDateText.isEmpty()) {
-                try {
-                    startDate = DateUtils.parseDate(startDateText, dateFormat);
-                    endDate = DateUtils.parseDate(endDateText, dateFormat);
-                    if (startDate != null && endDate != null) {
-                        query += " AND DATE(m.data) >= DATE(?) AND DATE(m.data) <= DATE(?)";
-                        hasDateFilter = true;
-                    }
-                } catch (Exception e) {
-                    // Ignore date parsing errors and load all data
+        String startDateText = startDateField.getText().trim();
+        String endDateText = endDateField.getText().trim();
+        String selectedType = (String) typeCombo.getSelectedItem();
+        
+        // Build the filter
+        StringBuilder where = new StringBuilder("1=1");
+        List<Object> params = new ArrayList<>();
+        
+        if (!startDateText.isEmpty() && !endDateText.isEmpty()) {
+            try {
+                Date startDate = DateUtils.parseDate(startDateText, dateFormat);
+                Date endDate = DateUtils.parseDate(endDateText, dateFormat);
+                if (startDate != null && endDate != null) {
+                    where.append(" AND m.data >= ? AND m.data <= ?");
+                    params.add(DateCodec.startOfDay(startDate));
+                    params.add(DateCodec.endOfDay(endDate));
                 }
+            } catch (Exception e) {
+                // Ignore date parsing errors and load all data
             }
-            
-            if (selectedType != null && !"All".equals(selectedType)) {
-                query += " AND m.tipo = ?";
-                hasTypeFilter = true;
-            }
-            
-            query += " ORDER BY m.data DESC";
-            
-            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-                int paramIndex = 1;
-                
-                if (hasDateFilter && startDate != null && endDate != null) {
-                    pstmt.setString(paramIndex++, DateUtils.formatDate(startDate, new SimpleDateFormat("yyyy-MM-dd")));
-                    pstmt.setString(paramIndex++, DateUtils.formatDate(endDate, new SimpleDateFormat("yyyy-MM-dd")));
-                }
-                
-                if (hasTypeFilter) {
-                    pstmt.setString(paramIndex, selectedType);
-                }
-                
-                ResultSet rs = pstmt.executeQuery();
+        }
+        
+        if (selectedType != null && !"All".equals(selectedType)) {
+            where.append(" AND m.tipo = ?");
+            params.add(selectedType);
+        }
+        
+        movementsModel.setQuery(new KeysetQuery<Object[]>(
+            "m.*, p.nome as prodotto_nome",
+            "movimenti_magazzino m LEFT JOIN prodotti p ON m.prodotto_id = p.id",
+            rs -> {
+                Date movementDate = DateUtils.parseDate(rs, "data");
+                String productName = rs.getString("prodotto_nome");
                 
-                while (rs.next()) {
-                    Vector<Object> row = new Vector<>();
-                    
-                    Date movementDate = DateUtils.parseDate(rs, "data");
-                    if (movementDate != null) {
-                        row.add(DateUtils.formatDate(movementDate, dateFormat));
-                    } else {
-                        row.add("N/A");
+                String document = rs.getString("documento_tipo");
+                if (document != null && !document.isEmpty()) {
+                    String docNumber = rs.getString("documento_numero");
+                    if (docNumber != null && !docNumber.isEmpty()) {
+                        document += " " + docNumber;
                     }
-                    
-                    String productName = rs.getString("prodotto_nome");
-                    row.add(productName != null ? productName : "Product N/A");
-                    row.add(rs.getString("tipo"));
-                    row.add(rs.getInt("quantita"));
-                    row.add(rs.getString("causale"));
-                    
-                    String document = rs.getString("documento_tipo");
-                    if (document != null && !document.isEmpty()) {
-                        String docNumber = rs.getString("documento_numero");
-                        if (docNumber != null && !docNumber.isEmpty()) {
-                            document += " " + docNumber;
-                        }
-                    } else {
-                        document = "";
-                    }
-                    row.add(document);
-                    
-                    movementsModel.addRow(row);
+                } else {
+                    document = "";
                 }
+                
+                return new Object[] {
+                    movementDate != null ? DateUtils.formatDate(movementDate) : "N/A",
+                    productName != null ? productName : "Product N/A",
+                    rs.getString("tipo"),
+                    rs.getInt("quantita"),
+                    rs.getString("causale"),
+                    document
+                };
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this,
-                "Error loading movements: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        ).where(where.toString(), params.toArray()).orderBy(true, "m.data", "m.id"));
     }
     
     private void printProductsReport() {
         MessageFormat header = new MessageFormat("Warehouse Report - Product Status");
         MessageFormat footer = new MessageFormat("Page {0,number,integer}");
         try {
-            productsTable.print(JTable.PrintMode.FIT_WIDTH, header, footer);
-        } catch (PrinterException e) {
+            // The on-screen table only holds the pages scrolled through
+            new JTable(productsModel.snapshot()).print(JTable.PrintMode.FIT_WIDTH, header, footer);
+        } catch (PrinterException | SQLException e) {
             JOptionPane.showMessageDialog(this,
                 "Error printing report: " + e.getMessage(),
                 "Error", JOptionPane.ERROR_MESSAGE);
@@ -346,8 +312,8 @@ public class WarehouseReportPanel extends JPanel {
         MessageFormat header = new MessageFormat("Warehouse Report - Movement Analysis");
         MessageFormat footer = new MessageFormat("Page {0,number,integer}");
         try {
-            movementsTable.print(JTable.PrintMode.FIT_WIDTH, header, footer);
-        } catch (PrinterException e) {
+            new JTable(movementsModel.snapshot()).print(JTable.PrintMode.FIT_WIDTH, header, footer);
+        } catch (PrinterException | SQLException e) {
             JOptionPane.showMessageDialog(this,
                 "Error printing report: " + e.getMessage(),
                 "Error", JOptionPane.ERROR_MESSAGE);
@@ -361,36 +327,8 @@ public class WarehouseReportPanel extends JPanel {
         fileChooser.setSelectedFile(new File("warehouse_report.csv"));
         
         if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
-            try (PrintWriter writer = new PrintWriter(new FileWriter(fileChooser.getSelectedFile()))) {
-                // Headers
-                for (int i = 0; i < productsModel.getColumnCount(); i++) {
-                    writer.print(productsModel.getColumnName(i));
-                    writer.print(i < productsModel.getColumnCount() - 1 ? "," : "\n");
-                }
-                
-                // Data
-                for (int row = 0; row < productsModel.getRowCount(); row++) {
-                    for (int col = 0; col < productsModel.getColumnCount(); col++) {
-                        String value = productsModel.getValueAt(row, col).toString();
-                        if (value.contains(",")) {
-                            value = "\"" + value + "\"";
-                        }
-                        writer.print(value);
-                        writer.print(col < productsModel.getColumnCount() - 1 ? "," : "\n");
-                    }
-                }
-                
-                JOptionPane.showMessageDialog(this,
-                    "Report exported successfully",
-                    "Export Completed",
-                    JOptionPane.INFORMATION_MESSAGE);
-                
-            } catch (IOException e) {
-                e.printStackTrace();
-                JOptionPane.showMessageDialog(this,
-                    "Error during export: " + e.getMessage(),
-                    "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            new CsvExport(fileChooser.getSelectedFile(), productsModel.getColumnNames())
+                .start(this, productsModel.getRowCount(), productsModel.allRows());
         }
     }
     
@@ -400,41 +338,11 @@ public class WarehouseReportPanel extends JPanel {
         fileChooser.setSelectedFile(new File("warehouse_movements_report.csv"));
         
         if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
-            try (PrintWriter writer = new PrintWriter(new FileWriter(fileChooser.getSelectedFile()))) {
-                // Headers
-                writer.println("Warehouse Movements Report");
-                writer.println("Period: " + startDateField.getText() + " - " + endDateField.getText());
-                writer.println();
-                
-                // Column headers
-                for (int i = 0; i < movementsModel.getColumnCount(); i++) {
-                    writer.print(movementsModel.getColumnName(i));
-                    writer.print(i < movementsModel.getColumnCount() - 1 ? "," : "\n");
-                }
-                
-                // Data
-                for (int row = 0; row < movementsModel.getRowCount(); row++) {
-                    for (int col = 0; col < movementsModel.getColumnCount(); col++) {
-                        String value = movementsModel.getValueAt(row, col).toString();
-                        if (value.contains(",")) {
-                            value = "\"" + value + "\"";
-                        }
-                        writer.print(value);
-                        writer.print(col < movementsModel.getColumnCount() - 1 ? "," : "\n");
-                    }
-                }
-                
-                JOptionPane.showMessageDialog(this,
-                    "Movements report exported successfully",
-                    "Export Completed",
-                    JOptionPane.INFORMATION_MESSAGE);
-                
-            } catch (IOException e) {
-                e.printStackTrace();
-                JOptionPane.showMessageDialog(this,
-                    "Error during export: " + e.getMessage(),
-                    "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            new CsvExport(fileChooser.getSelectedFile(), movementsModel.getColumnNames())
+                .lineBefore("Warehouse Movements Report")
+                .lineBefore("Period: " + startDateField.getText() + " - " + endDateField.getText())
+                .lineBefore()
+                .start(this, movementsModel.getRowCount(), movementsModel.allRows());
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,249 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group-commit queue in front of the writer connection.
+ *
+ * A single "db-writer" thread takes submitted units of work and runs every
+ * unit that arrives within a short window in one transaction, so a burst of
+ * small saves (warehouse scanning, batch jobs) pays for one commit instead of
+ * one per row. Each unit runs inside its own savepoint: a unit that fails is
+ * rolled back alone and only its caller sees the error. Futures complete
+ * after the commit, on the writer thread.
+ */
+public class WriteQueue {
+    private static final long DEFAULT_WINDOW_MILLIS = 5;
+    private static final int MAX_BATCH_SIZE = 256;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    /**
+     * Supplies the pool to write to, reopening it if needed
+     */
+    public interface PoolSource {
+        ConnectionPool get() throws SQLException;
+    }
+
+    private static class PendingWrite<T> {
+        final DatabaseManager.TransactionWork<T> work;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        T result;
+        Exception failure;
+
+        PendingWrite(DatabaseManager.TransactionWork<T> work) {
+            this.work = work;
+        }
+
+        void execute(Connection conn) throws SQLException {
+            result = work.execute(conn);
+        }
+
+        void complete() {
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else {
+                future.complete(result);
+            }
+        }
+    }
+
+    private final PoolSource poolSource;
+    private final long windowNanos;
+    private final BlockingQueue<PendingWrite<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread writerThread;
+    // Guards accepting against queue.add, so nothing is queued after the
+    // writer has seen the queue closed and empty
+    private final Object submitLock = new Object();
+    private volatile boolean accepting = true;
+    // Set when shutdown gave up waiting: the writer fails what it still holds
+    private volatile boolean abandoned = false;
+    private long batches = 0;
+    private long writes = 0;
+
+    public WriteQueue(PoolSource poolSource) {
+        this(poolSource, Long.getLong("workgenio.groupCommitWindowMs", DEFAULT_WINDOW_MILLIS));
+    }
+
+    public WriteQueue(PoolSource poolSource, long windowMillis) {
+        this.poolSource = poolSource;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, windowMillis));
+        this.writerThread = new Thread(this::run, "db-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queue a unit of work. The future completes with the unit's result once
+     * the transaction containing it has been committed.
+     */
+    public <T> CompletableFuture<T> submit(DatabaseManager.TransactionWork<T> work) {
+        PendingWrite<T> pending = new PendingWrite<>(work);
+        if (Thread.currentThread() == writerThread) {
+            // Submitted from inside a unit: waiting on it here would deadlock
+            pending.future.completeExceptionally(
+                new SQLException("Nested writes must use the connection passed to the unit of work"));
+            return pending.future;
+        }
+        synchronized (submitLock) {
+            if (!accepting) {
+                pending.future.completeExceptionally(new SQLException("Write queue is shut down"));
+                return pending.future;
+            }
+            queue.add(pending);
+        }
+        return pending.future;
+    }
+
+    private void run() {
+        List<PendingWrite<?>> batch = new ArrayList<>();
+        while (accepting || !queue.isEmpty()) {
+            try {
+                PendingWrite<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Collect whatever else arrives within the coalescing window
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < MAX_BATCH_SIZE) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingWrite<?> next = remaining > 0
+                        ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+                        : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                commitBatch(batch);
+            } catch (InterruptedException e) {
+                // Shutdown requested: drain what is left, then exit
+                stopAccepting();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void stopAccepting() {
+        synchronized (submitLock) {
+            accepting = false;
+        }
+    }
+
+    private void failQueued() {
+        PendingWrite<?> pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future.completeExceptionally(new SQLException("Write queue is shut down"));
+        }
+    }
+
+    private void commitBatch(List<PendingWrite<?>> batch) {
+        if (abandoned) {
+            failAll(batch, new SQLException("Write queue is shut down"));
+            return;
+        }
+        ConnectionPool pool;
+        try {
+            pool = poolSource.get();
+        } catch (SQLException e) {
+            failAll(batch, e);
+            return;
+        }
+
+        Connection conn = pool.getWriter();
+        pool.getWriteLock().lock();
+        try {
+            conn.setAutoCommit(false);
+            try {
+                for (PendingWrite<?> pending : batch) {
+                    runInSavepoint(conn, pending);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                // Savepoint bookkeeping or the commit itself failed: nothing was written
+                rollbackQuietly(conn);
+                failAll(batch, e);
+                return;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            failAll(batch, e);
+            return;
+        } finally {
+            pool.getWriteLock().unlock();
+        }
+
+        synchronized (this) {
+            batches++;
+            writes += batch.size();
+        }
+        for (PendingWrite<?> pending : batch) {
+            pending.complete();
+        }
+    }
+
+    private void runInSavepoint(Connection conn, PendingWrite<?> pending) throws SQLException {
+        Savepoint savepoint = conn.setSavepoint();
+        try {
+            pending.execute(conn);
+        } catch (SQLException | RuntimeException e) {
+            pending.failure = e;
+            conn.rollback(savepoint);
+        }
+        conn.releaseSavepoint(savepoint);
+    }
+
+    private static void failAll(List<PendingWrite<?>> batch, SQLException cause) {
+        for (PendingWrite<?> pending : batch) {
+            pending.future.completeExceptionally(pending.failure != null ? pending.failure : cause);
+        }
+    }
+
+    private static void rollbackQuietly(Connection conn) {
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Stop accepting work and wait for everything already queued to commit.
+     * If the writer does not finish in time, the units still waiting fail
+     * instead of being written after the caller has moved on.
+     */
+    public void shutdown() {
+        stopAccepting();
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(SHUTDOWN_TIMEOUT_SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            System.err.println("Write queue did not drain in time, failing pending writes");
+            abandoned = true;
+            failQueued();
+        }
+    }
+
+    public boolean isShutdown() {
+        return !accepting;
+    }
+
+    /**
+     * @return average number of units per committed transaction
+     */
+    public synchronized double getAverageBatchSize() {
+        return batches == 0 ? 0 : (double) writes / batches;
+    }
+}